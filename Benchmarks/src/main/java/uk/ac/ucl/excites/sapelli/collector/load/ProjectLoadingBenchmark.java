@@ -0,0 +1,162 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.collector.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.ucl.excites.sapelli.collector.model.Form;
+import uk.ac.ucl.excites.sapelli.collector.model.Project;
+
+/**
+ * Measures loading a project from its {@value ProjectLoader#PROJECT_FILE} file and from its {@value ProjectLoader#PROJECT_SNAPSHOT_FILE} file.
+ *
+ * The snapshot only skips the XML parsing, the {@link Project} object graph (forms, fields, schemata) is rebuilt either way.
+ * Like {@link uk.ac.ucl.excites.sapelli.collector.db.ProjectRecordStore} does, a {@link FormSchemaInfoProvider} is passed so
+ * that the by-passable fields of each form need not be worked out again.
+ *
+ * @author mstevens
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProjectLoadingBenchmark implements FormSchemaInfoProvider
+{
+
+	static private final Charset UTF8 = Charset.forName("UTF-8");
+
+	static private final int FIELDS_PER_FORM = 20;
+
+	/**
+	 * Number of forms of the project.
+	 */
+	@Param({ "1", "10" })
+	public int forms;
+
+	private File folder;
+	private int fingerPrint;
+	private final Map<Short, List<String>> byPassableFieldIDs = new HashMap<Short, List<String>>();
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		folder = File.createTempFile("ProjectLoadingBenchmark", "");
+		if(!folder.delete() || !folder.mkdir())
+			throw new IOException("Could not create " + folder.getAbsolutePath());
+		FileUtils.write(ProjectLoader.GetProjectXMLFile(folder), CreateProjectXML(forms), UTF8);
+		Project project = ProjectLoader.ParseProjectXMLInFolder(folder, null);
+		if(project == null || project.getForms().size() != forms)
+			throw new IllegalStateException("Could not parse project");
+		fingerPrint = project.getFingerPrint();
+		for(Form form : project.getForms())
+			byPassableFieldIDs.put(form.getPosition(), new ArrayList<String>(form.getColumnOptionalityAdvisor().getIDsOfByPassableNonOptionalFieldsWithColumn()));
+		if(!ProjectLoader.WriteProjectSnapshot(folder, project) || !project.equals(ProjectLoader.ParseProjectSnapshotInFolder(folder, fingerPrint, this)))
+			throw new IllegalStateException("Could not load project from snapshot");
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		FileUtils.deleteQuietly(folder);
+	}
+
+	/**
+	 * @param forms
+	 * @return the contents of a {@value ProjectLoader#PROJECT_FILE} file with the given number of forms, each with {@value #FIELDS_PER_FORM} fields
+	 */
+	static private String CreateProjectXML(int forms)
+	{
+		StringBuilder bldr = new StringBuilder();
+		bldr.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		bldr.append("<SapelliCollectorProject format=\"2\" id=\"1234\" name=\"Benchmark\" version=\"1\">\n");
+		for(int f = 0; f < forms; f++)
+		{
+			bldr.append("\t<Form id=\"Form").append(f).append("\">\n");
+			for(int c = 0; c < FIELDS_PER_FORM; c++)
+			{
+				String id = "Form" + f + "_Field" + c;
+				switch(c % 4)
+				{
+					case 0 :
+						bldr.append("\t\t<Text id=\"").append(id).append("\" caption=\"Enter some text for field ").append(c).append(":\" optional=\"true\"/>\n");
+						break;
+					case 1 :
+						bldr.append("\t\t<Check id=\"").append(id).append("\" caption=\"Tick field ").append(c).append("\"/>\n");
+						break;
+					case 2 :
+						bldr.append("\t\t<List id=\"").append(id).append("\" caption=\"Pick an item:\">\n");
+						for(int i = 0; i < 5; i++)
+							bldr.append("\t\t\t<Item value=\"Item ").append(i).append("\"/>\n");
+						bldr.append("\t\t</List>\n");
+						break;
+					default :
+						bldr.append("\t\t<Choice id=\"").append(id).append("\" rows=\"2\" cols=\"2\">\n");
+						for(int i = 0; i < 4; i++)
+							bldr.append("\t\t\t<Choice value=\"Option ").append(i).append("\" alt=\"Option ").append(i).append("\"/>\n");
+						bldr.append("\t\t</Choice>\n");
+				}
+			}
+			bldr.append("\t</Form>\n");
+		}
+		bldr.append("</SapelliCollectorProject>\n");
+		return bldr.toString();
+	}
+
+	@Override
+	public List<String> getByPassableFieldIDs(Form form)
+	{
+		return byPassableFieldIDs.get(form.getPosition());
+	}
+
+	@Benchmark
+	public Project parseXML()
+	{
+		return ProjectLoader.ParseProjectXMLInFolder(folder, this);
+	}
+
+	@Benchmark
+	public Project parseSnapshot()
+	{
+		return ProjectLoader.ParseProjectSnapshotInFolder(folder, fingerPrint, this);
+	}
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.shared.compression;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.ucl.excites.sapelli.shared.compression.CompressorFactory.Compression;
+import uk.ac.ucl.excites.sapelli.shared.io.BitArrayOutputStream;
+import uk.ac.ucl.excites.sapelli.storage.model.BenchmarkSchemata;
+import uk.ac.ucl.excites.sapelli.storage.model.Record;
+import uk.ac.ucl.excites.sapelli.storage.model.Schema;
+
+/**
+ * Compares trying all compression modes one after the other ({@link BestCompressor} without executor) with trying them in parallel,
+ * on data resembling the contents of a {@code RecordsPayload}.
+ *
+ * @author mstevens
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BestCompressorBenchmark
+{
+
+	static private final Compression[] MODES = Compression.values();
+
+	/**
+	 * Approximate size (in bytes) of the data to compress.
+	 */
+	@Param({ "4096", "65536" })
+	public int size;
+
+	@Param({ "false", "true" })
+	public boolean verify;
+
+	private byte[] data;
+	private ExecutorService executor;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		// Serialise records until we have enough data:
+		Schema schema = BenchmarkSchemata.CreateFormSchema(BenchmarkSchemata.CreateModel(1), "Form", 20);
+		Random random = new Random(0);
+		BitArrayOutputStream out = new BitArrayOutputStream();
+		while(out.getNumberOfBitsWritten() < size * Byte.SIZE)
+		{
+			Record record = BenchmarkSchemata.CreateRecord(schema, random);
+			record.writeToBitStream(out, false);
+		}
+		data = out.toBitArray().toByteArray();
+		executor = Executors.newFixedThreadPool(MODES.length);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		executor.shutdown();
+	}
+
+	@Benchmark
+	public CompressorResult sequential()
+	{
+		return new BestCompressor(null).apply(data, MODES, verify).getBest();
+	}
+
+	@Benchmark
+	public CompressorResult parallel()
+	{
+		return new BestCompressor(executor).apply(data, MODES, verify).getBest();
+	}
+
+}
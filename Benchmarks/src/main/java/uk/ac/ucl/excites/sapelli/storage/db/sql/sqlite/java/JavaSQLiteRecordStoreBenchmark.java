@@ -0,0 +1,307 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.storage.db.sql.sqlite.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.FileUtils;
+
+import uk.ac.ucl.excites.sapelli.shared.db.StoreHandle.StoreSetter;
+import uk.ac.ucl.excites.sapelli.shared.db.StoreHandle.StoreUser;
+import uk.ac.ucl.excites.sapelli.shared.db.exceptions.DBException;
+import uk.ac.ucl.excites.sapelli.shared.io.FileHelpers;
+import uk.ac.ucl.excites.sapelli.storage.StorageClient;
+import uk.ac.ucl.excites.sapelli.storage.db.RecordStore;
+import uk.ac.ucl.excites.sapelli.storage.model.Attachment;
+import uk.ac.ucl.excites.sapelli.storage.model.Model;
+import uk.ac.ucl.excites.sapelli.storage.model.Record;
+import uk.ac.ucl.excites.sapelli.storage.model.Schema;
+import uk.ac.ucl.excites.sapelli.storage.model.columns.IntegerColumn;
+import uk.ac.ucl.excites.sapelli.storage.model.columns.StringColumn;
+import uk.ac.ucl.excites.sapelli.storage.model.indexes.AutoIncrementingPrimaryKey;
+import uk.ac.ucl.excites.sapelli.storage.model.indexes.Index;
+import uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery;
+import uk.ac.ucl.excites.sapelli.storage.queries.constraints.EqualityConstraint;
+import uk.ac.ucl.excites.sapelli.storage.queries.sources.Source;
+import uk.ac.ucl.excites.sapelli.storage.util.UnknownModelException;
+
+/**
+ * Measures the throughput of a mixed read/write workload on a {@link JavaSQLiteRecordStore}, first using the
+ * default rollback journal (with reads and writes interleaved on a single thread, as that is the only option
+ * there), then in WAL mode (with the writes on the thread that created the store and the reads on concurrent threads).
+ *
+ * Usage: {@code JavaSQLiteRecordStoreBenchmark [folder] [writes] [readsPerWrite] [readerThreads]}
+ *
+ * @author mstevens
+ */
+public class JavaSQLiteRecordStoreBenchmark implements StoreUser
+{
+
+	// STATICS-------------------------------------------------------
+	static private final int DEFAULT_WRITES = 2000;
+	static private final int DEFAULT_READS_PER_WRITE = 4;
+	static private final int DEFAULT_READER_THREADS = JavaSQLiteRecordStore.DEFAULT_READ_CONNECTIONS;
+	static private final int WARM_UP_RECORDS = 1000;
+	static private final int GROUPS = 50;
+
+	static private final Model MODEL = new Model(0xBE7C4, "Benchmark", StorageClient.SCHEMA_FLAG_EXPORTABLE);
+	static private final Schema SCHEMA = new Schema(MODEL, "Observation");
+	static private final IntegerColumn COLUMN_ID = SCHEMA.addColumn(new IntegerColumn("ID", false, false, Integer.SIZE));
+	static private final IntegerColumn COLUMN_GROUP = SCHEMA.addColumn(new IntegerColumn("Grp", false, false, Integer.SIZE));
+	static private final StringColumn COLUMN_TEXT = SCHEMA.addColumn(new StringColumn("Text", false, 256));
+	static
+	{
+		SCHEMA.addIndex(new Index(COLUMN_GROUP, false));
+		SCHEMA.setPrimaryKey(new AutoIncrementingPrimaryKey(SCHEMA.getName() + "_PK", COLUMN_ID), true /*seal!*/);
+	}
+
+	static public void main(String[] args) throws Exception
+	{
+		File folder = new File(args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir"), JavaSQLiteRecordStoreBenchmark.class.getSimpleName());
+		int writes = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_WRITES;
+		int readsPerWrite = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_READS_PER_WRITE;
+		int readerThreads = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_READER_THREADS;
+
+		report("Rollback journal, 1 thread", writes, readsPerWrite, new JavaSQLiteRecordStoreBenchmark(new File(folder, "rollback"), 0).runSingleThreaded(writes, readsPerWrite));
+		report("WAL, 1 writer + " + readerThreads + " readers", writes, readsPerWrite, new JavaSQLiteRecordStoreBenchmark(new File(folder, "wal"), readerThreads).runConcurrent(writes, readsPerWrite, readerThreads));
+	}
+
+	static private void report(String label, int writes, int readsPerWrite, long durationNS)
+	{
+		double seconds = durationNS / 1000000000.0d;
+		int reads = writes * readsPerWrite;
+		System.out.println(String.format("%s: %d writes & %d reads in %.3f s = %.1f ops/s (%.1f writes/s, %.1f reads/s)", label, writes, reads, seconds, (writes + reads) / seconds, writes / seconds, reads / seconds));
+	}
+
+	// DYNAMICS------------------------------------------------------
+	private final BenchmarkClient client;
+	private RecordStore store;
+	private int nextRecord = 0;
+
+	/**
+	 * @param folder
+	 * @param readConnections
+	 */
+	private JavaSQLiteRecordStoreBenchmark(File folder, int readConnections)
+	{
+		this.client = new BenchmarkClient(folder, readConnections);
+	}
+
+	/**
+	 * Opens a fresh store and fills it with some records.
+	 *
+	 * @throws DBException
+	 */
+	private void setUp() throws DBException
+	{
+		FileUtils.deleteQuietly(client.folder); // start from an empty database
+		FileHelpers.createDirectory(client.folder);
+		store = client.recordStoreHandle.getStore(this);
+		List<Record> records = new ArrayList<Record>(WARM_UP_RECORDS);
+		for(int i = 0; i < WARM_UP_RECORDS; i++)
+			records.add(createRecord());
+		store.store(records);
+	}
+
+	private void tearDown()
+	{
+		client.recordStoreHandle.doneUsing(this); // closes the store
+		store = null;
+	}
+
+	private Record createRecord()
+	{
+		Record record = SCHEMA.createRecord();
+		COLUMN_GROUP.storeValue(record, (long) (nextRecord % GROUPS));
+		COLUMN_TEXT.storeValue(record, "Record #" + nextRecord);
+		nextRecord++;
+		return record;
+	}
+
+	private void read(int r)
+	{
+		store.retrieveRecords(new RecordsQuery(Source.From(SCHEMA), new EqualityConstraint(COLUMN_GROUP, (long) (r % GROUPS))));
+	}
+
+	/**
+	 * @param writes
+	 * @param readsPerWrite
+	 * @return duration in ns
+	 * @throws DBException
+	 */
+	private long runSingleThreaded(int writes, int readsPerWrite) throws DBException
+	{
+		setUp();
+		try
+		{
+			long startTimeNS = System.nanoTime();
+			for(int w = 0; w < writes; w++)
+			{
+				store.store(createRecord());
+				for(int r = 0; r < readsPerWrite; r++)
+					read(w * readsPerWrite + r);
+			}
+			return System.nanoTime() - startTimeNS;
+		}
+		finally
+		{
+			tearDown();
+		}
+	}
+
+	/**
+	 * @param writes
+	 * @param readsPerWrite
+	 * @param readerThreads
+	 * @return duration in ns
+	 * @throws Exception
+	 */
+	private long runConcurrent(int writes, final int readsPerWrite, int readerThreads) throws Exception
+	{
+		setUp();
+		try
+		{
+			if(!((JavaSQLiteRecordStore) store).isWALMode())
+				client.logWarning("WAL mode could not be enabled, reads will not run concurrently with writes!");
+			final AtomicReference<Throwable> readerFailure = new AtomicReference<Throwable>();
+			List<Thread> readers = new ArrayList<Thread>(readerThreads);
+			final int readsPerThread = writes * readsPerWrite / readerThreads;
+			for(int t = 0; t < readerThreads; t++)
+			{
+				final int offset = t * readsPerThread;
+				readers.add(new Thread(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						try
+						{
+							for(int r = 0; r < readsPerThread; r++)
+								read(offset + r);
+						}
+						catch(Throwable e)
+						{
+							readerFailure.compareAndSet(null, e);
+						}
+					}
+				}, "BenchmarkReader-" + t));
+			}
+
+			long startTimeNS = System.nanoTime();
+			for(Thread reader : readers)
+				reader.start();
+			for(int w = 0; w < writes; w++)
+				store.store(createRecord()); // on the writer thread (i.e. the one which created the store)
+			for(Thread reader : readers)
+				reader.join();
+			long durationNS = System.nanoTime() - startTimeNS;
+
+			if(readerFailure.get() != null)
+				throw new Exception("Reader failed", readerFailure.get());
+			return durationNS;
+		}
+		finally
+		{
+			tearDown();
+		}
+	}
+
+	/**
+	 * Minimal {@link StorageClient} which creates a {@link JavaSQLiteRecordStore} in a given folder.
+	 *
+	 * @author mstevens
+	 */
+	static private class BenchmarkClient extends StorageClient
+	{
+
+		private final File folder;
+		private final int readConnections;
+
+		public BenchmarkClient(File folder, int readConnections)
+		{
+			this.folder = folder;
+			this.readConnections = readConnections;
+		}
+
+		@Override
+		protected void createAndSetRecordStore(StoreSetter<RecordStore> setter) throws DBException
+		{
+			setter.setAndInitialise(new JavaSQLiteRecordStore(this, folder, "Benchmark", 1, null, readConnections));
+		}
+
+		@Override
+		public List<? extends Attachment> getRecordAttachments(Record record)
+		{
+			return Collections.<Attachment> emptyList();
+		}
+
+		@Override
+		protected Model getClientModel(long modelID)
+		{
+			return modelID == MODEL.id ? MODEL : null;
+		}
+
+		@Override
+		protected void serialiseClientModel(Model model, OutputStream out) throws IOException, UnknownModelException
+		{
+			throw new UnknownModelException(model.id, model.name); // use Java object serialisation
+		}
+
+		@Override
+		protected Model deserialiseClientModel(byte kind, InputStream in) throws Exception
+		{
+			return null;
+		}
+
+		@Override
+		public Schema getSchemaV1(int schemaID, int schemaVersion) throws UnknownModelException
+		{
+			throw new UnknownModelException(schemaID, schemaVersion);
+		}
+
+		@Override
+		public void logError(String msg, Throwable throwable)
+		{
+			System.err.println("ERROR: " + msg);
+			if(throwable != null)
+				throwable.printStackTrace(System.err);
+		}
+
+		@Override
+		public void logWarning(String msg)
+		{
+			System.out.println("WARNING: " + msg);
+		}
+
+		@Override
+		public void logInfo(String msg)
+		{
+			System.out.println("INFO: " + msg);
+		}
+
+	}
+
+}
@@ -0,0 +1,177 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.storage.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.ucl.excites.sapelli.collector.model.Form;
+import uk.ac.ucl.excites.sapelli.storage.StorageClient;
+import uk.ac.ucl.excites.sapelli.storage.model.columns.BooleanColumn;
+import uk.ac.ucl.excites.sapelli.storage.model.columns.IntegerColumn;
+import uk.ac.ucl.excites.sapelli.storage.model.columns.StringColumn;
+import uk.ac.ucl.excites.sapelli.storage.model.indexes.PrimaryKey;
+import uk.ac.ucl.excites.sapelli.storage.types.Location;
+import uk.ac.ucl.excites.sapelli.storage.types.LocationColumn;
+import uk.ac.ucl.excites.sapelli.storage.types.TimeStamp;
+import uk.ac.ucl.excites.sapelli.storage.types.TimeStampColumn;
+
+/**
+ * Generates schemata and records resembling those of Sapelli Collector forms, for use in benchmarks.
+ *
+ * Each schema has the implicit columns of a {@link Form} (start time, end time & device ID), followed by field columns cycling through
+ * choices (5 out of 10), check boxes (2 out of 10), a text box, a number and a location, using the same column types and settings as the
+ * corresponding fields.
+ *
+ * @author mstevens
+ */
+public final class BenchmarkSchemata
+{
+
+	static private final long START_TIME_MS = 1483228800000L; // 2017-01-01T00:00:00Z
+
+	static private final String TEXT_CHARACTERS = "abcdefghijklmnopqrstuvwxyz ABCDEFGHIJKLMNOPQRSTUVWXYZ 0123456789 .,;:!?";
+
+	private BenchmarkSchemata() {}
+
+	/**
+	 * @param modelID
+	 * @return a new model to add benchmark schemata to (up to {@link Model#MAX_SCHEMATA})
+	 */
+	static public Model CreateModel(long modelID)
+	{
+		return new Model(modelID, "Benchmark" + modelID, StorageClient.SCHEMA_FLAG_EXPORTABLE);
+	}
+
+	/**
+	 * @param model
+	 * @param name
+	 * @param numberOfColumns total number of (non-virtual) columns, including the 3 implicit ones (must be at least 4)
+	 * @return a new, sealed schema
+	 */
+	static public Schema CreateFormSchema(Model model, String name, int numberOfColumns)
+	{
+		return CreateFormSchema(model, name, numberOfColumns, true);
+	}
+
+	/**
+	 * @param model
+	 * @param name
+	 * @param numberOfColumns total number of (non-virtual) columns, including the 3 implicit ones (must be at least 4)
+	 * @param seal whether or not to seal the schema (records can only be created for sealed schemata)
+	 * @return a new schema
+	 */
+	static public Schema CreateFormSchema(Model model, String name, int numberOfColumns, boolean seal)
+	{
+		if(numberOfColumns < 4)
+			throw new IllegalArgumentException("There must be at least 1 field column");
+		Schema schema = new Schema(model, name);
+		schema.addColumn(Form.COLUMN_TIMESTAMP_START);
+		schema.addColumn(Form.COLUMN_TIMESTAMP_END);
+		schema.addColumn(Form.COLUMN_DEVICE_ID);
+		schema.setPrimaryKey(PrimaryKey.WithColumnNames(Form.COLUMN_TIMESTAMP_START, Form.COLUMN_DEVICE_ID));
+		for(int f = 0; f < numberOfColumns - 3; f++)
+		{
+			String fieldName = "Field" + f;
+			switch(f % 10)
+			{
+				case 5 :
+				case 6 :
+					schema.addColumn(new BooleanColumn(fieldName, true));
+					break;
+				case 7 :
+					schema.addColumn(StringColumn.ForCharacterCount(fieldName, true, 100));
+					break;
+				case 8 :
+					schema.addColumn(new IntegerColumn(fieldName, true, false, Integer.SIZE));
+					break;
+				case 9 :
+					schema.addColumn(new LocationColumn(fieldName, true, false, true, false, false, true, false, true));
+					break;
+				default :
+					schema.addColumn(new IntegerColumn(fieldName, true, 0, 2 + (f * 7) % 30, true)); // choice with 3 to 32 options
+			}
+		}
+		if(seal)
+			schema.seal();
+		return schema;
+	}
+
+	/**
+	 * @param schema a schema created by {@link #CreateFormSchema(Model, String, int)}
+	 * @param numberOfRecords
+	 * @param random
+	 * @return a list of records with random values, about 1 in 10 optional values is left {@code null}
+	 */
+	static public List<Record> CreateRecords(Schema schema, int numberOfRecords, Random random)
+	{
+		List<Record> records = new ArrayList<Record>(numberOfRecords);
+		for(int r = 0; r < numberOfRecords; r++)
+			records.add(CreateRecord(schema, random));
+		return records;
+	}
+
+	/**
+	 * @param schema a schema created by {@link #CreateFormSchema(Model, String, int)}
+	 * @param random
+	 * @return a record with random values, about 1 in 10 optional values is left {@code null}
+	 */
+	static public Record CreateRecord(Schema schema, Random random)
+	{
+		Record record = schema.createRecord();
+		long startTimeMS = START_TIME_MS + (random.nextLong() >>> 40);
+		for(Column<?> column : schema.getColumns(false))
+		{
+			if(column.optional && random.nextInt(10) == 0)
+				continue; // leave empty
+			if(column == Form.COLUMN_TIMESTAMP_START)
+				Form.COLUMN_TIMESTAMP_START.storeValue(record, new TimeStamp(startTimeMS));
+			else if(column == Form.COLUMN_TIMESTAMP_END)
+				Form.COLUMN_TIMESTAMP_END.storeValue(record, new TimeStamp(startTimeMS + random.nextInt(3600000)));
+			else if(column instanceof TimeStampColumn)
+				((TimeStampColumn) column).storeValue(record, new TimeStamp(startTimeMS));
+			else if(column instanceof IntegerColumn)
+			{
+				IntegerColumn intCol = (IntegerColumn) column;
+				intCol.storeValue(record, intCol.getMinValue() + (long) (random.nextDouble() * (intCol.getMaxValue() - intCol.getMinValue())));
+			}
+			else if(column instanceof BooleanColumn)
+				((BooleanColumn) column).storeValue(record, random.nextBoolean());
+			else if(column instanceof StringColumn)
+			{
+				StringBuilder bldr = new StringBuilder();
+				for(int c = random.nextInt(40); c > 0; c--)
+					bldr.append(TEXT_CHARACTERS.charAt(random.nextInt(TEXT_CHARACTERS.length())));
+				((StringColumn) column).storeValue(record, bldr.toString());
+			}
+			else if(column instanceof LocationColumn)
+				((LocationColumn) column).storeValue(record, new Location(	51.5 + random.nextDouble(),
+																			-0.5 + random.nextDouble(),
+																			random.nextDouble() * 100,
+																			null,
+																			null,
+																			random.nextFloat() * 20,
+																			(Long) null,
+																			Location.PROVIDER_GPS));
+		}
+		return record;
+	}
+
+}
@@ -0,0 +1,161 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.storage.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures record round trips (serialising to bytes, deserialising & copying all values to another record) when values are accessed
+ * through the schema's own column instances, whose positions are looked up by identity, and through equal copies of those columns,
+ * which go through the name-based look-up & compatibility check that all value accesses used to go through.
+ *
+ * @author mstevens
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordRoundTripBenchmark
+{
+
+	static private final int RECORDS = 100;
+
+	/**
+	 * Number of columns of the (form) schema.
+	 */
+	@Param({ "10", "50" })
+	public int columns;
+
+	private Schema schema;
+	private List<Record> records;
+	private List<byte[]> serialised;
+	private List<Column<?>> ownColumns;
+	private List<Column<?>> equalColumns;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		schema = BenchmarkSchemata.CreateFormSchema(BenchmarkSchemata.CreateModel(columns), "Form", columns);
+		records = BenchmarkSchemata.CreateRecords(schema, RECORDS, new Random(0));
+		serialised = new ArrayList<byte[]>(RECORDS);
+		for(Record record : records)
+			serialised.add(record.toBytes(true));
+		ownColumns = schema.getColumns(false);
+		equalColumns = new ArrayList<Column<?>>(ownColumns.size());
+		for(Column<?> column : ownColumns)
+			equalColumns.add(column.createCopy()); // (virtual versions are irrelevant to value access)
+		// Check both kinds of access give the same result:
+		Record viaOwn = schema.createRecord();
+		Record viaEqual = schema.createRecord();
+		copyValues(records.get(0), viaOwn, ownColumns);
+		copyValues(records.get(0), viaEqual, equalColumns);
+		if(!viaOwn.equals(viaEqual) || !viaOwn.equals(records.get(0)))
+			throw new IllegalStateException("Copied records differ");
+	}
+
+	private void roundTrip(List<Column<?>> columns, Blackhole blackhole) throws IOException
+	{
+		for(Record record : records)
+		{
+			Record deserialised = schema.createRecord(record.toBytes(true), true);
+			Record copy = schema.createRecord();
+			copyValues(deserialised, copy, columns);
+			blackhole.consume(copy);
+		}
+	}
+
+	private void copyValues(List<Column<?>> columns, Blackhole blackhole)
+	{
+		for(Record record : records)
+		{
+			Record copy = schema.createRecord();
+			copyValues(record, copy, columns);
+			blackhole.consume(copy);
+		}
+	}
+
+	static private void copyValues(Record from, Record to, List<Column<?>> columns)
+	{
+		for(Column<?> column : columns)
+			copyValue(from, to, column);
+	}
+
+	static private <T> void copyValue(Record from, Record to, Column<T> column)
+	{
+		column.storeValue(to, column.retrieveValue(from));
+	}
+
+	@Benchmark
+	public void toBytes(Blackhole blackhole) throws IOException
+	{
+		for(Record record : records)
+			blackhole.consume(record.toBytes(true));
+	}
+
+	@Benchmark
+	public void fromBytes(Blackhole blackhole) throws IOException
+	{
+		for(byte[] bytes : serialised)
+			blackhole.consume(schema.createRecord(bytes, true));
+	}
+
+	@Benchmark
+	public void copyValuesByIdentity(Blackhole blackhole)
+	{
+		copyValues(ownColumns, blackhole);
+	}
+
+	@Benchmark
+	public void copyValuesByName(Blackhole blackhole)
+	{
+		copyValues(equalColumns, blackhole);
+	}
+
+	@Benchmark
+	public void roundTripByIdentity(Blackhole blackhole) throws IOException
+	{
+		roundTrip(ownColumns, blackhole);
+	}
+
+	@Benchmark
+	public void roundTripByName(Blackhole blackhole) throws IOException
+	{
+		roundTrip(equalColumns, blackhole);
+	}
+
+}
@@ -0,0 +1,125 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.storage.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link HashMap} look-ups keyed by 50-column schemata, and {@link Record#hashCode()}.
+ *
+ * Sealed schemata hash their cached fingerprint. Unsealed schemata recompute it every time, which gives the cost of the deep hash
+ * all look-ups used to pay. Look-ups with equal but distinct schema instances additionally need the deep {@link Schema#equals(Object)}.
+ *
+ * @author mstevens
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SchemaLookupBenchmark
+{
+
+	static private final int SCHEMATA = 8;
+	static private final int COLUMNS = 50;
+
+	private Schema[] sealed;
+	private Schema[] equal;
+	private Schema[] unsealed;
+	private Record[] records;
+	private Map<Schema, Integer> sealedMap;
+	private Map<Schema, Integer> unsealedMap;
+
+	@Setup
+	public void setUp()
+	{
+		sealed = CreateSchemata(true);
+		equal = CreateSchemata(true); // same model ID, so equal to the former but distinct instances
+		unsealed = CreateSchemata(false);
+		records = new Record[SCHEMATA];
+		sealedMap = new HashMap<Schema, Integer>();
+		unsealedMap = new HashMap<Schema, Integer>();
+		Random random = new Random(0);
+		for(int s = 0; s < SCHEMATA; s++)
+		{
+			if(!sealed[s].equals(equal[s]))
+				throw new IllegalStateException("Schemata differ");
+			records[s] = BenchmarkSchemata.CreateRecord(sealed[s], random);
+			sealedMap.put(sealed[s], s);
+			unsealedMap.put(unsealed[s], s);
+		}
+	}
+
+	static private Schema[] CreateSchemata(boolean seal)
+	{
+		Model model = BenchmarkSchemata.CreateModel(1);
+		Schema[] schemata = new Schema[SCHEMATA];
+		for(int s = 0; s < SCHEMATA; s++)
+			schemata[s] = BenchmarkSchemata.CreateFormSchema(model, "Form" + s, COLUMNS, seal);
+		return schemata;
+	}
+
+	static private void lookUp(Map<Schema, Integer> map, Schema[] keys, Blackhole blackhole)
+	{
+		for(Schema key : keys)
+			blackhole.consume(map.get(key));
+	}
+
+	@Benchmark
+	public void lookUpSameInstance(Blackhole blackhole)
+	{
+		lookUp(sealedMap, sealed, blackhole);
+	}
+
+	@Benchmark
+	public void lookUpEqualInstance(Blackhole blackhole)
+	{
+		lookUp(sealedMap, equal, blackhole);
+	}
+
+	@Benchmark
+	public void lookUpUnsealed(Blackhole blackhole)
+	{
+		lookUp(unsealedMap, unsealed, blackhole);
+	}
+
+	@Benchmark
+	public void recordHashCode(Blackhole blackhole)
+	{
+		for(Record record : records)
+			blackhole.consume(record.hashCode());
+	}
+
+}
@@ -0,0 +1,196 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.storage.model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.ac.ucl.excites.sapelli.shared.io.BitArray;
+import uk.ac.ucl.excites.sapelli.shared.io.BitArrayInputStream;
+import uk.ac.ucl.excites.sapelli.shared.io.BitArrayOutputStream;
+import uk.ac.ucl.excites.sapelli.shared.io.BitInputStream;
+import uk.ac.ucl.excites.sapelli.shared.io.BitOutputStream;
+
+/**
+ * Compares writing records to, and reading them from, bit streams which move up to 64 bits at a time ({@link BitArrayOutputStream}
+ * and {@link BitArrayInputStream}) with streams which only implement the per-bit methods, which is what all values used to go through.
+ *
+ * @author mstevens
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValueSetBitStreamBenchmark
+{
+
+	static private final int RECORDS = 100;
+
+	/**
+	 * Number of columns of the (form) schema.
+	 */
+	@Param({ "10", "50" })
+	public int columns;
+
+	private List<Record> records;
+	private Schema schema;
+	private BitArray encoded;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		schema = BenchmarkSchemata.CreateFormSchema(BenchmarkSchemata.CreateModel(columns), "Form", columns);
+		records = BenchmarkSchemata.CreateRecords(schema, RECORDS, new Random(0));
+		BitArrayOutputStream wordOut = new BitArrayOutputStream();
+		write(wordOut);
+		encoded = wordOut.toBitArray();
+		// Check both paths produce the same bits:
+		PerBitOutputStream perBitOut = new PerBitOutputStream(encoded.length());
+		write(perBitOut);
+		if(!encoded.equals(perBitOut.bits))
+			throw new IllegalStateException("Per-bit output differs");
+	}
+
+	private void write(BitOutputStream out) throws IOException
+	{
+		for(Record record : records)
+			record.writeToBitStream(out, true);
+	}
+
+	private void read(BitInputStream in, Blackhole blackhole) throws IOException
+	{
+		for(int r = 0; r < RECORDS; r++)
+		{
+			Record record = schema.createRecord();
+			record.readFromBitStream(in, true);
+			blackhole.consume(record);
+		}
+	}
+
+	@Benchmark
+	public int writeWords() throws IOException
+	{
+		BitArrayOutputStream out = new BitArrayOutputStream();
+		write(out);
+		return out.getNumberOfBitsWritten();
+	}
+
+	@Benchmark
+	public int writePerBit() throws IOException
+	{
+		PerBitOutputStream out = new PerBitOutputStream(encoded.length());
+		write(out);
+		return out.getNumberOfBitsWritten();
+	}
+
+	@Benchmark
+	public void readWords(Blackhole blackhole) throws IOException
+	{
+		read(new BitArrayInputStream(encoded), blackhole);
+	}
+
+	@Benchmark
+	public void readPerBit(Blackhole blackhole) throws IOException
+	{
+		read(new PerBitInputStream(encoded), blackhole);
+	}
+
+	/**
+	 * Only implements {@link #writeBit(boolean)}, so that all values are written one bit at a time.
+	 */
+	static private class PerBitOutputStream extends BitOutputStream
+	{
+
+		private final BitArray bits;
+		private int position = 0;
+
+		public PerBitOutputStream(int length)
+		{
+			this.bits = new BitArray(length);
+		}
+
+		@Override
+		protected void writeBit(boolean bit) throws IOException
+		{
+			bits.set(position++, bit);
+		}
+
+		@Override
+		protected boolean isFull()
+		{
+			return position == bits.length();
+		}
+
+	}
+
+	/**
+	 * Only implements {@link #doReadBit()}, so that all values are read one bit at a time.
+	 */
+	static private class PerBitInputStream extends BitInputStream
+	{
+
+		private final BitArray bits;
+		private int position = 0;
+
+		public PerBitInputStream(BitArray bits)
+		{
+			this.bits = bits;
+		}
+
+		@Override
+		protected boolean doReadBit() throws IOException, EOFException
+		{
+			if(position >= bits.length())
+				throw new EOFException("End of stream reached");
+			return bits.get(position++);
+		}
+
+		@Override
+		public int bitsAvailable() throws IOException
+		{
+			return bits.length() - position;
+		}
+
+		@Override
+		public int available() throws IOException
+		{
+			return bitsAvailable() / Byte.SIZE;
+		}
+
+	}
+
+}
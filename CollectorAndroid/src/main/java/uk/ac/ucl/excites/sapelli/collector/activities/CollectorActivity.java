@@ -175,6 +175,8 @@ public class CollectorActivity extends ProjectActivity
 		setIntent(intent);
 
 		// Throw away current project & controller:
+		if(project != null)
+			projectStore.unpin(project);
 		project = null;
 		if(controller != null)
 		{
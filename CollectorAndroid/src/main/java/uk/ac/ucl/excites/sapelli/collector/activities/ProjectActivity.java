@@ -83,8 +83,13 @@ public abstract class ProjectActivity extends BaseActivity implements StoreHandl
 		// Get project id & fingerprint from extras (the key is the same for both call-by-intent & call-by-shortcut scenarios):
 		if(bundle != null && bundle.containsKey(INTENT_PARAM_PROJECT_ID) && bundle.containsKey(INTENT_PARAM_PROJECT_FINGERPRINT))
 		{
+			if(project != null) // release previously loaded project
+				projectStore.unpin(project);
 			this.project = projectStore.retrieveProject(bundle.getInt(INTENT_PARAM_PROJECT_ID), bundle.getInt(INTENT_PARAM_PROJECT_FINGERPRINT));
-			if(project == null)
+			if(project != null)
+				// Keep the open project in the cache for as long as the activity lives:
+				projectStore.pin(project);
+			else
 			{
 				boolean fromShortcut = bundle.containsKey(INTENT_OPTIONAL_PARAM_SHORTCUT_NAME); 
 				if(fromShortcut) // if we came here via a shortcut it should be removed so this doesn't happen again!
@@ -106,6 +111,8 @@ public abstract class ProjectActivity extends BaseActivity implements StoreHandl
 	{
 		// Signal that the activity no longer needs the Store objects:
 		CollectorApp app = getCollectorApp();
+		if(project != null && projectStore != null)
+			projectStore.unpin(project);
 		app.collectorClient.projectStoreHandle.doneUsing(this);
 		app.collectorClient.recordStoreHandle.doneUsing(this);
 		// super:
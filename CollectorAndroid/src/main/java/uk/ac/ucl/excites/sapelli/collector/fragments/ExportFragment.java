@@ -19,7 +19,6 @@
 package uk.ac.ucl.excites.sapelli.collector.fragments;
 
 import java.io.File;
-import java.util.List;
 
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
@@ -56,7 +55,6 @@ import uk.ac.ucl.excites.sapelli.storage.eximport.csv.CSVRecordsExporter;
 import uk.ac.ucl.excites.sapelli.storage.eximport.csv.CSVRecordsExporter.Separator;
 import uk.ac.ucl.excites.sapelli.storage.eximport.xml.XMLRecordsExporter;
 import uk.ac.ucl.excites.sapelli.storage.eximport.xml.XMLRecordsExporter.CompositeMode;
-import uk.ac.ucl.excites.sapelli.storage.model.Record;
 import uk.ac.ucl.excites.sapelli.storage.queries.Order;
 import uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery;
 import uk.ac.ucl.excites.sapelli.storage.queries.constraints.AndConstraint;
@@ -408,8 +406,7 @@ public class ExportFragment extends ProjectManagerFragment implements OnClickLis
 	 * 
 	 * @author mstevens
 	 */
-	private class ExportRunner
-			implements RecordsTasks.QueryCallback, RecordsTasks.ExportCallback, RecordsTasks.DeleteCallback {
+	private class ExportRunner implements RecordsTasks.QueryExportCallback, RecordsTasks.DeleteReferencesCallback {
 
 		private final ProjectManagerActivity activity;
 
@@ -432,6 +429,13 @@ public class ExportFragment extends ProjectManagerFragment implements OnClickLis
 			// Thrown away old state:
 			exportResult = null;
 
+			// Check if we have a destination folder:
+			if (exportFolder == null) {
+				Log.e(ExportFragment.class.getSimpleName(), getString(R.string.exportNoOutputFolder));
+				activity.showErrorDialog(R.string.exportNoOutputFolder, false);
+				return;
+			}
+
 			// Define query Source:
 			Source source;
 			if (projectToExport != null)
@@ -450,11 +454,16 @@ public class ExportFragment extends ProjectManagerFragment implements OnClickLis
 						RuleConstraint.Comparison.SMALLER_OR_EQUAL, new TimeStamp(dateRange[DT_RANGE_IDX_TO])));
 					// TODO Exclude previously exported
 
-			// Retrieve by query:
-			new RecordsTasks.QueryTask(activity, this).execute(new RecordsQuery(source,
-					Order.By(Order.BY_MODEL_SCHEMA, Order.ColumnOrdering.By(Form.COLUMN_DEVICE_ID),
-							Order.ColumnOrdering.By(Form.COLUMN_TIMESTAMP_START)),
-					constraints));
+			// TODO Generate selection description String:
+			String selectionDesc = null;
+
+			// Export while retrieving by query (records are streamed from the database to the export file(s)):
+			RecordsTasks.runQueryExportTask(activity,
+					new RecordsQuery(source,
+							Order.By(Order.BY_MODEL_SCHEMA, Order.ColumnOrdering.By(Form.COLUMN_DEVICE_ID),
+									Order.ColumnOrdering.By(Form.COLUMN_TIMESTAMP_START)),
+							constraints),
+					ExportFragment.this, exportFolder, selectionDesc, true /* the user is offered to delete the exported records */, this);
 			// TODO let ExportFragment & Backup share this code somehow
 		}
 
@@ -466,25 +475,6 @@ public class ExportFragment extends ProjectManagerFragment implements OnClickLis
 			return activity.getString(resId, formatArgs);
 		}
 
-		@Override
-		public void querySuccess(List<Record> result) {
-			if (result == null || result.isEmpty())
-				activity.showOKDialog(R.string.export, R.string.exportNoRecordsFound, R.drawable.ic_export_black_36dp);
-			else {
-				// TODO Generate selection description String:
-				String selectionDesc = null;
-
-				// Check if we have a destination folder:
-				if (exportFolder == null) { // No...
-					Log.e(ExportFragment.class.getSimpleName(), getString(R.string.exportNoOutputFolder));
-					activity.showErrorDialog(R.string.exportNoOutputFolder, false);
-				} else
-					// Yes, run the right export task:
-					RecordsTasks.runExportTask(activity, result, ExportFragment.this, exportFolder, selectionDesc,
-							this);
-			}
-		}
-
 		@Override
 		public void queryFailure(Exception reason) {
 			activity.showErrorDialog(getString(R.string.exportQueryFailed, ExceptionHelpers.getMessageAndCause(reason)),
@@ -505,6 +495,12 @@ public class ExportFragment extends ProjectManagerFragment implements OnClickLis
 			if (result == null)
 				return; // just in case (shouldn't happen)
 
+			// Nothing found:
+			if (result.wasSuccessful() && result.getNumberedOfExportedRecords() == 0 && result.getFiles().isEmpty()) {
+				activity.showOKDialog(R.string.export, R.string.exportNoRecordsFound, R.drawable.ic_export_black_36dp);
+				return;
+			}
+
 			// Hold on to result:
 			this.exportResult = result;
 
@@ -515,8 +511,8 @@ public class ExportFragment extends ProjectManagerFragment implements OnClickLis
 					@SuppressWarnings("unchecked")
 					@Override
 					public void run() {
-						new RecordsTasks.DeleteTask(activity, ExportFragment.ExportRunner.this)
-								.execute(result.getExportedRecords());
+						new RecordsTasks.DeleteReferencesTask(activity, ExportFragment.ExportRunner.this)
+								.execute(result.getExportedRecordReferences());
 					}
 				};
 				// show dialog, OK will run deleteRunnable:
@@ -541,7 +537,7 @@ public class ExportFragment extends ProjectManagerFragment implements OnClickLis
 		}
 
 		@Override
-		public void deleteSuccess(List<Record> deletedRecords) {
+		public void deleteSuccess(int numberOfDeletedRecords) {
 			getDoneExportingCallbackRunnable(exportResult, true).run();
 		}
 
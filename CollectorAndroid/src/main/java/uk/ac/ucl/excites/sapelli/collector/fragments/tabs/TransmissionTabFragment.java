@@ -18,8 +18,10 @@
 
 package uk.ac.ucl.excites.sapelli.collector.fragments.tabs;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import android.content.Context;
 import android.os.Bundle;
@@ -51,12 +53,14 @@ import uk.ac.ucl.excites.sapelli.collector.transmission.SchedulingHelpers;
 import uk.ac.ucl.excites.sapelli.collector.transmission.SendConfigurationHelpers;
 import uk.ac.ucl.excites.sapelli.collector.transmission.SendSchedule;
 import uk.ac.ucl.excites.sapelli.collector.util.AsyncTaskWithWaitingDialog;
+import uk.ac.ucl.excites.sapelli.shared.db.exceptions.DBException;
 import uk.ac.ucl.excites.sapelli.shared.util.TimeUtils;
 import uk.ac.ucl.excites.sapelli.shared.util.TransactionalStringBuilder;
 import uk.ac.ucl.excites.sapelli.shared.util.android.AdvancedSpinnerAdapter;
 import uk.ac.ucl.excites.sapelli.shared.util.android.DeviceControl;
 import uk.ac.ucl.excites.sapelli.storage.model.Record;
 import uk.ac.ucl.excites.sapelli.storage.model.RecordReference;
+import uk.ac.ucl.excites.sapelli.transmission.db.TransmissionStore;
 
 /**
  * Fragment that defines the project manager layout per project (tabs)
@@ -259,18 +263,29 @@ public class TransmissionTabFragment extends ProjectManagerTabFragment implement
 					@Override
 					protected int[] runInBackground(Void... params)
 					{
-						List<RecordReference> receivedRecRefs = activity.getTransmissionStore().retrieveReceivedRecords(schedule.getReceiver(), schedule.getProject().getModel());
+						TransmissionStore tStore = activity.getTransmissionStore();
 						int[] result = new int[2];
-						for(Record record : records)
-							if(receivedRecRefs.contains(record.getReference()))
-							{
-								result[idxReceivedRecords]++;
-								if(schedule.getReceiver().receivesAttachments())
+						try
+						{
+							// Count received records in the database:
+							result[idxReceivedRecords] = (int) tStore.countReceivedRecords(schedule.getReceiver(), schedule.getProject().getModel());
+						}
+						catch(DBException dbE)
+						{
+							Log.e(TransmissionTabFragment.class.getSimpleName(), "Error upon counting received records", dbE);
+							return null;
+						}
+						// Only retrieve the received records if we need to know which attachments they have:
+						if(schedule.getReceiver().receivesAttachments() && result[idxReceivedRecords] > 0)
+						{
+							Set<RecordReference> receivedRecRefs = new HashSet<RecordReference>(tStore.retrieveReceivedRecords(schedule.getReceiver(), schedule.getProject().getModel()));
+							for(Record record : records)
+								if(receivedRecRefs.contains(record.getReference()))
 								{
 									List<MediaFile> receivedMediaFiles = mediaFilesByRecord.get(record);
 									result[idxReceivedAttachments] += (receivedMediaFiles != null ? receivedMediaFiles.size() : 0);
 								}
-							}
+						}
 						return result;
 					}
 
@@ -278,6 +293,8 @@ public class TransmissionTabFragment extends ProjectManagerTabFragment implement
 					protected void onPostExecute(int[] result)
 					{
 						super.onPostExecute(result);
+						if(result == null)
+							return; // counting failed (error has been logged)
 						activity.showOKDialog(
 								R.string.tab_transmission,
 								activity.getString(
@@ -34,6 +34,7 @@ import uk.ac.ucl.excites.sapelli.collector.util.AsyncTaskWithWaitingDialog;
 import uk.ac.ucl.excites.sapelli.shared.db.StoreHandle.StoreUser;
 import uk.ac.ucl.excites.sapelli.shared.util.CollectionUtils;
 import uk.ac.ucl.excites.sapelli.shared.util.ExceptionHelpers;
+import uk.ac.ucl.excites.sapelli.storage.db.RecordCursor;
 import uk.ac.ucl.excites.sapelli.storage.db.RecordStore;
 import uk.ac.ucl.excites.sapelli.storage.eximport.ExportResult;
 import uk.ac.ucl.excites.sapelli.storage.eximport.Exporter;
@@ -45,6 +46,7 @@ import uk.ac.ucl.excites.sapelli.storage.eximport.xml.XMLRecordsExporter;
 import uk.ac.ucl.excites.sapelli.storage.eximport.xml.XMLRecordsExporter.CompositeMode;
 import uk.ac.ucl.excites.sapelli.storage.eximport.xml.XMLRecordsImporter;
 import uk.ac.ucl.excites.sapelli.storage.model.Record;
+import uk.ac.ucl.excites.sapelli.storage.model.RecordReference;
 import uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery;
 
 /**
@@ -162,6 +164,93 @@ public final class RecordsTasks
 		}
 	}
 	
+	/**
+	 * Exports the records resulting from the given query while they are being read from the {@link RecordStore}, using a {@link RecordCursor},
+	 * meaning the records never need to be held in memory all at once.
+	 * 
+	 * @param activity
+	 * @param query
+	 * @param exportFragment
+	 * @param exportFolder
+	 * @param exportDesc
+	 * @param callback
+	 */
+	static public void runQueryExportTask(BaseActivity activity, RecordsQuery query, ExportFragment exportFragment, File exportFolder, String exportDesc, boolean keepReferences, QueryExportCallback callback)
+	{
+		Exporter exporter;
+		switch(exportFragment.getSelectedFormat())
+		{
+			case CSV:
+				exporter = new CSVRecordsExporter(exportFolder, exportFragment.getCSVSeparator());
+				break;
+			case XML:
+				exporter = new XMLRecordsExporter(exportFolder, exportFragment.getXMLCompositeMode());
+				break;
+			default:
+				throw new IllegalStateException("Unknown export format: " + exportFragment.getSelectedFormat().toString());
+		}
+		new QueryExportTask(activity, exporter, exportDesc, keepReferences, callback).execute(query);
+	}
+	
+	static public class QueryExportTask extends RecordStoreTask<RecordsQuery, ExportResult> implements Exporter.ProgressListener
+	{
+		
+		private final Exporter exporter;
+		private final String selectionDescr;
+		private final boolean keepReferences;
+		private final QueryExportCallback callback;
+		
+		/**
+		 * @param owner
+		 * @param exporter
+		 * @param selectionDescr
+		 * @param keepReferences whether the {@link ExportResult} should hold on to the references of the exported records (e.g. to delete them afterwards)
+		 * @param callback
+		 */
+		public QueryExportTask(BaseActivity owner, Exporter exporter, String selectionDescr, boolean keepReferences, QueryExportCallback callback)
+		{
+			super(owner, owner.getString(R.string.exportFetching));
+			this.exporter = exporter;
+			this.selectionDescr = selectionDescr;
+			this.keepReferences = keepReferences;
+			this.callback = callback;
+		}
+		
+		@Override
+		protected ExportResult doInBackgroundWith(RecordStore recordStore, RecordsQuery... query) throws Exception
+		{
+			// Open cursor (records are only exported, so the cursor may reuse instances):
+			RecordCursor cursor = recordStore.openRecordCursor(query[0], true);
+			// Export (the exporter closes the cursor):
+			exporter.setProgressListener(this);
+			return exporter.export(cursor, selectionDescr, keepReferences);
+		}
+		
+		@Override
+		public void exportProgress(int exported, int total)
+		{
+			publishProgress(getContext().getString(R.string.exportXRecords, total != RecordCursor.UNKNOWN_COUNT ? total : exported));
+		}
+		
+		@Override
+		protected void onPostExecute(ExportResult result)
+		{
+			super.onPostExecute(result); // dismiss dialog
+			if(failure != null)
+				callback.queryFailure(failure);
+			else
+				callback.exportDone(result);
+		}
+		
+	}
+	
+	public interface QueryExportCallback extends ExportCallback
+	{
+		
+		public void queryFailure(Exception reason);
+		
+	}
+	
 	static public class DeleteTask extends RecordStoreTask<List<Record>, List<Record>>
 	{
 
@@ -208,6 +297,68 @@ public final class RecordsTasks
 		
 	}
 	
+	/**
+	 * Deletes records by reference, in a single transaction.
+	 * 
+	 * @author mstevens
+	 */
+	static public class DeleteReferencesTask extends RecordStoreTask<List<RecordReference>, List<RecordReference>>
+	{
+
+		private final DeleteReferencesCallback callback;
+		
+		public DeleteReferencesTask(BaseActivity owner, DeleteReferencesCallback callback)
+		{
+			super(owner);
+			this.callback = callback;
+		}
+
+		@Override
+		@SafeVarargs
+		protected final List<RecordReference> doInBackgroundWith(RecordStore recordStore, List<RecordReference>... params) throws Exception
+		{
+			// Delete records:
+			List<RecordReference> recordRefsToDelete = params[0];
+			publishProgress(getContext().getString(R.string.deletingXRecords, recordRefsToDelete.size()));
+			recordStore.startTransaction();
+			try
+			{
+				for(RecordReference recordRef : recordRefsToDelete)
+					recordStore.delete(recordRef);
+			}
+			catch(Exception e)
+			{
+				recordStore.rollbackTransactions();
+				throw e;
+			}
+			recordStore.commitTransaction();
+			return recordRefsToDelete;
+		}
+		
+		@Override
+		protected void onPostExecute(List<RecordReference> result)
+		{
+			super.onPostExecute(result); // dismiss dialog
+			if(callback != null)
+			{
+				if(failure != null)
+					callback.deleteFailure(failure);
+				else
+					callback.deleteSuccess(result.size());
+			}
+		}
+		
+	}
+	
+	public interface DeleteReferencesCallback
+	{
+		
+		public void deleteSuccess(int numberOfDeletedRecords);
+		
+		public void deleteFailure(Exception reason);
+		
+	}
+	
 	static public class StoreTask extends RecordStoreTask<List<Record>, List<Record>>
 	{
 
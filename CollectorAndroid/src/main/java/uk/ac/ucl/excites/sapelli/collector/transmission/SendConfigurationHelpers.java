@@ -225,7 +225,7 @@ public final class SendConfigurationHelpers
 		try
 		{
 			TransmissionStore tStore = activity.getTransmissionStore();
-			return tStore != null && (!tStore.retrieveTransmissions(true, correspondent).isEmpty() || !tStore.retrieveTransmissions(false, correspondent).isEmpty());
+			return tStore != null && (tStore.countTransmissions(true, correspondent) > 0 || tStore.countTransmissions(false, correspondent) > 0);
 		}
 		catch(Exception e)
 		{
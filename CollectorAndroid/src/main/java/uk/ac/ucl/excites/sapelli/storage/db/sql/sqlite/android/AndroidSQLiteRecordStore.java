@@ -56,6 +56,13 @@ public class AndroidSQLiteRecordStore extends SQLiteRecordStore
 	
 	private AndroidSQLiteStatement selectChangesStatement;
 	
+	/**
+	 * Read-only connections used by retrieval threads.
+	 * 
+	 * @see #setParallelRetrieval(int)
+	 */
+	private final ThreadLocal<SQLiteDatabase> readOnlyDB = new ThreadLocal<SQLiteDatabase>();
+	
 	/**
 	 * @param client
 	 * @param context
@@ -210,8 +217,8 @@ public class AndroidSQLiteRecordStore extends SQLiteRecordStore
 			if(isLoggingEnabled() || BuildConfig.DEBUG)
 				client.logInfo(TAG + "> " + getQueryLogMessage(sql, paramCols, sapArguments));
 			
-			// Execute:
-			return (AndroidSQLiteCursor) db.rawQuery(sql, argStrings);
+			// Execute (on retrieval threads we use a read-only connection):
+			return (AndroidSQLiteCursor) (isRetrievalThread() ? getReadOnlyDB() : db).rawQuery(sql, argStrings);
 		}
 		catch(Exception e)
 		{
@@ -264,6 +271,49 @@ public class AndroidSQLiteRecordStore extends SQLiteRecordStore
 		super.release(); // !!!
 	}
 	
+	/**
+	 * @return the current retrieval thread's read-only connection, which is opened if needed
+	 */
+	private SQLiteDatabase getReadOnlyDB()
+	{
+		SQLiteDatabase roDB = readOnlyDB.get();
+		if(roDB == null)
+		{
+			roDB = SQLiteDatabase.openDatabase(db.getPath(), new AndroidSQLiteCursorFactory(), SQLiteDatabase.OPEN_READONLY);
+			readOnlyDB.set(roDB);
+		}
+		return roDB;
+	}
+	
+	@Override
+	protected boolean isParallelRetrievalSupported()
+	{
+		return true;
+	}
+	
+	/**
+	 * Closes the read-only connection of the terminating retrieval thread.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore#releaseRetrievalThreadResources()
+	 */
+	@Override
+	protected void releaseRetrievalThreadResources()
+	{
+		SQLiteDatabase roDB = readOnlyDB.get();
+		if(roDB != null)
+		{
+			try
+			{
+				roDB.close();
+			}
+			catch(Exception e)
+			{
+				client.logError(TAG + "> Exception upon closing read-only connection", e);
+			}
+			readOnlyDB.remove();
+		}
+	}
+	
 	@Override
 	protected void closeConnection()
 	{
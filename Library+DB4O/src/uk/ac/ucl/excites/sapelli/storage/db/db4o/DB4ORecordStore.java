@@ -30,6 +30,7 @@ import uk.ac.ucl.excites.sapelli.shared.db.exceptions.DBException;
 import uk.ac.ucl.excites.sapelli.shared.util.ExceptionHelpers;
 import uk.ac.ucl.excites.sapelli.shared.util.TimeUtils;
 import uk.ac.ucl.excites.sapelli.storage.StorageClient;
+import uk.ac.ucl.excites.sapelli.storage.db.RecordCursor;
 import uk.ac.ucl.excites.sapelli.storage.db.RecordStore;
 import uk.ac.ucl.excites.sapelli.storage.db.exceptions.DBPrimaryKeyException;
 import uk.ac.ucl.excites.sapelli.storage.db.exceptions.DBRecordsException;
@@ -251,18 +252,7 @@ public class DB4ORecordStore extends RecordStore
 		final Source source = query.getSource();
 		
 		// Query for records:
-		ObjectSet<Record> resultSet = db4o.query(new Predicate<Record>()
-		{
-			private static final long serialVersionUID = 1L;
-
-			public boolean match(Record record)
-			{
-				return	// Schema check, but without full comparison, because that is expensive AND requires the record(/schema) object to be activated to a deeper level than it is at this stage:
-						source instanceof SourceBySchemata ?
-							((SourceBySchemata) source).isValid(record, false) :
-							source.isValid(record);
-			}
-		});
+		ObjectSet<Record> resultSet = queryRecords(source);
 		
 		// Check for empty result:
 		if(!resultSet.hasNext())
@@ -291,6 +281,83 @@ public class DB4ORecordStore extends RecordStore
 			return result;
 	}
 	
+	/**
+	 * Records are only activated as the cursor advances, unless the query is ordered (because sorting requires all records to be activated).
+	 * Records are never reused.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.db.RecordStore#openRecordCursor(uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery, boolean)
+	 */
+	@Override
+	public RecordCursor openRecordCursor(final RecordsQuery query, boolean reuseRecords)
+	{
+		if(query.isOrdered())
+			return super.openRecordCursor(query, reuseRecords);
+		
+		final Source source = query.getSource();
+		final Constraint constraints = query.getConstraints();
+		final int limit = query.getLimit();
+		
+		// Query for records:
+		final ObjectSet<Record> resultSet = queryRecords(source);
+		
+		return new RecordCursor()
+		{
+			
+			private int returned = 0;
+			
+			@Override
+			protected Record fetchNext()
+			{
+				if(limit != RecordsQuery.NO_LIMIT && returned >= limit)
+					return null;
+				while(resultSet.hasNext())
+				{
+					Record r = resultSet.next();
+					db4o.activate(r, ACTIVATION_DEPTH);
+					// Filter again (see retrieveRecords(RecordsQuery)):
+					if(source.isValid(r) && (constraints == null || constraints.isValid(r)))
+					{
+						returned++;
+						return r;
+					}
+					else
+						db4o.deactivate(r, ACTIVATION_DEPTH);
+				}
+				return null;
+			}
+			
+			/**
+			 * @return an upper bound, given that filtering by constraints only happens upon activation
+			 */
+			@Override
+			public int getCountHint()
+			{
+				return limit != RecordsQuery.NO_LIMIT ? Math.min(resultSet.size(), limit) : resultSet.size();
+			}
+			
+		};
+	}
+	
+	/**
+	 * @param source
+	 * @return a (lazy) {@link ObjectSet} with the non-activated records which (probably) match the source
+	 */
+	private ObjectSet<Record> queryRecords(final Source source)
+	{
+		return db4o.query(new Predicate<Record>()
+		{
+			private static final long serialVersionUID = 1L;
+
+			public boolean match(Record record)
+			{
+				return	// Schema check, but without full comparison, because that is expensive AND requires the record(/schema) object to be activated to a deeper level than it is at this stage:
+						source instanceof SourceBySchemata ?
+							((SourceBySchemata) source).isValid(record, false) :
+							source.isValid(record);
+			}
+		});
+	}
+	
 	@Override
 	public List<RecordReference> retrieveRecordReferences(RecordsQuery query)
 	{
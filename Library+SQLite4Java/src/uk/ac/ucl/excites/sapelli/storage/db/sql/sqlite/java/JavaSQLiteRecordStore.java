@@ -24,6 +24,7 @@ import java.util.List;
 import com.almworks.sqlite4java.SQLiteBackup;
 import com.almworks.sqlite4java.SQLiteConnection;
 import com.almworks.sqlite4java.SQLiteException;
+import com.almworks.sqlite4java.SQLiteStatement;
 
 import uk.ac.ucl.excites.sapelli.shared.db.exceptions.DBException;
 import uk.ac.ucl.excites.sapelli.shared.io.StreamHelpers;
@@ -36,13 +37,49 @@ import uk.ac.ucl.excites.sapelli.storage.model.Model;
 /**
  * A RecordStore class which stores records in a SQLite database, using the sqlite4java library.
  * 
+ * Optionally the database can be used in write-ahead logging (WAL) mode, in which case reads do not block writes (and vice versa).
+ * All changes, and all transactions, then happen on the main (writer) connection, which is confined to the thread that created the store,
+ * while SELECTs issued outside of a transaction are dispatched to a small pool of retrieval threads, each with its own read-only connection.
+ * This also means records can be retrieved from other threads while the creating thread is storing records. Without WAL mode only the creating
+ * thread can read from the store (unless parallel retrieval is enabled explicitly).
+ * 
+ * @see <a href="https://www.sqlite.org/wal.html">SQLite Write-Ahead Logging</a>
  * @author mstevens
  */
 public class JavaSQLiteRecordStore extends SQLiteRecordStore
 {
+	
+	// STATIC----------------------------------------------
+	/**
+	 * Time (in ms) read-only connections wait for locks held by the main connection to be released.
+	 */
+	static private final long READ_ONLY_BUSY_TIMEOUT_MS = 5000;
+	
+	/**
+	 * Default number of read-only connections used in WAL mode.
+	 */
+	static public final int DEFAULT_READ_CONNECTIONS = 3;
 
+	// DYNAMIC---------------------------------------------
 	private SQLiteConnection db;
 	
+	/**
+	 * The thread to which the main connection is confined.
+	 */
+	private final Thread writerThread;
+	
+	/**
+	 * Whether or not the database is in WAL journal mode.
+	 */
+	private boolean walMode = false;
+	
+	/**
+	 * Read-only connections used by retrieval threads (sqlite4java connections are confined to the thread which opened them).
+	 * 
+	 * @see #setParallelRetrieval(int)
+	 */
+	private final ThreadLocal<SQLiteConnection> readOnlyConnection = new ThreadLocal<SQLiteConnection>();
+	
 	/**
 	 * @param client
 	 * @param folderPath
@@ -52,8 +89,23 @@ public class JavaSQLiteRecordStore extends SQLiteRecordStore
 	 * @throws DBException
 	 */
 	public JavaSQLiteRecordStore(StorageClient client, File folderPath, String baseName, int targetVersion, SQLRecordStoreUpgrader upgrader) throws DBException
+	{
+		this(client, folderPath, baseName, targetVersion, upgrader, 0);
+	}
+	
+	/**
+	 * @param client
+	 * @param folderPath
+	 * @param baseName
+	 * @param targetVersion
+	 * @param upgrader
+	 * @param readConnections if larger than 0 the database is put in WAL journal mode and up to this number (but at least 2) of read-only connections (and retrieval threads) are used to run SELECTs, see {@link #DEFAULT_READ_CONNECTIONS}
+	 * @throws DBException
+	 */
+	public JavaSQLiteRecordStore(StorageClient client, File folderPath, String baseName, int targetVersion, SQLRecordStoreUpgrader upgrader, int readConnections) throws DBException
 	{
 		super(client);
+		this.writerThread = Thread.currentThread();
 		
 		// Database file:
 		File dbFile = new File(folderPath, GetDBFileName(baseName));
@@ -70,6 +122,10 @@ public class JavaSQLiteRecordStore extends SQLiteRecordStore
 			throw new DBException(sqlE);
 		}
 		
+		// Enable WAL mode & the read-only connection pool if needed:
+		if(readConnections > 0 && enableWAL())
+			setParallelRetrieval(Math.max(2, readConnections)); // (a value < 2 would disable parallel retrieval)
+		
 		// Just to be sure:
 		newDB = newDB || !doesTableExist(Model.MODEL_SCHEMA);
 		
@@ -77,6 +133,42 @@ public class JavaSQLiteRecordStore extends SQLiteRecordStore
 		setInitialisationArguments(newDB, targetVersion, upgrader);
 	}
 	
+	/**
+	 * Puts the database in WAL journal mode (the mode is persistent, so this is a no-op if the database already is in WAL mode).
+	 * 
+	 * @return whether or not WAL mode is enabled
+	 */
+	private boolean enableWAL()
+	{
+		SQLiteStatement statement = null;
+		try
+		{
+			statement = db.prepare("PRAGMA journal_mode=WAL;", false);
+			walMode = statement.step() && "wal".equalsIgnoreCase(statement.columnString(0)); // the new mode is returned, which won't be WAL if it is not supported (e.g. for in-memory databases)
+			if(!walMode)
+				client.logWarning("Could not enable WAL journal mode on database " + db.getDatabaseFile());
+		}
+		catch(SQLiteException sqlE)
+		{
+			client.logError("Error upon enabling WAL journal mode", sqlE);
+			walMode = false;
+		}
+		finally
+		{
+			if(statement != null)
+				statement.dispose();
+		}
+		return walMode;
+	}
+	
+	/**
+	 * @return whether or not the database is in WAL journal mode
+	 */
+	public boolean isWALMode()
+	{
+		return walMode;
+	}
+	
 	@Override
 	public int getVersion() throws DBException
 	{
@@ -170,8 +262,8 @@ public class JavaSQLiteRecordStore extends SQLiteRecordStore
 	@Override
 	protected SQLiteCursor executeQuery(String sql, List<SQLiteColumn<?, ?>> paramCols, List<? extends Object> sapArguments) throws DBException
 	{
-		// Get statement:
-		JavaSQLiteStatement selectStatement = generateStatement(sql, paramCols);
+		// Get statement (on retrieval threads we use a read-only connection):
+		JavaSQLiteStatement selectStatement = isRetrievalThread() ? generateReadOnlyStatement(sql, paramCols) : generateStatement(sql, paramCols);
 		
 		// Bind parameters:
 		selectStatement.bindAll(sapArguments);
@@ -199,6 +291,81 @@ public class JavaSQLiteRecordStore extends SQLiteRecordStore
 		}
 	}
 	
+	/**
+	 * Generates a statement on the current retrieval thread's read-only connection, which is opened if needed.
+	 * 
+	 * @param sql
+	 * @param paramCols
+	 * @return
+	 * @throws DBException
+	 */
+	private JavaSQLiteStatement generateReadOnlyStatement(String sql, List<SQLiteColumn<?, ?>> paramCols) throws DBException
+	{
+		try
+		{
+			SQLiteConnection connection = readOnlyConnection.get();
+			if(connection == null)
+			{
+				connection = new SQLiteConnection(db.getDatabaseFile());
+				connection.openReadonly();
+				connection.setBusyTimeout(READ_ONLY_BUSY_TIMEOUT_MS);
+				readOnlyConnection.set(connection);
+			}
+			if(loggingEnabled)
+				client.logInfo("SQLite> Compile/reuse read-only statement: " + sql);
+			return new JavaSQLiteStatement(connection, sql, paramCols);
+		}
+		catch(SQLiteException sqliteE)
+		{
+			throw new DBException("Exception upon compiling SQL on read-only connection: " + sql, sqliteE);
+		}
+	}
+	
+	@Override
+	protected boolean isParallelRetrievalSupported()
+	{
+		return true;
+	}
+	
+	/**
+	 * In WAL mode reading on the read-only connections does not block writing on the main connection (and vice versa).
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore#isConcurrentReadingEnabled()
+	 */
+	@Override
+	protected boolean isConcurrentReadingEnabled()
+	{
+		return walMode;
+	}
+	
+	/**
+	 * The main connection is confined to the writer thread, so reads issued by other threads (apart from the retrieval
+	 * threads, which have their own read-only connections) must be run on the retrieval threads.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore#mustDispatchReads()
+	 */
+	@Override
+	protected boolean mustDispatchReads()
+	{
+		return Thread.currentThread() != writerThread && !isRetrievalThread();
+	}
+	
+	/**
+	 * Closes the read-only connection of the terminating retrieval thread.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore#releaseRetrievalThreadResources()
+	 */
+	@Override
+	protected void releaseRetrievalThreadResources()
+	{
+		SQLiteConnection connection = readOnlyConnection.get();
+		if(connection != null)
+		{
+			connection.dispose();
+			readOnlyConnection.remove();
+		}
+	}
+	
 	@Override
 	protected void closeConnection() throws DBException
 	{
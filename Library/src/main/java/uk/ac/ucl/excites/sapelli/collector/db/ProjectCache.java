@@ -0,0 +1,428 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.collector.db;
+
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import uk.ac.ucl.excites.sapelli.collector.model.Form;
+import uk.ac.ucl.excites.sapelli.collector.model.Project;
+
+/**
+ * A bounded cache of loaded {@link Project}s.
+ *
+ * The size of the cache is expressed as a total weight, where the weight of each project is an estimate of the size of its object graph
+ * (see {@link #EstimateWeight(Project)}). When the maximum weight is exceeded projects are evicted according to the {@link EvictionPolicy}.
+ * Evicted projects are kept around through {@link SoftReference}s, meaning they can still be returned as long as the garbage collector has
+ * not reclaimed them. Pinned projects (e.g. the one currently open) are never evicted.
+ *
+ * Projects are identified by a long key, which must be unique for each project (version).
+ *
+ * @author mstevens
+ */
+public class ProjectCache
+{
+
+	// STATICS-------------------------------------------------------
+	/**
+	 * Default maximum weight, corresponding to about 25 projects with 4 forms of 50 fields each.
+	 */
+	static public final long DEFAULT_MAX_WEIGHT = 5000;
+
+	static public final EvictionPolicy DEFAULT_EVICTION_POLICY = EvictionPolicy.LRU;
+
+	/**
+	 * @author mstevens
+	 */
+	static public enum EvictionPolicy
+	{
+		/**
+		 * Least recently used projects are evicted first
+		 */
+		LRU,
+
+		/**
+		 * Least frequently used projects are evicted first (ties are resolved by recency)
+		 */
+		LFU
+	}
+
+	/**
+	 * Estimates the "weight" of the given project, which is the number of its (main) model objects: the project itself, its forms and their fields.
+	 *
+	 * @param project
+	 * @return the estimated weight
+	 */
+	static public long EstimateWeight(Project project)
+	{
+		long weight = 1; // the project itself
+		for(Form form : project.getForms())
+			weight += 1 + form.getNumberOfFields(true);
+		return weight;
+	}
+
+	// DYNAMICS------------------------------------------------------
+	private final long maxWeight;
+	private final EvictionPolicy evictionPolicy;
+
+	/**
+	 * Strongly referenced (i.e. non-evicted) entries, in access order.
+	 */
+	private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true /*access order*/);
+
+	/**
+	 * Evicted projects which may not have been garbage collected yet.
+	 */
+	private final Map<Long, SoftReference<Project>> evicted = new HashMap<Long, SoftReference<Project>>();
+
+	/**
+	 * Pin counts of pinned keys.
+	 */
+	private final Map<Long, Integer> pins = new HashMap<Long, Integer>();
+
+	private long totalWeight = 0;
+
+	private long hits = 0;
+	private long softHits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * Creates a cache with the {@link #DEFAULT_MAX_WEIGHT} and {@link #DEFAULT_EVICTION_POLICY}.
+	 */
+	public ProjectCache()
+	{
+		this(DEFAULT_MAX_WEIGHT, DEFAULT_EVICTION_POLICY);
+	}
+
+	/**
+	 * @param maxWeight maximum total weight of (non-pinned) projects held by strong references, see {@link #EstimateWeight(Project)}
+	 * @param evictionPolicy
+	 */
+	public ProjectCache(long maxWeight, EvictionPolicy evictionPolicy)
+	{
+		if(maxWeight < 0)
+			throw new IllegalArgumentException("maxWeight cannot be negative");
+		if(evictionPolicy == null)
+			throw new NullPointerException("evictionPolicy cannot be null");
+		this.maxWeight = maxWeight;
+		this.evictionPolicy = evictionPolicy;
+	}
+
+	/**
+	 * @param key
+	 * @return the cached project with the given key, or {@code null} if there is none (or it has been garbage collected after eviction)
+	 */
+	public synchronized Project get(long key)
+	{
+		// Strongly held?
+		Entry entry = entries.get(key); // (also updates access order)
+		if(entry != null)
+		{
+			entry.useCount++;
+			hits++;
+			return entry.project;
+		}
+
+		// Evicted but not yet garbage collected?
+		Project project = getEvicted(key);
+		if(project != null)
+		{
+			softHits++;
+			put(key, project); // make strong again
+			return project;
+		}
+
+		// Not found:
+		misses++;
+		return null;
+	}
+
+	private Project getEvicted(long key)
+	{
+		SoftReference<Project> ref = evicted.remove(key);
+		return ref != null ? ref.get() : null;
+	}
+
+	/**
+	 * Adds the given project to the cache, possibly causing other projects to be evicted.
+	 *
+	 * @param key
+	 * @param project
+	 */
+	public synchronized void put(long key, Project project)
+	{
+		if(project == null)
+			throw new NullPointerException("project cannot be null");
+		remove(key);
+		Entry entry = new Entry(project);
+		if(evictionPolicy == EvictionPolicy.LFU)
+			// Start at the lowest use count currently in the cache, otherwise new entries would nearly always be the first to be evicted:
+			entry.useCount = Math.max(entry.useCount, getMinUseCount());
+		entries.put(key, entry);
+		totalWeight += entry.weight;
+		evictIfNeeded();
+	}
+
+	/**
+	 * Unlike {@link #get(long)} this does not affect the statistics, the access order or use counts.
+	 *
+	 * @param key
+	 * @return whether a project with the given key is cached, either strongly held or evicted but not yet garbage collected
+	 */
+	public synchronized boolean contains(long key)
+	{
+		if(entries.containsKey(key)) // (containsKey() does not update the access order)
+			return true;
+		SoftReference<Project> ref = evicted.get(key);
+		return ref != null && ref.get() != null;
+	}
+
+	/**
+	 * Removes the project with the given key from the cache (pins are kept).
+	 *
+	 * @param key
+	 */
+	public synchronized void remove(long key)
+	{
+		Entry entry = entries.remove(key);
+		if(entry != null)
+			totalWeight -= entry.weight;
+		evicted.remove(key);
+	}
+
+	/**
+	 * Pins the project with the given key, preventing it from being evicted.
+	 * A project which is pinned n times must be unpinned n times before it becomes evictable again.
+	 * The key may be pinned before the project is added.
+	 *
+	 * @param key
+	 */
+	public synchronized void pin(long key)
+	{
+		Integer count = pins.get(key);
+		pins.put(key, count == null ? 1 : count + 1);
+		// If the project was evicted but still exists, make it strong again:
+		if(!entries.containsKey(key))
+		{
+			Project project = getEvicted(key);
+			if(project != null)
+				put(key, project);
+		}
+	}
+
+	/**
+	 * Undoes one previous call of {@link #pin(long)} for the given key.
+	 *
+	 * @param key
+	 */
+	public synchronized void unpin(long key)
+	{
+		Integer count = pins.get(key);
+		if(count == null)
+			return;
+		if(count > 1)
+			pins.put(key, count - 1);
+		else
+		{
+			pins.remove(key);
+			evictIfNeeded();
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return whether or not the given key is pinned
+	 */
+	public synchronized boolean isPinned(long key)
+	{
+		return pins.containsKey(key);
+	}
+
+	/**
+	 * Removes all projects from the cache (pins and statistics are kept).
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		evicted.clear();
+		totalWeight = 0;
+	}
+
+	private void evictIfNeeded()
+	{
+		boolean evictedAny = false;
+		while(totalWeight > maxWeight)
+		{
+			Long victimKey = findVictim();
+			if(victimKey == null)
+				break; // everything which is left is pinned
+			Entry victim = entries.remove(victimKey);
+			totalWeight -= victim.weight;
+			evicted.put(victimKey, new SoftReference<Project>(victim.project));
+			evictions++;
+			evictedAny = true;
+		}
+		// Purge references to garbage collected projects:
+		if(evictedAny)
+		{
+			Iterator<SoftReference<Project>> refIter = evicted.values().iterator();
+			while(refIter.hasNext())
+				if(refIter.next().get() == null)
+					refIter.remove();
+		}
+	}
+
+	/**
+	 * @return the lowest use count of all strongly held entries, or 0 if there are none
+	 */
+	private int getMinUseCount()
+	{
+		int min = Integer.MAX_VALUE;
+		for(Entry entry : entries.values())
+			if(entry.useCount < min)
+				min = entry.useCount;
+		return entries.isEmpty() ? 0 : min;
+	}
+
+	/**
+	 * @return the key of the non-pinned entry to evict next, or {@code null} if there is none
+	 */
+	private Long findVictim()
+	{
+		Long victimKey = null;
+		int victimUseCount = Integer.MAX_VALUE;
+		for(Map.Entry<Long, Entry> mapEntry : entries.entrySet()) // iteration goes from least to most recently used
+		{
+			if(pins.containsKey(mapEntry.getKey()))
+				continue;
+			if(evictionPolicy == EvictionPolicy.LRU)
+				return mapEntry.getKey();
+			// LFU:
+			if(mapEntry.getValue().useCount < victimUseCount)
+			{
+				victimKey = mapEntry.getKey();
+				victimUseCount = mapEntry.getValue().useCount;
+			}
+		}
+		return victimKey;
+	}
+
+	/**
+	 * @return the maximum weight
+	 */
+	public long getMaxWeight()
+	{
+		return maxWeight;
+	}
+
+	/**
+	 * @return the eviction policy
+	 */
+	public EvictionPolicy getEvictionPolicy()
+	{
+		return evictionPolicy;
+	}
+
+	/**
+	 * @return a snapshot of the cache statistics
+	 */
+	public synchronized Stats getStats()
+	{
+		return new Stats(entries.size(), totalWeight, hits, softHits, misses, evictions);
+	}
+
+	/**
+	 * @author mstevens
+	 */
+	static private class Entry
+	{
+
+		final Project project;
+		final long weight;
+		int useCount = 1;
+
+		public Entry(Project project)
+		{
+			this.project = project;
+			this.weight = EstimateWeight(project);
+		}
+
+	}
+
+	/**
+	 * Snapshot of {@link ProjectCache} statistics.
+	 *
+	 * @author mstevens
+	 */
+	static public class Stats
+	{
+
+		/**
+		 * number of strongly held projects
+		 */
+		public final int size;
+
+		/**
+		 * total weight of strongly held projects
+		 */
+		public final long weight;
+
+		/**
+		 * number of lookups which found a strongly held project
+		 */
+		public final long hits;
+
+		/**
+		 * number of lookups which found an evicted, but not yet garbage collected, project
+		 */
+		public final long softHits;
+
+		/**
+		 * number of lookups which found nothing
+		 */
+		public final long misses;
+
+		/**
+		 * number of evictions
+		 */
+		public final long evictions;
+
+		private Stats(int size, long weight, long hits, long softHits, long misses, long evictions)
+		{
+			this.size = size;
+			this.weight = weight;
+			this.hits = hits;
+			this.softHits = softHits;
+			this.misses = misses;
+			this.evictions = evictions;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "ProjectCache[size: " + size + "; weight: " + weight + "; hits: " + hits + "; softHits: " + softHits + "; misses: " + misses + "; evictions: " + evictions + "]";
+		}
+
+	}
+
+}
@@ -27,9 +27,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 
@@ -180,7 +178,7 @@ public class ProjectRecordStore extends ProjectStore implements FormSchemaInfoPr
 	private final RecordStoreWrapper<CollectorClient> rsWrapper;
 	private final TransmissionStore transmissionStore;
 	private final FileStorageProvider fileStorageProvider;
-	private final Map<Long, Project> cache;
+	private final ProjectCache cache;
 	
 	/**
 	 * @param client
@@ -188,12 +186,23 @@ public class ProjectRecordStore extends ProjectStore implements FormSchemaInfoPr
 	 * @throws DBException
 	 */
 	public ProjectRecordStore(CollectorClient client, FileStorageProvider fileStorageProvider) throws DBException
+	{
+		this(client, fileStorageProvider, new ProjectCache());
+	}
+	
+	/**
+	 * @param client
+	 * @param fileStorageProvider
+	 * @param cache the {@link ProjectCache} to hold loaded projects in
+	 * @throws DBException
+	 */
+	public ProjectRecordStore(CollectorClient client, FileStorageProvider fileStorageProvider, ProjectCache cache) throws DBException
 	{
 		this.client = client;
 		this.rsWrapper = new RecordStoreWrapper<CollectorClient>(client);
 		this.transmissionStore = client.transmissionStoreHandle.getStore(this);
 		this.fileStorageProvider = fileStorageProvider;
-		this.cache = new HashMap<Long, Project>();
+		this.cache = cache;
 	}
 	
 	private Record getProjectRecord(Project project)
@@ -302,10 +311,20 @@ public class ProjectRecordStore extends ProjectStore implements FormSchemaInfoPr
 		// First check the cache:
 		project = cache.get(getCacheKey(projDescr));
 		
-		// Parse project if we didn't get it from the cache: 
+		// Load project if we didn't get it from the cache: 
 		if(project == null)
 		{
-			project = ProjectLoader.ParseProjectXMLInFolder(getProjectFolder(projDescr), this); // pass this as FormSchemaInfoProvider
+			File projectFolder = getProjectFolder(projDescr);
+			// Try the snapshot first (fast):
+			project = ProjectLoader.ParseProjectSnapshotInFolder(projectFolder, projDescr.getFingerPrint(), this); // pass this as FormSchemaInfoProvider
+			// Parse the XML if there is no (up-to-date) snapshot:
+			if(project == null)
+			{
+				project = ProjectLoader.ParseProjectXMLInFolder(projectFolder, this); // pass this as FormSchemaInfoProvider
+				// (Re)write snapshot for next time:
+				if(project != null)
+					ProjectLoader.WriteProjectSnapshot(projectFolder, project);
+			}
 			// Check if we have a project:
 			if(project == null)
 				// If not, delete the project:
@@ -322,6 +341,35 @@ public class ProjectRecordStore extends ProjectStore implements FormSchemaInfoPr
 		cache.put(getCacheKey(project), project);
 	}
 	
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.collector.db.ProjectStore#pin(uk.ac.ucl.excites.sapelli.collector.model.ProjectDescriptor)
+	 */
+	@Override
+	public void pin(ProjectDescriptor projDescr)
+	{
+		long key = getCacheKey(projDescr);
+		cache.pin(key); // (also makes an evicted project strong again, if it still exists)
+		if(projDescr instanceof Project && !cache.contains(key)) // (don't use get() here, pinning should not count as a cache hit or miss)
+			cacheProject((Project) projDescr);
+	}
+	
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.collector.db.ProjectStore#unpin(uk.ac.ucl.excites.sapelli.collector.model.ProjectDescriptor)
+	 */
+	@Override
+	public void unpin(ProjectDescriptor projDescr)
+	{
+		cache.unpin(getCacheKey(projDescr));
+	}
+	
+	/**
+	 * @return statistics of the cache in which loaded projects are held
+	 */
+	public ProjectCache.Stats getCacheStats()
+	{
+		return cache.getStats();
+	}
+	
 	private long getCacheKey(ProjectDescriptor projDescr)
 	{
 		return CollectorClient.GetModelID(projDescr);
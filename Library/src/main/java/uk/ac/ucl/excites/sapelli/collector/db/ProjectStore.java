@@ -204,6 +204,29 @@ public abstract class ProjectStore extends Store
 	 */
 	public abstract List<Project> retrieveProjectVersions(int projectID);
 
+	/**
+	 * Pins the given project, meaning that if the ProjectStore implements a caching mechanism the Project object will be kept
+	 * in memory until {@link #unpin(ProjectDescriptor)} is called. Meant to be used for the currently open project.
+	 * Does nothing by default.
+	 * 
+	 * @param projDescr
+	 */
+	public void pin(ProjectDescriptor projDescr)
+	{
+		// does nothing by default
+	}
+	
+	/**
+	 * Undoes a previous call of {@link #pin(ProjectDescriptor)}.
+	 * Does nothing by default.
+	 * 
+	 * @param projDescr
+	 */
+	public void unpin(ProjectDescriptor projDescr)
+	{
+		// does nothing by default
+	}
+	
 	/**
 	 * Delete specific project
 	 * 
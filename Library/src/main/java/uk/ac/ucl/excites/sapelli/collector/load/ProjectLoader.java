@@ -18,8 +18,13 @@
 
 package uk.ac.ucl.excites.sapelli.collector.load;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -36,8 +41,10 @@ import uk.ac.ucl.excites.sapelli.collector.load.process.PostProcessor;
 import uk.ac.ucl.excites.sapelli.collector.model.Project;
 import uk.ac.ucl.excites.sapelli.shared.io.FileHelpers;
 import uk.ac.ucl.excites.sapelli.shared.io.FileStorageException;
+import uk.ac.ucl.excites.sapelli.shared.io.StreamHelpers;
 import uk.ac.ucl.excites.sapelli.shared.io.Unzipper;
 import uk.ac.ucl.excites.sapelli.shared.util.WarningKeeper;
+import uk.ac.ucl.excites.sapelli.shared.util.xml.XMLCompiler;
 import uk.ac.ucl.excites.sapelli.storage.model.Schema;
 
 /**
@@ -51,6 +58,8 @@ public class ProjectLoader implements WarningKeeper
 	// STATICS -----------------------------------------------------------
 	static public final String[] SAPELLI_FILE_EXTENSIONS = { "sap", "sapelli", "excites", "zip" };
 	static public final String PROJECT_FILE = "PROJECT.xml";
+	static public final String PROJECT_SNAPSHOT_FILE = "PROJECT.snapshot";
+	static private final int PROJECT_SNAPSHOT_MAGIC = 0x53415053; // "SAPS"
 
 	/**
 	 * Checks if the given file has a support sapelli file extension
@@ -120,6 +129,95 @@ public class ProjectLoader implements WarningKeeper
 		return new File(folder, PROJECT_FILE);
 	}
 	
+	/**
+	 * @param folder folder in which the {@value #PROJECT_FILE} file resides
+	 * @return the {@value #PROJECT_SNAPSHOT_FILE} {@link File}
+	 */
+	static public File GetProjectSnapshotFile(File folder)
+	{
+		return new File(folder, PROJECT_SNAPSHOT_FILE);
+	}
+	
+	/**
+	 * Writes a snapshot of the {@value #PROJECT_FILE} file in the given folder, allowing the project to be loaded faster next time
+	 * (see {@link #ParseProjectSnapshotInFolder(File, int, FormSchemaInfoProvider)}). The snapshot is a compiled version of the
+	 * XML (see {@link XMLCompiler}) which also records the size and modification time of the XML file to detect when it becomes stale.
+	 * No exceptions thrown.
+	 * 
+	 * @param folder folder in which the {@value #PROJECT_FILE} file resides
+	 * @param project the {@link Project} parsed from the {@value #PROJECT_FILE} file
+	 * @return whether or not the snapshot was successfully written
+	 */
+	static public boolean WriteProjectSnapshot(File folder, Project project)
+	{
+		File xmlFile = GetProjectXMLFile(folder);
+		File tempFile = new File(folder, PROJECT_SNAPSHOT_FILE + ".tmp");
+		DataOutputStream out = null;
+		try
+		{
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			out.writeInt(PROJECT_SNAPSHOT_MAGIC);
+			out.writeLong(xmlFile.length());
+			out.writeLong(xmlFile.lastModified());
+			out.writeInt(project.getFingerPrint());
+			new XMLCompiler().compile(xmlFile, out);
+			out.close();
+			out = null;
+			// Replace previous snapshot (if any):
+			File snapshotFile = GetProjectSnapshotFile(folder);
+			if((snapshotFile.exists() && !snapshotFile.delete()) || !tempFile.renameTo(snapshotFile))
+				throw new IOException("Could not replace " + snapshotFile.getAbsolutePath());
+			return true;
+		}
+		catch(Exception e)
+		{
+			System.err.println("Failed to write project snapshot in: " + folder.getAbsolutePath());
+			e.printStackTrace(System.err);
+			StreamHelpers.SilentClose(out);
+			FileUtils.deleteQuietly(tempFile);
+			return false;
+		}
+	}
+	
+	/**
+	 * Produces a {@link Project} instance from the {@value #PROJECT_SNAPSHOT_FILE} file in the given folder (see {@link #WriteProjectSnapshot(File, Project)}),
+	 * which is faster than parsing the {@value #PROJECT_FILE} file. If one is given the {@link FormSchemaInfoProvider} is used to speed up {@link Schema} generation.
+	 * No warnings are generated and no exceptions thrown.
+	 * 
+	 * @param folder folder in which the {@value #PROJECT_FILE} and {@value #PROJECT_SNAPSHOT_FILE} files reside
+	 * @param fingerPrint the expected fingerprint of the project
+	 * @param fsiProvider a {@link FormSchemaInfoProvider}, or {@code null}
+	 * @return a {@link Project} instance or {@code null} if there is no snapshot, if it is stale (i.e. it does not match the {@value #PROJECT_FILE} file or the fingerprint), or if something went wrong
+	 */
+	static public Project ParseProjectSnapshotInFolder(File folder, int fingerPrint, FormSchemaInfoProvider fsiProvider)
+	{
+		File snapshotFile = GetProjectSnapshotFile(folder);
+		if(!snapshotFile.isFile())
+			return null;
+		File xmlFile = GetProjectXMLFile(folder);
+		DataInputStream in = null;
+		try
+		{
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+			if(	in.readInt() != PROJECT_SNAPSHOT_MAGIC ||
+				in.readLong() != xmlFile.length() ||
+				in.readLong() != xmlFile.lastModified() ||
+				in.readInt() != fingerPrint)
+				return null; // stale snapshot
+			return new ProjectParser().parseCompiledProject(in, fingerPrint, fsiProvider);
+		}
+		catch(Exception e)
+		{
+			System.err.println("Failed to load project from snapshot: " + snapshotFile.getAbsolutePath());
+			e.printStackTrace(System.err);
+			return null;
+		}
+		finally
+		{
+			StreamHelpers.SilentClose(in);
+		}
+	}
+	
 	/**
 	 * Parses the given {@value #PROJECT_FILE} file to produce a {@link Project} instance.
 	 * If one is given the {@link FormSchemaInfoProvider} is used to speed up {@link Schema} generation.
@@ -271,6 +369,9 @@ public class ProjectLoader implements WarningKeeper
 				throw new Exception("Error on moving extracted files to project folder.", e);
 			}
 			
+			// STEP 4b - Write project snapshot to speed up future loading (failure is not a problem):
+			WriteProjectSnapshot(extractFolder, project);
+			
 			// STEP 5 - Run post-processing tasks:
 			List<PostProcessTask> tasks = parser.getPostProcessingTasks();
 			if(!tasks.isEmpty())
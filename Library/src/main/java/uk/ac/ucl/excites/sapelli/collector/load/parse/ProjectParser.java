@@ -37,6 +37,7 @@ import uk.ac.ucl.excites.sapelli.collector.model.fields.Relationship;
 import uk.ac.ucl.excites.sapelli.shared.io.UnclosableBufferedInputStream;
 import uk.ac.ucl.excites.sapelli.shared.util.xml.DocumentParser;
 import uk.ac.ucl.excites.sapelli.shared.util.xml.XMLAttributes;
+import uk.ac.ucl.excites.sapelli.shared.util.xml.XMLCompiler;
 import uk.ac.ucl.excites.sapelli.shared.util.xml.XMLHasher;
 import uk.ac.ucl.excites.sapelli.storage.model.ComparableColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.Schema;
@@ -174,17 +175,7 @@ public class ProjectParser extends DocumentParser
 	public Project parseProject(InputStream input, FormSchemaInfoProvider fsiProvider) throws Exception
 	{		
 		// (Re)Initialise:
-		format = DEFAULT_FORMAT;
-		project = null;
-		fingerPrint = null;
-		startFormID = null;
-		this.fsiProvider = fsiProvider;
-		if(relationshipToFormID != null)
-			relationshipToFormID.clear();
-		if(relationshipToConstraints != null)
-			relationshipToConstraints.clear();
-		if(postProcessingTasks != null)
-			postProcessingTasks.clear();
+		initialise(fsiProvider);
 		
 		// Get XML hash:
 		UnclosableBufferedInputStream ubInput = new UnclosableBufferedInputStream(input); // decorate stream to avoid it from being closed and to ensure we can use mark/reset
@@ -197,6 +188,42 @@ public class ProjectParser extends DocumentParser
 		parse(ubInput); //!!!
 		return project;
 	}
+	
+	/**
+	 * Produces a {@link Project} instance from a compiled version of its XML (see {@link XMLCompiler}), which is faster than parsing the XML itself.
+	 * If one is given the {@link FormSchemaInfoProvider} is used to speed up {@link Schema} generation.
+	 * 
+	 * @param compiledInput an {@link InputStream} providing the compiled XML
+	 * @param fingerPrint the fingerprint (i.e. XML hash) of the project, as computed when the XML was last parsed
+	 * @param fsiProvider a {@link FormSchemaInfoProvider}, or {@code null}
+	 * @return the parsed Project instance
+	 * @throws Exception
+	 */
+	public Project parseCompiledProject(InputStream compiledInput, int fingerPrint, FormSchemaInfoProvider fsiProvider) throws Exception
+	{
+		// (Re)Initialise:
+		initialise(fsiProvider);
+		this.fingerPrint = fingerPrint;
+		
+		// Replay compiled XML:
+		replay(compiledInput); //!!!
+		return project;
+	}
+	
+	private void initialise(FormSchemaInfoProvider fsiProvider)
+	{
+		format = DEFAULT_FORMAT;
+		project = null;
+		fingerPrint = null;
+		startFormID = null;
+		this.fsiProvider = fsiProvider;
+		if(relationshipToFormID != null)
+			relationshipToFormID.clear();
+		if(relationshipToConstraints != null)
+			relationshipToConstraints.clear();
+		if(postProcessingTasks != null)
+			postProcessingTasks.clear();
+	}
 
 	@Override
 	public void startDocument() throws SAXException
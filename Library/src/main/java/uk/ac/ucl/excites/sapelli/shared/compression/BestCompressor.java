@@ -0,0 +1,396 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.shared.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import uk.ac.ucl.excites.sapelli.shared.compression.CompressorFactory.Compression;
+import uk.ac.ucl.excites.sapelli.shared.io.StreamHelpers;
+
+/**
+ * Applies several compression modes to the same data, concurrently, and selects the one producing the smallest output.<br/>
+ * <br/>
+ * A candidate mode is abandoned as soon as its output grows larger than the current best result or than the given size limit.
+ * When several modes produce output of the same size the one which comes first in the given modes array wins, meaning the
+ * result is the same as it would be when trying the modes one after the other.
+ *
+ * @author mstevens
+ */
+public class BestCompressor
+{
+
+	// STATIC -------------------------------------------------------
+	static public final int NO_LIMIT = Integer.MAX_VALUE;
+
+	static private ExecutorService DefaultExecutor;
+
+	/**
+	 * @return a shared pool of daemon threads, sized to the number of available processors
+	 */
+	static public synchronized ExecutorService GetDefaultExecutor()
+	{
+		if(DefaultExecutor == null)
+			DefaultExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable r)
+				{
+					Thread thread = new Thread(r, BestCompressor.class.getSimpleName());
+					thread.setDaemon(true); // don't prevent the VM from exiting
+					return thread;
+				}
+			});
+		return DefaultExecutor;
+	}
+
+	// DYNAMIC ------------------------------------------------------
+	/**
+	 * May be {@code null}, in which case all modes are tried sequentially on the calling thread.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Uses the shared default executor.
+	 */
+	public BestCompressor()
+	{
+		this(GetDefaultExecutor());
+	}
+
+	/**
+	 * @param executor the executor to run compression tasks on, or {@code null} to run them sequentially on the calling thread
+	 */
+	public BestCompressor(ExecutorService executor)
+	{
+		this.executor = executor;
+	}
+
+	/**
+	 * @param data
+	 * @param modes
+	 * @param verify whether or not to check that decompressing the output gives back the original data
+	 * @return a report holding the best result (never {@code null} because there is no size limit)
+	 */
+	public Report apply(byte[] data, Compression[] modes, boolean verify)
+	{
+		return apply(data, modes, verify, NO_LIMIT);
+	}
+
+	/**
+	 * @param data
+	 * @param modes
+	 * @param verify whether or not to check that decompressing the output gives back the original data
+	 * @param maxCompressedBytes maximum size of the compressed output, modes whose output grows larger are abandoned
+	 * @return a report holding the best result ({@code null} when no mode produced output within the size limit)
+	 */
+	public Report apply(byte[] data, Compression[] modes, boolean verify, int maxCompressedBytes)
+	{
+		Report report = new Report(data.length, maxCompressedBytes);
+
+		// Submit (or run) a task per mode:
+		List<Future<CompressorResult>> futures = new ArrayList<Future<CompressorResult>>(modes.length);
+		CompressorResult[] results = new CompressorResult[modes.length];
+		for(int m = 0; m < modes.length; m++)
+		{
+			Task task = new Task(modes[m], data, verify, report);
+			if(executor != null)
+				futures.add(executor.submit(task));
+			else
+			{
+				futures.add(null);
+				results[m] = task.call();
+			}
+		}
+
+		// Collect results & select the best one (ties are won by the earliest mode):
+		CompressorResult best = null;
+		for(int m = 0; m < modes.length; m++)
+		{
+			if(futures.get(m) != null)
+			{
+				try
+				{
+					results[m] = futures.get(m).get();
+				}
+				catch(InterruptedException e)
+				{
+					// Stop the tasks which are still pending or running, their results are no longer needed:
+					for(Future<CompressorResult> future : futures)
+						if(future != null)
+							future.cancel(true);
+					Thread.currentThread().interrupt();
+					break;
+				}
+				catch(ExecutionException e)
+				{
+					report.fail(modes[m], e.getCause());
+				}
+			}
+			if(results[m] != null && results[m].getCompressedData().length <= maxCompressedBytes && (best == null || results[m].getCompressedData().length < best.getCompressedData().length))
+				best = results[m];
+		}
+		report.best = best;
+		return report;
+	}
+
+	/**
+	 * Compresses (and optionally verifies) the data using a single mode.
+	 *
+	 * @author mstevens
+	 */
+	static private class Task implements Callable<CompressorResult>
+	{
+
+		private final Compression mode;
+		private final byte[] data;
+		private final boolean verify;
+		private final Report report;
+
+		public Task(Compression mode, byte[] data, boolean verify, Report report)
+		{
+			this.mode = mode;
+			this.data = data;
+			this.verify = verify;
+			this.report = report;
+		}
+
+		/**
+		 * @return the result, or {@code null} if this mode was abandoned or failed
+		 */
+		@Override
+		public CompressorResult call()
+		{
+			long startTime = System.nanoTime();
+			boolean abandoned = false;
+			CompressorResult result = null;
+			LimitedByteArrayOutputStream sink = new LimitedByteArrayOutputStream();
+			OutputStream out = null;
+			try
+			{
+				Compressor compressor = CompressorFactory.getCompressor(mode);
+				out = compressor.getOutputStream(sink, data.length);
+				out.write(data);
+				out.flush();
+				out.close();
+				byte[] compressedData = sink.toByteArray();
+				if(!report.canWin(compressedData.length))
+					abandoned = true;
+				else if(!verify || Arrays.equals(data, compressor.decompress(compressedData)))
+				{
+					report.offer(compressedData.length);
+					result = new CompressorResult(mode, compressedData, compressedData.length / (float) data.length);
+				}
+				else
+					report.fail(mode, new IOException(mode + ": decompressed data does not match input data"));
+			}
+			catch(AbandonedException ae)
+			{
+				abandoned = true;
+			}
+			catch(Exception e)
+			{
+				if(e.getCause() instanceof AbandonedException) // some compressor streams wrap exceptions thrown by the sink
+					abandoned = true;
+				else
+					report.fail(mode, e);
+			}
+			finally
+			{
+				StreamHelpers.SilentClose(out);
+			}
+			report.record(mode, System.nanoTime() - startTime, abandoned);
+			return result;
+		}
+
+		/**
+		 * Sink which aborts compression once its output can no longer be the best.
+		 */
+		private class LimitedByteArrayOutputStream extends ByteArrayOutputStream
+		{
+
+			@Override
+			public synchronized void write(int b)
+			{
+				check(1);
+				super.write(b);
+			}
+
+			@Override
+			public synchronized void write(byte[] b, int off, int len)
+			{
+				check(len);
+				super.write(b, off, len);
+			}
+
+			private void check(int len)
+			{
+				if(!report.canWin(count + len))
+					throw new AbandonedException();
+			}
+
+		}
+
+	}
+
+	/**
+	 * Unchecked so it can escape from {@link ByteArrayOutputStream#write(int)}.
+	 */
+	static private class AbandonedException extends RuntimeException
+	{
+
+		private static final long serialVersionUID = 2L;
+
+	}
+
+	/**
+	 * The outcome of a {@link BestCompressor#apply(byte[], Compression[], boolean, int)} call, including per-mode timing.
+	 *
+	 * @author mstevens
+	 */
+	static public class Report
+	{
+
+		private final int uncompressedSize;
+		
+		/**
+		 * Size (in bytes) of the best result so far, shared across running candidates.
+		 */
+		private volatile int bestSize;
+		
+		private final Map<Compression, Long> durationsNS = Collections.synchronizedMap(new EnumMap<Compression, Long>(Compression.class));
+		private final Map<Compression, Boolean> abandoned = Collections.synchronizedMap(new EnumMap<Compression, Boolean>(Compression.class));
+		private final Map<Compression, Throwable> failures = Collections.synchronizedMap(new EnumMap<Compression, Throwable>(Compression.class));
+		private CompressorResult best;
+
+		private Report(int uncompressedSize, int maxCompressedBytes)
+		{
+			this.uncompressedSize = uncompressedSize;
+			this.bestSize = maxCompressedBytes;
+		}
+		
+		/**
+		 * @param size
+		 * @return whether or not output of the given size can still win
+		 */
+		private boolean canWin(int size)
+		{
+			return size <= bestSize;
+		}
+
+		private synchronized void offer(int size)
+		{
+			if(size < bestSize)
+				bestSize = size;
+		}
+
+		private void record(Compression mode, long durationNS, boolean abandoned)
+		{
+			this.durationsNS.put(mode, durationNS);
+			this.abandoned.put(mode, abandoned);
+		}
+
+		private void fail(Compression mode, Throwable cause)
+		{
+			System.err.println("Compression mode " + mode + " failed: " + cause.toString());
+			failures.put(mode, cause);
+		}
+
+		/**
+		 * @return the best result, or {@code null} when no mode produced output within the size limit or all modes failed
+		 */
+		public CompressorResult getBest()
+		{
+			return best;
+		}
+
+		/**
+		 * @return the best result, never {@code null}
+		 * @throws IOException when no mode produced output within the size limit, e.g. because all of them failed
+		 */
+		public CompressorResult getBestOrThrow() throws IOException
+		{
+			if(best != null)
+				return best;
+			synchronized(failures)
+			{
+				if(failures.isEmpty())
+					throw new IOException("None of the compression modes produced output within the size limit");
+				Map.Entry<Compression, Throwable> failure = failures.entrySet().iterator().next();
+				throw new IOException("None of the compression modes succeeded (" + failures.size() + " failed, first: " + failure.getKey() + ")", failure.getValue());
+			}
+		}
+
+		/**
+		 * @param mode
+		 * @return the exception which caused the given mode to fail, or {@code null} if it did not fail (or was not tried)
+		 */
+		public Throwable getFailure(Compression mode)
+		{
+			return failures.get(mode);
+		}
+
+		/**
+		 * @param mode
+		 * @return the time spent on the given mode (in ms), or -1 if it was not tried
+		 */
+		public float getDurationMS(Compression mode)
+		{
+			Long durationNS = durationsNS.get(mode);
+			return durationNS != null ? durationNS / 1000000f : -1f;
+		}
+
+		/**
+		 * @param mode
+		 * @return whether the given mode was abandoned because its output could not be the best
+		 */
+		public boolean isAbandoned(Compression mode)
+		{
+			return Boolean.TRUE.equals(abandoned.get(mode));
+		}
+
+		@Override
+		public String toString()
+		{
+			StringBuilder bldr = new StringBuilder();
+			bldr.append("Best compression of " + uncompressedSize + " bytes: " + (best != null ? best.toString() : "none"));
+			synchronized(durationsNS)
+			{
+				for(Map.Entry<Compression, Long> entry : durationsNS.entrySet())
+					bldr.append("\n - " + entry.getKey() + ": " + CompressorFactory.RATIO_FORMAT.format(entry.getValue() / 1000000f) + " ms" + (isAbandoned(entry.getKey()) ? " (abandoned)" : (failures.containsKey(entry.getKey()) ? " (failed)" : "")));
+			}
+			return bldr.toString();
+		}
+
+	}
+
+}
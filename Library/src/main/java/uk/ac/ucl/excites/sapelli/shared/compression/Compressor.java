@@ -120,22 +120,4 @@ public abstract class Compressor
 		return getMode().name() + Compressor.class.getSimpleName();
 	}
 
-	/*public class CompressorCallable implements Callable<CompressorResult>
-	{
-
-		private byte[] uncompressedData;
-
-		public CompressorCallable(byte[] uncompressedData)
-		{
-			this.uncompressedData = uncompressedData;
-		}
-
-		@Override
-		 public CompressorResult call() throws Exception
-		 {
-		 return new CompressorResult(getMode(), com, ratio)
-		 }
-
-	}*/
-
 }
@@ -131,38 +131,17 @@ public class CompressorFactory
 	}
 	
 	/**
+	 * Tries the given modes in parallel, on the shared {@link BestCompressor#GetDefaultExecutor()}.
+	 * 
 	 * @param data
 	 * @param modes
 	 * @param verify
 	 * @return
+	 * @see BestCompressor
 	 */
 	static public CompressorResult ApplyBestCompression(byte[] data, Compression[] modes, boolean verify)
 	{
-		//TODO make this multi-threaded?
-		//CompressorResult[] results = new CompressorResult[modes.length];
-		//ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-		
-		CompressorResult best = null;
-		for(Compression mode : modes)
-		{
-			try
-			{
-				Compressor compressor = CompressorFactory.getCompressor(mode);
-				byte[] compressedData = compressor.compress(data);
-				if(!verify || Arrays.equals(data, compressor.decompress(compressedData)))
-				{
-					if(best == null || compressedData.length < best.getCompressedData().length)
-						best = new CompressorResult(mode, compressedData, compressedData.length / (float) data.length);
-				}
-				else
-					System.err.println(mode + ": DECOMPRESSED DATA DOES NOT MATCH INPUT DATA!");
-			}
-			catch(IOException e)
-			{
-				e.printStackTrace(System.err);
-				continue;
-			}
-		}
+		CompressorResult best = new BestCompressor().apply(data, modes, verify).getBest();
 		return best != null ? best : new CompressorResult(Compression.NONE, data, 1.0f);
 	}
 	
@@ -19,6 +19,7 @@
 package uk.ac.ucl.excites.sapelli.shared.io;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Iterator;
 
@@ -72,8 +73,21 @@ public class BitArray implements Iterable<Boolean>
 		return baos.toBitArray(true); // use given max bitLength
 	}
 	
+	/**
+	 * @param bits number of bits
+	 * @return the number of 64 bit words needed to hold the given number of bits
+	 */
+	static /*package*/ int wordsNeeded(int bits)
+	{
+		return (bits + Long.SIZE - 1) >>> 6;
+	}
+	
 	// DYNAMIC ------------------------------------------------------
-	private final BitSet bits;
+	/**
+	 * The bits, stored in 64 bit words using MSB 0 bit numbering (i.e. bit 0 is the most significant bit of the first word).
+	 * Any bits at indexes beyond {@link #length} are always 0.
+	 */
+	private final long[] words;
 	private final int length;
 	
 	/**
@@ -81,7 +95,7 @@ public class BitArray implements Iterable<Boolean>
 	 */
 	public BitArray(int length)
 	{
-		this(new BitSet(length), length);
+		this(new long[wordsNeeded(checkLength(length))], length);
 	}
 	
 	/**
@@ -90,18 +104,41 @@ public class BitArray implements Iterable<Boolean>
 	 */
 	public BitArray(BitSet bits, int length)
 	{
+		this(checkLength(length));
 		if(bits == null)
 			throw new NullPointerException("bits cannot be null!");
+		for(int i = bits.nextSetBit(0); i >= 0 && i < length; i = bits.nextSetBit(i + 1))
+			set(i, true);
+	}
+	
+	/**
+	 * Takes ownership of the given words array, which must be exactly long enough to hold the given number of bits.
+	 * Any bits beyond the given length are cleared.
+	 * 
+	 * @param words
+	 * @param length
+	 */
+	/*package*/ BitArray(long[] words, int length)
+	{
+		if(words.length != wordsNeeded(checkLength(length)))
+			throw new IllegalArgumentException("words array has wrong size");
+		this.words = words;
+		this.length = length;
+		if((length & 63) != 0)
+			words[words.length - 1] &= -1L << (Long.SIZE - (length & 63)); // clear trailing bits
+	}
+	
+	static private int checkLength(int length)
+	{
 		if(length < 0)
 			throw new IllegalArgumentException("length cannot be negative!");
-		this.bits = bits;
-		this.length = length;
+		return length;
 	}
 
 	public boolean get(int index)
 	{
 		if(index >= 0 && index < length)
-			return bits.get(index);
+			return (words[index >>> 6] & (1L << (63 - (index & 63)))) != 0;
 		else
 			throw new IndexOutOfBoundsException("index (" + index + ") out of bounds [0, " + (length - 1) + "]!");
 	}
@@ -109,11 +146,65 @@ public class BitArray implements Iterable<Boolean>
 	public void set(int index, boolean value)
 	{
 		if(index >= 0 && index < length)
-			bits.set(index, value);
+		{
+			if(value)
+				words[index >>> 6] |= 1L << (63 - (index & 63));
+			else
+				words[index >>> 6] &= ~(1L << (63 - (index & 63)));
+		}
 		else
 			throw new IndexOutOfBoundsException("index (" + index + ") out of bounds [0, " + (length - 1) + "]!");
 	}
 	
+	/**
+	 * Returns {@code numberOfBits} bits starting at the given index as the least significant bits of a long value (the bit at the given index becomes the most significant one of those).
+	 * 
+	 * @param index
+	 * @param numberOfBits between 0 and 64 (inclusive)
+	 * @return
+	 */
+	/*package*/ long getBits(int index, int numberOfBits)
+	{
+		if(index < 0 || numberOfBits < 0 || numberOfBits > Long.SIZE || index + numberOfBits > length)
+			throw new IndexOutOfBoundsException("index (" + index + ") and/or numberOfBits (" + numberOfBits + ") out of bounds!");
+		if(numberOfBits == 0)
+			return 0L;
+		int w = index >>> 6;
+		int offset = index & 63;
+		long bits = (words[w] << offset) >>> (Long.SIZE - numberOfBits);
+		int overflow = offset + numberOfBits - Long.SIZE; // number of bits in the next word
+		if(overflow > 0)
+			bits |= words[w + 1] >>> (Long.SIZE - overflow);
+		return bits;
+	}
+	
+	/**
+	 * Sets {@code numberOfBits} bits starting at the given index to the least significant bits of the given long value (the most significant one of those goes to the given index).
+	 * 
+	 * @param index
+	 * @param bits
+	 * @param numberOfBits between 0 and 64 (inclusive)
+	 */
+	/*package*/ void setBits(int index, long bits, int numberOfBits)
+	{
+		if(index < 0 || numberOfBits < 0 || numberOfBits > Long.SIZE || index + numberOfBits > length)
+			throw new IndexOutOfBoundsException("index (" + index + ") and/or numberOfBits (" + numberOfBits + ") out of bounds!");
+		if(numberOfBits == 0)
+			return;
+		int w = index >>> 6;
+		int offset = index & 63;
+		long mask = -1L >>> (Long.SIZE - numberOfBits); // numberOfBits least significant bits set
+		bits &= mask;
+		int overflow = offset + numberOfBits - Long.SIZE; // number of bits going into the next word
+		if(overflow <= 0)
+			words[w] = (words[w] & ~(mask << -overflow)) | (bits << -overflow);
+		else
+		{
+			words[w] = (words[w] & ~(mask >>> overflow)) | (bits >>> overflow);
+			words[w + 1] = (words[w + 1] & (-1L >>> overflow)) | (bits << (Long.SIZE - overflow));
+		}
+	}
+	
 	@Override
 	public Iterator<Boolean> iterator()
 	{
@@ -153,9 +244,8 @@ public class BitArray implements Iterable<Boolean>
 	public byte[] toByteArray()
 	{
 		byte[] bytes = new byte[BinaryHelpers.bytesNeeded(length)];
-		for(int i = 0; i < length; i++)
-			if(bits.get(i))
-				bytes[i / Byte.SIZE] |= 1 << (7 - (i % 8)); // MSB is read first
+		for(int b = 0; b < bytes.length; b++)
+			bytes[b] = (byte) (words[b >>> 3] >>> (56 - ((b & 7) << 3))); // MSB is read first
 		return bytes;
 	}
 	
@@ -167,18 +257,15 @@ public class BitArray implements Iterable<Boolean>
 	 */
 	public void writeTo(BitOutputStream bos) throws IOException
 	{
-		for(int i = 0; i < length; i++)
-			bos.write(bits.get(i));
+		for(int i = 0; i < length; i += Long.SIZE)
+			bos.writeRawBits(getBits(i, Math.min(Long.SIZE, length - i)), Math.min(Long.SIZE, length - i));
 	}
 	
 	public int hashCode()
 	{
 		int hash = 1;
 		hash = 31 * hash + length;
-		hash = 31 * hash + bits.hashCode();
-		/*// Less efficient alternative for line above:
-		for(int i = 0; i < length; i++)
-			hash = 31 * hash + (get(i) ? 0 : 1);*/
+		hash = 31 * hash + Arrays.hashCode(words);
 		return hash;
 	}
 	
@@ -191,12 +278,7 @@ public class BitArray implements Iterable<Boolean>
 			BitArray that = (BitArray) obj;
 			if(this.length != that.length)
 				return false;
-			return this.bits.equals(that.bits);
-			/*// Less efficient alternative for line above:
-			for(int i = 0; i < length; i++)
-				if(this.get(i) != that.get(i))
-					return false;
-			return true;*/
+			return Arrays.equals(this.words, that.words); // trailing bits are always 0
 		}
 		return false;
 	}
@@ -214,8 +296,11 @@ public class BitArray implements Iterable<Boolean>
 		if(to > this.length)
 			to = this.length;
 		BitArray sub = new BitArray(to - offset);
-		for(int i = offset; i < to; i++)
-			sub.set(i, this.get(i));
+		for(int i = offset; i < to; i += Long.SIZE)
+		{
+			int n = Math.min(Long.SIZE, to - i);
+			sub.setBits(i - offset, getBits(i, n), n);
+		}
 		return sub;
 	}
 	
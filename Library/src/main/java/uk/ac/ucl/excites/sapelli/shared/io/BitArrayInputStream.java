@@ -61,6 +61,24 @@ public final class BitArrayInputStream extends BitInputStream
 		return bitArray.get(currentIndex++);
 	}
 	
+	/**
+	 * Reads up to 64 bits at once.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.shared.io.BitInputStream#doReadBits(int)
+	 */
+	@Override
+	protected long doReadBits(int numberOfBits) throws IOException, EOFException
+	{
+		if(currentIndex + numberOfBits > bitArray.length())
+		{
+			currentIndex = bitArray.length();
+			throw new EOFException("End of stream reached");
+		}
+		long bits = bitArray.getBits(currentIndex, numberOfBits);
+		currentIndex += numberOfBits;
+		return bits;
+	}
+	
 	/**
 	 * The (estimated) number of bits left available for reading.
 	 * Calls atEnd().
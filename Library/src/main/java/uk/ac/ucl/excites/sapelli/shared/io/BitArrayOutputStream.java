@@ -19,7 +19,7 @@
 package uk.ac.ucl.excites.sapelli.shared.io;
 
 import java.io.IOException;
-import java.util.BitSet;
+import java.util.Arrays;
 
 /**
  * @author mstevens
@@ -30,7 +30,13 @@ public class BitArrayOutputStream extends BitOutputStream
 
 	static public final int UNLIMITED = -1; 
 	
-	private final BitSet bits;
+	static private final int INITIAL_CAPACITY = 16; // words
+	
+	/**
+	 * The bits written so far, stored in 64 bit words using MSB 0 bit numbering (see {@link BitArray}).
+	 */
+	private long[] words;
+	private int position; // index of the next bit to write (kept separately from numberOfBitsWritten because the latter is only updated after doWriteBytes() completes)
 	private final int maxLength;
 	
 	/**
@@ -48,12 +54,12 @@ public class BitArrayOutputStream extends BitOutputStream
 		super();
 		if(maxLength < UNLIMITED)
 			throw new IllegalArgumentException("maxLength cannot be < -1");
-		this.bits = new BitSet();
+		this.words = new long[isLimited(maxLength) ? BitArray.wordsNeeded(maxLength) : INITIAL_CAPACITY];
 		this.maxLength = maxLength;
 	}
 	
 	/**
-	 * Writes an individual bit (a boolean) to the underlying BitSet
+	 * Writes an individual bit (a boolean) to the underlying words array
 	 * 
 	 * @param bit bit (true = 1; false = 0) to be written
 	 * @throws IOException if an I/O error occurs
@@ -61,7 +67,39 @@ public class BitArrayOutputStream extends BitOutputStream
 	@Override
 	protected void writeBit(boolean bit) throws IOException
 	{
-		bits.set(getNumberOfBitsWritten(), bit);
+		ensureCapacity(position + 1);
+		if(bit)
+			words[position >>> 6] |= 1L << (63 - (position & 63));
+		position++;
+	}
+	
+	/**
+	 * Writes up to 64 bits at once, spread over at most 2 words.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.shared.io.BitOutputStream#doWriteBits(long, int)
+	 */
+	@Override
+	protected void doWriteBits(long bits, int numberOfBits) throws IOException
+	{
+		ensureCapacity(position + numberOfBits);
+		bits &= -1L >>> (Long.SIZE - numberOfBits); // only keep the bits to write (all bits after position are still 0 so we only need to OR)
+		int w = position >>> 6;
+		int overflow = (position & 63) + numberOfBits - Long.SIZE; // number of bits going into the next word
+		position += numberOfBits;
+		if(overflow <= 0)
+			words[w] |= bits << -overflow;
+		else
+		{
+			words[w] |= bits >>> overflow;
+			words[w + 1] |= bits << (Long.SIZE - overflow);
+		}
+	}
+	
+	private void ensureCapacity(int numberOfBits)
+	{
+		int needed = BitArray.wordsNeeded(numberOfBits);
+		if(needed > words.length)
+			words = Arrays.copyOf(words, Math.max(needed, words.length * 2));
 	}
 	
 	/**
@@ -78,7 +116,8 @@ public class BitArrayOutputStream extends BitOutputStream
 	 */
 	public BitArray toBitArray(boolean useMaxLenth)
 	{
-		return new BitArray(bits, useMaxLenth && isLimited() ? maxLength : getNumberOfBitsWritten());
+		int length = useMaxLenth && isLimited() ? maxLength : getNumberOfBitsWritten();
+		return new BitArray(Arrays.copyOf(words, BitArray.wordsNeeded(length)), length);
 	}
 
 	/**
@@ -93,6 +132,11 @@ public class BitArrayOutputStream extends BitOutputStream
 	 * @return
 	 */
 	public boolean isLimited()
+	{
+		return isLimited(maxLength);
+	}
+	
+	static private boolean isLimited(int maxLength)
 	{
 		return maxLength > UNLIMITED;
 	}
@@ -105,4 +149,13 @@ public class BitArrayOutputStream extends BitOutputStream
 		return isLimited() && getNumberOfBitsWritten() == maxLength;
 	}
 	
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.shared.io.BitOutputStream#bitsRemaining()
+	 */
+	@Override
+	protected int bitsRemaining()
+	{
+		return isLimited() ? maxLength - getNumberOfBitsWritten() : Integer.MAX_VALUE;
+	}
+	
 }
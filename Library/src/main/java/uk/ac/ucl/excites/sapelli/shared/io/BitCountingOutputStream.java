@@ -0,0 +1,55 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.shared.io;
+
+import java.io.IOException;
+
+/**
+ * A {@link BitOutputStream} which discards all bits written to it, only keeping track of their number (see {@link #getNumberOfBitsWritten()}).
+ *
+ * @author mstevens
+ */
+public class BitCountingOutputStream extends BitOutputStream
+{
+
+	@Override
+	protected void writeBit(boolean bit) throws IOException
+	{
+		// do nothing
+	}
+
+	@Override
+	protected void doWriteBits(long bits, int numberOfBits) throws IOException
+	{
+		// do nothing
+	}
+
+	@Override
+	protected void doWriteBytes(byte[] bytes, int off, int len) throws IOException
+	{
+		// do nothing
+	}
+
+	@Override
+	protected boolean isFull()
+	{
+		return false;
+	}
+
+}
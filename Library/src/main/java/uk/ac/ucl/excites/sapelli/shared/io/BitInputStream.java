@@ -67,6 +67,75 @@ public abstract class BitInputStream extends InputStream
 	}
 	
 	protected abstract boolean doReadBit() throws IOException, EOFException;
+	
+	/**
+	 * Reads the given number (max 64) of bits from the stream and returns them as the least significant bits of a long value (the first bit read becomes the most significant one of those).
+	 * 
+	 * @param numberOfBits number of bits to be read (between 0 and 64, inclusive)
+	 * @return the bits
+	 * @throws IOException if the stream is closed or another I/O error occurs
+	 * @throws EOFException when not enough bits could be read because the end of stream is reached
+	 */
+	/*package*/ final long readRawBits(int numberOfBits) throws IOException, EOFException
+	{
+		if(numberOfBits == 0)
+			return 0l;
+		long bits = doReadBits(numberOfBits);
+		numberOfBitsRead += numberOfBits;
+		return bits;
+	}
+	
+	/**
+	 * Reads the given number (max 64) of bits from the stream.
+	 * Subclasses should override this with a more efficient implementation than the default one, which reads the bits one by one.
+	 * If the end of stream is reached before all bits could be read the stream may be left in any position.
+	 * 
+	 * @param numberOfBits number of bits to be read (between 1 and 64, inclusive)
+	 * @return the bits, as the least significant bits of a long value (the first bit read becomes the most significant one of those)
+	 * @throws IOException if the stream is closed or another I/O error occurs
+	 * @throws EOFException when not enough bits could be read because the end of stream is reached
+	 */
+	protected long doReadBits(int numberOfBits) throws IOException, EOFException
+	{
+		long bits = 0l;
+		for(int i = 0; i < numberOfBits; i++)
+			bits = (bits << 1) | (doReadBit() ? 1l : 0l);
+		return bits;
+	}
+	
+	/**
+	 * Reads up to {@code byteCount} whole bytes and stores them in the given buffer, starting at {@code byteOffset}.
+	 * Subclasses may override this with a more efficient implementation than the default one, which reads up to 8 bytes at a time using {@link #doReadBits(int)}.
+	 * There is no need to check the arguments, that is taken care of by the caller.
+	 * 
+	 * @param buffer
+	 * @param byteOffset
+	 * @param byteCount
+	 * @return the number of bytes actually read, less than {@code byteCount} (possibly 0) if the end of stream was reached
+	 * @throws IOException if the stream is closed or another I/O error occurs
+	 */
+	protected int doReadBytes(byte[] buffer, int byteOffset, int byteCount) throws IOException
+	{
+		int i = 0;
+		try
+		{
+			// Read 8 bytes at a time:
+			for(; i + Long.SIZE / Byte.SIZE <= byteCount && bitsAvailable() >= Long.SIZE; i += Long.SIZE / Byte.SIZE)
+			{
+				long word = doReadBits(Long.SIZE);
+				for(int b = 0; b < Long.SIZE / Byte.SIZE; b++)
+					buffer[byteOffset + i + b] = (byte) (word >>> (Long.SIZE - Byte.SIZE * (b + 1)));
+			}
+			// Read remaining bytes:
+			for(; i < byteCount; i++)
+				buffer[byteOffset + i] = (byte) doReadBits(Byte.SIZE);
+		}
+		catch(EOFException eof)
+		{
+			// end of stream reached, return number of bytes read
+		}
+		return i;
+	}
 
 	/**
 	 * Reads exactly {@code numberOfBits} of bits from the input stream, and returns them as a boolean[]. 
@@ -98,8 +167,11 @@ public abstract class BitInputStream extends InputStream
 	public BitArray readBitArray(int length) throws EOFException, IOException
 	{
 		BitArray bits = new BitArray(length);
-		for(int i = 0; i < length; i++)
-			bits.set(i, readBit());
+		for(int i = 0; i < length; i += Long.SIZE)
+		{
+			int n = Math.min(Long.SIZE, length - i);
+			bits.setBits(i, readRawBits(n), n);
+		}
 		return bits;
 	}
 	
@@ -186,20 +258,12 @@ public abstract class BitInputStream extends InputStream
 			throw new NullPointerException("buffer cannot be null");
 		if(byteOffset < 0 || byteCount < 0 || byteOffset + byteCount > buffer.length)
 			throw new IndexOutOfBoundsException("byteOffset and/or byteCount cause out of bounds exception");
-		int i = 0;
-		for(; i < byteCount; i++)
-		{
-			try
-			{
-				buffer[i + byteOffset] = readByte();
-			}
-			catch(EOFException eof)
-			{
-				if(i == 0)
-					return -1; //not a single byte could be read
-				break;
-			}
-		}
+		if(byteCount == 0)
+			return 0;
+		int i = doReadBytes(buffer, byteOffset, byteCount);
+		numberOfBitsRead += i * Byte.SIZE;
+		if(i == 0)
+			return -1; //not a single byte could be read
 		return i; //number of bytes read
 	}
 	
@@ -302,7 +366,13 @@ public abstract class BitInputStream extends InputStream
 			throw new IllegalArgumentException("Cannot store more than 64 bits in a variable of type long; use readBigInteger() instead.");
 		if(numberOfBits == 64 && !signed)
 			throw new IllegalArgumentException("Cannot safely store unsigned values of more than 63 bits in a variable of type long; use readBigInteger() instead.");
-		return readBigInteger(numberOfBits, signed).longValue();
+		if(numberOfBits < 0)
+			throw new IllegalArgumentException("numberOfBits (" + numberOfBits + ") cannot be negative!");
+		long value = readRawBits(numberOfBits); // throws IOException and EOFException
+		// Overflowing values become negative (i.e. sign extension of Two's complement value):
+		if(signed && numberOfBits > 0 && numberOfBits < Long.SIZE)
+			value = (value << (Long.SIZE - numberOfBits)) >> (Long.SIZE - numberOfBits);
+		return value;
 	}
 	
 	/**
@@ -330,16 +400,17 @@ public abstract class BitInputStream extends InputStream
 	{
 		if(numberOfBits < 0)
 			throw new IllegalArgumentException("numberOfBits (" + numberOfBits + ") cannot be negative!");
-		/* Read the value bit by bit...
-		 *	The most significant bit is read first ("MSB 0" bit numbering).
-		 *	But because  BigInteger uses "LSB 0" bit numbering internally we will always set its (numberOfBits - 1 - i)-th bit
-		 *	(i.e. in the BigInteger the most significant bit is at address numburOfBits-1). */
+		// Values which fit in a long are read as such:
+		if(numberOfBits < Long.SIZE || (numberOfBits == Long.SIZE && signed))
+			return BigInteger.valueOf(readInteger(numberOfBits, signed));
+		/* Read the value in chunks of (up to) 62 bits (to avoid negative longs)...
+		 *	The most significant bits are read first ("MSB 0" bit numbering). */
 		BigInteger value = BigInteger.ZERO;
-		for(int i = 0; i < numberOfBits; i++)
-			if(readBit()) //throws IOException and EOFException 
-				value = value.setBit(numberOfBits - 1 - i);
-			//Alternative for the 2 lines above:
-			//	value = value.add(BigInteger.valueOf(bits[i] ? (1l << i) : 0l));
+		for(int i = 0; i < numberOfBits; i += Long.SIZE - 2)
+		{
+			int n = Math.min(Long.SIZE - 2, numberOfBits - i);
+			value = value.shiftLeft(n).or(BigInteger.valueOf(readRawBits(n))); //throws IOException and EOFException
+		}
 		// Overflowing values become negative:
 		BigInteger maxValue = BigIntegerUtils.GetMaxValue(numberOfBits, signed);
 		if(value.compareTo(maxValue) > 0) // is value bigger than maxValue?
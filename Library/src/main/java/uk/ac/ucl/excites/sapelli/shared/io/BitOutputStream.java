@@ -76,11 +76,88 @@ public abstract class BitOutputStream extends OutputStream
 	 */
 	protected abstract void writeBit(boolean bit) throws IOException;
 	
+	/**
+	 * Writes the given number (max 64) of least significant bits of the given long value to the output, most significant bit first.
+	 * 
+	 * @param bits long value holding the bits to be written, any bits beyond the least significant {@code numberOfBits} are ignored
+	 * @param numberOfBits number of bits to write (between 0 and 64, inclusive)
+	 * @throws IOException if an I/O error occurs
+	 * @throws CapacityReachedException when the output is "full", in which case the bits that did fit will have been written
+	 */
+	/*package*/ final void writeRawBits(long bits, int numberOfBits) throws IOException, CapacityReachedException
+	{
+		if(numberOfBits == 0)
+			return;
+		if(closed)
+			throw new IOException("This stream is closed");
+		int remaining = bitsRemaining();
+		if(numberOfBits > remaining)
+		{	// Write the (most significant) bits that still fit and then signal that capacity has been reached:
+			if(remaining > 0)
+			{
+				doWriteBits(bits >>> (numberOfBits - remaining), remaining);
+				numberOfBitsWritten += remaining;
+			}
+			throw new CapacityReachedException();
+		}
+		doWriteBits(bits, numberOfBits);
+		numberOfBitsWritten += numberOfBits;
+	}
+	
+	/**
+	 * Writes the given number (max 64) of least significant bits of the given long value, most significant bit first.
+	 * Subclasses should override this with a more efficient implementation than the default one, which writes the bits one by one.
+	 * There is no need to check capacity or closedness, that is taken care of by the caller.
+	 * 
+	 * @param bits long value holding the bits to be written, any bits beyond the least significant {@code numberOfBits} must be ignored
+	 * @param numberOfBits number of bits to write (between 1 and 64, inclusive)
+	 * @throws IOException if an I/O error occurs
+	 */
+	protected void doWriteBits(long bits, int numberOfBits) throws IOException
+	{
+		for(int i = numberOfBits - 1; i >= 0; i--)
+			writeBit(((bits >>> i) & 1L) != 0);
+	}
+	
+	/**
+	 * Writes whole bytes, in order and each with MSB first.
+	 * Subclasses may override this with a more efficient implementation than the default one, which writes up to 8 bytes at a time using {@link #doWriteBits(long, int)}.
+	 * There is no need to check arguments, capacity or closedness, that is taken care of by the caller.
+	 * 
+	 * @param bytes byte array from which a sub-array need to be written
+	 * @param off offset
+	 * @param len number of bytes to be written
+	 * @throws IOException if an I/O error occurs
+	 */
+	protected void doWriteBytes(byte[] bytes, int off, int len) throws IOException
+	{
+		int i = 0;
+		// Write 8 bytes at a time:
+		for(; i + Long.SIZE / Byte.SIZE <= len; i += Long.SIZE / Byte.SIZE)
+		{
+			long word = 0L;
+			for(int b = 0; b < Long.SIZE / Byte.SIZE; b++)
+				word = (word << Byte.SIZE) | (bytes[off + i + b] & 0xFFL);
+			doWriteBits(word, Long.SIZE);
+		}
+		// Write remaining bytes:
+		for(; i < len; i++)
+			doWriteBits(bytes[off + i], Byte.SIZE);
+	}
+	
 	/**
 	 * @return whether or not the output is "full"
 	 */
 	protected abstract boolean isFull();
 	
+	/**
+	 * @return the number of bits which can still be written before the output is "full", or {@link Integer#MAX_VALUE} if there is no limit
+	 */
+	protected int bitsRemaining()
+	{
+		return isFull() ? 0 : Integer.MAX_VALUE;
+	}
+	
 	/**
 	 * Writes an array series of bits (booleans) to the output
 	 * 
@@ -115,8 +192,7 @@ public abstract class BitOutputStream extends OutputStream
 	 */
 	public void write(byte b) throws IOException
 	{
-		for(int i = 7; i >= 0; i--) //MSB first
-			write((b & (1 << i)) != 0);
+		writeRawBits(b, Byte.SIZE); // MSB first
 	}
 	
 	/**
@@ -154,8 +230,17 @@ public abstract class BitOutputStream extends OutputStream
 			throw new IllegalArgumentException("Negative length");
 		if(off + len > bytes.length)
 			throw new ArrayIndexOutOfBoundsException();
-		for(int i = 0; i < len; i++)
-			write(bytes[off+i]);		
+		if(closed)
+			throw new IOException("This stream is closed");
+		if((long) len * Byte.SIZE <= bitsRemaining())
+		{	// Fast path:
+			doWriteBytes(bytes, off, len);
+			numberOfBitsWritten += len * Byte.SIZE;
+		}
+		else
+			// Byte by byte, until capacity is reached:
+			for(int i = 0; i < len; i++)
+				write(bytes[off+i]);
 	}
 
 	/**
@@ -211,28 +296,23 @@ public abstract class BitOutputStream extends OutputStream
 	public void write(long value, int numberOfBits, boolean signed/*, ByteOrder order*/) throws IOException
 	{
 		//TODO add support for little-endian byte order (and perhaps LSB 0 bit numbering)
-		write(BigInteger.valueOf(value), numberOfBits, signed);
-		/*
-		//Version without conversion to BigInteger (works just as well; kept for reference only):
 		//Do checks:
-		if(numberOfBits < 1)
-			throw new IllegalArgumentException("Invalid number of bits (" + numberOfBits + ").");
-		if(signed)
-		{	//Signed
-			if(value < (long) (- Math.pow(2, numberOfBits - 1)) || value > (long) (Math.pow(2, numberOfBits - 1) - 1))
-				throw new IllegalArgumentException("Signed value (" + value + ") does not fit in " + numberOfBits + " bits.");
-		}
-		else
-		{	//Unsigned
-			if(value < 0l)
-				throw new IllegalArgumentException("Cannot write negative value as unsigned integer.");
-			if(value > (long) (Math.pow(2, numberOfBits) - 1))
-				throw new IllegalArgumentException("Unsigned value (" + value + ") does not fit in " + numberOfBits + " bits.");
+		if(numberOfBits < 0)
+			throw new IllegalArgumentException("numberOfBits (" + numberOfBits + ") cannot be negative!");
+		if(!signed && value < 0l)
+			throw new IllegalArgumentException("Cannot write negative value (" + value + ") as unsigned integer.");
+		// Check if value fits (values always fit if numberOfBits >= 64, or >= 63 for unsigned values):
+		if(numberOfBits < (signed ? Long.SIZE : Long.SIZE - 1))
+		{
+			long minValue = signed && numberOfBits > 0 ? -(1l << (numberOfBits - 1)) : 0l;
+			long maxValue = signed ? (numberOfBits > 0 ? (1l << (numberOfBits - 1)) - 1 : 0l) : (1l << numberOfBits) - 1;
+			if(value < minValue || value > maxValue)
+				throw new IllegalArgumentException((signed ? "S" : "Uns") + "igned value (" + value + ") does not fit in " + numberOfBits + " bits, values must be in range [" + minValue + "; " + maxValue + "] (inclusive).");
 		}
 		//Write the bits (MSB first):
-		for(int i = numberOfBits - 1; i >= 0; i--)
-			write((value >> i) % 2l != 0);
-		*/
+		for(int i = numberOfBits - Long.SIZE; i > 0; i -= Long.SIZE) // values needing more than 64 bits are sign-extended
+			writeRawBits(value < 0l ? -1l : 0l, Math.min(i, Long.SIZE));
+		writeRawBits(value, Math.min(numberOfBits, Long.SIZE));
 	}
 	
 	/**
@@ -270,8 +350,10 @@ public abstract class BitOutputStream extends OutputStream
 		/*Write the bits
 		 *	The most significant bit is written first ("MSB 0" bit numbering).
 		 *	But we need to count backwards because BigInteger uses "LSB 0" bit numbering internally (i.e. the most significant bit is at address numburOfBits-1). */
-		for(int i = numberOfBits - 1; i >= 0; i--)
+		for(int i = numberOfBits - 1; i >= Long.SIZE; i--)
 			write(value.testBit(i));
+		//	The (up to) 64 least significant bits are written at once (the value's two's complement representation in a long has the same bits):
+		writeRawBits(value.longValue(), Math.min(numberOfBits, Long.SIZE));
 	}
 	
 	/**
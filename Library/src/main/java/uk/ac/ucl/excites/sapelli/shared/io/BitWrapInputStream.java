@@ -95,6 +95,53 @@ public final class BitWrapInputStream extends BitInputStream
 		return ((currentByte >>> numBitsRemaining) & 1) == 1;
 	}
 	
+	/**
+	 * Reads up to 64 bits at once, consuming the current byte in chunks of up to 8 bits.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.shared.io.BitInputStream#doReadBits(int)
+	 */
+	@Override
+	protected long doReadBits(int numberOfBits) throws IOException, EOFException
+	{
+		long bits = 0l;
+		while(numberOfBits > 0)
+		{
+			if(atEnd()) //also reads a new byte from underlying stream if needed! (will also check for closedness)
+				throw new EOFException("End of stream reached");
+			int chunk = Math.min(numberOfBits, numBitsRemaining);
+			numBitsRemaining -= chunk;
+			numberOfBits -= chunk;
+			bits = (bits << chunk) | ((currentByte >>> numBitsRemaining) & ((1 << chunk) - 1));
+		}
+		return bits;
+	}
+	
+	/**
+	 * If we are at a byte boundary the bytes are read from the underlying InputStream directly.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.shared.io.BitInputStream#doReadBytes(byte[], int, int)
+	 */
+	@Override
+	protected int doReadBytes(byte[] buffer, int byteOffset, int byteCount) throws IOException
+	{
+		if(closed)
+			throw new IOException("This stream is closed");
+		if(numBitsRemaining != 0 || isEndOfStream)
+			return super.doReadBytes(buffer, byteOffset, byteCount);
+		int i = 0;
+		while(i < byteCount)
+		{
+			int n = input.read(buffer, byteOffset + i, byteCount - i);
+			if(n < 0)
+			{
+				isEndOfStream = true;
+				break;
+			}
+			i += n;
+		}
+		return i;
+	}
+	
 	/**
 	 * Closes this stream and the underlying InputStream.
 	 * 
@@ -70,6 +70,43 @@ public final class BitWrapOutputStream extends BitOutputStream
 		}
 	}
 
+	/**
+	 * Writes up to 64 bits at once, filling the current byte in chunks of up to 8 bits.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.shared.io.BitOutputStream#doWriteBits(long, int)
+	 */
+	@Override
+	protected void doWriteBits(long bits, int numberOfBits) throws IOException
+	{
+		while(numberOfBits > 0)
+		{
+			int chunk = Math.min(numberOfBits, 8 - numBitsInCurrentByte);
+			numberOfBits -= chunk;
+			currentByte = (currentByte << chunk) | (int) ((bits >>> numberOfBits) & ((1 << chunk) - 1));
+			numBitsInCurrentByte += chunk;
+			if(numBitsInCurrentByte == 8)
+			{
+				output.write(currentByte);
+				currentByte = 0;
+				numBitsInCurrentByte = 0;
+			}
+		}
+	}
+	
+	/**
+	 * If we are at a byte boundary the bytes are passed on to the underlying OutputStream directly.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.shared.io.BitOutputStream#doWriteBytes(byte[], int, int)
+	 */
+	@Override
+	protected void doWriteBytes(byte[] bytes, int off, int len) throws IOException
+	{
+		if(numBitsInCurrentByte == 0)
+			output.write(bytes, off, len);
+		else
+			super.doWriteBytes(bytes, off, len);
+	}
+	
 	@Override
 	protected boolean isFull()
 	{
@@ -18,13 +18,16 @@
 
 package uk.ac.ucl.excites.sapelli.shared.io.text;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.io.FileUtils;
 
@@ -44,6 +47,11 @@ public class FileWriter
 
 	protected OutputStreamWriter writer = null;
 	protected StringBuffer transactionBuffer = null; 
+	
+	/**
+	 * Whether or not the output is flushed after each write
+	 */
+	protected boolean autoFlush = true;
 
 	private File file = null;
 
@@ -83,6 +91,18 @@ public class FileWriter
 	}
 	
 	public void open(int fileExistsStrategy, int fileDoesNotExistStrategy) throws IOException
+	{
+		open(fileExistsStrategy, fileDoesNotExistStrategy, false, false);
+	}
+	
+	/**
+	 * @param fileExistsStrategy
+	 * @param fileDoesNotExistStrategy
+	 * @param buffered when {@code true} output is buffered instead of being flushed after each write, {@link #flush()} can be used to force it out
+	 * @param gzip when {@code true} the output is gzip-compressed
+	 * @throws IOException
+	 */
+	public void open(int fileExistsStrategy, int fileDoesNotExistStrategy, boolean buffered, boolean gzip) throws IOException
 	{
 		if(fileExistsStrategy < 0 || fileExistsStrategy > 4)
 			throw new IllegalArgumentException("Invalid file exists strategy");
@@ -127,10 +147,15 @@ public class FileWriter
 		}
 		
 		// Open file for writing:
-		FileOutputStream fos = new FileOutputStream(file, append);
+		OutputStream out = new FileOutputStream(file, append);
+		if(gzip)
+			out = new GZIPOutputStream(out); // buffers internally
+		else if(buffered)
+			out = new BufferedOutputStream(out);
+		autoFlush = !buffered;
 
 		// If not appending, the UTF-x BOM will be inserted by the GetWriter() method (the itself OutputStreamWriter does not do this!):
-		writer = UnicodeBOM.GetWriter(fos, charset, append);
+		writer = UnicodeBOM.GetWriter(out, charset, append);
 	}
 
 	public void close()
@@ -165,7 +190,8 @@ public class FileWriter
 			try
 			{
 				writer.write(stringToWrite);
-				writer.flush();
+				if(autoFlush)
+					writer.flush();
 			}
 			catch(Exception e)
 			{
@@ -176,6 +202,26 @@ public class FileWriter
 		}
 	}
 
+	/**
+	 * Forces out any buffered output (excluding the contents of an open transaction).
+	 */
+	public void flush()
+	{
+		if(writer != null)
+		{
+			try
+			{
+				writer.flush();
+			}
+			catch(Exception e)
+			{
+				System.err.println("FileWriter: Could not flush to file: " + e.getMessage());
+				e.printStackTrace(System.err);
+				close();
+			}
+		}
+	}
+
 	public void writeLine(String stringToWrite)
 	{
 		write(stringToWrite + "\n");
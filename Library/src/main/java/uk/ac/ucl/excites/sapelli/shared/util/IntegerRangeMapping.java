@@ -33,6 +33,10 @@ import uk.ac.ucl.excites.sapelli.shared.io.BitOutputStream;
  * 
  * Integers of [x, y] are called logical values (to be used by client code), Integers of [0, m] are called raw values (to be used in underlying storage)
  * 
+ * When the effective logical range fits within the range of (signed) longs, and the raw values need at most 63 bits, all long-based
+ * operations (e.g. {@link #write(long, BitOutputStream)}, {@link #readLong(BitInputStream)}, {@link #inRange(long, boolean)}) use
+ * primitive arithmetic instead of {@link BigInteger}s. This is the case for all but the widest ranges.
+ * 
  * @author mstevens
  */
 public class IntegerRangeMapping implements Serializable
@@ -150,6 +154,29 @@ public class IntegerRangeMapping implements Serializable
 	 */
 	private final BigInteger hiBound;
 	
+	/**
+	 * Whether or not the effective logical range fits in the range of longs and the raw values need less than 64 bits,
+	 * in which case the long-typed copies of the bounds below can be used instead of the BigIntegers.
+	 */
+	private final boolean longBounds;
+	
+	/**
+	 * The lower bound as a long (only valid if {@link #longBounds} is {@code true}).
+	 */
+	private final long loBoundLong;
+	
+	/**
+	 * The strict upper bound as a long (only valid if {@link #longBounds} is {@code true}).
+	 */
+	private final long hiBoundLong;
+	
+	/**
+	 * The effective upper bound as a long (only valid if {@link #longBounds} is {@code true}).
+	 * 
+	 * @see #highBound(boolean)
+	 */
+	private final long effectiveHiBoundLong;
+	
 	/**
 	 * Creates an {@link IntegerRangeMapping} [x, y] (inclusive!) with x = 0 and y = {@code hiBound}.
 	 * 
@@ -220,6 +247,19 @@ public class IntegerRangeMapping implements Serializable
 		BigInteger max = hiBound.subtract(loBound);
 		size = max.bitLength(); // will be 0 if loBound = hiBound (only allowed when allowEmpty = true)
 		// Without BigInteger: size = Long.SIZE - Long.numberOfLeadingZeros(max); //gets the numbers of bits needed to store a positive non-0 integer (log2(x))
+		// Check if we can use longs instead of BigIntegers:
+		if(size < Long.SIZE && loBound.bitLength() < Long.SIZE && highBound(false).bitLength() < Long.SIZE)
+		{
+			longBounds = true;
+			loBoundLong = loBound.longValue();
+			hiBoundLong = hiBound.longValue();
+			effectiveHiBoundLong = loBoundLong + ((1l << size) - 1); // does not overflow because the effective hiBound fits in a long
+		}
+		else
+		{
+			longBounds = false;
+			loBoundLong = hiBoundLong = effectiveHiBoundLong = 0l; // not used
+		}
 	}
 	
 	/**
@@ -345,7 +385,10 @@ public class IntegerRangeMapping implements Serializable
 	 */
 	public boolean inRange(long logicalValue, boolean strict)
 	{
-		return inRange(BigInteger.valueOf(logicalValue), strict);
+		if(longBounds)
+			return loBoundLong <= logicalValue && logicalValue <= (strict ? hiBoundLong : effectiveHiBoundLong);
+		else
+			return inRange(BigInteger.valueOf(logicalValue), strict);
 	}
 	
 	/**
@@ -416,7 +459,14 @@ public class IntegerRangeMapping implements Serializable
 	 */
 	public void write(long logicalValue, BitOutputStream to) throws IllegalArgumentException, IOException
 	{
-		write(BigInteger.valueOf(logicalValue), to);
+		if(longBounds)
+		{
+			if(!inRange(logicalValue, false))
+				throw new IllegalArgumentException("Logical value (" + logicalValue + ") does not fit in effective logical range: " + getRangeString(false));
+			to.write(logicalValue - loBoundLong, size, false); // raw value cannot overflow because the logical value is in the effective range
+		}
+		else
+			write(BigInteger.valueOf(logicalValue), to);
 	}
 
 	/**
@@ -427,6 +477,11 @@ public class IntegerRangeMapping implements Serializable
 	 */
 	public void write(BigInteger logicalValue, BitOutputStream to) throws IllegalArgumentException, IOException
 	{
+		if(longBounds && logicalValue.bitLength() < Long.SIZE)
+		{
+			write(logicalValue.longValue(), to);
+			return;
+		}
 		if(!inRange(logicalValue, false))
 			throw new IllegalArgumentException("Logical value (" + logicalValue + ") does not fit in effective logical range: " + getRangeString(false));
 		to.write(toRawValue(logicalValue), size, false);
@@ -439,7 +494,10 @@ public class IntegerRangeMapping implements Serializable
 	 */
 	public BigInteger read(BitInputStream from) throws IOException
 	{
-		return toLogicalValue(from.readBigInteger(size, false));
+		if(longBounds)
+			return BigInteger.valueOf(readLong(from));
+		else
+			return toLogicalValue(from.readBigInteger(size, false));
 	}
 	
 	/**
@@ -449,7 +507,10 @@ public class IntegerRangeMapping implements Serializable
 	 */
 	public long readLong(BitInputStream from) throws IOException
 	{
-		return read(from).longValue();
+		if(longBounds)
+			return from.readInteger(size, false) + loBoundLong;
+		else
+			return read(from).longValue();
 	}
 	
 	/**
@@ -459,7 +520,7 @@ public class IntegerRangeMapping implements Serializable
 	 */
 	public int readInt(BitInputStream from) throws IOException
 	{
-		return read(from).intValue();
+		return (int) readLong(from); // same truncation as BigInteger#intValue()
 	}
 	
 	/**
@@ -469,7 +530,7 @@ public class IntegerRangeMapping implements Serializable
 	 */
 	public short readShort(BitInputStream from) throws IOException
 	{
-		return read(from).shortValue();
+		return (short) readLong(from);
 	}
 	
 	/**
@@ -479,7 +540,7 @@ public class IntegerRangeMapping implements Serializable
 	 */
 	public byte readByte(BitInputStream from) throws IOException
 	{
-		return read(from).byteValue();
+		return (byte) readLong(from);
 	}
 	
 	public String toString()
@@ -24,7 +24,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 
-import org.apache.commons.io.Charsets;
 import org.apache.commons.lang3.ArrayUtils;
 
 /**
@@ -34,6 +33,10 @@ import org.apache.commons.lang3.ArrayUtils;
 public final class StringUtils
 {
 
+	static private final Charset UTF8 = Charset.forName("UTF-8");
+	static private final Charset UTF16BE = Charset.forName("UTF-16BE");
+	static private final Charset UTF16LE = Charset.forName("UTF-16LE");
+	
 	private StringUtils() {}
 
 	static public String nullToEmpty(String str)
@@ -54,9 +57,43 @@ public final class StringUtils
 	 */
 	static public int sizeBytes(String string, Charset charset)
 	{
+		if(UTF8.equals(charset))
+			return sizeBytesUTF8(string); // without encoding
+		if(UTF16BE.equals(charset) || UTF16LE.equals(charset))
+			return string.length() * 2; // (unpaired surrogates are replaced by U+FFFD, which also takes 2 bytes)
 		return string.getBytes(charset).length;
 	}
 	
+	/**
+	 * Computes the number of bytes a given string takes up when encoded as UTF-8, without encoding it.
+	 * The result is the same as {@code string.getBytes("UTF-8").length}, including for strings with unpaired surrogates (which are replaced by a single-byte {@code '?'}).
+	 * 
+	 * @param string
+	 * @return number of bytes that would be used to write the string
+	 */
+	static private int sizeBytesUTF8(String string)
+	{
+		int bytes = 0;
+		for(int i = 0, n = string.length(); i < n; i++)
+		{
+			char c = string.charAt(i);
+			if(c < 0x80)
+				bytes += 1;
+			else if(c < 0x800)
+				bytes += 2;
+			else if(Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(string.charAt(i + 1)))
+			{	// surrogate pair = supplementary code point
+				bytes += 4;
+				i++;
+			}
+			else if(c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)
+				bytes += 1; // unpaired surrogate, replaced by '?'
+			else
+				bytes += 3;
+		}
+		return bytes;
+	}
+	
 	/**
 	 * Returns the number bytes a given string takes up when encoded as UTF-8 
 	 * 
@@ -65,7 +102,7 @@ public final class StringUtils
 	 */
 	static public int sizeBytes(String string)
 	{
-		return sizeBytes(string, Charsets.UTF_8);
+		return sizeBytes(string, UTF8);
 	}
 	
 	static public String addVariableFrontPadding(String str, int desiredLength, char padding)
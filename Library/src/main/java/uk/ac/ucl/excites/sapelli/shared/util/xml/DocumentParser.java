@@ -75,4 +75,31 @@ public abstract class DocumentParser extends Handler
 		}
 	}
 
+	/**
+	 * Replays a document which was compiled before using {@link XMLCompiler}, instead of parsing the original XML.
+	 * 
+	 * @param compiledInput
+	 * @throws Exception
+	 */
+	protected void replay(InputStream compiledInput) throws Exception
+	{
+		if(compiledInput == null)
+			throw new IllegalArgumentException("Invalid input stream");
+		clearWarnings();
+		try
+		{
+			XMLCompiler.Replay(compiledInput, this); // (this will call startDocument(), startElement(), ...)
+		}
+		catch(SAXException saxE)
+		{	// See parse(InputStream):
+			Exception cause = saxE.getException();
+			throw cause != null ? 	cause : // throw unwrapped cause
+									saxE;
+		}
+		finally
+		{	// In case the stream is still open:
+			StreamHelpers.SilentClose(compiledInput);
+		}
+	}
+
 }
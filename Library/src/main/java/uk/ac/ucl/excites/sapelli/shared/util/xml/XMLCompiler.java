@@ -0,0 +1,297 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.shared.util.xml;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Compiles an XML file or inputstream into a compact binary representation of the SAX events (start/end element & characters)
+ * it produces, which can later be replayed into any {@link ContentHandler} (see {@link #Replay(InputStream, ContentHandler)})
+ * without having to tokenise and decode the XML again.
+ *
+ * Element & attribute names and attribute values are only written once, subsequent occurrences refer to the first one by index.
+ * Consecutive characters events are merged into one, so that characters which the XML parser delivered in separate chunks (such as
+ * the two halves of a surrogate pair) are always encoded together.
+ *
+ * Because only the SAX events are stored (and not what a particular handler makes of them) a compiled document remains valid
+ * regardless of changes to the code of the handlers it is replayed into.
+ *
+ * @author mstevens
+ */
+public class XMLCompiler extends DocumentParser
+{
+
+	// STATIC -------------------------------------------------------
+	static public final int FORMAT_VERSION = 2;
+
+	static private final Charset UTF8 = Charset.forName("UTF-8");
+
+	static private final byte EVENT_END_DOCUMENT = 0;
+	static private final byte EVENT_START_ELEMENT = 1;
+	static private final byte EVENT_END_ELEMENT = 2;
+	static private final byte EVENT_CHARACTERS = 3;
+
+	static private final int STRING_NULL = -1;
+	static private final int STRING_NEW = -2;
+
+	/**
+	 * Replays the SAX events stored in the given compiled document into the given handler.
+	 *
+	 * @param compiledInput input providing a document compiled by {@link #compile(InputStream, OutputStream)}, will be read to the end but not closed
+	 * @param handler
+	 * @throws IOException when the input could not be read or is not a compiled document of the current {@link #FORMAT_VERSION}
+	 * @throws SAXException when thrown by the handler
+	 */
+	static public void Replay(InputStream compiledInput, ContentHandler handler) throws IOException, SAXException
+	{
+		// Read the whole document up front, decoding it from an array is a lot faster than reading every int from the stream:
+		ByteBuffer in = ByteBuffer.wrap(IOUtils.toByteArray(compiledInput)); // (big-endian, like DataOutputStream)
+		try
+		{
+			Replay(in, handler);
+		}
+		catch(BufferUnderflowException bue)
+		{
+			throw new IOException("Invalid compiled XML (truncated)", bue);
+		}
+	}
+
+	static private void Replay(ByteBuffer in, ContentHandler handler) throws IOException, SAXException
+	{
+		if(in.getInt() != FORMAT_VERSION)
+			throw new IOException("Unsupported compiled XML format version");
+		List<String> strings = new ArrayList<String>();
+		AttributesImpl attributes = new AttributesImpl();
+		handler.startDocument();
+		while(true)
+		{
+			byte event = in.get();
+			switch(event)
+			{
+				case EVENT_START_ELEMENT :
+					String uri = readString(in, strings);
+					String localName = readString(in, strings);
+					String qName = readString(in, strings);
+					attributes.clear();
+					int numberOfAttributes = in.getInt();
+					for(int a = 0; a < numberOfAttributes; a++)
+						attributes.addAttribute(readString(in, strings), readString(in, strings), readString(in, strings), readString(in, strings), readString(in, strings));
+					handler.startElement(uri, localName, qName, attributes);
+					break;
+				case EVENT_END_ELEMENT :
+					handler.endElement(readString(in, strings), readString(in, strings), readString(in, strings));
+					break;
+				case EVENT_CHARACTERS :
+					char[] chars = readChars(in).toCharArray();
+					handler.characters(chars, 0, chars.length);
+					break;
+				case EVENT_END_DOCUMENT :
+					handler.endDocument();
+					return;
+				default :
+					throw new IOException("Invalid compiled XML (unknown event type: " + event + ")");
+			}
+		}
+	}
+
+	static private String readString(ByteBuffer in, List<String> strings) throws IOException
+	{
+		int ref = in.getInt();
+		if(ref == STRING_NULL)
+			return null;
+		if(ref == STRING_NEW)
+		{
+			String str = readChars(in);
+			strings.add(str);
+			return str;
+		}
+		if(ref < 0 || ref >= strings.size())
+			throw new IOException("Invalid compiled XML (unknown string reference: " + ref + ")");
+		return strings.get(ref);
+	}
+
+	static private String readChars(ByteBuffer in) throws IOException
+	{
+		int length = in.getInt();
+		if(length < 0 || length > in.remaining())
+			throw new IOException("Invalid compiled XML (invalid string length: " + length + ")");
+		String str = new String(in.array(), in.arrayOffset() + in.position(), length, UTF8);
+		in.position(in.position() + length);
+		return str;
+	}
+
+	// DYNAMIC ------------------------------------------------------
+	private DataOutputStream out;
+	private Map<String, Integer> stringIndexes;
+	private final StringBuilder characters = new StringBuilder();
+
+	/**
+	 * @param xmlFile
+	 * @param output the stream to write the compiled document to, will not be closed
+	 * @throws Exception
+	 */
+	public void compile(File xmlFile, OutputStream output) throws Exception
+	{
+		compile(open(xmlFile), output);
+	}
+
+	/**
+	 * @param input XML input, will be closed
+	 * @param output the stream to write the compiled document to, will not be closed
+	 * @throws Exception
+	 */
+	public void compile(InputStream input, OutputStream output) throws Exception
+	{
+		try
+		{
+			out = new DataOutputStream(output);
+			stringIndexes = new HashMap<String, Integer>();
+			characters.setLength(0);
+			out.writeInt(FORMAT_VERSION);
+			parse(input); // (rethrows IOExceptions wrapped in SAXExceptions by the methods below)
+			out.flush();
+		}
+		finally
+		{	// Reset:
+			out = null;
+			stringIndexes = null;
+		}
+	}
+
+	private void writeString(String str) throws IOException
+	{
+		if(str == null)
+		{
+			out.writeInt(STRING_NULL);
+			return;
+		}
+		Integer idx = stringIndexes.get(str);
+		if(idx != null)
+			out.writeInt(idx);
+		else
+		{
+			out.writeInt(STRING_NEW);
+			writeChars(str);
+			stringIndexes.put(str, stringIndexes.size());
+		}
+	}
+
+	private void writeChars(String str) throws IOException
+	{
+		byte[] bytes = str.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Writes out the characters buffered by {@link #characters(char[], int, int)} (if any), must be called before any other event is written.
+	 *
+	 * @throws IOException
+	 */
+	private void flushCharacters() throws IOException
+	{
+		if(characters.length() == 0)
+			return;
+		out.writeByte(EVENT_CHARACTERS);
+		writeChars(characters.toString());
+		characters.setLength(0);
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException
+	{
+		try
+		{
+			flushCharacters();
+			out.writeByte(EVENT_START_ELEMENT);
+			writeString(uri);
+			writeString(localName);
+			writeString(qName);
+			out.writeInt(attributes.getLength());
+			for(int a = 0; a < attributes.getLength(); a++)
+			{
+				writeString(attributes.getURI(a));
+				writeString(attributes.getLocalName(a));
+				writeString(attributes.getQName(a));
+				writeString(attributes.getType(a));
+				writeString(attributes.getValue(a));
+			}
+		}
+		catch(IOException ioE)
+		{
+			throw new SAXException(ioE);
+		}
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException
+	{
+		try
+		{
+			flushCharacters();
+			out.writeByte(EVENT_END_ELEMENT);
+			writeString(uri);
+			writeString(localName);
+			writeString(qName);
+		}
+		catch(IOException ioE)
+		{
+			throw new SAXException(ioE);
+		}
+	}
+
+	@Override
+	public void characters(char ch[], int start, int length) throws SAXException
+	{
+		// Buffer until the next event, a chunk may end halfway a surrogate pair:
+		characters.append(ch, start, length);
+	}
+
+	@Override
+	public void endDocument() throws SAXException
+	{
+		try
+		{
+			flushCharacters();
+			out.writeByte(EVENT_END_DOCUMENT);
+		}
+		catch(IOException ioE)
+		{
+			throw new SAXException(ioE);
+		}
+	}
+
+}
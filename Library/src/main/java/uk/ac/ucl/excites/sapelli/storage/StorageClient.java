@@ -544,6 +544,18 @@ public abstract class StorageClient implements StorageObserver, Console
 				observer.storageEvent(operation, recordRef, recordStore);
 	}
 	
+	@Override
+	public final void storageEvent(RecordOperation operation, Schema schema, List<RecordReference> recordRefs, RecordStore recordStore)
+	{
+		if(	// Any events coming from an initialised RecordStore (this avoids forwarding events during db upgrades) and ...
+			recordStore.isInitialised() &&
+			// 	about records whose Schema has track changes enabled ...
+			schema.hasFlags(SCHEMA_FLAG_TRACK_CHANGES))
+			// must be forwarded to all observers (if any):
+			for(StorageObserver observer : observers)
+				observer.storageEvent(operation, schema, recordRefs, recordStore);
+	}
+	
 	@Override
 	public final void logError(String msg)
 	{
@@ -18,9 +18,12 @@
 
 package uk.ac.ucl.excites.sapelli.storage;
 
+import java.util.List;
+
 import uk.ac.ucl.excites.sapelli.storage.StorageClient.RecordOperation;
 import uk.ac.ucl.excites.sapelli.storage.db.RecordStore;
 import uk.ac.ucl.excites.sapelli.storage.model.RecordReference;
+import uk.ac.ucl.excites.sapelli.storage.model.Schema;
 
 /**
  * An interface to be implemented by classes that need to be informed about storage events
@@ -39,4 +42,14 @@ public interface StorageObserver
 	 */
 	public void storageEvent(RecordOperation operation, RecordReference recordRef, RecordStore recordStore);
 	
+	/**
+	 * Informs about the same operation having been performed on several records of the same schema (e.g. upon a bulk store).
+	 * 
+	 * @param operation
+	 * @param schema
+	 * @param recordRefs
+	 * @param recordStore
+	 */
+	public void storageEvent(RecordOperation operation, Schema schema, List<RecordReference> recordRefs, RecordStore recordStore);
+	
 }
\ No newline at end of file
@@ -0,0 +1,283 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.storage.db;
+
+import java.io.Closeable;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import uk.ac.ucl.excites.sapelli.storage.db.exceptions.DBCursorException;
+import uk.ac.ucl.excites.sapelli.storage.model.Record;
+import uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery;
+
+/**
+ * A closeable, forward-only cursor over the {@link Record}s resulting from a query.
+ *
+ * Unlike the {@link List}s returned by {@link RecordStore#retrieveRecords(uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery)},
+ * records are (depending on the {@link RecordStore} implementation) only created/fetched when they are needed,
+ * meaning memory usage remains bounded regardless of the number of results.
+ *
+ * The cursor is closed automatically once the last record has been returned, but clients which stop iterating early *must* call {@link #close()}.
+ *
+ * Note: when the cursor was opened with {@code reuseRecords = true} the same {@link Record} instance may be returned by
+ * consecutive calls to {@link #next()} (with different values each time), so clients must not hold on to returned records.
+ *
+ * When a record cannot be read {@link #hasNext()} and {@link #next()} throw a {@link DBCursorException} rather than ending the iteration early.
+ *
+ * @author mstevens
+ */
+public abstract class RecordCursor implements Iterator<Record>, Iterable<Record>, Closeable
+{
+
+	// STATIC -----------------------------------------------------------------
+	static public final int UNKNOWN_COUNT = -1;
+
+	/**
+	 * @param records
+	 * @return a {@link RecordCursor} over the given, already retrieved, records
+	 */
+	static public RecordCursor Over(final List<Record> records)
+	{
+		return new RecordCursor()
+		{
+			private final Iterator<Record> iterator = records.iterator();
+
+			@Override
+			protected Record fetchNext()
+			{
+				return iterator.hasNext() ? iterator.next() : null;
+			}
+
+			@Override
+			public int getCountHint()
+			{
+				return records.size();
+			}
+		};
+	}
+
+	/**
+	 * Merges cursors which each return records sorted according to the given comparator into a single sorted cursor, using a heap (k-way merge).
+	 * Records which are equal according to the comparator are returned in the order of the cursors they come from.
+	 * Because records are only fetched from the underlying cursors when needed, only (limit + k) records will be read at most.
+	 * 
+	 * This works for cursors which reuse records too: the underlying cursor a returned record came from is only advanced upon the next call to {@link #next()} (or {@link #hasNext()}).
+	 * 
+	 * @param sortedCursors cursors over sorted records, will be closed by the returned cursor
+	 * @param comparator the order by which each of the cursors is sorted
+	 * @param limit maximum number of records to return, or {@link RecordsQuery#NO_LIMIT}
+	 * @return a {@link RecordCursor} over the merged records
+	 */
+	static public RecordCursor Merge(final List<RecordCursor> sortedCursors, final Comparator<Record> comparator, final int limit)
+	{
+		return new RecordCursor()
+		{
+			
+			private final PriorityQueue<Head> heap = new PriorityQueue<Head>(Math.max(1, sortedCursors.size()));
+			private boolean initialised = false;
+			private Head lastPolled;
+			private int returned = 0;
+			
+			@Override
+			protected Record fetchNext()
+			{
+				if(!initialised)
+				{
+					for(int c = 0; c < sortedCursors.size(); c++)
+						offer(new Head(c, sortedCursors.get(c)));
+					initialised = true;
+				}
+				// Advance cursor from which the previous record came (only now, because it may reuse its record instance):
+				if(lastPolled != null)
+				{
+					offer(lastPolled);
+					lastPolled = null;
+				}
+				if(limit != RecordsQuery.NO_LIMIT && returned >= limit)
+					return null; // we're done
+				lastPolled = heap.poll();
+				if(lastPolled == null)
+					return null; // all cursors exhausted
+				returned++;
+				return lastPolled.record;
+			}
+			
+			private void offer(Head head)
+			{
+				if(head.cursor.hasNext())
+				{
+					head.record = head.cursor.next();
+					heap.add(head);
+				}
+			}
+			
+			@Override
+			public int getCountHint()
+			{
+				long count = 0;
+				for(RecordCursor cursor : sortedCursors)
+				{
+					int hint = cursor.getCountHint();
+					if(hint == UNKNOWN_COUNT)
+						return UNKNOWN_COUNT;
+					count += hint;
+				}
+				return (int) (limit != RecordsQuery.NO_LIMIT ? Math.min(count, limit) : Math.min(count, Integer.MAX_VALUE));
+			}
+			
+			@Override
+			protected void doClose()
+			{
+				heap.clear();
+				lastPolled = null;
+				for(RecordCursor cursor : sortedCursors)
+					cursor.close();
+			}
+			
+			/**
+			 * The current record of one of the cursors being merged
+			 */
+			final class Head implements Comparable<Head>
+			{
+				
+				final int index;
+				final RecordCursor cursor;
+				Record record;
+				
+				Head(int index, RecordCursor cursor)
+				{
+					this.index = index;
+					this.cursor = cursor;
+				}
+				
+				@Override
+				public int compareTo(Head another)
+				{
+					int result = comparator.compare(record, another.record);
+					return result != 0 ? result : (index < another.index ? -1 : (index == another.index ? 0 : 1)); // ties are broken by cursor order
+				}
+				
+			}
+			
+		};
+	}
+
+	// DYNAMIC ----------------------------------------------------------------
+	private Record next;
+	private boolean closed = false;
+
+	/**
+	 * @return the next record, or {@code null} if there are no more results
+	 * @throws DBCursorException when the next record could not be read
+	 */
+	protected abstract Record fetchNext();
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#hasNext()
+	 */
+	@Override
+	public final boolean hasNext()
+	{
+		if(next == null && !closed)
+		{
+			next = fetchNext();
+			if(next == null)
+				close(); // we're done
+		}
+		return next != null;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#next()
+	 */
+	@Override
+	public final Record next()
+	{
+		if(!hasNext())
+			throw new NoSuchElementException();
+		Record record = next;
+		next = null;
+		return record;
+	}
+
+	/**
+	 * Not supported.
+	 *
+	 * @see java.util.Iterator#remove()
+	 */
+	@Override
+	public final void remove()
+	{
+		throw new UnsupportedOperationException("RecordCursor is read-only");
+	}
+
+	/**
+	 * Allows the cursor to be used in a for-each loop. Note that it can only be iterated once.
+	 *
+	 * @see java.lang.Iterable#iterator()
+	 */
+	@Override
+	public final Iterator<Record> iterator()
+	{
+		return this;
+	}
+
+	/**
+	 * @return an estimate of the (total) number of records the cursor will return, or {@link #UNKNOWN_COUNT} if no estimate is available
+	 */
+	public int getCountHint()
+	{
+		return UNKNOWN_COUNT;
+	}
+
+	/**
+	 * Closes the cursor and releases any associated resources. Calling this more than once has no effect.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public final void close()
+	{
+		if(closed)
+			return;
+		closed = true;
+		next = null;
+		doClose();
+	}
+
+	/**
+	 * May be overridden to release resources.
+	 */
+	protected void doClose()
+	{
+		// does nothing by default
+	}
+
+	/**
+	 * @return whether or not the cursor is closed
+	 */
+	public final boolean isClosed()
+	{
+		return closed;
+	}
+
+}
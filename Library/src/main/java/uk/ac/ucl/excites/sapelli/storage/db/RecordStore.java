@@ -22,7 +22,9 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 
@@ -40,6 +42,9 @@ import uk.ac.ucl.excites.sapelli.storage.model.Record;
 import uk.ac.ucl.excites.sapelli.storage.model.RecordReference;
 import uk.ac.ucl.excites.sapelli.storage.model.Schema;
 import uk.ac.ucl.excites.sapelli.storage.model.columns.IntegerColumn;
+import uk.ac.ucl.excites.sapelli.storage.queries.AggregateQuery;
+import uk.ac.ucl.excites.sapelli.storage.queries.CountQuery;
+import uk.ac.ucl.excites.sapelli.storage.queries.GroupByQuery;
 import uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery;
 import uk.ac.ucl.excites.sapelli.storage.queries.SingleRecordQuery;
 import uk.ac.ucl.excites.sapelli.storage.queries.sources.Source;
@@ -336,16 +341,14 @@ public abstract class RecordStore extends Store
 	 */
 	public void store(List<Record> records) throws DBException, IllegalArgumentException, IllegalStateException
 	{
-		Boolean[] insert = new Boolean[records.size()]; 
+		Boolean[] insert;
 		startTransaction();
-		int r = 0;
 		try
 		{
 			for(Record record : records)
-				if(isStorable(record))
-					insert[r++] = doStore(record);
-				else
+				if(!isStorable(record))
 					throw new IllegalArgumentException(String.format("Record (%s) cannot be stored!", record.toString(false)));
+			insert = doStore(records);
 		}
 		catch(Exception e)
 		{
@@ -353,18 +356,47 @@ public abstract class RecordStore extends Store
 			throw new DBException(e);
 		}
 		commitTransaction();
-		// Inform client:
-		r = 0;
+		// Inform client, with a single event per schema & operation:
+		Map<Schema, List<RecordReference>> insertedRefs = new LinkedHashMap<Schema, List<RecordReference>>();
+		Map<Schema, List<RecordReference>> updatedRefs = new LinkedHashMap<Schema, List<RecordReference>>();
+		int r = 0;
 		for(Record record : records)
 		{
 			Boolean inserted = insert[r++];
 			if(inserted == null)
 				continue; // record was unchanged
-			else if(inserted)
-				client.storageEvent(RecordOperation.Inserted, record.getReference(), this);
-			else
-				client.storageEvent(RecordOperation.Updated, record.getReference(), this);
+			Map<Schema, List<RecordReference>> refsBySchema = inserted ? insertedRefs : updatedRefs;
+			List<RecordReference> refs = refsBySchema.get(record.getSchema());
+			if(refs == null)
+			{
+				refs = new ArrayList<RecordReference>();
+				refsBySchema.put(record.getSchema(), refs);
+			}
+			refs.add(record.getReference());
 		}
+		for(Map.Entry<Schema, List<RecordReference>> entry : insertedRefs.entrySet())
+			client.storageEvent(RecordOperation.Inserted, entry.getKey(), entry.getValue(), this);
+		for(Map.Entry<Schema, List<RecordReference>> entry : updatedRefs.entrySet())
+			client.storageEvent(RecordOperation.Updated, entry.getKey(), entry.getValue(), this);
+	}
+	
+	/**
+	 * Stores (insert or update/replace) a list of records.
+	 * The default implementation simply stores them one by one, subclasses may override this to use a faster, batched, approach.
+	 * 
+	 * @param records - the records to store or update; can be assumed to be non-null and not of an internal schema
+	 * @return an array holding, for each record (in the same order), the result as specified for {@link #doStore(Record)}
+	 * @throws DBConstraintException when a table/index constraint is violated
+	 * @throws DBException in case of a database problem
+	 * @throws IllegalStateException when the columns that are part of the primary key have not all been assigned a value
+	 */
+	protected Boolean[] doStore(List<Record> records) throws DBConstraintException, DBException, IllegalStateException
+	{
+		Boolean[] insert = new Boolean[records.size()];
+		int r = 0;
+		for(Record record : records)
+			insert[r++] = doStore(record);
+		return insert;
 	}
 	
 	/**
@@ -430,6 +462,33 @@ public abstract class RecordStore extends Store
 	 */
 	public abstract List<Record> retrieveRecords(RecordsQuery query);
 
+	/**
+	 * Opens a {@link RecordCursor} over the {@link Record}s resulting from the given query.
+	 *
+	 * @param query
+	 * @return a {@link RecordCursor}, possibly without any results, never {@code null}
+	 * @see #openRecordCursor(RecordsQuery, boolean)
+	 */
+	public RecordCursor openRecordCursor(RecordsQuery query)
+	{
+		return openRecordCursor(query, false);
+	}
+
+	/**
+	 * Opens a {@link RecordCursor} over the {@link Record}s resulting from the given query.
+	 * The caller is responsible for closing the cursor if it does not iterate over all results.
+	 *
+	 * Default implementation which retrieves all records up front, should be overridden by subclasses which can fetch records one by one.
+	 *
+	 * @param query
+	 * @param reuseRecords whether or not the cursor may reuse the same {@link Record} instance for consecutive results (only to be used by read-only clients which do not hold on to records)
+	 * @return a {@link RecordCursor}, possibly without any results, never {@code null}
+	 */
+	public RecordCursor openRecordCursor(RecordsQuery query, boolean reuseRecords)
+	{
+		return RecordCursor.Over(retrieveRecords(query));
+	}
+
 	/**
 	 * Retrieve {@link RecordReference}s by query
 	 * 
@@ -457,6 +516,46 @@ public abstract class RecordStore extends Store
 		return retrieveRecord(recordReference.getRecordQuery());
 	}
 	
+	/**
+	 * Counts the {@link Record}s matching the given query.
+	 * 
+	 * Default implementation which retrieves all matching records, should be overridden by subclasses which can count without doing so.
+	 * 
+	 * @param query
+	 * @return the number of matching records
+	 * @throws DBException when the records could not be counted
+	 */
+	public long retrieveCount(CountQuery query) throws DBException
+	{
+		return query.execute(retrieveRecords(query.getRecordsQuery()), false);
+	}
+	
+	/**
+	 * Computes an aggregate value over the {@link Record}s matching the given query.
+	 * 
+	 * Default implementation which retrieves all matching records, should be overridden by subclasses which can compute aggregates without doing so.
+	 * 
+	 * @param query
+	 * @return the aggregate value, possibly {@code null} (see {@link AggregateQuery})
+	 */
+	public Object retrieveAggregate(AggregateQuery query)
+	{
+		return query.execute(retrieveRecords(query.getRecordsQuery()), false);
+	}
+	
+	/**
+	 * Groups the {@link Record}s matching the given query and computes an aggregate value for each group.
+	 * 
+	 * Default implementation which retrieves all matching records, should be overridden by subclasses which can group records without doing so.
+	 * 
+	 * @param query
+	 * @return a {@link Map} from group values to aggregate values, possibly empty, never {@code null}
+	 */
+	public Map<Object, Object> retrieveGroups(GroupByQuery query)
+	{
+		return query.execute(retrieveRecords(query.getRecordsQuery()), false);
+	}
+	
 	/**
 	 * Retrieves a {@link Model} instance with given ID.
 	 * For a matching Model instance to be found the RecordStore must (usually) contain at least
@@ -519,6 +618,28 @@ public abstract class RecordStore extends Store
 		delete(retrieveRecords(query));
 	}
 	
+	/**
+	 * Sets the given column to the given value in all records that match the query.
+	 * The column must be a (top-level, non-primary key) column of the schema(s) of the matching records.
+	 *
+	 * Default implementation, which retrieves all matching records and stores them again, may be overridden for increased performance.
+	 *
+	 * @param query
+	 * @param column
+	 * @param value may be {@code null} if the column is optional
+	 * @return the number of records which matched the query
+	 * @throws DBException
+	 * @throws IllegalArgumentException when the value is invalid for the column, or the column is not part of the schema of a matching record
+	 */
+	public <T> int update(RecordsQuery query, Column<T> column, T value) throws DBException, IllegalArgumentException
+	{
+		List<Record> records = retrieveRecords(query);
+		for(Record record : records)
+			column.storeValue(record, value);
+		store(records);
+		return records.size();
+	}
+
 	/**
 	 * Deletes the single record which matches the query (if any)
 	 * 
@@ -0,0 +1,52 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ * 
+ * Copyright 2012-2016 University College London - ExCiteS group
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.storage.db.exceptions;
+
+import uk.ac.ucl.excites.sapelli.shared.db.exceptions.DBException;
+import uk.ac.ucl.excites.sapelli.storage.db.RecordCursor;
+
+/**
+ * Unchecked exception thrown by {@link RecordCursor#hasNext()} and {@link RecordCursor#next()} when a record could not be read.
+ * It wraps the {@link DBException} which caused the problem, because the {@link java.util.Iterator} methods cannot throw checked exceptions.
+ * 
+ * @author mstevens
+ */
+public class DBCursorException extends RuntimeException
+{
+
+	private static final long serialVersionUID = 2L;
+
+	/**
+	 * @param cause
+	 */
+	public DBCursorException(DBException cause)
+	{
+		super(cause.getMessage(), cause);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Throwable#getCause()
+	 */
+	@Override
+	public synchronized DBException getCause()
+	{
+		return (DBException) super.getCause();
+	}
+
+}
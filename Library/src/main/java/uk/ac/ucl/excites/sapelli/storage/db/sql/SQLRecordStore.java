@@ -29,6 +29,16 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import uk.ac.ucl.excites.sapelli.shared.db.exceptions.DBException;
 import uk.ac.ucl.excites.sapelli.shared.util.CollectionUtils;
@@ -36,12 +46,14 @@ import uk.ac.ucl.excites.sapelli.shared.util.Objects;
 import uk.ac.ucl.excites.sapelli.shared.util.TransactionalStringBuilder;
 import uk.ac.ucl.excites.sapelli.storage.StorageClient;
 import uk.ac.ucl.excites.sapelli.storage.StorageClient.RecordOperation;
+import uk.ac.ucl.excites.sapelli.storage.db.RecordCursor;
 import uk.ac.ucl.excites.sapelli.storage.db.RecordStore;
 import uk.ac.ucl.excites.sapelli.storage.db.exceptions.DBConstraintException;
 import uk.ac.ucl.excites.sapelli.storage.db.exceptions.DBPrimaryKeyException;
 import uk.ac.ucl.excites.sapelli.storage.db.sql.sqlite.SQLiteRecordStore;
 import uk.ac.ucl.excites.sapelli.storage.model.Column;
 import uk.ac.ucl.excites.sapelli.storage.model.ColumnSet;
+import uk.ac.ucl.excites.sapelli.storage.model.ComparableColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.ListColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.Model;
 import uk.ac.ucl.excites.sapelli.storage.model.Record;
@@ -53,12 +65,19 @@ import uk.ac.ucl.excites.sapelli.storage.model.ValueSetColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.VirtualColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.columns.BooleanListColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.columns.ByteArrayListColumn;
+import uk.ac.ucl.excites.sapelli.storage.model.columns.FloatColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.columns.ForeignKeyColumn;
+import uk.ac.ucl.excites.sapelli.storage.model.columns.IntegerColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.columns.IntegerListColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.columns.StringListColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.indexes.Index;
+import uk.ac.ucl.excites.sapelli.storage.queries.AggregateQuery;
+import uk.ac.ucl.excites.sapelli.storage.queries.AggregateQuery.Accumulator;
+import uk.ac.ucl.excites.sapelli.storage.queries.AggregateQuery.Function;
+import uk.ac.ucl.excites.sapelli.storage.queries.CountQuery;
 import uk.ac.ucl.excites.sapelli.storage.queries.ExtremeValueRecordQuery;
 import uk.ac.ucl.excites.sapelli.storage.queries.FirstRecordQuery;
+import uk.ac.ucl.excites.sapelli.storage.queries.GroupByQuery;
 import uk.ac.ucl.excites.sapelli.storage.queries.Order;
 import uk.ac.ucl.excites.sapelli.storage.queries.Query;
 import uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery;
@@ -75,11 +94,13 @@ import uk.ac.ucl.excites.sapelli.storage.queries.constraints.NotConstraint;
 import uk.ac.ucl.excites.sapelli.storage.queries.constraints.OrConstraint;
 import uk.ac.ucl.excites.sapelli.storage.queries.constraints.RuleConstraint;
 import uk.ac.ucl.excites.sapelli.storage.queries.constraints.RuleConstraint.Comparison;
+import uk.ac.ucl.excites.sapelli.storage.queries.constraints.SpatialConstraint;
 import uk.ac.ucl.excites.sapelli.storage.queries.sources.Source;
 import uk.ac.ucl.excites.sapelli.storage.queries.sources.SourceByFlags;
 import uk.ac.ucl.excites.sapelli.storage.queries.sources.SourceBySchemata;
 import uk.ac.ucl.excites.sapelli.storage.queries.sources.SourceResolver;
 import uk.ac.ucl.excites.sapelli.storage.types.LineColumn;
+import uk.ac.ucl.excites.sapelli.storage.types.Location;
 import uk.ac.ucl.excites.sapelli.storage.types.LocationColumn;
 import uk.ac.ucl.excites.sapelli.storage.types.OrientationColumn;
 import uk.ac.ucl.excites.sapelli.storage.types.PolygonColumn;
@@ -102,6 +123,11 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 	// STATIC ------------------------------------------------------------
 	static protected final String SPACE = " ";
 	
+	/**
+	 * Time (in seconds) after which idle retrieval threads terminate (and release their connection).
+	 */
+	static private final long RETRIEVAL_THREAD_KEEP_ALIVE_S = 30;
+	
 	// DYNAMIC -----------------------------------------------------------
 	private STable modelsTable;
 	private STable schemataTable;
@@ -132,7 +158,8 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 	};
 	
 	/**
-	 * Maps references to(!) "schemaMetaRecords" (records of Schema.META_SCHEMA, each describing a Schema) to the table corresponding to the described Schema
+	 * Maps references to(!) "schemaMetaRecords" (records of Schema.META_SCHEMA, each describing a Schema) to the table corresponding to the described Schema.
+	 * Concurrent because retrieval threads look up (and add) tables as well.
 	 */
 	private final Map<RecordReference, STable> tables;
 	
@@ -146,6 +173,13 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 	 */
 	private final Set<String> protectedTables = new HashSet<String>();
 	
+	/**
+	 * Used to run SELECTs on several tables in parallel, {@code null} when parallel retrieval is disabled (the default).
+	 * 
+	 * @see #setParallelRetrieval(int)
+	 */
+	private ExecutorService retrievalExecutor;
+	
 	/**
 	 * @param client
 	 * @param valuePlaceHolder - may be null if no parameters are to be used on (all) SQL statements/queries (only literal values)
@@ -153,7 +187,7 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 	public SQLRecordStore(StorageClient client, String valuePlaceHolder)
 	{
 		super(client, true); // make use of roll-back tasks
-		this.tables = new HashMap<RecordReference, STable>();
+		this.tables = new ConcurrentHashMap<RecordReference, STable>();
 		this.valuePlaceHolder = valuePlaceHolder;
 	}
 	
@@ -294,8 +328,9 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 	 * 
 	 * @param schema
 	 * @return
+	 * @throws DBException when the check could not be performed
 	 */
-	protected final boolean doesTableExist(Schema schema)
+	protected final boolean doesTableExist(Schema schema) throws DBException
 	{
 		return doesTableExist(schema.tableName); // don't sanitise!
 	}
@@ -305,8 +340,9 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 	 * 
 	 * @param unsanitisedTableName
 	 * @return
+	 * @throws DBException when the check could not be performed
 	 */
-	protected abstract boolean doesTableExist(String unsanitisedTableName);
+	protected abstract boolean doesTableExist(String unsanitisedTableName) throws DBException;
 
 	/**
 	 * @param schema
@@ -353,9 +389,17 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 		// If not found, generate new SQLTable object for the Schema:
 		if(table == null)
 		{
-			table = getTableFactory().generateTable(schema);
-			if(!Model.META_MODEL.contains(schema)) // the "tables" map is only for tables of "real" (non-meta) schemata!
-				tables.put(schemaMetaRecordRef, table);
+			synchronized(tables) // so that concurrent lookups for the same schema share a single table object
+			{
+				if(schemaMetaRecordRef != null)
+					table = tables.get(schemaMetaRecordRef); // may have been added by another thread in the meantime
+				if(table == null)
+				{
+					table = getTableFactory().generateTable(schema);
+					if(!Model.META_MODEL.contains(schema)) // the "tables" map is only for tables of "real" (non-meta) schemata!
+						tables.put(schemaMetaRecordRef, table);
+				}
+			}
 		}
 		
 		// If requested then create the actual table in the database if it is not there:
@@ -531,8 +575,18 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 	 * @see uk.ac.ucl.excites.sapelli.storage.db.RecordStore#retrieveModel(long)
 	 */
 	@Override
-	public Model retrieveModel(long modelID)
+	public Model retrieveModel(final long modelID)
 	{
+		if(mustDispatchReads())
+			return dispatchRead(new Callable<Model>()
+			{
+				@Override
+				public Model call()
+				{
+					return retrieveModel(modelID);
+				}
+			});
+		
 		try
 		{
 			Record modelRecord = modelsTable.select(Model.GetModelRecordReference(modelID).getRecordQuery());
@@ -643,6 +697,42 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 		return getTable(record.getSchema(), true).store(record, true); // getTable() will create table in db if it is not there
 	}
 	
+	/**
+	 * Groups the records by schema and passes each group to {@link SQLTable#store(List, boolean)}, allowing tables to store them in batches.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.db.RecordStore#doStore(java.util.List)
+	 */
+	@Override
+	protected Boolean[] doStore(List<Record> records) throws DBException, IllegalStateException
+	{
+		// Group records (and their positions) per schema, preserving order:
+		Map<Schema, List<Record>> recordsBySchema = new LinkedHashMap<Schema, List<Record>>();
+		Map<Schema, List<Integer>> positionsBySchema = new HashMap<Schema, List<Integer>>();
+		int r = 0;
+		for(Record record : records)
+		{
+			List<Record> schemaRecords = recordsBySchema.get(record.getSchema());
+			if(schemaRecords == null)
+			{
+				schemaRecords = new ArrayList<Record>();
+				recordsBySchema.put(record.getSchema(), schemaRecords);
+				positionsBySchema.put(record.getSchema(), new ArrayList<Integer>());
+			}
+			schemaRecords.add(record);
+			positionsBySchema.get(record.getSchema()).add(r++);
+		}
+		// Store per schema:
+		Boolean[] insert = new Boolean[records.size()];
+		for(Map.Entry<Schema, List<Record>> entry : recordsBySchema.entrySet())
+		{
+			Boolean[] schemaInsert = getTable(entry.getKey(), true).store(entry.getValue(), true); // getTable() will create table in db if it is not there
+			int s = 0;
+			for(Integer position : positionsBySchema.get(entry.getKey()))
+				insert[position] = schemaInsert[s++];
+		}
+		return insert;
+	}
+	
 	/* (non-Javadoc)
 	 * @see uk.ac.ucl.excites.sapelli.storage.db.RecordStore#doInsert(uk.ac.ucl.excites.sapelli.storage.model.Record)
 	 */
@@ -714,51 +804,474 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 		}
 	}
 	
+	/**
+	 * Sets the given column to the given value in all records that match the query.
+	 * Overridden for increased performance: uses a single UPDATE statement per table for schemata which do not track changes.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.db.RecordStore#update(uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery, uk.ac.ucl.excites.sapelli.storage.model.Column, java.lang.Object)
+	 */
+	@Override
+	public <T> int update(RecordsQuery query, Column<T> column, T value) throws DBException, IllegalArgumentException
+	{
+		// Check value:
+		if(value == null)
+		{
+			if(!column.optional)
+				throw new NullPointerException("Cannot set null value for non-optional column \"" + column.getName() + "\"!");
+		}
+		else if(!column.isValidValue(value))
+			throw new InvalidValueException("Invalid value for column \"" + column.getName() + "\": " + value, column);
+		// Update per schema:
+		int updated = 0;
+		for(Schema schema : getSchemata(query.getSource()))
+		{
+			if(!schema.hasFlags(StorageClient.SCHEMA_FLAG_TRACK_CHANGES))
+			{	// Efficient but does not allow to report which records were updated:
+				STable table = getTable(schema, false);
+				if(!table.isInDB())
+					continue; // table does no exist in DB, so there are no records to update
+				updated += table.update(query, column, value);
+			}
+			else
+				// Less efficient, but allows to inform client:
+				updated += super.update(new RecordsQuery(schema, query.getConstraints()), column, value);
+		}
+		return updated;
+	}
+	
+	/**
+	 * Enables or disables parallel retrieval.
+	 * 
+	 * When enabled, the SELECTs needed to answer queries which span several schemata (e.g. using {@link Source#ANY} or a
+	 * {@link Source} selecting schemata by flags) are run concurrently, each on a separate retrieval thread with its own
+	 * read-only database connection. Results are returned in the same order as with sequential retrieval, or merged
+	 * according to the query's {@link Order}. Queries issued while a transaction is open are always run sequentially,
+	 * because uncommitted changes are not visible to other connections.
+	 * 
+	 * Has no effect if the subclass does not support parallel retrieval (see {@link #isParallelRetrievalSupported()}).
+	 * 
+	 * @param maxThreads the maximum number of concurrent retrieval threads (and connections), a value smaller than 2 disables parallel retrieval
+	 */
+	public synchronized void setParallelRetrieval(int maxThreads)
+	{
+		if(retrievalExecutor != null)
+		{
+			retrievalExecutor.shutdown(); // threads will terminate (and release their resources) once they finish
+			retrievalExecutor = null;
+		}
+		if(maxThreads > 1 && isParallelRetrievalSupported())
+		{
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, RETRIEVAL_THREAD_KEEP_ALIVE_S, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					return new RetrievalThread(SQLRecordStore.this, runnable);
+				}
+			});
+			executor.allowCoreThreadTimeOut(true); // so idle connections get closed
+			retrievalExecutor = executor;
+		}
+	}
+	
+	/**
+	 * @return whether or not parallel retrieval is enabled
+	 */
+	public synchronized boolean isParallelRetrievalEnabled()
+	{
+		return retrievalExecutor != null;
+	}
+	
+	/**
+	 * Subclasses which can run queries on retrieval threads (see {@link #isRetrievalThread()}), using a separate read-only
+	 * connection per thread, must override this to return {@code true}.
+	 * 
+	 * @return whether or not the subclass supports parallel retrieval, {@code false} by default
+	 */
+	protected boolean isParallelRetrievalSupported()
+	{
+		return false;
+	}
+	
+	/**
+	 * @return whether or not the current thread is one of this store's retrieval threads
+	 */
+	protected final boolean isRetrievalThread()
+	{
+		Thread current = Thread.currentThread();
+		return current instanceof RetrievalThread && ((RetrievalThread) current).store == this;
+	}
+	
+	/**
+	 * Called on each retrieval thread right before it terminates, subclasses should override this to release any
+	 * per-thread resources (e.g. read-only connections).
+	 */
+	protected void releaseRetrievalThreadResources()
+	{
+		// does nothing by default
+	}
+	
+	/**
+	 * Subclasses whose retrieval threads can read concurrently with writes made on the main connection (e.g. because the
+	 * database uses write-ahead logging) may override this to return {@code true}, in which case SELECTs on a single
+	 * table are run on a retrieval thread as well, instead of only those spanning several tables.
+	 * 
+	 * @return whether or not all SELECTs should be run on retrieval threads when parallel retrieval is enabled, {@code false} by default
+	 */
+	protected boolean isConcurrentReadingEnabled()
+	{
+		return false;
+	}
+	
+	/**
+	 * Determines whether the SELECTs issued on the current thread may be run on retrieval threads. Because these use
+	 * separate connections, which do not see uncommitted changes, this is by default only the case when there is no open transaction.
+	 * 
+	 * May be overridden.
+	 * 
+	 * @return whether or not SELECTs issued on the current thread may be run on retrieval threads
+	 */
+	protected boolean canDispatchReads()
+	{
+		return !isInTransaction();
+	}
+	
+	/**
+	 * Determines whether the current thread must leave all reading to the retrieval threads, for instance because it cannot
+	 * use the main connection. If so each of the public retrieval methods is run on a retrieval thread as a whole.
+	 * 
+	 * May be overridden.
+	 * 
+	 * @return whether or not the current thread must leave reading to the retrieval threads, {@code false} by default
+	 */
+	protected boolean mustDispatchReads()
+	{
+		return false;
+	}
+	
+	/**
+	 * Runs the given read on a retrieval thread and waits for its result.
+	 * 
+	 * @param read
+	 * @return the result of the read
+	 * @throws IllegalStateException when parallel retrieval is disabled, or when the current thread was interrupted while waiting
+	 * @see #mustDispatchReads()
+	 */
+	private <T> T dispatchRead(Callable<T> read) throws IllegalStateException
+	{
+		ExecutorService executor;
+		synchronized(this)
+		{
+			executor = retrievalExecutor;
+		}
+		try
+		{
+			if(executor != null)
+				return executor.submit(read).get();
+		}
+		catch(RejectedExecutionException ree)
+		{
+			// parallel retrieval was disabled in the meantime
+		}
+		catch(ExecutionException ee)
+		{	// the retrieval methods only throw unchecked exceptions, except for retrieveCount() which unwraps its DBExceptions:
+			if(ee.getCause() instanceof RuntimeException)
+				throw (RuntimeException) ee.getCause();
+			if(ee.getCause() instanceof Error)
+				throw (Error) ee.getCause();
+			throw new IllegalStateException(ee.getCause());
+		}
+		catch(InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for retrieval thread", ie);
+		}
+		throw new IllegalStateException("Thread \"" + Thread.currentThread().getName() + "\" cannot read from " + getClass().getSimpleName() + " unless parallel retrieval is enabled");
+	}
+	
+	/**
+	 * @param numberOfTables
+	 * @return the executor to use to query the given number of tables in parallel, or {@code null} if they must be queried sequentially (on the current thread)
+	 */
+	private synchronized ExecutorService getRetrievalExecutor(int numberOfTables)
+	{
+		return (numberOfTables > 1 || isConcurrentReadingEnabled()) && retrievalExecutor != null && !isRetrievalThread() /* never wait for the pool from within it */ && canDispatchReads() ? retrievalExecutor : null;
+	}
+	
+	/**
+	 * A thread used for parallel retrieval.
+	 * 
+	 * @author mstevens
+	 */
+	static private final class RetrievalThread extends Thread
+	{
+		
+		private final SQLRecordStore<?, ?, ?> store;
+		
+		public RetrievalThread(SQLRecordStore<?, ?, ?> store, Runnable runnable)
+		{
+			super(runnable, store.getClass().getSimpleName() + "-retrieval");
+			this.store = store;
+			setDaemon(true); // don't prevent the VM from exiting
+		}
+		
+		@Override
+		public void run()
+		{
+			try
+			{
+				super.run();
+			}
+			finally
+			{
+				store.releaseRetrievalThreadResources();
+			}
+		}
+		
+	}
+	
 	/* (non-Javadoc)
 	 * @see uk.ac.ucl.excites.sapelli.storage.db.RecordStore#retrieveRecords(uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery)
 	 */
 	@Override
-	public List<Record> retrieveRecords(RecordsQuery query)
+	public List<Record> retrieveRecords(final RecordsQuery query)
 	{
+		if(mustDispatchReads())
+			return dispatchRead(new Callable<List<Record>>()
+			{
+				@Override
+				public List<Record> call()
+				{
+					return retrieveRecords(query);
+				}
+			});
+		
 		// Get schemata:
 		Collection<Schema> schemata = getSchemata(query.getSource());
 		
-		// Retrieve records:
-		List<Record> records = retrieveRecordValueSets(query, schemata, recordSelectRunner);
+		// Check if cross-schema sorting is needed:
+		if(query.isOrdered() && schemata.size() > 1)
+		{	// Merge the (sorted) per-schema results:
+			RecordCursor cursor = openMergingCursor(query, schemata, false, true);
+			List<Record> records = new ArrayList<Record>();
+			while(cursor.hasNext())
+				records.add(cursor.next());
+			return records;
+		}
+		else
+			// Retrieve records:
+			return retrieveRecordValueSets(query, schemata, recordSelectRunner);
+	}
+	
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.db.RecordStore#openRecordCursor(uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery, boolean)
+	 */
+	@Override
+	public RecordCursor openRecordCursor(final RecordsQuery query, final boolean reuseRecords)
+	{
+		if(mustDispatchReads())
+			// Statements cannot be used across threads, so we have to retrieve all records at once:
+			return RecordCursor.Over(dispatchRead(new Callable<List<Record>>()
+			{
+				@Override
+				public List<Record> call()
+				{
+					return retrieveRecords(query);
+				}
+			}));
+		
+		// Get schemata:
+		final Collection<Schema> schemata = getSchemata(query.getSource());
 		
-		// Apply cross-schema sorting if needed:
+		// Check if cross-schema sorting is needed:
 		if(query.isOrdered() && schemata.size() > 1)
-			query.getOrder().sort(records);
+			return openMergingCursor(query, schemata, reuseRecords, false); // cursors stay on the calling thread's connection
 		
-		// Return result:
-		return records;
+		// Run subqueries for each schema, one after the other, as the cursor advances:
+		return new RecordCursor()
+		{
+			
+			private final Iterator<Schema> schemaIter = schemata.iterator();
+			private RecordCursor current;
+			private int countHint = UNKNOWN_COUNT;
+			
+			@Override
+			protected Record fetchNext()
+			{
+				while(true)
+				{
+					if(current != null)
+					{
+						if(current.hasNext())
+							return current.next();
+						current = null; // closed itself
+					}
+					if(!schemaIter.hasNext())
+						return null;
+					try
+					{
+						STable table = getTable(schemaIter.next(), false);
+						if(table.isInDB()) // otherwise there are no records to retrieve
+							current = table.selectCursor(query, reuseRecords);
+					}
+					catch(DBException dbE)
+					{
+						client.logError("Error in openRecordCursor()", dbE);
+					}
+				}
+			}
+			
+			@Override
+			public int getCountHint()
+			{
+				if(countHint == UNKNOWN_COUNT)
+				{
+					long count = 0;
+					try
+					{
+						for(Schema s : schemata)
+						{
+							STable table = getTable(s, false);
+							if(table.isInDB())
+								count += table.getRecordCount(query);
+						}
+						countHint = (int) Math.min(count, Integer.MAX_VALUE);
+					}
+					catch(DBException dbE)
+					{
+						client.logError("Error upon counting records in openRecordCursor()", dbE);
+					}
+				}
+				return countHint;
+			}
+			
+			@Override
+			protected void doClose()
+			{
+				if(current != null)
+					current.close();
+				current = null;
+			}
+			
+		};
 	}
 	
 	/* (non-Javadoc)
 	 * @see uk.ac.ucl.excites.sapelli.storage.db.RecordStore#retrieveRecordReferences(uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery)
 	 */
 	@Override
-	public List<RecordReference> retrieveRecordReferences(RecordsQuery query)
+	public List<RecordReference> retrieveRecordReferences(final RecordsQuery query)
 	{
+		if(mustDispatchReads())
+			return dispatchRead(new Callable<List<RecordReference>>()
+			{
+				@Override
+				public List<RecordReference> call()
+				{
+					return retrieveRecordReferences(query);
+				}
+			});
+		
 		// Get schemata:
 		Collection<Schema> schemata = getSchemata(query.getSource());
 		
 		// Check if cross-schema sorting is needed:
 		if(query.isOrdered() && schemata.size() > 1)
-		{	// if we need cross-schema ordering we need to query for records first because the ordering may apply to non-PK columns
-			List<Record> records = retrieveRecordValueSets(query, schemata, recordSelectRunner);
-			// Apply cross-schema sorting:
-			query.getOrder().sort(records);
-			// Get & return references:
-			List<RecordReference> recordRefs = new ArrayList<RecordReference>(records.size());
-			for(Record r : records)
-				recordRefs.add(r.getReference());
+		{	// if we need cross-schema ordering we need to query for records because the ordering may apply to non-PK columns,
+			//	but we only need to hold on to their references, so the record instances can be reused:
+			RecordCursor cursor = openMergingCursor(query, schemata, true, true);
+			List<RecordReference> recordRefs = new ArrayList<RecordReference>();
+			while(cursor.hasNext())
+				recordRefs.add(cursor.next().getReference());
 			return recordRefs;
 		}
 		else
 			return retrieveRecordValueSets(query, schemata, recordReferenceSelectRunner);
 	}
 	
+	/**
+	 * Opens a cursor per schema, each of which returns records sorted by the database according to the query's {@link Order},
+	 * and merges them into a single sorted cursor which respects the query's limit.
+	 * 
+	 * @param query an ordered query
+	 * @param schemata
+	 * @param reuseRecords
+	 * @param allowParallel whether or not the per-schema results may be retrieved in parallel (if enabled), in which case they are fetched immediately
+	 * @return a {@link RecordCursor} over the merged results
+	 */
+	private RecordCursor openMergingCursor(RecordsQuery query, Collection<Schema> schemata, boolean reuseRecords, boolean allowParallel)
+	{
+		if(!isOrderPreserved(query.getOrder(), schemata))
+		{	// The database would not sort the per-schema results in the query's order, so they cannot be merged. Instead we
+			//	sort all records in memory (which means the limit can only be applied afterwards):
+			RecordsQuery unlimitedQuery = query.isLimited() ? new RecordsQuery(query.getSource(), query.getOrder(), RecordsQuery.NO_LIMIT, query.getConstraints()) : query;
+			List<Record> records = new ArrayList<Record>(retrieveRecordValueSets(unlimitedQuery, schemata, recordSelectRunner));
+			query.getOrder().sort(records);
+			return RecordCursor.Over(query.isLimited() && records.size() > query.getLimit() ? records.subList(0, query.getLimit()) : records);
+		}
+		List<RecordCursor> sortedCursors = new ArrayList<RecordCursor>(schemata.size());
+		if(allowParallel && getRetrievalExecutor(schemata.size()) != null)
+		{
+			for(List<Record> sortedRecords : runSelects(query, schemata, recordSelectRunner))
+				sortedCursors.add(RecordCursor.Over(sortedRecords)); // ORDER BY & LIMIT are applied by the database
+			return RecordCursor.Merge(sortedCursors, query.getOrder(), query.getLimit());
+		}
+		for(Schema s : schemata)
+		{
+			try
+			{
+				STable table = getTable(s, false);
+				if(!table.isInDB())
+					continue; // table does no exist in DB, so there are no records to retrieve
+				sortedCursors.add(table.selectCursor(query, reuseRecords)); // ORDER BY & LIMIT are applied by the database
+			}
+			catch(DBException dbE)
+			{
+				client.logError("Error in openMergingCursor()", dbE);
+			}
+		}
+		return RecordCursor.Merge(sortedCursors, query.getOrder(), query.getLimit());
+	}
+	
+	/**
+	 * @param order
+	 * @param schemata
+	 * @return whether the database sorts the records of each of the given schemata in the same way as the given {@link Order}
+	 * @see SQLColumn#isOrderPreserving()
+	 */
+	private boolean isOrderPreserved(Order order, Collection<Schema> schemata)
+	{
+		for(Order.Ordering ordering : order.getOrderings())
+		{
+			if(!(ordering instanceof Order.ColumnOrdering))
+				continue; // ModelSchemaOrderings are not applied by the database, but the order is constant within each table anyway
+			ColumnPointer<?> byCP = ((Order.ColumnOrdering) ordering).getBy();
+			for(Schema s : schemata)
+			{
+				try
+				{
+					STable table = getTable(s, false);
+					SColumn sqlCol = table.getSQLColumn(byCP);
+					if(sqlCol != null && !sqlCol.isOrderPreserving())
+						return false;
+					if(byCP.getColumn() instanceof ValueSetColumn<?, ?>)
+					{	// composite columns are ordered by their subcolumns (see SelectHelper):
+						List<SColumn> subSqlCols = table.getSQLColumns(byCP.getColumn());
+						if(subSqlCols != null)
+							for(SColumn subSqlCol : subSqlCols)
+								if(subSqlCol != null && !subSqlCol.isOrderPreserving())
+									return false;
+					}
+				}
+				catch(DBException dbE)
+				{
+					return false; // play safe
+				}
+			}
+		}
+		return true;
+	}
+	
 	/**
 	 * @author mstevens
 	 *
@@ -771,63 +1284,322 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 		
 	}
 	
-	private <R extends RecordValueSet<?>> List<R> retrieveRecordValueSets(RecordsQuery query, Collection<Schema> schemata, SelectRunner<R, STable> selectRunner)
+	private <R extends RecordValueSet<?>> List<R> retrieveRecordValueSets(RecordsQuery query, Collection<Schema> schemata, SelectRunner<R, STable> selectRunner)
+	{
+		List<R> resultAcc = null;
+		// Run subqueries for each schema in the query, or all known schemata (if the query is for "any" schema):
+		for(List<R> subResult : runSelects(query, schemata, selectRunner))
+		{
+			if(!subResult.isEmpty())
+			{
+				if(resultAcc == null)
+					resultAcc = new ArrayList<R>(subResult.size());
+				resultAcc.addAll(subResult);
+			}
+		}
+		return resultAcc != null ? resultAcc : Collections.<R> emptyList();
+	}
+	
+	/**
+	 * Runs the given {@link SelectRunner} on the table of each of the given schemata which exists in the database.
+	 * The tables are queried in parallel if parallel retrieval is enabled (and possible), or one after the other otherwise.
+	 * 
+	 * @param query
+	 * @param schemata
+	 * @param selectRunner
+	 * @return the per-table results, in the order of the schemata (tables for which the query failed are skipped)
+	 */
+	private <R extends RecordValueSet<?>> List<List<R>> runSelects(final RecordsQuery query, Collection<Schema> schemata, final SelectRunner<R, STable> selectRunner)
+	{
+		// Get the tables (on this thread):
+		List<STable> tablesInDB = new ArrayList<STable>(schemata.size());
+		for(Schema s : schemata)
+		{
+			try
+			{
+				STable table = getTable(s, false);
+				if(table.isInDB()) // otherwise there are no records to retrieve
+					tablesInDB.add(table);
+			}
+			catch(DBException dbE)
+			{
+				client.logError("Error in retrieveRecordValueSets()", dbE);
+			}
+		}
+		List<List<R>> results = new ArrayList<List<R>>(tablesInDB.size());
+		
+		// Parallel:
+		ExecutorService executor = getRetrievalExecutor(tablesInDB.size());
+		if(executor != null)
+		{
+			List<Future<List<R>>> futures = new ArrayList<Future<List<R>>>(tablesInDB.size());
+			try
+			{
+				for(final STable table : tablesInDB)
+					futures.add(executor.submit(new Callable<List<R>>()
+					{
+						@Override
+						public List<R> call() throws DBException
+						{
+							return selectRunner.run(table, query);
+						}
+					}));
+			}
+			catch(RejectedExecutionException ree)
+			{	// parallel retrieval was disabled in the meantime, fall back to sequential retrieval:
+				for(Future<List<R>> future : futures)
+					future.cancel(false);
+				futures = null;
+			}
+			if(futures != null)
+			{
+				for(Future<List<R>> future : futures)
+				{
+					try
+					{
+						results.add(future.get());
+					}
+					catch(ExecutionException ee)
+					{
+						client.logError("Error in retrieveRecordValueSets()", ee.getCause());
+					}
+					catch(InterruptedException ie)
+					{
+						Thread.currentThread().interrupt();
+						for(Future<List<R>> f : futures)
+							f.cancel(true);
+						break;
+					}
+				}
+				return results;
+			}
+		}
+		
+		// Sequential:
+		for(STable table : tablesInDB)
+		{
+			try
+			{
+				results.add(selectRunner.run(table, query));
+			}
+			catch(DBException dbE)
+			{
+				client.logError("Error in retrieveRecordValueSets()", dbE);
+			}
+		}
+		return results;
+	}
+
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.db.RecordStore#retrieveRecord(uk.ac.ucl.excites.sapelli.storage.queries.SingleRecordQuery)
+	 */
+	@Override
+	public Record retrieveRecord(final SingleRecordQuery query)
+	{
+		if(mustDispatchReads())
+			return dispatchRead(new Callable<Record>()
+			{
+				@Override
+				public Record call()
+				{
+					return retrieveRecord(query);
+				}
+			});
+		
+		List<Record> candidates = null;
+		// Run subqueries for each schema in the query, or all known schemata (if the query is for "any" schema):
+		RecordsQuery recsQuery = query.getRecordsQuery();
+		for(Schema s : getSchemata(recsQuery.getSource()))
+		{
+			try
+			{
+				STable table = getTable(s, false);
+				if(!table.isInDB())
+					continue; // table does no exist in DB, so there are no records to retrieve
+				Record candidate = table.select(query);
+				if(candidate != null)
+				{
+					if(candidates == null)
+						candidates = new ArrayList<Record>();
+					candidates.add(candidate);
+				}
+			}
+			catch(DBException dbE)
+			{
+				client.logError("Error in retrieveRecord(SingleRecordQuery)", dbE);
+			}
+		}
+		return query.execute(candidates, false); // reduce to 1 record (execute() will return null when passed a null list)
+	}
+	
+	/**
+	 * Counts records using a SELECT COUNT(*) query per table.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.db.RecordStore#retrieveCount(uk.ac.ucl.excites.sapelli.storage.queries.CountQuery)
+	 */
+	@Override
+	public long retrieveCount(final CountQuery query) throws DBException
+	{
+		if(mustDispatchReads())
+		{
+			try
+			{
+				return dispatchRead(new Callable<Long>()
+				{
+					@Override
+					public Long call() throws DBException
+					{
+						return retrieveCount(query);
+					}
+				});
+			}
+			catch(IllegalStateException ise)
+			{
+				if(ise.getCause() instanceof DBException)
+					throw (DBException) ise.getCause();
+				throw ise;
+			}
+		}
+		
+		// A failure to count the records of any schema fails the whole count (a partial count would be wrong):
+		long count = 0;
+		RecordsQuery recsQuery = query.getRecordsQuery();
+		for(Schema s : getSchemata(recsQuery.getSource()))
+		{
+			STable table = getTable(s, false);
+			if(table.isInDB()) // otherwise there are no records to count
+				count += table.getRecordCount(recsQuery);
+		}
+		// The LIMIT applies across all schemata:
+		return recsQuery.isLimited() ? Math.min(count, recsQuery.getLimit()) : count;
+	}
+	
+	/**
+	 * Computes the aggregate in the database, using a SELECT query per table whose partial results are then merged.
+	 * Queries with a LIMIT are evaluated in memory because the aggregate must be computed over the first n records across all schemata.
+	 * So are MIN/MAX queries on columns which the database does not order like Sapelli does (see {@link SQLColumn#isOrderPreserving()}).
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.db.RecordStore#retrieveAggregate(uk.ac.ucl.excites.sapelli.storage.queries.AggregateQuery)
+	 */
+	@Override
+	public Object retrieveAggregate(final AggregateQuery query)
+	{
+		if(mustDispatchReads())
+			return dispatchRead(new Callable<Object>()
+			{
+				@Override
+				public Object call()
+				{
+					return retrieveAggregate(query);
+				}
+			});
+		
+		if(canAggregateInDB(query.getFunction(), query.getColumnPointer(), query.getRecordsQuery()))
+		{
+			try
+			{
+				Accumulator accumulator = retrieveAggregates(null, query.getFunction(), query.getColumnPointer(), query.getRecordsQuery()).get(null);
+				return accumulator != null ? accumulator.getResult() : new Accumulator(query.getFunction(), query.getColumn()).getResult();
+			}
+			catch(DBException dbE)
+			{
+				client.logError("Error in retrieveAggregate(AggregateQuery), falling back to in-memory evaluation", dbE);
+			}
+		}
+		return super.retrieveAggregate(query);
+	}
+	
+	/**
+	 * Groups records in the database, using a SELECT ... GROUP BY query per table whose partial results are then merged.
+	 * Queries with a LIMIT are evaluated in memory because the records must be grouped after the first n records across all schemata have been selected.
+	 * So are MIN/MAX queries on columns which the database does not order like Sapelli does (see {@link SQLColumn#isOrderPreserving()}).
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.db.RecordStore#retrieveGroups(uk.ac.ucl.excites.sapelli.storage.queries.GroupByQuery)
+	 */
+	@Override
+	public Map<Object, Object> retrieveGroups(final GroupByQuery query)
+	{
+		if(mustDispatchReads())
+			return dispatchRead(new Callable<Map<Object, Object>>()
+			{
+				@Override
+				public Map<Object, Object> call()
+				{
+					return retrieveGroups(query);
+				}
+			});
+		
+		if(canAggregateInDB(query.getFunction(), query.getAggregateColumnPointer(), query.getRecordsQuery()))
+		{
+			try
+			{
+				return GroupByQuery.GetResults(retrieveAggregates(query.getGroupByColumnPointer(), query.getFunction(), query.getAggregateColumnPointer(), query.getRecordsQuery()));
+			}
+			catch(DBException dbE)
+			{
+				client.logError("Error in retrieveGroups(GroupByQuery), falling back to in-memory evaluation", dbE);
+			}
+		}
+		return super.retrieveGroups(query);
+	}
+	
+	/**
+	 * @param function
+	 * @param aggregateCP may be {@code null} if function is {@link Function#COUNT}
+	 * @param recordsQuery
+	 * @return whether or not the aggregates can be computed by the database
+	 */
+	private boolean canAggregateInDB(Function function, ColumnPointer<ComparableColumn<?>> aggregateCP, RecordsQuery recordsQuery)
 	{
-		List<R> resultAcc = null;
-		// Run subqueries for each schema in the query, or all known schemata (if the query is for "any" schema):
-		for(Schema s : schemata)
+		if(recordsQuery.isLimited())
+			return false;
+		if(function != Function.MIN && function != Function.MAX)
+			return true;
+		// MIN/MAX are only correct if the database compares values in the same way as Sapelli:
+		for(Schema s : getSchemata(recordsQuery.getSource()))
 		{
 			try
 			{
-				STable table = getTable(s, false);
-				if(!table.isInDB())
-					continue; // table does no exist in DB, so there are no records to retrieve
-				List<R> subResult = selectRunner.run(table, query);
-				if(!subResult.isEmpty())
-				{
-					if(resultAcc == null)
-						resultAcc = new ArrayList<R>(subResult.size());
-					resultAcc.addAll(subResult);
-				}
+				SColumn aggregateSqlCol = getSimpleSQLColumn(getTable(s, false), aggregateCP);
+				if(aggregateSqlCol != null && !aggregateSqlCol.isOrderPreserving())
+					return false;
 			}
 			catch(DBException dbE)
 			{
-				client.logError("Error in retrieveRecordValueSets()", dbE);
+				return false; // play safe
 			}
 		}
-		return resultAcc != null ? resultAcc : Collections.<R> emptyList();
+		return true;
 	}
-
-	/* (non-Javadoc)
-	 * @see uk.ac.ucl.excites.sapelli.storage.db.RecordStore#retrieveRecord(uk.ac.ucl.excites.sapelli.storage.queries.SingleRecordQuery)
+	
+	/**
+	 * @param groupByCP may be {@code null}
+	 * @param function
+	 * @param aggregateCP may be {@code null} if function is {@link Function#COUNT}
+	 * @param recordsQuery
+	 * @return a map with an {@link Accumulator} per group value (using {@code null} as the key if groupByCP is {@code null})
+	 * @throws DBException
 	 */
-	@Override
-	public Record retrieveRecord(SingleRecordQuery query)
+	private Map<Object, Accumulator> retrieveAggregates(ColumnPointer<?> groupByCP, Function function, ColumnPointer<ComparableColumn<?>> aggregateCP, RecordsQuery recordsQuery) throws DBException
 	{
-		List<Record> candidates = null;
-		// Run subqueries for each schema in the query, or all known schemata (if the query is for "any" schema):
-		RecordsQuery recsQuery = query.getRecordsQuery();
-		for(Schema s : getSchemata(recsQuery.getSource()))
+		Map<Object, Accumulator> groups = new LinkedHashMap<Object, Accumulator>();
+		for(Schema s : getSchemata(recordsQuery.getSource()))
 		{
-			try
+			STable table = getTable(s, false);
+			if(!table.isInDB())
+				continue; // table does no exist in DB, so there are no records to aggregate
+			for(Object[] row : table.executeAggregateSelection(new AggregateSelectHelper(table, groupByCP, function, aggregateCP, recordsQuery)))
 			{
-				STable table = getTable(s, false);
-				if(!table.isInDB())
-					continue; // table does no exist in DB, so there are no records to retrieve
-				Record candidate = table.select(query);
-				if(candidate != null)
+				Accumulator accumulator = groups.get(row[0]);
+				if(accumulator == null)
 				{
-					if(candidates == null)
-						candidates = new ArrayList<Record>();
-					candidates.add(candidate);
+					accumulator = new Accumulator(function, aggregateCP != null ? aggregateCP.getColumn() : null);
+					groups.put(row[0], accumulator);
 				}
-			}
-			catch(DBException dbE)
-			{
-				client.logError("Error in retrieveRecord(SingleRecordQuery)", dbE);
+				accumulator.merge((Long) row[1], row[2]);
 			}
 		}
-		return query.execute(candidates, false); // reduce to 1 record (execute() will return null when passed a null list)
+		return groups;
 	}
 	
 	protected abstract String getNullString();
@@ -1014,6 +1786,8 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 	@Override
 	protected void doClose() throws DBException
 	{
+		setParallelRetrieval(0); // shuts down the retrieval threads, if any
+		
 		release();
 		
 		super.doClose(); // !!!
@@ -1039,7 +1813,7 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 		@SuppressWarnings("unchecked")
 		protected final RecordReferenceSelectionProjection recordReferenceSelectionProjection = new RecordReferenceSelectionProjection((STable) this);
 		
-		private Boolean existsInDB;
+		private volatile Boolean existsInDB; // (may be checked by retrieval threads)
 		private TableCreationHelper creator;
 		
 		/**
@@ -1107,16 +1881,25 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 			}
 		}
 		
-		public boolean isInDB()
+		public boolean isInDB() throws DBException
 		{
 			return isInDB(false);
 		}
 		
-		public boolean isInDB(boolean forceCheck)
+		/**
+		 * @param forceCheck
+		 * @return whether or not the table exists in the database
+		 * @throws DBException when the check could not be performed (in which case nothing is remembered)
+		 */
+		public boolean isInDB(boolean forceCheck) throws DBException
 		{
-			if(existsInDB == null || forceCheck)
-				existsInDB = doesTableExist(getUnsanitisedName());
-			return existsInDB;
+			if(isRetrievalThread())
+				// Retrieval threads use connections of their own, which do not see tables created in uncommitted transactions, so they always check (without remembering the result):
+				return doesTableExist(getUnsanitisedName());
+			Boolean exists = existsInDB;
+			if(exists == null || forceCheck)
+				existsInDB = exists = doesTableExist(getUnsanitisedName());
+			return exists;
 		}
 		
 		/**
@@ -1219,6 +2002,28 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 				return update(record) ? false : null;
 		}
 		
+		/**
+		 * Store a list of records (all of this table's schema) by INSERTing those that are new and UPDATEing those that existed.
+		 * 
+		 * The default implementation stores the records one by one, subclasses may override this to use a faster, batched, approach.
+		 * 
+		 * @param records
+		 * @param updateAllowed whether or not updates are allowed
+		 * @return an array holding, for each record (in the same order), the result as specified for {@link #store(Record, boolean)}
+		 * @throws DBPrimaryKeyException
+		 * @throws DBConstraintException
+		 * @throws DBException
+		 * @throws IllegalStateException when the columns that are part of the primary key have not all been assigned a value
+		 */
+		public Boolean[] store(List<Record> records, boolean updateAllowed) throws DBPrimaryKeyException, DBConstraintException, DBException, IllegalStateException
+		{
+			Boolean[] insert = new Boolean[records.size()];
+			int r = 0;
+			for(Record record : records)
+				insert[r++] = store(record, updateAllowed);
+			return insert;
+		}
+		
 		/**
 		 * Returns the currently stored version of the given Record or indicated by the given RecordReference.
 		 * 
@@ -1329,6 +2134,24 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 			return executeSQLReturnAffectedRows(new RecordsDeleteHelper((STable) this, query).getQuery());
 		}
 		
+		/**
+		 * Sets the given (leaf, non-primary key) column to the given value in all records (identified by a RecordsQuery) in database table.
+		 * Assumes the table exists in the database!
+		 * 
+		 * May be overridden.
+		 * 
+		 * @param query
+		 * @param column
+		 * @param value
+		 * @return the number of updated records
+		 * @throws DBException
+		 */
+		@SuppressWarnings("unchecked")
+		public int update(RecordsQuery query, Column<?> column, Object value) throws DBException
+		{
+			return executeSQLReturnAffectedRows(new RecordsUpdateHelper((STable) this, query, column, value).getQuery());
+		}
+		
 		/**
 		 * Selects {@link Record}s from the database table based on a {@link RecordsQuery}.
 		 * Assumes the table exists in the database!
@@ -1343,6 +2166,22 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 			return executeRecordSelection(new RecordValueSetSelectHelper<Record>((STable) this, recordSelectionProjection, query));
 		}
 		
+		/**
+		 * Opens a {@link RecordCursor} over the {@link Record}s in the database table which match the {@link RecordsQuery}.
+		 * Assumes the table exists in the database!
+		 * 
+		 * @param query
+		 * @param reuseRecords
+		 * @return a {@link RecordCursor}, never {@code null}
+		 * @throws DBException
+		 * @see RecordStore#openRecordCursor(RecordsQuery, boolean)
+		 */
+		@SuppressWarnings("unchecked")
+		public RecordCursor selectCursor(RecordsQuery query, boolean reuseRecords) throws DBException
+		{
+			return openRecordSelection(new RecordValueSetSelectHelper<Record>((STable) this, recordSelectionProjection, query), reuseRecords);
+		}
+		
 		/**
 		 * Selects {@link RecordReference}s from the database table based on a {@link RecordsQuery}.
 		 * Assumes the table exists in the database!
@@ -1405,6 +2244,31 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 		 */
 		public abstract long getRecordCount() throws DBException;
 		
+		/**
+		 * Counts the number of records in the database table which match the {@link RecordsQuery} (taking its limit into account).
+		 * Assumes the table exists in the database!
+		 * 
+		 * @param query
+		 * @return the number of matching records
+		 * @throws DBException
+		 */
+		public abstract long getRecordCount(RecordsQuery query) throws DBException;
+		
+		/**
+		 * Returns a WHERE clause condition matching the rows whose value in the {@link LineColumn} or {@link PolygonColumn} pointed at by
+		 * the given {@link SpatialConstraint} satisfies it. This requires a spatial index, which is not available by default.
+		 * 
+		 * May be overridden.
+		 * 
+		 * @param spatialConstr
+		 * @return
+		 * @throws DBException when spatial constraints on such columns are not supported
+		 */
+		protected String getSpatialIndexCondition(SpatialConstraint spatialConstr) throws DBException
+		{
+			throw new DBException("Spatial constraints on " + spatialConstr.getColumnPointer().getColumn().getTypeString() + " columns are not supported by " + SQLRecordStore.this.getClass().getSimpleName());
+		}
+		
 		/**
 		 * Drop the table from the database.
 		 * Assumes the table exists in the database!
@@ -1445,6 +2309,30 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 		 */
 		protected abstract <R extends RecordValueSet<?>> List<R> executeRecordSelection(RecordValueSetSelectHelper<R> recordValueSetSelectHelper) throws DBException;
 		
+		/**
+		 * Executes an aggregate SELECT query, the result of which is a row per group (or a single row if the query is not grouped).
+		 * Each row is returned as an array holding the group value (a Sapelli value, or {@code null} if the query is not grouped),
+		 * the count (a {@link Long}), and the partial aggregate value (see {@link AggregateProjection}).
+		 * 
+		 * @param aggregateSelectHelper
+		 * @return a {@link List} of rows, possibly empty, never {@code null}
+		 * @throws DBException
+		 */
+		protected abstract List<Object[]> executeAggregateSelection(AggregateSelectHelper aggregateSelectHelper) throws DBException;
+		
+		/**
+		 * Default implementation which executes the selection up front, should be overridden to fetch records one by one.
+		 * 
+		 * @param recordSelectHelper
+		 * @param reuseRecords
+		 * @return a {@link RecordCursor}, never {@code null}
+		 * @throws DBException
+		 */
+		protected RecordCursor openRecordSelection(RecordValueSetSelectHelper<Record> recordSelectHelper, boolean reuseRecords) throws DBException
+		{
+			return RecordCursor.Over(executeRecordSelection(recordSelectHelper));
+		}
+		
 		/**
 		 * Release any resources associated with this table
 		 */
@@ -1492,6 +2380,15 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 			this.mapping = mapping != null ? mapping : (TypeMapping<SQLType, SapType>) TypeMapping.<SQLType> Transparent();
 		}
 		
+		/**
+		 * @return whether or not the database orders values in this column in the same way as the Sapelli values compare
+		 * @see TypeMapping#isOrderPreserving()
+		 */
+		public boolean isOrderPreserving()
+		{
+			return mapping.isOrderPreserving();
+		}
+		
 		/**
 		 * @param value
 		 * @param quotedIfNeeded
@@ -1643,6 +2540,17 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 		 */
 		public abstract SapType toSapelliType(SQLType value);
 		
+		/**
+		 * Indicates whether the database sorts (and finds the minimum/maximum of) the SQL representations of values
+		 * in the same way as the Sapelli values compare. May be overridden to return {@code false} if that is not the case.
+		 * 
+		 * @return whether or not the mapping preserves the order of values, {@code true} by default
+		 */
+		public boolean isOrderPreserving()
+		{
+			return true;
+		}
+		
 	}
 	
 	/**
@@ -2523,6 +3431,57 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 			bldr.append(")", false);
 		}
 
+		/**
+		 * For {@link LocationColumn}s produces:
+		 * 	"(lat BETWEEN minLat AND maxLat AND lon BETWEEN minLon AND maxLon)"
+		 * and, in case of a radius, adds:
+		 * 	"AND ((lat - cLat) * (lat - cLat) + (lon - cLon) * (lon - cLon) * lonScale2) <= radius2"
+		 * which uses the same equirectangular approximation as {@link SpatialConstraint#contains(double, double)}.
+		 * Literal values are used because Android's SQLite implementation binds all arguments as Strings (see {@link #visit(BitFlagConstraint)}).
+		 * 
+		 * For {@link LineColumn}s and {@link PolygonColumn}s the condition is provided by the table (see {@link SQLTable#getSpatialIndexCondition(SpatialConstraint)}).
+		 * 
+		 * @see uk.ac.ucl.excites.sapelli.storage.queries.constraints.ConstraintVisitor#visit(uk.ac.ucl.excites.sapelli.storage.queries.constraints.SpatialConstraint)
+		 */
+		@SuppressWarnings("unchecked")
+		@Override
+		public void visit(SpatialConstraint spatialConstr)
+		{
+			ColumnPointer<?> cp = spatialConstr.getColumnPointer();
+			if(!(cp.getColumn() instanceof LocationColumn))
+			{
+				try
+				{
+					bldr.append(table.getSpatialIndexCondition(spatialConstr));
+				}
+				catch(DBException dbE)
+				{
+					exception = dbE;
+				}
+				return;
+			}
+			SColumn latCol = table.getSQLColumn(new ColumnPointer<FloatColumn>((ColumnPointer<LocationColumn>) cp, Location.COLUMN_LATITUDE));
+			SColumn lonCol = table.getSQLColumn(new ColumnPointer<FloatColumn>((ColumnPointer<LocationColumn>) cp, Location.COLUMN_LONGITUDE));
+			if(latCol == null || lonCol == null)
+			{
+				exception = new DBException("Failed to generate SQL for spatialConstraint on column " + cp.getQualifiedColumnName(table.schema));
+				return;
+			}
+			StringBuilder condition = new StringBuilder("(");
+			condition.append(latCol.sanitisedName).append(" BETWEEN ").append(spatialConstr.getMinLatitude()).append(" AND ").append(spatialConstr.getMaxLatitude());
+			condition.append(" AND ");
+			condition.append(lonCol.sanitisedName).append(" BETWEEN ").append(spatialConstr.getMinLongitude()).append(" AND ").append(spatialConstr.getMaxLongitude());
+			if(spatialConstr.isRadius())
+			{
+				String dLat = "(" + latCol.sanitisedName + " - " + spatialConstr.getCentre().getLatitude() + ")";
+				String dLon = "(" + lonCol.sanitisedName + " - " + spatialConstr.getCentre().getLongitude() + ")";
+				condition.append(" AND (").append(dLat).append(" * ").append(dLat).append(" + ").append(dLon).append(" * ").append(dLon).append(" * ").append(spatialConstr.getLongitudeScaleSquared()).append(")");
+				condition.append(" <= ").append(spatialConstr.getRadiusInDegreesSquared());
+			}
+			condition.append(")");
+			bldr.append(condition.toString());
+		}
+
 		/* (non-Javadoc)
 		 * @see uk.ac.ucl.excites.sapelli.storage.queries.constraints.ConstraintVisitor#visit(uk.ac.ucl.excites.sapelli.storage.queries.constraints.DummyConstraint)
 		 */
@@ -2632,7 +3591,7 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 				return;
 			//else:
 			// 	GROUP BY
-			//		not supported (for now)
+			appendGroupByClause();
 			//	ORDER BY
 			Order order = query.getOrder();
 			if(order.isDefined())
@@ -2686,6 +3645,14 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 				addOrderBy(subSqlCol, asc);
 		}
 		
+		/**
+		 * Can be overridden to append a GROUP BY clause.
+		 */
+		protected void appendGroupByClause()
+		{
+			// does nothing by default
+		}
+		
 		/**
 		 * Can be overridden with a method returning {@code true}, in which case {@link #appendWhereClause(Constraint)} will be called even when the {@link Query} is {@code null}.
 		 * 
@@ -2990,6 +3957,174 @@ public abstract class SQLRecordStore<SRS extends SQLRecordStore<SRS, STable, SCo
 		
 	}
 
+	/**
+	 * A {@link SelectProjection} class for the execution of aggregate queries (see {@link AggregateQuery} and {@link GroupByQuery}).
+	 * 
+	 * The projection consists of the group column (if any), followed by the count of (non-null) values or rows, followed by
+	 * the partial aggregate value (MIN/MAX for {@link Function#MIN}/{@link Function#MAX}, SUM for {@link Function#SUM}/{@link Function#AVG}).
+	 * Averages are computed after merging the counts and sums of all tables.
+	 * 
+	 * @author mstevens
+	 */
+	protected class AggregateProjection implements SelectProjection
+	{
+		
+		public final SColumn groupBySqlCol;
+		public final Function function;
+		public final SColumn aggregateSqlCol;
+		
+		/**
+		 * @param groupBySqlCol may be {@code null}
+		 * @param function
+		 * @param aggregateSqlCol may be {@code null} if function is {@link Function#COUNT}
+		 */
+		public AggregateProjection(SColumn groupBySqlCol, Function function, SColumn aggregateSqlCol)
+		{
+			this.groupBySqlCol = groupBySqlCol;
+			this.function = function;
+			this.aggregateSqlCol = aggregateSqlCol;
+		}
+		
+		@Override
+		public String getProjectionString()
+		{
+			TransactionalStringBuilder projectionBldr = new TransactionalStringBuilder(", ");
+			if(groupBySqlCol != null)
+				projectionBldr.append(groupBySqlCol.sanitisedName);
+			projectionBldr.append("COUNT(" + (aggregateSqlCol != null ? aggregateSqlCol.sanitisedName : "*") + ")");
+			if(hasPartialValue())
+				projectionBldr.append((function == Function.AVG ? "SUM" : function.name()) + "(" + aggregateSqlCol.sanitisedName + ")");
+			return projectionBldr.toString();
+		}
+		
+		/**
+		 * @return whether or not the projection includes a partial aggregate value (after the count)
+		 */
+		public boolean hasPartialValue()
+		{
+			return function != Function.COUNT;
+		}
+		
+		/**
+		 * @return whether or not the partial aggregate value is a Sapelli value of the aggregated column (rather than a sum)
+		 */
+		public boolean isPartialValueExtreme()
+		{
+			return function == Function.MIN || function == Function.MAX;
+		}
+		
+		/**
+		 * @return whether or not the partial aggregate value is a sum of integers
+		 */
+		public boolean isPartialValueIntegralSum()
+		{
+			return hasPartialValue() && !isPartialValueExtreme() && aggregateSqlCol.sourceColumnPointer.getColumn() instanceof IntegerColumn;
+		}
+		
+	}
+	
+	/**
+	 * A {@link SelectHelper} class for the execution of aggregate queries (see {@link AggregateQuery} and {@link GroupByQuery}) on a single table.
+	 * 
+	 * @author mstevens
+	 */
+	protected class AggregateSelectHelper extends SelectHelper<AggregateProjection>
+	{
+		
+		private final SColumn groupBySqlCol;
+		
+		/**
+		 * @param table
+		 * @param groupByCP may be {@code null}
+		 * @param function
+		 * @param aggregateCP may be {@code null} if function is {@link Function#COUNT}
+		 * @param recordsQuery must not be limited
+		 */
+		public AggregateSelectHelper(STable table, ColumnPointer<?> groupByCP, Function function, ColumnPointer<ComparableColumn<?>> aggregateCP, RecordsQuery recordsQuery)
+		{
+			super(table, new AggregateProjection(getSimpleSQLColumn(table, groupByCP), function, getSimpleSQLColumn(table, aggregateCP)), false /*wait with building the query*/);
+			this.groupBySqlCol = projection.groupBySqlCol;
+			
+			// Check columns:
+			if((groupByCP != null && groupBySqlCol == null) || (aggregateCP != null && projection.aggregateSqlCol == null))
+			{
+				this.exception = new DBException("Failed to generate SQL for aggregate query on column " + (groupByCP != null && groupBySqlCol == null ? groupByCP : aggregateCP).getQualifiedColumnName(table.schema) + " (only non-composite columns are supported)");
+				return;
+			}
+			
+			// Build the query (without ORDER BY, which is pointless, or LIMIT, which would not affect the aggregates anyway):
+			buildQuery(new RecordsQuery(recordsQuery.getSource(), recordsQuery.getConstraints()));
+		}
+		
+		@Override
+		protected void appendGroupByClause()
+		{
+			if(groupBySqlCol != null)
+			{
+				bldr.append("GROUP BY");
+				bldr.append(groupBySqlCol.sanitisedName);
+			}
+		}
+		
+	}
+	
+	/**
+	 * @param table
+	 * @param columnPointer may be {@code null}
+	 * @return the {@link SQLColumn} which corresponds to the given column on its own, or {@code null} if there is none (e.g. because the column is composite)
+	 */
+	private SColumn getSimpleSQLColumn(STable table, ColumnPointer<?> columnPointer)
+	{
+		if(columnPointer == null)
+			return null;
+		SColumn sqlCol = table.getSQLColumn(columnPointer);
+		return sqlCol != null && !sqlCol.isBoolColForAllOptionalValueSetCol() ? sqlCol : null;
+	}
+
+	/**
+	 * Helper class to build UPDATE statements (parameterised or literal) which set a single column for a collection of records identified using a {@link RecordsQuery}
+	 * 
+	 * @author mstevens
+	 */
+	protected class RecordsUpdateHelper extends RecordsByConstraintsHelper
+	{
+		
+		/**
+		 * @param table
+		 * @param recordsQuery
+		 * @param column a leaf, non-primary key column
+		 * @param sapValue
+		 */
+		public RecordsUpdateHelper(STable table, RecordsQuery recordsQuery, Column<?> column, Object sapValue)
+		{
+			// Initialise
+			super(table);
+			
+			// Build statement:
+			SColumn sqlCol = table.getSQLColumn(column);
+			if(sqlCol == null || table.getKeyPartSQLColumns().contains(sqlCol))
+			{
+				exception = new DBException("Cannot generate SQL to update column " + column.getName() + " of table " + table.sanitisedName + " (only non-composite, non-primary key columns are supported)");
+				return;
+			}
+			bldr.append("UPDATE");
+			bldr.append(table.sanitisedName);
+			bldr.append("SET");
+			bldr.append(sqlCol.sanitisedName);
+			bldr.append("=");
+			if(isParameterised())
+			{
+				bldr.append(valuePlaceHolder);
+				addParameterColumnAndValue(sqlCol, sapValue);
+			}
+			else
+				bldr.append(sqlCol.sapelliObjectToLiteral(sapValue, true));
+			// WHERE clause:
+			appendWhereClause(recordsQuery.getConstraints());
+		}
+		
+	}
+	
 	/**
 	 * Helper class to build DELETE statements (parameterised or literal) for multiple records.
 	 * 
@@ -166,9 +166,10 @@ public abstract class SQLRecordStoreUpgrader
 		
 		/**
 		 * @param unsanitisedTableName
+		 * @throws DBException
 		 * @see SQLRecordStore#doesTableExist(String)
 		 */
-		public boolean doesTableExist(SQLRecordStore<?, ?, ?> recordStore, String unsanitisedTableName)
+		public boolean doesTableExist(SQLRecordStore<?, ?, ?> recordStore, String unsanitisedTableName) throws DBException
 		{
 			return recordStore.doesTableExist(unsanitisedTableName);
 		}
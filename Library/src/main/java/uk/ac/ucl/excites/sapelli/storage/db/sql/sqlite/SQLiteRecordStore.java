@@ -21,9 +21,14 @@ package uk.ac.ucl.excites.sapelli.storage.db.sql.sqlite;
 import java.io.Closeable;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.FileUtils;
@@ -38,7 +43,9 @@ import uk.ac.ucl.excites.sapelli.shared.util.StringUtils;
 import uk.ac.ucl.excites.sapelli.shared.util.TimeUtils;
 import uk.ac.ucl.excites.sapelli.shared.util.TransactionalStringBuilder;
 import uk.ac.ucl.excites.sapelli.storage.StorageClient;
+import uk.ac.ucl.excites.sapelli.storage.db.RecordCursor;
 import uk.ac.ucl.excites.sapelli.storage.db.exceptions.DBConstraintException;
+import uk.ac.ucl.excites.sapelli.storage.db.exceptions.DBCursorException;
 import uk.ac.ucl.excites.sapelli.storage.db.exceptions.DBPrimaryKeyException;
 import uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore;
 import uk.ac.ucl.excites.sapelli.storage.db.sql.sqlite.types.SQLiteBlobColumn;
@@ -50,6 +57,7 @@ import uk.ac.ucl.excites.sapelli.storage.model.Column;
 import uk.ac.ucl.excites.sapelli.storage.model.ColumnSet;
 import uk.ac.ucl.excites.sapelli.storage.model.ListColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.Record;
+import uk.ac.ucl.excites.sapelli.storage.model.RecordReference;
 import uk.ac.ucl.excites.sapelli.storage.model.RecordValueSet;
 import uk.ac.ucl.excites.sapelli.storage.model.Schema;
 import uk.ac.ucl.excites.sapelli.storage.model.ValueSet;
@@ -62,7 +70,12 @@ import uk.ac.ucl.excites.sapelli.storage.model.indexes.AutoIncrementingPrimaryKe
 import uk.ac.ucl.excites.sapelli.storage.model.indexes.Index;
 import uk.ac.ucl.excites.sapelli.storage.model.indexes.PrimaryKey;
 import uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery;
+import uk.ac.ucl.excites.sapelli.storage.queries.constraints.OrConstraint;
+import uk.ac.ucl.excites.sapelli.storage.queries.constraints.SpatialConstraint;
 import uk.ac.ucl.excites.sapelli.storage.queries.sources.Source;
+import uk.ac.ucl.excites.sapelli.storage.types.LineColumn;
+import uk.ac.ucl.excites.sapelli.storage.types.Location;
+import uk.ac.ucl.excites.sapelli.storage.types.PolygonColumn;
 import uk.ac.ucl.excites.sapelli.storage.types.TimeStamp;
 import uk.ac.ucl.excites.sapelli.storage.types.TimeStampColumn;
 import uk.ac.ucl.excites.sapelli.storage.util.ColumnPointer;
@@ -96,6 +109,25 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 	
 	static private final boolean LOG_QUALIFIED_QUERIES = false;
 	
+	/**
+	 * Default value of SQLITE_MAX_VARIABLE_NUMBER (prior to SQLite v3.32.0).
+	 * 
+	 * @see https://www.sqlite.org/limits.html#max_variable_number
+	 */
+	static public final int MAX_BOUND_PARAMETERS = 999;
+	
+	/**
+	 * Limits the number of OR-ed terms in a single existence query (the default SQLITE_MAX_EXPR_DEPTH is 1000).
+	 */
+	static public final int MAX_STORE_BATCH_SIZE = 250;
+	
+	/**
+	 * Infix used in the names of the R*Tree tables which serve as spatial indexes on {@link LineColumn}s and {@link PolygonColumn}s.
+	 * 
+	 * @see https://www.sqlite.org/rtree.html
+	 */
+	static public final String SPATIAL_INDEX_TABLE_INFIX = "__rtree_";
+	
 	/**
 	 * Test method
 	 */
@@ -119,7 +151,7 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 		super(client, PARAM_PLACEHOLDER);
 		factory = new SQLiteTableFactory();
 	}
-
+	
 	/* (non-Javadoc)
 	 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore#doInitialise()
 	 */
@@ -209,7 +241,7 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 	}
 
 	@Override
-	protected boolean doesTableExist(String unsanitisedTableName)
+	protected boolean doesTableExist(String unsanitisedTableName) throws DBException
 	{
 		SQLiteCursor cursor = null;
 		try
@@ -219,11 +251,6 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 									Collections.<String> singletonList(unsanitisedTableName));
 			return cursor != null && cursor.hasRow();
 		}
-		catch(DBException e)
-		{
-			client.logError("Error in doesTableExist()", e);
-			return false;
-		}
 		finally
 		{
 			if(cursor != null)
@@ -247,7 +274,11 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 			List<String> tableNames = new ArrayList<String>();
 			if(cursor != null)
 				while(cursor.moveToNext())
-					CollectionUtils.addIgnoreNull(tableNames, nameCol.getValueOrNull(cursor, 0));
+				{
+					String tableName = nameCol.getValueOrNull(cursor, 0);
+					if(tableName != null && !tableName.contains(SPATIAL_INDEX_TABLE_INFIX)) // skip R*Tree (shadow) tables, they are managed by the SQLiteTable they belong to
+						tableNames.add(tableName);
+				}
 			return tableNames;
 		}
 		catch(DBException e)
@@ -436,6 +467,22 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 		 * @see https://www.sqlite.org/autoinc.html
 		 */
 		private SQLiteIntegerColumn<?> rowidAliasColumn;
+		
+		/**
+		 * (Unsanitised) names of the R*Tree tables which index the bounding boxes of the values of {@link LineColumn}s and {@link PolygonColumn}s, per SQL column.
+		 * Initialised lazily, see {@link #getSpatialIndexes()}.
+		 */
+		private Map<SQLiteColumn<?, ?>, String> spatialIndexes;
+		
+		/**
+		 * Whether the R*Tree tables are known to exist in the database.
+		 */
+		private boolean spatialIndexesInDB = false;
+		
+		/**
+		 * Whether the R*Tree module is available (it is an optional SQLite feature).
+		 */
+		private boolean spatialIndexesSupported = true;
 
 		public SQLiteTable(Schema schema)
 		{
@@ -552,8 +599,70 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 					commitTransaction();
 				}
 			}
+			
+			// Update spatial indexes:
+			if(ensureSpatialIndexes())
+				updateSpatialIndexes(rowID, record);
 		}
 
+		/**
+		 * Batched version of {@link #store(Record, boolean)}: instead of looking up each record's ROWID separately, the
+		 * existence of the records is checked using a single SELECT per chunk of {@link #getStoreBatchSize()} records,
+		 * after which new records are INSERTed and existing ones UPDATEd using the recycled statements.
+		 * 
+		 * We don't use "INSERT OR IGNORE"/"UPSERT" because that would not tell us which records were inserted or updated,
+		 * and because UPSERT is only supported as of SQLite v3.24.0 (which is not available on older Android versions).
+		 * 
+		 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore.SQLTable#store(java.util.List, boolean)
+		 */
+		@Override
+		public synchronized Boolean[] store(List<Record> records, boolean updateAllowed) throws DBPrimaryKeyException, DBConstraintException, DBException, IllegalStateException
+		{
+			Boolean[] insert = new Boolean[records.size()];
+			int batchSize = getStoreBatchSize();
+			for(int from = 0; from < records.size(); from += batchSize)
+			{
+				List<Record> batch = records.subList(from, Math.min(from + batchSize, records.size()));
+				// Find out which of the records in the batch already exist:
+				Set<RecordReference> existing = new HashSet<RecordReference>();
+				if(isInDB())
+				{
+					OrConstraint keyConstraints = new OrConstraint();
+					for(Record record : batch)
+						if(record.isReferenceable() /*also checks autoIncrPK*/)
+							keyConstraints.addConstraint(record.getRecordQueryConstraint());
+					if(keyConstraints.hasSubConstraints())
+						existing.addAll(selectReferences(new RecordsQuery(Source.From(schema), keyConstraints)));
+				}
+				// Insert or update:
+				int r = from;
+				for(Record record : batch)
+				{
+					RecordReference recordRef = record.isReferenceable() ? record.getReference() : null;
+					if(recordRef == null || !existing.contains(recordRef))
+					{
+						insert(record);
+						insert[r++] = true;
+						if(recordRef != null)
+							existing.add(recordRef); // in case the same record occurs again further down the list
+					}
+					else if(!updateAllowed)
+						insert[r++] = record.hasEqualValues(select(record.getRecordQuery())) ? null : false;
+					else
+						insert[r++] = update(record) ? false : null;
+				}
+			}
+			return insert;
+		}
+		
+		/**
+		 * @return the number of records whose existence is checked in a single SELECT, chosen such that the number of bound parameters stays below {@link SQLiteRecordStore#MAX_BOUND_PARAMETERS}
+		 */
+		protected int getStoreBatchSize()
+		{
+			return Math.max(1, Math.min(MAX_STORE_BATCH_SIZE, MAX_BOUND_PARAMETERS / Math.max(1, getKeyPartSQLColumns().size())));
+		}
+		
 		/**
 		 * Note:
 		 * 	Currently the detection of _actual_ changes to the record does *not* work.
@@ -577,7 +686,17 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 			updateStatement.retrieveAndBindAll(record);
 			
 			// Execute:
-			return updateStatement.executeUpdate() == 1;
+			boolean updated = updateStatement.executeUpdate() == 1;
+			
+			// Update spatial indexes:
+			if(updated && ensureSpatialIndexes())
+			{
+				Long rowID = getROWID(record);
+				if(rowID != null)
+					updateSpatialIndexes(rowID, record);
+			}
+			
+			return updated;
 		}
 		
 		public synchronized void upsert(Record record) throws DBException
@@ -595,11 +714,21 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 			// Get/recycle statement... 
 			SQLiteStatement deleteStatement = deleteStatementHandle.getStatement();
 
+			// Get ROWID to remove from the spatial indexes (must happen before deletion):
+			Long rowID = ensureSpatialIndexes() ? getROWID(recordOrReference) : null;
+			
 			// Bind parameters:
 			deleteStatement.retrieveAndBindAll(recordOrReference);
 			
 			// Execute:
-			return deleteStatement.executeDelete() == 1;
+			boolean deleted = deleteStatement.executeDelete() == 1;
+			
+			// Update spatial indexes:
+			if(deleted && rowID != null)
+				for(String spatialIndexName : getSpatialIndexes().values())
+					executeSQL("DELETE FROM " + sanitiseIdentifier(spatialIndexName) + " WHERE id = " + rowID + ";");
+			
+			return deleted;
 		}
 		
 		/* (non-Javadoc)
@@ -607,6 +736,11 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 		 */
 		public synchronized int delete(RecordsQuery query) throws DBException
 		{
+			// Update spatial indexes (must happen before deletion):
+			if(ensureSpatialIndexes())
+				for(String spatialIndexName : getSpatialIndexes().values())
+					executeSpatialIndexSync("DELETE FROM " + sanitiseIdentifier(spatialIndexName) + " WHERE id IN (SELECT ROWID FROM", query, ")");
+			
 			RecordsDeleteHelper deleteHelper = new RecordsDeleteHelper(this, query);
 			SQLiteStatement deleteByQStatement = generateStatement(deleteHelper.getQuery(), deleteHelper.getParameterColumns());
 			
@@ -623,6 +757,43 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 			return affected;
 		}
 
+		/* (non-Javadoc)
+		 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore.SQLTable#update(uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery, uk.ac.ucl.excites.sapelli.storage.model.Column, java.lang.Object)
+		 */
+		@SuppressWarnings("unchecked")
+		@Override
+		public synchronized int update(RecordsQuery query, Column<?> column, Object value) throws DBException
+		{
+			// Update spatial index (must happen before the update, as the query may involve the updated column):
+			if((column instanceof LineColumn || column instanceof PolygonColumn) && ensureSpatialIndexes())
+			{
+				String spatialIndexName = getSpatialIndexes().get(getSQLColumn(column));
+				if(spatialIndexName != null)
+				{
+					double[] bbox = value != null ? SpatialConstraint.GetBoundingBox((List<Location>) column.convert(value)) : null;
+					if(bbox == null)
+						executeSpatialIndexSync("DELETE FROM " + sanitiseIdentifier(spatialIndexName) + " WHERE id IN (SELECT ROWID FROM", query, ")");
+					else
+						executeSpatialIndexSync("INSERT OR REPLACE INTO " + sanitiseIdentifier(spatialIndexName) + " SELECT ROWID, " + bbox[0] + ", " + bbox[2] + ", " + bbox[1] + ", " + bbox[3] + " FROM", query, "");
+				}
+			}
+			
+			RecordsUpdateHelper updateHelper = new RecordsUpdateHelper(this, query, column, value);
+			SQLiteStatement updateByQStatement = generateStatement(updateHelper.getQuery(), updateHelper.getParameterColumns());
+			
+			// Bind parameters:
+			updateByQStatement.bindAll(updateHelper.getSapArguments());
+			
+			// Execute:
+			int affected = updateByQStatement.executeUpdate();
+			
+			// Close statement:
+			updateByQStatement.close();
+			
+			// Return number of affected rows:
+			return affected;
+		}
+
 		/* (non-Javadoc)
 		 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore.SQLTable#executeRecordSelection(uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore.RecordValueSetSelectHelper)
 		 */
@@ -659,6 +830,307 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 			}
 		}
 		
+		/* (non-Javadoc)
+		 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore.SQLTable#openRecordSelection(uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore.RecordValueSetSelectHelper, boolean)
+		 */
+		@Override
+		protected RecordCursor openRecordSelection(final RecordValueSetSelectHelper<Record> recordSelectHelper, final boolean reuseRecords) throws DBException
+		{
+			// Execute query (also binds parameters) to get cursor:
+			final SQLiteCursor cursor = executeQuery(recordSelectHelper.getQuery(), recordSelectHelper.getParameterColumns(), recordSelectHelper.getSapArguments());
+			// Check for empty result:
+			if(cursor == null || !cursor.hasRow())
+			{
+				if(cursor != null)
+					cursor.close(); // !!!
+				return RecordCursor.Over(Collections.<Record> emptyList());
+			}
+			// Wrap cursor, records are created as rows are read:
+			return new RecordCursor()
+			{
+				
+				private final Collection<SQLiteColumn<?, ?>> projectionColumns = recordSelectHelper.projection.getProjectionColumns();
+				private Record record;
+				
+				@Override
+				protected Record fetchNext()
+				{
+					try
+					{
+						if(!cursor.moveToNext())
+							return null;
+						if(record == null || !reuseRecords)
+							record = recordSelectHelper.projection.createRecordValueSet();
+						int i = 0;
+						for(SQLiteColumn<?, ?> sqliteCol : projectionColumns)
+							sqliteCol.store(record, cursor, i++);
+						return record;
+					}
+					catch(DBException dbE)
+					{	// don't return null, that would silently end the iteration
+						throw new DBCursorException(new DBException("Error upon reading row from " + SQLiteTable.this.toString(), dbE));
+					}
+				}
+				
+				@Override
+				protected void doClose()
+				{
+					cursor.close(); // !!!
+				}
+				
+			};
+		}
+		
+		/* (non-Javadoc)
+		 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore.SQLTable#getRecordCount(uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery)
+		 */
+		@Override
+		public long getRecordCount(RecordsQuery query) throws DBException
+		{
+			RecordCountHelper countHelper = new RecordCountHelper(this, query);
+			SQLiteCursor cursor = null;
+			try
+			{
+				cursor = executeQuery(countHelper.getQuery(), countHelper.getParameterColumns(), countHelper.getSapArguments());
+				long count = cursor != null && cursor.moveToNext() ? cursor.getLong(0) : 0;
+				// LIMIT does not affect COUNT(*) so we apply it here:
+				return query.getLimit() != RecordsQuery.NO_LIMIT ? Math.min(count, query.getLimit()) : count;
+			}
+			finally
+			{
+				if(cursor != null)
+					cursor.close(); // !!!
+			}
+		}
+		
+		/* (non-Javadoc)
+		 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore.SQLTable#executeAggregateSelection(uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore.AggregateSelectHelper)
+		 */
+		@Override
+		protected List<Object[]> executeAggregateSelection(AggregateSelectHelper aggregateSelectHelper) throws DBException
+		{
+			AggregateProjection projection = aggregateSelectHelper.projection;
+			SQLiteCursor cursor = null;
+			try
+			{
+				// Execute query (also binds parameters) to get cursor:
+				cursor = executeQuery(aggregateSelectHelper.getQuery(), aggregateSelectHelper.getParameterColumns(), aggregateSelectHelper.getSapArguments());
+				List<Object[]> rows = new ArrayList<Object[]>();
+				if(cursor != null)
+					while(cursor.moveToNext())
+					{
+						int c = 0;
+						Object groupValue = projection.groupBySqlCol != null ? getSapelliValue(projection.groupBySqlCol, cursor, c++) : null;
+						Long count = cursor.getLong(c++);
+						Object partialValue = null;
+						if(projection.hasPartialValue() && !cursor.isNull(c))
+						{
+							if(projection.isPartialValueExtreme())
+								partialValue = getSapelliValue(projection.aggregateSqlCol, cursor, c);
+							else
+								partialValue = projection.isPartialValueIntegralSum() ? (Object) cursor.getLong(c) : (Object) cursor.getDouble(c);
+						}
+						rows.add(new Object[] { groupValue, count, partialValue });
+					}
+				return rows;
+			}
+			finally
+			{
+				if(cursor != null)
+					cursor.close(); // !!!
+			}
+		}
+		
+		/**
+		 * @param sqlCol
+		 * @param cursor
+		 * @param columnIdx
+		 * @return the Sapelli value corresponding to the SQL value in the given cursor column
+		 * @throws DBException
+		 */
+		private Object getSapelliValue(SQLiteColumn<?, ?> sqlCol, SQLiteCursor cursor, int columnIdx) throws DBException
+		{
+			Record record = schema.createRecord();
+			sqlCol.store(record, cursor, columnIdx);
+			return sqlCol.sourceColumnPointer.retrieveValue(record);
+		}
+		
+		/**
+		 * @return map with the (unsanitised) names of the R*Tree tables which (are to) index the {@link LineColumn}s and {@link PolygonColumn}s of this table, per SQL column
+		 */
+		protected Map<SQLiteColumn<?, ?>, String> getSpatialIndexes()
+		{
+			if(spatialIndexes == null)
+			{
+				spatialIndexes = new LinkedHashMap<SQLiteColumn<?, ?>, String>();
+				for(SQLiteColumn<?, ?> sqlCol : sqlColumns.values())
+				{
+					Column<?> sapCol = sqlCol.sourceColumnPointer != null ? sqlCol.sourceColumnPointer.getColumn() : null;
+					if(sapCol instanceof LineColumn || sapCol instanceof PolygonColumn)
+						spatialIndexes.put(sqlCol, getUnsanitisedName() + SPATIAL_INDEX_TABLE_INFIX + sqlCol.sourceColumnPointer.getQualifiedColumnName(SQLColumn.QUALIFIED_COLUMN_NAME_SEPARATOR));
+				}
+			}
+			return spatialIndexes;
+		}
+		
+		/**
+		 * Makes sure the R*Tree tables exist in the database (provided the table itself does).
+		 * Missing R*Tree tables (e.g. of tables created by earlier versions) are created and populated with the existing rows.
+		 * 
+		 * @return whether or not spatial indexes are available
+		 * @throws DBException
+		 */
+		protected boolean ensureSpatialIndexes() throws DBException
+		{
+			if(!spatialIndexesSupported || getSpatialIndexes().isEmpty() || !isInDB())
+				return false;
+			if(!spatialIndexesInDB)
+			{
+				if(isInTransaction())
+				{	// this means the creation of the R*Tree tables might be rolled-back...
+					addRollbackTask(new RollbackTask()
+					{
+						@Override
+						public void run() throws DBException
+						{
+							spatialIndexesInDB = false;
+						}
+					});
+				}
+				for(Map.Entry<SQLiteColumn<?, ?>, String> spatialIndex : spatialIndexes.entrySet())
+				{
+					if(doesTableExist(spatialIndex.getValue()))
+						continue;
+					try
+					{
+						executeSQL("CREATE VIRTUAL TABLE " + sanitiseIdentifier(spatialIndex.getValue()) + " USING rtree(id, minLat, maxLat, minLon, maxLon);");
+					}
+					catch(DBException dbE)
+					{	// R*Tree module is not available
+						client.logWarning("Could not create spatial index (R*Tree module missing?), spatial constraints on " + spatialIndex.getKey().sourceColumnPointer.getColumn().getTypeString() + " columns will not be supported: " + ExceptionHelpers.getMessageAndCause(dbE));
+						spatialIndexesSupported = false;
+						return false;
+					}
+					populateSpatialIndex(spatialIndex.getKey(), spatialIndex.getValue());
+				}
+				spatialIndexesInDB = true;
+			}
+			return true;
+		}
+		
+		/**
+		 * Fills the given R*Tree table with the bounding boxes of the values of the given column in all existing rows.
+		 * 
+		 * @param sqlCol
+		 * @param spatialIndexName
+		 * @throws DBException
+		 */
+		private void populateSpatialIndex(SQLiteColumn<?, ?> sqlCol, String spatialIndexName) throws DBException
+		{
+			SQLiteCursor cursor = null;
+			try
+			{
+				cursor = executeQuery(	"SELECT ROWID, " + sqlCol.sanitisedName + " FROM " + sanitisedName + " WHERE " + sqlCol.sanitisedName + " IS NOT NULL;",
+										Collections.<SQLiteColumn<?, ?>> emptyList(),
+										Collections.<Object> emptyList());
+				if(cursor != null)
+					while(cursor.moveToNext())
+					{
+						Record record = schema.createRecord();
+						sqlCol.store(record, cursor, 1);
+						updateSpatialIndex(spatialIndexName, cursor.getLong(0), sqlCol.sourceColumnPointer.retrieveValue(record));
+					}
+			}
+			finally
+			{
+				if(cursor != null)
+					cursor.close(); // !!!
+			}
+		}
+		
+		/**
+		 * Updates all R*Tree tables with the bounding boxes of the values of the given record, which is stored in the row with the given ROWID.
+		 * 
+		 * @param rowID
+		 * @param record
+		 * @throws DBException
+		 */
+		private void updateSpatialIndexes(long rowID, Record record) throws DBException
+		{
+			for(Map.Entry<SQLiteColumn<?, ?>, String> spatialIndex : getSpatialIndexes().entrySet())
+				updateSpatialIndex(spatialIndex.getValue(), rowID, spatialIndex.getKey().sourceColumnPointer.retrieveValue(record));
+		}
+		
+		/**
+		 * @param spatialIndexName
+		 * @param rowID
+		 * @param value a Line or Polygon (or {@code null})
+		 * @throws DBException
+		 */
+		@SuppressWarnings("unchecked")
+		private void updateSpatialIndex(String spatialIndexName, long rowID, Object value) throws DBException
+		{
+			double[] bbox = value != null ? SpatialConstraint.GetBoundingBox((List<Location>) value) : null;
+			if(bbox != null)
+				executeSQL("INSERT OR REPLACE INTO " + sanitiseIdentifier(spatialIndexName) + " VALUES (" + rowID + ", " + bbox[0] + ", " + bbox[2] + ", " + bbox[1] + ", " + bbox[3] + ");");
+			else
+				executeSQL("DELETE FROM " + sanitiseIdentifier(spatialIndexName) + " WHERE id = " + rowID + ";");
+		}
+		
+		/**
+		 * Executes a statement which synchronises an R*Tree table with the rows matching the given query.
+		 * 
+		 * @param head SQL preceding the table name
+		 * @param query
+		 * @param tail SQL following the WHERE clause
+		 * @throws DBException
+		 */
+		private void executeSpatialIndexSync(String head, RecordsQuery query, String tail) throws DBException
+		{
+			SpatialIndexSyncHelper syncHelper = new SpatialIndexSyncHelper(this, head, query, tail);
+			SQLiteStatement syncStatement = generateStatement(syncHelper.getQuery(), syncHelper.getParameterColumns());
+			try
+			{
+				syncStatement.bindAll(syncHelper.getSapArguments());
+				syncStatement.executeUpdate();
+			}
+			finally
+			{
+				syncStatement.close();
+			}
+		}
+		
+		/**
+		 * Uses the R*Tree table of the {@link LineColumn} or {@link PolygonColumn} to find the rows whose value's bounding box intersects with the constraint's.
+		 * 
+		 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore.SQLTable#getSpatialIndexCondition(uk.ac.ucl.excites.sapelli.storage.queries.constraints.SpatialConstraint)
+		 */
+		@Override
+		protected String getSpatialIndexCondition(SpatialConstraint spatialConstr) throws DBException
+		{
+			SQLiteColumn<?, ?> sqlCol = getSQLColumn(spatialConstr.getColumnPointer());
+			String spatialIndexName = sqlCol != null ? getSpatialIndexes().get(sqlCol) : null;
+			if(spatialIndexName == null || !ensureSpatialIndexes())
+				return super.getSpatialIndexCondition(spatialConstr); // throws exception
+			return	"ROWID IN (SELECT id FROM " + sanitiseIdentifier(spatialIndexName) + " WHERE " +
+					"maxLat >= " + spatialConstr.getMinLatitude() + " AND minLat <= " + spatialConstr.getMaxLatitude() + " AND " +
+					"maxLon >= " + spatialConstr.getMinLongitude() + " AND minLon <= " + spatialConstr.getMaxLongitude() + ")";
+		}
+		
+		/**
+		 * Also drops the R*Tree tables.
+		 * 
+		 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore.SQLTable#drop()
+		 */
+		@Override
+		public void drop() throws DBException
+		{
+			for(String spatialIndexName : getSpatialIndexes().values())
+				executeSQL("DROP TABLE IF EXISTS " + sanitiseIdentifier(spatialIndexName) + ";");
+			spatialIndexesInDB = false;
+			super.drop();
+		}
+		
 		/* (non-Javadoc)
 		 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore.SQLTable#getRecordCount()
 		 */
@@ -909,6 +1381,17 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 					return timeStampCol.parse(value);
 				}
 				
+				/**
+				 * The strings carry the UTC offset, so their textual order is not chronological when offsets differ.
+				 * 
+				 * @see uk.ac.ucl.excites.sapelli.storage.db.sql.SQLRecordStore.TypeMapping#isOrderPreserving()
+				 */
+				@Override
+				public boolean isOrderPreserving()
+				{
+					return false;
+				}
+				
 			}));
 		}
 		
@@ -1162,4 +1645,33 @@ public abstract class SQLiteRecordStore extends SQLRecordStore<SQLiteRecordStore
 		
 	}
 	
+	/**
+	 * Generates statements of the form "<head> <table> WHERE <constraints> <tail>", used to keep R*Tree tables in sync with their table.
+	 * 
+	 * @author mstevens
+	 */
+	private class SpatialIndexSyncHelper extends RecordsByConstraintsHelper
+	{
+		
+		/**
+		 * @param table
+		 * @param head
+		 * @param recordsQuery
+		 * @param tail
+		 */
+		public SpatialIndexSyncHelper(SQLiteTable table, String head, RecordsQuery recordsQuery, String tail)
+		{
+			// Initialise
+			super(table);
+			
+			// Build statement:
+			bldr.append(head);
+			bldr.append(table.sanitisedName);
+			// WHERE clause:
+			appendWhereClause(recordsQuery.getConstraints());
+			bldr.append(tail, false);
+		}
+		
+	}
+	
 }
@@ -19,10 +19,12 @@
 package uk.ac.ucl.excites.sapelli.storage.eximport;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import uk.ac.ucl.excites.sapelli.storage.model.Record;
+import uk.ac.ucl.excites.sapelli.storage.model.RecordReference;
 
 /**
  * @author mstevens
@@ -34,41 +36,99 @@ public class ExportResult
 	// STATICS-------------------------------------------------------
 	static public ExportResult Success(List<Record> exportedRecords, String destination)
 	{
-		return new ExportResult(exportedRecords, destination, null, null, 0);
+		return new ExportResult(exportedRecords, null, exportedRecords.size(), destination, null, null, 0);
 	}
 	
 	static public ExportResult Success(List<Record> exportedRecords, File folder, List<File> files)
 	{
-		return new ExportResult(exportedRecords, folder.getAbsolutePath(), files, null, 0);
+		return new ExportResult(exportedRecords, null, exportedRecords.size(), folder.getAbsolutePath(), files, null, 0);
+	}
+	
+	/**
+	 * For streamed exports, which only hold on to references of the exported records.
+	 * 
+	 * @param exportedRecordRefs
+	 * @param folder
+	 * @param files
+	 * @return
+	 */
+	static public ExportResult SuccessByReference(List<RecordReference> exportedRecordRefs, File folder, List<File> files)
+	{
+		return new ExportResult(null, exportedRecordRefs, exportedRecordRefs.size(), folder.getAbsolutePath(), files, null, 0);
+	}
+	
+	/**
+	 * For streamed exports, which do not hold on to the exported records, nor to their references.
+	 * 
+	 * @param numberOfExportedRecords
+	 * @param folder
+	 * @param files
+	 * @return
+	 */
+	static public ExportResult Success(int numberOfExportedRecords, File folder, List<File> files)
+	{
+		return new ExportResult(null, null, numberOfExportedRecords, folder.getAbsolutePath(), files, null, 0);
 	}
 	
 	static public ExportResult PartialFailure(List<Record> exportedRecords, String destination, Exception reason, int numberOfUnexportedRecords)
 	{
-		return new ExportResult(exportedRecords, destination, null, reason, numberOfUnexportedRecords);
+		return new ExportResult(exportedRecords, null, exportedRecords.size(), destination, null, reason, numberOfUnexportedRecords);
 	}
 	
 	static public ExportResult PartialFailure(List<Record> exportedRecords, File folder, List<File> files, Exception reason, int numberOfUnexportedRecords)
 	{
-		return new ExportResult(exportedRecords, folder.getAbsolutePath(), files, reason, numberOfUnexportedRecords);
+		return new ExportResult(exportedRecords, null, exportedRecords.size(), folder.getAbsolutePath(), files, reason, numberOfUnexportedRecords);
+	}
+	
+	/**
+	 * For streamed exports, which only hold on to references of the exported records.
+	 * 
+	 * @param exportedRecordRefs
+	 * @param folder
+	 * @param files
+	 * @param reason
+	 * @param numberOfUnexportedRecords
+	 * @return
+	 */
+	static public ExportResult PartialFailureByReference(List<RecordReference> exportedRecordRefs, File folder, List<File> files, Exception reason, int numberOfUnexportedRecords)
+	{
+		return new ExportResult(null, exportedRecordRefs, exportedRecordRefs.size(), folder.getAbsolutePath(), files, reason, numberOfUnexportedRecords);
+	}
+	
+	/**
+	 * For streamed exports, which do not hold on to the exported records, nor to their references.
+	 * 
+	 * @param numberOfExportedRecords
+	 * @param folder
+	 * @param files
+	 * @param reason
+	 * @param numberOfUnexportedRecords
+	 * @return
+	 */
+	static public ExportResult PartialFailure(int numberOfExportedRecords, File folder, List<File> files, Exception reason, int numberOfUnexportedRecords)
+	{
+		return new ExportResult(null, null, numberOfExportedRecords, folder.getAbsolutePath(), files, reason, numberOfUnexportedRecords);
 	}
 	
 	static public ExportResult Failure(String destination, Exception reason, int numberOfUnexportedRecords)
 	{
-		return new ExportResult(null, destination, null, reason, numberOfUnexportedRecords);
+		return new ExportResult(null, null, 0, destination, null, reason, numberOfUnexportedRecords);
 	}
 	
 	static public ExportResult Failure(File folder, Exception reason, int numberOfUnexportedRecords)
 	{
-		return new ExportResult(null, folder.getAbsolutePath(), null, reason, numberOfUnexportedRecords);
+		return new ExportResult(null, null, 0, folder.getAbsolutePath(), null, reason, numberOfUnexportedRecords);
 	}
 	
 	static public ExportResult NothingToExport()
 	{
-		return new ExportResult(null, "", null, null, 0);
+		return new ExportResult(null, null, 0, "", null, null, 0);
 	}
 	
 	// DYNAMICS------------------------------------------------------
 	private final List<Record> exportedRecords;
+	private final List<RecordReference> exportedRecordRefs;
+	private final int numberOfExportedRecords;
 	private final String destination;
 	private final List<File> files;
 	private final Exception failureReason;
@@ -76,13 +136,17 @@ public class ExportResult
 	
 	/**
 	 * @param exportedRecords
+	 * @param exportedRecordRefs
+	 * @param numberOfExportedRecords
 	 * @param destination
 	 * @param files
 	 * @param failureReason
 	 */
-	private ExportResult(List<Record> exportedRecords, String destination, List<File> files, Exception failureReason, int numberOfUnexportedRecords)
+	private ExportResult(List<Record> exportedRecords, List<RecordReference> exportedRecordRefs, int numberOfExportedRecords, String destination, List<File> files, Exception failureReason, int numberOfUnexportedRecords)
 	{
 		this.exportedRecords = exportedRecords;
+		this.exportedRecordRefs = exportedRecordRefs;
+		this.numberOfExportedRecords = numberOfExportedRecords;
 		this.destination = destination;
 		this.files = files;
 		this.failureReason = failureReason;
@@ -94,16 +158,37 @@ public class ExportResult
 	 */
 	public int getNumberedOfExportedRecords()
 	{
-		return getExportedRecords().size();
+		return numberOfExportedRecords;
 	}
 
 	/**
-	 * @return the successfully exported records
+	 * @return the successfully exported records, will be empty for streamed exports (use {@link #getExportedRecordReferences()} instead)
 	 */
 	public List<Record> getExportedRecords()
 	{
 		return exportedRecords == null ? Collections.<Record> emptyList() : exportedRecords;
 	}
+	
+	/**
+	 * @return references to the successfully exported records, will be empty for streamed exports which were not asked to keep references
+	 */
+	public List<RecordReference> getExportedRecordReferences()
+	{
+		if(exportedRecordRefs != null)
+			return exportedRecordRefs;
+		List<RecordReference> refs = new ArrayList<RecordReference>(getExportedRecords().size());
+		for(Record record : getExportedRecords())
+			refs.add(record.getReference());
+		return refs;
+	}
+	
+	/**
+	 * @return whether or not the result holds all exported {@link Record} instances (if not it only holds their {@link RecordReference}s, or only their number)
+	 */
+	public boolean hasExportedRecordInstances()
+	{
+		return getExportedRecords().size() == numberOfExportedRecords;
+	}
 
 	/**
 	 * @return the destination
@@ -23,6 +23,7 @@ import java.util.List;
 import org.joda.time.format.DateTimeFormatter;
 
 import uk.ac.ucl.excites.sapelli.shared.util.TimeUtils;
+import uk.ac.ucl.excites.sapelli.storage.db.RecordCursor;
 import uk.ac.ucl.excites.sapelli.storage.model.Record;
 
 public interface Exporter
@@ -45,4 +46,38 @@ public interface Exporter
 	 */
 	public ExportResult export(List<Record> records, String description);
 	
+	/**
+	 * Exports the records returned by the cursor as they come. The exporter does not hold on to the exported records, so the
+	 * returned {@link ExportResult} only contains their number, and, if {@code keepReferences} is {@code true}, their references.
+	 * Memory use only depends on the number of records in the latter case.
+	 * The cursor is closed by the time the method returns. It may reuse record instances.
+	 * 
+	 * @param records
+	 * @param description - may be null or empty
+	 * @param keepReferences whether the result should hold the references of the exported records (e.g. to delete them afterwards)
+	 * @return
+	 */
+	public ExportResult export(RecordCursor records, String description, boolean keepReferences);
+	
+	/**
+	 * @param listener - may be null
+	 */
+	public void setProgressListener(ProgressListener listener);
+	
+	/**
+	 * Listener which is informed about the progress of an export.
+	 * 
+	 * @author mstevens
+	 */
+	public interface ProgressListener
+	{
+		
+		/**
+		 * @param exported number of records exported so far
+		 * @param total total number of records to export, or {@link RecordCursor#UNKNOWN_COUNT} if not known
+		 */
+		public void exportProgress(int exported, int total);
+		
+	}
+	
 }
@@ -42,9 +42,44 @@ public interface Importer extends WarningKeeper
 	 */
 	public List<Record> importFrom(File file) throws UnknownModelException, IndexOutOfBoundsException, Exception;
 	
+	/**
+	 * Imports records from the given file and passes them on to the given {@link RecordSink} in batches (in file order),
+	 * without holding on to all of them.
+	 * 
+	 * @param file
+	 * @param sink
+	 * @return the number of imported records
+	 * @throws UnknownModelException when no model with the given {@code modelID} was found
+	 * @throws IndexOutOfBoundsException when the model with the given {@code modelID} does not have a schema with the given {@code schemaNumber}
+	 * @throws Exception in case of another problem, including exceptions thrown by the sink
+	 */
+	public int importFrom(File file, RecordSink sink) throws UnknownModelException, IndexOutOfBoundsException, Exception;
+	
 	/**
 	 * @return the "exportedAt" time of the last file to be imported (may be null)
 	 */
 	public TimeStamp getLastImportExportedAtTime();
 	
+	/**
+	 * @param listener may be null
+	 */
+	public void setProgressListener(ProgressListener listener);
+	
+	/**
+	 * Listener which is informed about the progress of an import.
+	 * 
+	 * @author mstevens
+	 */
+	public interface ProgressListener
+	{
+		
+		/**
+		 * Called each time a batch of records has been passed on.
+		 * 
+		 * @param imported number of records imported so far
+		 */
+		public void importProgress(int imported);
+		
+	}
+	
 }
\ No newline at end of file
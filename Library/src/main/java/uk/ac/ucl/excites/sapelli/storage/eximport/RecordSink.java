@@ -0,0 +1,93 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.storage.eximport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.ucl.excites.sapelli.storage.db.RecordStore;
+import uk.ac.ucl.excites.sapelli.storage.model.Record;
+
+/**
+ * Receives batches of {@link Record}s produced by a streaming import, in the order in which they appear in the imported file.
+ *
+ * @author mstevens
+ */
+public interface RecordSink
+{
+
+	/**
+	 * @param records a batch of imported records, the list should not be held on to after the method returns
+	 * @throws Exception when the records could not be accepted, this aborts the import
+	 */
+	public void accept(List<Record> records) throws Exception;
+
+	/**
+	 * A {@link RecordSink} which collects all records in a list.
+	 *
+	 * @author mstevens
+	 */
+	public class Collector implements RecordSink
+	{
+
+		private final List<Record> records = new ArrayList<Record>();
+
+		@Override
+		public void accept(List<Record> records)
+		{
+			this.records.addAll(records);
+		}
+
+		/**
+		 * @return the collected records
+		 */
+		public List<Record> getRecords()
+		{
+			return records;
+		}
+
+	}
+
+	/**
+	 * A {@link RecordSink} which stores each batch in a {@link RecordStore} (in a single transaction per batch).
+	 *
+	 * @author mstevens
+	 */
+	public class Storer implements RecordSink
+	{
+
+		private final RecordStore recordStore;
+
+		/**
+		 * @param recordStore
+		 */
+		public Storer(RecordStore recordStore)
+		{
+			this.recordStore = recordStore;
+		}
+
+		@Override
+		public void accept(List<Record> records) throws Exception
+		{
+			recordStore.store(records);
+		}
+
+	}
+
+}
@@ -20,11 +20,14 @@ package uk.ac.ucl.excites.sapelli.storage.eximport;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 
 import org.joda.time.DateTime;
 
+import uk.ac.ucl.excites.sapelli.shared.io.FileHelpers;
 import uk.ac.ucl.excites.sapelli.shared.io.FileStorageException;
 import uk.ac.ucl.excites.sapelli.shared.io.text.FileWriter;
+import uk.ac.ucl.excites.sapelli.storage.db.RecordCursor;
 import uk.ac.ucl.excites.sapelli.storage.visitors.SimpleSchemaTraverser;
 
 /**
@@ -36,9 +39,22 @@ import uk.ac.ucl.excites.sapelli.storage.visitors.SimpleSchemaTraverser;
  */
 public abstract class SimpleExporter extends SimpleSchemaTraverser implements Exporter
 {
+	
+	// STATICS-------------------------------------------------------
+	static public final String GZIP_FILE_EXTENSION = "gz";
+	
+	static private final Charset UTF8 = Charset.forName("UTF-8");
+	
+	/**
+	 * Number of exported records between progress reports
+	 */
+	static protected final int PROGRESS_INTERVAL = 100;
 
+	// DYNAMICS------------------------------------------------------
 	protected File exportFolder;
 	protected boolean forceExportUnexportable = false;
+	protected boolean compressOutput = false;
+	protected ProgressListener progressListener = null;
 	
 	protected FileWriter writer = null;
 	
@@ -58,6 +74,63 @@ public abstract class SimpleExporter extends SimpleSchemaTraverser implements Ex
 		this.forceExportUnexportable = forceExportUnexportable;
 	}
 	
+	/**
+	 * @return whether or not output files are gzip-compressed
+	 */
+	public boolean isCompressOutput()
+	{
+		return compressOutput;
+	}
+
+	/**
+	 * @param compressOutput whether or not output files should be gzip-compressed (their names will get the {@value #GZIP_FILE_EXTENSION} extension)
+	 */
+	public void setCompressOutput(boolean compressOutput)
+	{
+		this.compressOutput = compressOutput;
+	}
+
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.eximport.Exporter#setProgressListener(uk.ac.ucl.excites.sapelli.storage.eximport.Exporter.ProgressListener)
+	 */
+	@Override
+	public void setProgressListener(ProgressListener listener)
+	{
+		this.progressListener = listener;
+	}
+	
+	/**
+	 * Informs the progress listener, if there is one, every {@link #PROGRESS_INTERVAL} records.
+	 * 
+	 * @param exported
+	 * @param total the total number of records, or {@link RecordCursor#UNKNOWN_COUNT}
+	 * @param force whether to report regardless of the interval
+	 */
+	protected void reportProgress(int exported, int total, boolean force)
+	{
+		if(progressListener != null && (force || exported % PROGRESS_INTERVAL == 0))
+			progressListener.exportProgress(exported, total);
+	}
+	
+	/**
+	 * Creates and opens a buffered (and, if enabled, gzip-compressing) {@link FileWriter} on a file in the export folder.
+	 * 
+	 * @param fileName without the gzip extension
+	 * @return the opened FileWriter
+	 * @throws IOException
+	 * @throws FileStorageException
+	 */
+	protected FileWriter openFileWriter(String fileName) throws IOException, FileStorageException
+	{
+		if(!FileHelpers.createDirectory(exportFolder))
+			throw new FileStorageException("Export folder (" + exportFolder + ") does not exist and could not be created!");
+		FileWriter fileWriter = new FileWriter(
+			exportFolder + File.separator +
+			FileHelpers.makeValidFileName(fileName + (compressOutput ? "." + GZIP_FILE_EXTENSION : "")), UTF8);
+		fileWriter.open(FileHelpers.FILE_EXISTS_STRATEGY_REPLACE, FileHelpers.FILE_DOES_NOT_EXIST_STRATEGY_CREATE, true, compressOutput);
+		return fileWriter;
+	}
+	
 	protected abstract void openWriter(String description, DateTime timestamp) throws IOException, FileStorageException;
 	
 	protected abstract void closeWriter();
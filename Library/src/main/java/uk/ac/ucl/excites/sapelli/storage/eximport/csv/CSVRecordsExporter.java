@@ -22,19 +22,20 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
-import org.apache.commons.io.Charsets;
 import org.joda.time.DateTime;
 
-import uk.ac.ucl.excites.sapelli.shared.io.FileHelpers;
 import uk.ac.ucl.excites.sapelli.shared.io.FileStorageException;
 import uk.ac.ucl.excites.sapelli.shared.io.text.FileWriter;
 import uk.ac.ucl.excites.sapelli.shared.util.StringUtils;
 import uk.ac.ucl.excites.sapelli.shared.util.TimeUtils;
 import uk.ac.ucl.excites.sapelli.storage.StorageClient;
+import uk.ac.ucl.excites.sapelli.storage.db.RecordCursor;
 import uk.ac.ucl.excites.sapelli.storage.eximport.ExportResult;
 import uk.ac.ucl.excites.sapelli.storage.eximport.SimpleExporter;
 import uk.ac.ucl.excites.sapelli.storage.eximport.helpers.ExportHelper;
@@ -44,6 +45,7 @@ import uk.ac.ucl.excites.sapelli.storage.model.ColumnSet;
 import uk.ac.ucl.excites.sapelli.storage.model.ListColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.ListLikeColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.Record;
+import uk.ac.ucl.excites.sapelli.storage.model.RecordReference;
 import uk.ac.ucl.excites.sapelli.storage.model.Schema;
 import uk.ac.ucl.excites.sapelli.storage.model.ValueSet;
 import uk.ac.ucl.excites.sapelli.storage.model.ValueSetColumn;
@@ -184,14 +186,7 @@ public class CSVRecordsExporter extends SimpleExporter
 	@Override
 	protected void openWriter(String description, DateTime timestamp) throws IOException, FileStorageException
 	{
-		if(!FileHelpers.createDirectory(exportFolder))
-			throw new FileStorageException("Export folder (" + exportFolder + ") does not exist and could not be created!");
-		writer = new FileWriter(
-			exportFolder + File.separator +
-			FileHelpers.makeValidFileName(
-				"Records_" + description + "_" +
-				TimeUtils.getTimestampForFileName(timestamp) + "." + FILE_EXTENSION), Charsets.UTF_8);
-		writer.open(FileHelpers.FILE_EXISTS_STRATEGY_REPLACE, FileHelpers.FILE_DOES_NOT_EXIST_STRATEGY_CREATE);	
+		writer = openFileWriter("Records_" + description + "_" + TimeUtils.getTimestampForFileName(timestamp) + "." + FILE_EXTENSION);
 	}
 	
 	private void deleteFile()
@@ -223,17 +218,10 @@ public class CSVRecordsExporter extends SimpleExporter
 		if(records == null || records.isEmpty())
 			return ExportResult.NothingToExport();
 		
-		// Timestamp for filenames:
-		DateTime timestamp = DateTime.now();
-		
-		// Group records by schema & filter out records of unexportable schemata:
+		// Group records by schema (records of unexportable schemata will be filtered out later):
 		Map<Schema, List<Record>> recordsBySchema = new HashMap<Schema, List<Record>>();
 		for(Record r : records)
 		{
-			// Skip unexportable records unless force not to:
-			if(!forceExportUnexportable && !r.getSchema().hasFlags(StorageClient.SCHEMA_FLAG_EXPORTABLE))
-				continue;
-			
 			List<Record> recordsForSchema;
 			if(recordsBySchema.containsKey(r.getSchema()))
 				recordsForSchema = recordsBySchema.get(r.getSchema());
@@ -244,35 +232,88 @@ public class CSVRecordsExporter extends SimpleExporter
 			}
 			recordsForSchema.add(r);
 		}
+		List<Record> groupedRecords = new ArrayList<Record>(records.size());
+		for(List<Record> recordsForSchema : recordsBySchema.values())
+			groupedRecords.addAll(recordsForSchema);
 		
 		// Export each group to a separate CSV file:
-		List<Record> exported = new ArrayList<Record>();
-		List<Record> exportedForSchema = new ArrayList<Record>();
-		List<File> csvFiles = new ArrayList<File>();
+		return export(groupedRecords.iterator(), records.size(), description, true, false);
+	}
+	
+	/**
+	 * Records are written to the CSV file of their schema as they come, meaning all of those files may be open at the same time.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.eximport.Exporter#export(uk.ac.ucl.excites.sapelli.storage.db.RecordCursor, java.lang.String, boolean)
+	 */
+	@Override
+	public ExportResult export(RecordCursor records, String description, boolean keepReferences)
+	{
+		try
+		{
+			if(records == null || !records.hasNext())
+				return ExportResult.NothingToExport();
+			return export(records, records.getCountHint(), description, false, keepReferences);
+		}
+		finally
+		{
+			if(records != null)
+				records.close();
+		}
+	}
+	
+	/**
+	 * @param records
+	 * @param total total number of records, or {@link RecordCursor#UNKNOWN_COUNT}
+	 * @param description
+	 * @param keepRecords whether the result should hold on to the exported {@link Record}s
+	 * @param keepReferences whether the result should hold on to the references of the exported records (ignored if {@code keepRecords} is {@code true})
+	 * @return
+	 */
+	private ExportResult export(Iterator<Record> records, int total, String description, boolean keepRecords, boolean keepReferences)
+	{
+		// Timestamp for filenames:
+		DateTime timestamp = DateTime.now();
+		
+		// CSV files, per schema:
+		Map<Schema, SchemaFile> files = new LinkedHashMap<Schema, SchemaFile>();
+		int read = 0;
+		int exported = 0;
 		valueStringProvider.reset();
-		for(Map.Entry<Schema, List<Record>> entry : recordsBySchema.entrySet())
+		SchemaFile file = null;
+		try
 		{
-			try
+			while(records.hasNext())
 			{
-				Schema schema =  entry.getKey();
-				openWriter((description != null && !description.isEmpty() ? description + "_" : "") + schema.getName(), timestamp);
-
-				// Construct column list:
-				getColumnPointers(schema);
+				Record r = records.next();
+				read++;
 				
-				// Write header:
+				// Skip unexportable records unless force not to:
+				if(!forceExportUnexportable && !r.getSchema().hasFlags(StorageClient.SCHEMA_FLAG_EXPORTABLE))
+					continue;
+				
+				// Get or open CSV file:
+				file = files.get(r.getSchema());
+				if(file == null)
+				{	// (if the constructor fails file will remain null and the new CSV file will already have been deleted)
+					file = new SchemaFile(r.getSchema(), description, timestamp, keepRecords, !keepRecords && keepReferences);
+					files.put(r.getSchema(), file);
+				}
+				writer = file.writer;
+				
+				// Write record:
 				writer.openTransaction(); // output will be buffered
 				try
 				{
-					// Column names (separated by the separator):
-					for(ColumnPointer<?> cp : columnPointers)
-						writer.write((!writer.isTransactionBufferEmpty() ? separator.getSeparatorChar() : "") + cp.getQualifiedColumnName());
-					// Postfix (assuming separator is ,): ,modelID=XXXXXXXXXXXXXXXX,modelSchemaNumber=YY,schemaName="abcdef",
-					writer.write(	separator.getSeparatorChar() + Schema.ATTRIBUTE_MODEL_ID + "=" + schema.getModelID() +
-									separator.getSeparatorChar() + Schema.ATTRIBUTE_MODEL_SCHEMA_NUMBER + "=" + schema.getModelSchemaNumber() +
-									separator.getSeparatorChar() + Schema.ATTRIBUTE_SCHEMA_NAME + "=" + escapeAndQuote(schema.getName(), true) +
-									separator.getSeparatorChar() + ATTRIBUTE_EXPORTED_AT + "=" + ExportedAtFormatter.print(timestamp) +
-									separator.getSeparatorChar());
+					boolean first = true;
+					for(ColumnPointer<?> cp : file.columnPointers)
+					{
+						if(!first)
+							writer.write(separator.getSeparatorChar());
+						else
+							first = false;							
+						writer.write(valueStringProvider.getValueString(cp.getColumn(), cp.getValueSet(r, false), ""));
+						// will write nothing (i.e. "") when the value is not set (i.e. null value is represented by an empty String)
+					}
 					writer.write(LINE_ENDING);
 				}
 				catch(Exception e)
@@ -281,59 +322,144 @@ public class CSVRecordsExporter extends SimpleExporter
 					throw e;
 				}
 				writer.commitTransaction(); // write out buffer
-				
-				// Write records:
-				for(Record r : entry.getValue())
-				{
-					writer.openTransaction(); // output will be buffered
-					try
-					{
-						boolean first = true;
-						for(ColumnPointer<?> cp : columnPointers)
-						{
-							if(!first)
-								writer.write(separator.getSeparatorChar());
-							else
-								first = false;							
-							writer.write(valueStringProvider.getValueString(cp.getColumn(), cp.getValueSet(r, false), ""));
-							// will write nothing (i.e. "") when the value is not set (i.e. null value is represented by an empty String)
-						}
-						writer.write(LINE_ENDING);
-					}
-					catch(Exception e)
-					{
-						writer.rollbackTransaction(); // !!!
-						throw e;
-					}
-					writer.commitTransaction(); // write out buffer
-					exportedForSchema.add(r);
-				}
-				csvFiles.add(writer.getFile());
-				closeWriter();
+				file.exported(r);
+				reportProgress(++exported, total, false);
+				// TODO mark record as exported?
 			}
-			catch(Exception e)
+		}
+		catch(Exception e)
+		{
+			e.printStackTrace(System.err);
+			// Discard the file of the schema which caused the problem:
+			if(file != null)
 			{
-				e.printStackTrace(System.err);
+				files.remove(file.schema);
+				writer = file.writer;
 				deleteFile();
-				if(!exported.isEmpty())
-					return ExportResult.PartialFailure(exported, exportFolder, csvFiles, e, records.size() - exported.size());
-				else
-					return ExportResult.Failure(exportFolder, e, records.size());
+				exported -= file.getNumberOfExportedRecords();
+			}
+			return getResult(files, exported, (total != RecordCursor.UNKNOWN_COUNT ? total : read) - exported, e, keepRecords, keepReferences);
+		}
+		finally
+		{
+			// Close the CSV files:
+			for(SchemaFile f : files.values())
+			{
+				writer = f.writer;
+				closeWriter();
 			}
-			
-			// Move records exported for current schema to overall exported list:
-			exported.addAll(exportedForSchema);
-			exportedForSchema.clear();
-			// TODO mark record as exported?
 		}
 		// Result...
-		if(exported.size() == records.size())
-			return ExportResult.Success(exported, exportFolder, csvFiles);
+		reportProgress(exported, total, true);
+		return getResult(files, exported, read - exported, null, keepRecords, keepReferences); // unexported records are those of unexportable schemata
+	}
+	
+	private ExportResult getResult(Map<Schema, SchemaFile> files, int exportedCount, int unexportedCount, Exception failure, boolean keepRecords, boolean keepReferences)
+	{
+		keepReferences &= !keepRecords;
+		List<File> csvFiles = new ArrayList<File>(files.size());
+		List<Record> exportedRecords = keepRecords ? new ArrayList<Record>() : null;
+		List<RecordReference> exportedRecordRefs = keepReferences ? new ArrayList<RecordReference>() : null;
+		for(SchemaFile file : files.values())
+		{
+			csvFiles.add(file.csvFile);
+			if(keepRecords)
+				exportedRecords.addAll(file.exportedRecords);
+			else if(keepReferences)
+				exportedRecordRefs.addAll(file.exportedRecordRefs);
+		}
+		if(failure == null && unexportedCount == 0)
+			return	keepRecords ?		ExportResult.Success(exportedRecords, exportFolder, csvFiles) :
+					keepReferences ?	ExportResult.SuccessByReference(exportedRecordRefs, exportFolder, csvFiles) :
+										ExportResult.Success(exportedCount, exportFolder, csvFiles);
+		else if(failure != null && files.isEmpty()) // (skipping unexportable records is always reported as a partial failure, even if nothing else was exported)
+			return ExportResult.Failure(exportFolder, failure, unexportedCount);
 		else
 		{
-			int unexportedCount = records.size() - exported.size();
-			return ExportResult.PartialFailure(exported, exportFolder, csvFiles, new UnexportableRecordsException(unexportedCount), unexportedCount);
+			if(failure == null)
+				failure = new UnexportableRecordsException(unexportedCount);
+			return	keepRecords ?		ExportResult.PartialFailure(exportedRecords, exportFolder, csvFiles, failure, unexportedCount) :
+					keepReferences ?	ExportResult.PartialFailureByReference(exportedRecordRefs, exportFolder, csvFiles, failure, unexportedCount) :
+										ExportResult.PartialFailure(exportedCount, exportFolder, csvFiles, failure, unexportedCount);
+		}
+	}
+	
+	/**
+	 * The CSV file to which the records of a single schema are exported.
+	 * 
+	 * @author mstevens
+	 */
+	private class SchemaFile
+	{
+		
+		final Schema schema;
+		final FileWriter writer;
+		final File csvFile;
+		final List<ColumnPointer<?>> columnPointers;
+		final List<Record> exportedRecords;
+		final List<RecordReference> exportedRecordRefs;
+		private int numberOfExportedRecords = 0;
+		
+		/**
+		 * Opens the file and writes the header.
+		 * 
+		 * @param schema
+		 * @param description
+		 * @param timestamp
+		 * @param keepRecords whether to hold on to the exported records
+		 * @param keepReferences whether to hold on to the references of the exported records
+		 * @throws Exception
+		 */
+		public SchemaFile(Schema schema, String description, DateTime timestamp, boolean keepRecords, boolean keepReferences) throws Exception
+		{
+			this.schema = schema;
+			this.exportedRecords = keepRecords ? new ArrayList<Record>() : null;
+			this.exportedRecordRefs = keepReferences ? new ArrayList<RecordReference>() : null;
+			openWriter((description != null && !description.isEmpty() ? description + "_" : "") + schema.getName(), timestamp);
+			this.writer = CSVRecordsExporter.this.writer;
+			this.csvFile = writer.getFile();
+			
+			// Construct column list:
+			this.columnPointers = new ArrayList<ColumnPointer<?>>(getColumnPointers(schema));
+			
+			// Write header:
+			writer.openTransaction(); // output will be buffered
+			try
+			{
+				// Column names (separated by the separator):
+				for(ColumnPointer<?> cp : columnPointers)
+					writer.write((!writer.isTransactionBufferEmpty() ? separator.getSeparatorChar() : "") + cp.getQualifiedColumnName());
+				// Postfix (assuming separator is ,): ,modelID=XXXXXXXXXXXXXXXX,modelSchemaNumber=YY,schemaName="abcdef",
+				writer.write(	separator.getSeparatorChar() + Schema.ATTRIBUTE_MODEL_ID + "=" + schema.getModelID() +
+								separator.getSeparatorChar() + Schema.ATTRIBUTE_MODEL_SCHEMA_NUMBER + "=" + schema.getModelSchemaNumber() +
+								separator.getSeparatorChar() + Schema.ATTRIBUTE_SCHEMA_NAME + "=" + escapeAndQuote(schema.getName(), true) +
+								separator.getSeparatorChar() + ATTRIBUTE_EXPORTED_AT + "=" + ExportedAtFormatter.print(timestamp) +
+								separator.getSeparatorChar());
+				writer.write(LINE_ENDING);
+			}
+			catch(Exception e)
+			{
+				writer.rollbackTransaction(); // !!!
+				deleteFile();
+				throw e;
+			}
+			writer.commitTransaction(); // write out buffer
+		}
+		
+		public void exported(Record record)
+		{
+			if(exportedRecords != null)
+				exportedRecords.add(record);
+			else if(exportedRecordRefs != null)
+				exportedRecordRefs.add(record.getReference());
+			numberOfExportedRecords++;
 		}
+		
+		public int getNumberOfExportedRecords()
+		{
+			return numberOfExportedRecords;
+		}
+		
 	}
 	
 	protected List<ColumnPointer<?>> getColumnPointers(Schema schema)
@@ -18,13 +18,21 @@
 
 package uk.ac.ucl.excites.sapelli.storage.eximport.csv;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.Reader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.compress.utils.Charsets;
 
@@ -35,6 +43,7 @@ import uk.ac.ucl.excites.sapelli.shared.util.WarningKeeper.WarningKeeperImpl;
 import uk.ac.ucl.excites.sapelli.storage.StorageClient;
 import uk.ac.ucl.excites.sapelli.storage.eximport.Exporter;
 import uk.ac.ucl.excites.sapelli.storage.eximport.Importer;
+import uk.ac.ucl.excites.sapelli.storage.eximport.RecordSink;
 import uk.ac.ucl.excites.sapelli.storage.eximport.csv.CSVRecordsExporter.Separator;
 import uk.ac.ucl.excites.sapelli.storage.eximport.helpers.ImportHelper;
 import uk.ac.ucl.excites.sapelli.storage.model.Column;
@@ -59,10 +68,48 @@ public class CSVRecordsImporter extends WarningKeeperImpl implements Importer
 	// STATIC -------------------------------------------------------
 	static private final char DOUBLE_QUOTE = '"';
 	
+	/**
+	 * Default number of record rows which are parsed together, as one task
+	 */
+	static public final int DEFAULT_CHUNK_SIZE = 256;
+	
+	static private final int READ_BUFFER_SIZE = 64 * 1024; // chars
+	
+	static private ExecutorService DefaultExecutor;
+	
+	/**
+	 * @return a shared pool of daemon threads, sized to the number of available processors
+	 */
+	static public synchronized ExecutorService GetDefaultExecutor()
+	{
+		if(DefaultExecutor == null)
+			DefaultExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable r)
+				{
+					Thread thread = new Thread(r, CSVRecordsImporter.class.getSimpleName());
+					thread.setDaemon(true); // don't prevent the VM from exiting
+					return thread;
+				}
+			});
+		return DefaultExecutor;
+	}
+	
 	// DYNAMIC ------------------------------------------------------
 	protected final StorageClient client;
-
-	protected final CSVImportHelper helper;
+	
+	/**
+	 * May be {@code null}, in which case all rows are parsed sequentially on the calling thread.
+	 */
+	protected final ExecutorService executor;
+	
+	protected final int chunkSize;
+	
+	/**
+	 * Maximum number of chunks being parsed (or waiting to be delivered) at any one time, this bounds memory use.
+	 */
+	protected final int maxChunksInProgress;
 
 	protected Exception headerError;
 	protected Separator separator;
@@ -70,14 +117,39 @@ public class CSVRecordsImporter extends WarningKeeperImpl implements Importer
 	protected Schema schema;
 	protected List<ColumnPointer<?>> columnPointers;
 
-	protected List<Record> records;
 	protected int rowCount;
+	protected int importedCount;
+	protected ProgressListener progressListener;
+	
+	private RecordSink sink;
+	private List<String> pendingRows;
+	private int pendingFirstRowNumber;
+	private Queue<Future<RowChunk>> chunksInProgress;
 	
+	/**
+	 * Parses record rows in parallel using the shared default executor.
+	 * 
+	 * @param client
+	 */
 	public CSVRecordsImporter(StorageClient client)
+	{
+		this(client, GetDefaultExecutor(), DEFAULT_CHUNK_SIZE);
+	}
+	
+	/**
+	 * @param client
+	 * @param executor the executor to parse chunks of record rows on, or {@code null} to parse them sequentially on the calling thread
+	 * @param chunkSize the number of record rows per chunk
+	 */
+	public CSVRecordsImporter(StorageClient client, ExecutorService executor, int chunkSize)
 	{
 		super();
+		if(chunkSize < 1)
+			throw new IllegalArgumentException("chunkSize must be at least 1");
 		this.client = client;
-		this.helper = new CSVImportHelper();
+		this.executor = executor;
+		this.chunkSize = chunkSize;
+		this.maxChunksInProgress = 2 * Runtime.getRuntime().availableProcessors();
 	}
 	
 	/* (non-Javadoc)
@@ -86,7 +158,7 @@ public class CSVRecordsImporter extends WarningKeeperImpl implements Importer
 	@Override
 	public List<Record> importFrom(File csvFile) throws Exception
 	{
-		return importFrom(csvFile, null);
+		return importFrom(csvFile, (Schema) null);
 	}
 	
 	/**
@@ -98,54 +170,111 @@ public class CSVRecordsImporter extends WarningKeeperImpl implements Importer
 	 */
 	public List<Record> importFrom(File csvFile, Schema fallbackSchema) throws Exception
 	{
-		// Allocate a new records list:
-		records = new ArrayList<Record>(); // (don't reuse old one as this object is returned)
-
+		RecordSink.Collector collector = new RecordSink.Collector(); // (don't reuse a list as it is returned)
+		importFrom(csvFile, fallbackSchema, collector);
+		return collector.getRecords();
+	}
+	
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.eximport.Importer#importFrom(java.io.File, uk.ac.ucl.excites.sapelli.storage.eximport.RecordSink)
+	 */
+	@Override
+	public int importFrom(File csvFile, RecordSink sink) throws Exception
+	{
+		return importFrom(csvFile, null, sink);
+	}
+	
+	/**
+	 * Imports records from the given CSV file and passes them on to the given {@link RecordSink}, in batches of at most {@link #chunkSize} records.
+	 * Record rows are parsed in parallel (unless no executor was given), but the sink receives the records in file order, on the calling thread.
+	 * The number of rows held in memory at any one time is bounded, so memory use does not depend on the size of the file.
+	 * 
+	 * @param csvFile
+	 * @param fallbackSchema may be null
+	 * @param sink
+	 * @return the number of imported records
+	 * @throws Exception
+	 */
+	public int importFrom(File csvFile, Schema fallbackSchema, RecordSink sink) throws Exception
+	{
 		// (Re)initialise data structures:
 		headerError = null;
 		rowCount = 0;
+		importedCount = 0;
 		separator = null;
 		exportedAt = null;
 		schema = fallbackSchema;
 		columnPointers = fallbackSchema == null ? null : CSVRecordsExporter.GetColumnPointers(fallbackSchema);
+		this.sink = sink;
+		pendingRows = new ArrayList<String>(chunkSize);
+		chunksInProgress = new ArrayDeque<Future<RowChunk>>();
 		
-		// Parse the file:
-		parse(csvFile);
+		try
+		{
+			// Parse the file:
+			parse(csvFile);
+		}
+		finally
+		{	// Cancel any chunks still in progress (only happens when something went wrong):
+			for(Future<RowChunk> chunk : chunksInProgress)
+				chunk.cancel(true);
+			this.sink = null;
+			pendingRows = null;
+			chunksInProgress = null;
+		}
 		
-		// Return parsed records:
-		return records;
+		// Return number of imported records:
+		return importedCount;
 	}
 
+	/**
+	 * Splits the file in rows by scanning blocks of characters for line endings which are not inside quoted values.
+	 * 
+	 * @param csvFile
+	 * @throws Exception
+	 */
 	private void parse(File csvFile) throws Exception
 	{
 		try(UnicodeBOMInputStream input = new UnicodeBOMInputStream(new FileInputStream(csvFile));
-			BufferedReader reader = new BufferedReader(input.getReader(Charsets.UTF_8)))
+			Reader reader = input.getReader(Charsets.UTF_8))
 		{
-			int r;
-			int dqCount = 0;
-			StringBuilder rowBldr = new StringBuilder();
-			while((r = reader.read()) != -1)
+			char[] buffer = new char[READ_BUFFER_SIZE];
+			StringBuilder partialRow = new StringBuilder(); // holds the part of a row which started in a previous block
+			boolean inQuotes = false;
+			int read;
+			while((read = reader.read(buffer, 0, buffer.length)) != -1)
 			{
-				char c = (char) r;
-				if(c == DOUBLE_QUOTE)
-				{	// count the number of double quotes we've passed
-					dqCount++;
-					// Append char:
-					rowBldr.append(c); // !!!
-				}
-				else if(c == CSVRecordsExporter.LINE_ENDING && dqCount % 2 == 0)
-				{	// if dqCount is even this means we are not inside a quoted value and this is an actual row line break
-					String row = rowBldr.toString();
-					rowBldr.setLength(0); // reset line builder!
-					// Parse row:
-					parseRow(row);
-				}
-				else
-				{	
-					// Append char:
-					rowBldr.append(c); // !!!
+				int rowStart = 0;
+				for(int i = 0; i < read; i++)
+				{
+					char c = buffer[i];
+					if(c == DOUBLE_QUOTE)
+						// an uneven number of double quotes means we are inside a quoted value
+						inQuotes = !inQuotes;
+					else if(c == CSVRecordsExporter.LINE_ENDING && !inQuotes)
+					{	// not inside a quoted value, so this is an actual row line break
+						String row;
+						if(partialRow.length() == 0)
+							row = new String(buffer, rowStart, i - rowStart);
+						else
+						{
+							partialRow.append(buffer, rowStart, i - rowStart);
+							row = partialRow.toString();
+							partialRow.setLength(0); // reset row builder!
+						}
+						rowStart = i + 1;
+						// Handle row:
+						handleRow(row);
+					}
 				}
+				// Keep remainder of the block for the next row:
+				partialRow.append(buffer, rowStart, read - rowStart);
 			}
+			
+			// Parse the remaining rows and deliver all records:
+			submitPendingRows();
+			while(!chunksInProgress.isEmpty())
+				deliver(chunksInProgress.poll());
 		}
 		catch(Exception e) // only for unrecoverable errors
 		{
@@ -153,12 +282,12 @@ public class CSVRecordsImporter extends WarningKeeperImpl implements Importer
 		}
 	}
 	
-	private void parseRow(String row) throws Exception
+	private void handleRow(String row) throws Exception
 	{
 		// Increase row counter:
 		rowCount++; // !!!
 		
-		if(rowCount == 1)
+		if(rowCount == 1 && headerError == null)
 		{	// Header row...
 			try
 			{
@@ -170,7 +299,7 @@ public class CSVRecordsImporter extends WarningKeeperImpl implements Importer
 				{	// we were given a fallback schema, so perhaps this was a record row (and not a header row)...
 					headerError = e;
 					rowCount--;
-					parseRow(row); // try parsing as record row
+					handleRow(row); // try parsing as record row
 				}
 				else
 					throw e;
@@ -180,30 +309,59 @@ public class CSVRecordsImporter extends WarningKeeperImpl implements Importer
 		{	// Record row...
 			if(schema == null || columnPointers == null)
 				throw new Exception("Cannot parse record rows if no schema is known.");
-			Record parsedRecord = null;
-			try
-			{
-				parsedRecord = parseRecordRow(row); 
-			}
-			catch(Exception e)
-			{
-				if(rowCount == 1 && headerError != null)
-					// we already had trouble when parsing this as a header row, throw that exception instead of a new one:
-					throw headerError;
-				addWarning("Error on parsing record (line #" + rowCount + "): " + ExceptionHelpers.getMessageAndCause(e));
-			}
-			if(parsedRecord != null)
-			{
-				// Set missing required values to default (recursively):
-				parsedRecord.resetEmptyColumns(true, true);
-				
-				// Recursive "filledness" check:
-				if(!parsedRecord.isFilled(true))
-					addWarning("Imported record (line #" + rowCount + ") is incomplete: " + parsedRecord.toString(false));
-				
-				// Add parsed record:
-				records.add(parsedRecord);
-			}
+			if(pendingRows.isEmpty())
+				pendingFirstRowNumber = rowCount;
+			pendingRows.add(row);
+			if(pendingRows.size() >= chunkSize)
+				submitPendingRows();
+		}
+	}
+	
+	/**
+	 * Hands the pending rows to the executor (or parses them right away if there is none).
+	 * If the maximum number of chunks is in progress we first wait for the oldest one and deliver its records.
+	 * 
+	 * @throws Exception
+	 */
+	private void submitPendingRows() throws Exception
+	{
+		if(pendingRows.isEmpty())
+			return;
+		RowChunk chunk = new RowChunk(pendingFirstRowNumber, pendingRows, schema, columnPointers);
+		pendingRows = new ArrayList<String>(chunkSize);
+		if(executor == null)
+			deliver(chunk.call());
+		else
+		{
+			if(chunksInProgress.size() >= maxChunksInProgress)
+				deliver(chunksInProgress.poll());
+			chunksInProgress.add(executor.submit(chunk));
+		}
+	}
+	
+	private void deliver(Future<RowChunk> futureChunk) throws Exception
+	{
+		try
+		{
+			deliver(futureChunk.get());
+		}
+		catch(ExecutionException ee)
+		{
+			throw ee.getCause() instanceof Exception ? (Exception) ee.getCause() : ee;
+		}
+	}
+	
+	private void deliver(RowChunk chunk) throws Exception
+	{
+		if(chunk.error != null)
+			throw chunk.error;
+		addWarnings(chunk.getWarnings());
+		if(!chunk.records.isEmpty())
+		{
+			sink.accept(chunk.records);
+			importedCount += chunk.records.size();
+			if(progressListener != null)
+				progressListener.importProgress(importedCount);
 		}
 	}
 	
@@ -312,21 +470,21 @@ public class CSVRecordsImporter extends WarningKeeperImpl implements Importer
 		}
 	}
 	
-	private Record parseRecordRow(String line) throws Exception
+	private Record parseRecordRow(String line, RowChunk chunk) throws Exception
 	{
 		// Create new, initialised record:
-		Record record = helper.initialise(schema.createRecord());
+		Record record = chunk.helper.initialise(chunk.schema.createRecord());
 		
 		// Get list of values to parse:
 		List<String> valueStrings = splitRow(line);
 				
 		// Check number of columns/values:
-		if(columnPointers.size() != valueStrings.size()) // String is expected to contain as many values as separators
-			throw new Exception("CSV record row has unexpected number of values (expected: " + columnPointers.size() + "; found: " + valueStrings.size() + ")!");
+		if(chunk.columnPointers.size() != valueStrings.size()) // String is expected to contain as many values as separators
+			throw new Exception("CSV record row has unexpected number of values (expected: " + chunk.columnPointers.size() + "; found: " + valueStrings.size() + ")!");
 		
 		// Get each valueString, de-espace & unquote it and parse it using the corresponding column:
 		Iterator<String> valueStringIter = valueStrings.iterator();
-		Iterator<ColumnPointer<?>> cpIter = columnPointers.iterator();
+		Iterator<ColumnPointer<?>> cpIter = chunk.columnPointers.iterator();
 		while(valueStringIter.hasNext() && cpIter.hasNext())
 		{
 			String valueString = valueStringIter.next();
@@ -347,14 +505,14 @@ public class CSVRecordsImporter extends WarningKeeperImpl implements Importer
 					continue; // skip!
 				
 				// Get/create&initialise (sub)ValueSet/Record:
-				ValueSet<?> valueSet = currentCP.getValueSet(record, true, helper);
+				ValueSet<?> valueSet = currentCP.getValueSet(record, true, chunk.helper);
 
 				// Use helper to parse & store value:
-				helper.parseAndStoreValue(column, deescapeAndUnquote(valueString), valueSet);
+				chunk.helper.parseAndStoreValue(column, deescapeAndUnquote(valueString), valueSet);
 			}
 			catch(Exception e)
 			{
-				addWarning("Error upon parsing value (" + valueString + ") for column " + currentCP.getQualifiedColumnName() + ": " + ExceptionHelpers.getMessageAndCause(e));
+				chunk.addWarning("Error upon parsing value (" + valueString + ") for column " + currentCP.getQualifiedColumnName() + ": " + ExceptionHelpers.getMessageAndCause(e));
 			}
 		}
 		
@@ -409,6 +567,80 @@ public class CSVRecordsImporter extends WarningKeeperImpl implements Importer
 		return exportedAt;
 	}
 	
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.eximport.Importer#setProgressListener(uk.ac.ucl.excites.sapelli.storage.eximport.Importer.ProgressListener)
+	 */
+	@Override
+	public void setProgressListener(ProgressListener listener)
+	{
+		this.progressListener = listener;
+	}
+	
+	/**
+	 * A chunk of consecutive record rows, which are parsed into records on a worker thread.
+	 * Warnings are collected per chunk and only passed on to the importer when the chunk is delivered, so they remain in file order.
+	 * 
+	 * @author mstevens
+	 */
+	private class RowChunk extends WarningKeeperImpl implements Callable<RowChunk>
+	{
+		
+		final int firstRowNumber;
+		final List<String> rows;
+		final Schema schema;
+		final List<ColumnPointer<?>> columnPointers;
+		final CSVImportHelper helper = new CSVImportHelper(); // (ImportHelper instances are not thread-safe)
+		final List<Record> records;
+		Exception error;
+		
+		public RowChunk(int firstRowNumber, List<String> rows, Schema schema, List<ColumnPointer<?>> columnPointers)
+		{
+			this.firstRowNumber = firstRowNumber;
+			this.rows = rows;
+			this.schema = schema;
+			this.columnPointers = columnPointers;
+			this.records = new ArrayList<Record>(rows.size());
+		}
+
+		@Override
+		public RowChunk call()
+		{
+			int rowNumber = firstRowNumber;
+			for(String row : rows)
+			{
+				Record parsedRecord = null;
+				try
+				{
+					parsedRecord = parseRecordRow(row, this); 
+				}
+				catch(Exception e)
+				{
+					if(rowNumber == 1 && headerError != null)
+					{	// we already had trouble when parsing this as a header row, throw that exception instead of a new one:
+						error = headerError;
+						return this;
+					}
+					addWarning("Error on parsing record (line #" + rowNumber + "): " + ExceptionHelpers.getMessageAndCause(e));
+				}
+				if(parsedRecord != null)
+				{
+					// Set missing required values to default (recursively):
+					parsedRecord.resetEmptyColumns(true, true);
+					
+					// Recursive "filledness" check:
+					if(!parsedRecord.isFilled(true))
+						addWarning("Imported record (line #" + rowNumber + ") is incomplete: " + parsedRecord.toString(false));
+					
+					// Add parsed record:
+					records.add(parsedRecord);
+				}
+				rowNumber++;
+			}
+			return this;
+		}
+		
+	}
+	
 	/**
 	 * Helper class which turns String representations (already de-escaped and unquoted) into column values.
 	 * 
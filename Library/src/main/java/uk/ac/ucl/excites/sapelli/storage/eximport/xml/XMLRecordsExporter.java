@@ -23,19 +23,19 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.io.Charsets;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.joda.time.DateTime;
 
-import uk.ac.ucl.excites.sapelli.shared.io.FileHelpers;
 import uk.ac.ucl.excites.sapelli.shared.io.FileStorageException;
-import uk.ac.ucl.excites.sapelli.shared.io.text.FileWriter;
 import uk.ac.ucl.excites.sapelli.shared.util.StringUtils;
 import uk.ac.ucl.excites.sapelli.shared.util.TimeUtils;
 import uk.ac.ucl.excites.sapelli.shared.util.xml.XMLUtils;
 import uk.ac.ucl.excites.sapelli.storage.StorageClient;
+import uk.ac.ucl.excites.sapelli.storage.db.RecordCursor;
 import uk.ac.ucl.excites.sapelli.storage.eximport.ExportResult;
 import uk.ac.ucl.excites.sapelli.storage.eximport.SimpleExporter;
 import uk.ac.ucl.excites.sapelli.storage.eximport.helpers.ExportHelper;
@@ -44,10 +44,12 @@ import uk.ac.ucl.excites.sapelli.storage.model.ColumnSet;
 import uk.ac.ucl.excites.sapelli.storage.model.ListColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.ListLikeColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.Record;
+import uk.ac.ucl.excites.sapelli.storage.model.RecordReference;
 import uk.ac.ucl.excites.sapelli.storage.model.Schema;
 import uk.ac.ucl.excites.sapelli.storage.model.ValueSet;
 import uk.ac.ucl.excites.sapelli.storage.model.ValueSetColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.columns.StringColumn;
+import uk.ac.ucl.excites.sapelli.storage.queries.Order;
 import uk.ac.ucl.excites.sapelli.storage.util.ColumnPointer;
 import uk.ac.ucl.excites.sapelli.storage.util.UnexportableRecordsException;
 
@@ -147,14 +149,9 @@ public class XMLRecordsExporter extends SimpleExporter
 	@Override
 	protected void openWriter(String description, DateTime timestamp) throws IOException, FileStorageException
 	{
-		if(!FileHelpers.createDirectory(exportFolder))
-			throw new FileStorageException("Export folder (" + exportFolder + ") does not exist and could not be created!");
-		writer = new FileWriter(
-			exportFolder + File.separator +
-			FileHelpers.makeValidFileName(
-				"Records_" + (description != null && !description.isEmpty() ? description + "_" : "") +
-				TimeUtils.getTimestampForFileName(timestamp) + "." + FILE_EXTENSION), Charsets.UTF_8);
-		writer.open(FileHelpers.FILE_EXISTS_STRATEGY_REPLACE, FileHelpers.FILE_DOES_NOT_EXIST_STRATEGY_CREATE);
+		writer = openFileWriter(
+			"Records_" + (description != null && !description.isEmpty() ? description + "_" : "") +
+			TimeUtils.getTimestampForFileName(timestamp) + "." + FILE_EXTENSION);
 		writer.writeLine(XMLUtils.header(Charsets.UTF_8.name(), USES_XML_VERSION_11));
 		writer.writeLine("<" + TAG_RECORDS_EXPORT + " " + ATTRIBUTE_EXPORTED_AT + "=\"" + ExportedAtFormatter.print(timestamp) + "\">");
 	}
@@ -189,15 +186,56 @@ public class XMLRecordsExporter extends SimpleExporter
 		});
 		
 		// Export:
-		List<Record> exported = new ArrayList<Record>();
+		return export(records.iterator(), records.size(), description, true, false);
+	}
+	
+	/**
+	 * Records are written in the order in which they are returned by the cursor. To get the same output as {@link #export(List, String)},
+	 * which sorts records by schema, the records should be queried using {@link Order#BY_MODEL_SCHEMA} as the first ordering.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.eximport.Exporter#export(uk.ac.ucl.excites.sapelli.storage.db.RecordCursor, java.lang.String, boolean)
+	 */
+	@Override
+	public ExportResult export(RecordCursor records, String description, boolean keepReferences)
+	{
+		try
+		{
+			if(records == null || !records.hasNext())
+				return ExportResult.NothingToExport();
+			return export(records, records.getCountHint(), description, false, keepReferences);
+		}
+		finally
+		{
+			if(records != null)
+				records.close();
+		}
+	}
+	
+	/**
+	 * @param records
+	 * @param total total number of records, or {@link RecordCursor#UNKNOWN_COUNT}
+	 * @param description
+	 * @param keepRecords whether the result should hold on to the exported {@link Record}s
+	 * @param keepReferences whether the result should hold on to the references of the exported records (ignored if {@code keepRecords} is {@code true})
+	 * @return
+	 */
+	private ExportResult export(Iterator<Record> records, int total, String description, boolean keepRecords, boolean keepReferences)
+	{
+		List<Record> exported = keepRecords ? new ArrayList<Record>() : null;
+		List<RecordReference> exportedRefs = !keepRecords && keepReferences ? new ArrayList<RecordReference>() : null;
+		int read = 0;
+		int exportedCount = 0;
 		helper.reset();
 		try
 		{
 			openWriter(description, DateTime.now());
 			tabs = 1;
 			currentRecord = null;
-			for(Record r : records)
+			while(records.hasNext())
 			{
+				Record r = records.next();
+				read++;
+				
 				// Skip unexportable records unless force not to:
 				if(!forceExportUnexportable && !r.getSchema().hasFlags(StorageClient.SCHEMA_FLAG_EXPORTABLE))
 					continue;
@@ -234,31 +272,58 @@ public class XMLRecordsExporter extends SimpleExporter
 					throw e; //!!!
 				}
 				writer.commitTransaction(); // write out buffer
-				exported.add(r);
+				if(exported != null)
+					exported.add(r);
+				else if(exportedRefs != null)
+					exportedRefs.add(r.getReference());
+				reportProgress(++exportedCount, total, false);
 				// TODO mark record as exported?
 			}
 			// Result...
-			if(exported.size() == records.size())
-				return ExportResult.Success(exported, exportFolder, Collections.singletonList(writer.getFile()));
+			reportProgress(exportedCount, total, true);
+			if(exportedCount == read)
+				return getResult(exported, exportedRefs, exportedCount, null, 0);
 			else
 			{
-				int unexportedCount = records.size() - exported.size();
-				return ExportResult.PartialFailure(exported, exportFolder, Collections.singletonList(writer.getFile()), new UnexportableRecordsException(unexportedCount), unexportedCount);
+				int unexportedCount = read - exportedCount;
+				return getResult(exported, exportedRefs, exportedCount, new UnexportableRecordsException(unexportedCount), unexportedCount);
 			}
 		}
 		catch(Exception e)
 		{
 			e.printStackTrace(System.err);
-			if(!exported.isEmpty())
-				return ExportResult.PartialFailure(exported, exportFolder, Collections.singletonList(writer.getFile()), e, records.size() - exported.size());
+			int unexportedCount = (total != RecordCursor.UNKNOWN_COUNT ? total : read) - exportedCount;
+			if(exportedCount > 0)
+				return getResult(exported, exportedRefs, exportedCount, e, unexportedCount);
 			else
-				return ExportResult.Failure(exportFolder, e, records.size());
+				return ExportResult.Failure(exportFolder, e, unexportedCount);
 		}
 		finally
 		{
 			closeWriter();
 		}
 	}
+	
+	/**
+	 * @param exported the exported records, or {@code null} if they were not kept
+	 * @param exportedRefs the references of the exported records, or {@code null} if they were not kept
+	 * @param exportedCount
+	 * @param failure may be {@code null}
+	 * @param unexportedCount
+	 * @return
+	 */
+	private ExportResult getResult(List<Record> exported, List<RecordReference> exportedRefs, int exportedCount, Exception failure, int unexportedCount)
+	{
+		List<File> files = Collections.singletonList(writer.getFile());
+		if(failure == null)
+			return	exported != null ?		ExportResult.Success(exported, exportFolder, files) :
+					exportedRefs != null ?	ExportResult.SuccessByReference(exportedRefs, exportFolder, files) :
+											ExportResult.Success(exportedCount, exportFolder, files);
+		else
+			return	exported != null ?		ExportResult.PartialFailure(exported, exportFolder, files, failure, unexportedCount) :
+					exportedRefs != null ?	ExportResult.PartialFailureByReference(exportedRefs, exportFolder, files, failure, unexportedCount) :
+											ExportResult.PartialFailure(exportedCount, exportFolder, files, failure, unexportedCount);
+	}
 
 	/**
 	 * Here we ensure that parent tags are inserted for ValueSetColumns when in nester or flat mode.
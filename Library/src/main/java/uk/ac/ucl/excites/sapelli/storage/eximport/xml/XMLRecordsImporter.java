@@ -34,6 +34,7 @@ import uk.ac.ucl.excites.sapelli.shared.util.xml.XMLAttributes;
 import uk.ac.ucl.excites.sapelli.storage.StorageClient;
 import uk.ac.ucl.excites.sapelli.storage.eximport.Exporter;
 import uk.ac.ucl.excites.sapelli.storage.eximport.Importer;
+import uk.ac.ucl.excites.sapelli.storage.eximport.RecordSink;
 import uk.ac.ucl.excites.sapelli.storage.eximport.SimpleExporter;
 import uk.ac.ucl.excites.sapelli.storage.eximport.helpers.ImportHelper;
 import uk.ac.ucl.excites.sapelli.storage.eximport.xml.XMLRecordsExporter.CompositeMode;
@@ -93,6 +94,11 @@ import uk.ac.ucl.excites.sapelli.storage.util.UnknownModelException;
 public class XMLRecordsImporter extends DocumentParser implements Importer
 {
 	
+	/**
+	 * Default number of records passed to the {@link RecordSink} at once
+	 */
+	static public final int DEFAULT_BATCH_SIZE = 100;
+	
 	protected final StorageClient client;
 	protected final Map<Long, Model> modelCache;
 	
@@ -102,9 +108,14 @@ public class XMLRecordsImporter extends DocumentParser implements Importer
 	protected final XMLImportHelper helper;
 	
 	protected TimeStamp exportedAt;
-	protected List<Record> records;
 	protected int recordTagCount;
 	
+	protected RecordSink sink;
+	protected int batchSize;
+	protected List<Record> batch;
+	protected int importedCount;
+	protected ProgressListener progressListener;
+	
 	protected Record currentRecord;
 	protected boolean v1xExport;
 	
@@ -127,9 +138,38 @@ public class XMLRecordsImporter extends DocumentParser implements Importer
 	@Override
 	public List<Record> importFrom(File xmlFile) throws UnknownModelException, IndexOutOfBoundsException, Exception
 	{
-		// Allocate a new records list:
-		records = new ArrayList<Record>(); // (don't reuse old one as this object is returned) 
-
+		RecordSink.Collector collector = new RecordSink.Collector(); // (don't reuse a list as it is returned)
+		importFrom(xmlFile, collector);
+		return collector.getRecords();
+	}
+	
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.eximport.Importer#importFrom(java.io.File, uk.ac.ucl.excites.sapelli.storage.eximport.RecordSink)
+	 */
+	@Override
+	public int importFrom(File xmlFile, RecordSink sink) throws UnknownModelException, IndexOutOfBoundsException, Exception
+	{
+		return importFrom(xmlFile, sink, DEFAULT_BATCH_SIZE);
+	}
+	
+	/**
+	 * Imports records from the given XML file and passes them on to the given {@link RecordSink}, in batches of (at most) the given size.
+	 * Only the records of the current batch are held in memory. A {@link RecordSink.Storer} can be used to store the records as they are imported.
+	 * 
+	 * @param xmlFile
+	 * @param sink
+	 * @param batchSize the maximum number of records passed to the sink at once
+	 * @return the number of imported records
+	 * @throws UnknownModelException
+	 * @throws IndexOutOfBoundsException
+	 * @throws Exception in case of another problem, including exceptions thrown by the sink
+	 * @see #importFrom(File, RecordSink)
+	 */
+	public int importFrom(File xmlFile, RecordSink sink, int batchSize) throws UnknownModelException, IndexOutOfBoundsException, Exception
+	{
+		if(batchSize < 1)
+			throw new IllegalArgumentException("batchSize must be at least 1");
+		
 		// (Re)initialise data structures:
 		exportedAt = null;
 		recordTagCount = 0;
@@ -138,12 +178,43 @@ public class XMLRecordsImporter extends DocumentParser implements Importer
 		cdataStringBldr.setLength(0);
 		currentRecord = null;
 		currentCP = null;
+		this.sink = sink;
+		this.batchSize = batchSize;
+		batch = new ArrayList<Record>(Math.min(batchSize, DEFAULT_BATCH_SIZE));
+		importedCount = 0;
 		
-		// Parse the file:
-		parse(open(xmlFile));
+		try
+		{
+			// Parse the file:
+			parse(open(xmlFile));
+			
+			// Pass on the last batch:
+			passOnBatch();
+		}
+		finally
+		{
+			this.sink = null;
+			batch = null;
+		}
 		
-		// Return parsed records:
-		return records;
+		// Return number of imported records:
+		return importedCount;
+	}
+	
+	/**
+	 * Passes the current batch of records on to the sink.
+	 * 
+	 * @throws Exception thrown by the sink
+	 */
+	protected void passOnBatch() throws Exception
+	{
+		if(batch.isEmpty())
+			return;
+		sink.accept(batch);
+		importedCount += batch.size();
+		batch.clear();
+		if(progressListener != null)
+			progressListener.importProgress(importedCount);
 	}
 
 	@Override
@@ -303,11 +374,24 @@ public class XMLRecordsImporter extends DocumentParser implements Importer
 			if(!currentRecord.isFilled(true)) // recursive "filledness" check
 				addWarning("Imported record (#" + recordTagCount + ") is incomplete: " + currentRecord.toString(false));
 			
-			// Add parsed record:
-			records.add(currentRecord);
+			// Add parsed record to batch:
+			batch.add(currentRecord);
 			
 			// And forget about it:
 			currentRecord = null;
+			
+			// Pass on the batch if it is full:
+			if(batch.size() >= batchSize)
+			{
+				try
+				{
+					passOnBatch();
+				}
+				catch(Exception e)
+				{
+					throw new SAXException(e); // (cause is rethrown by DocumentParser#parse(InputStream))
+				}
+			}
 		}
 		// Columns:
 		else if(currentCP != null && currentRecord != null && ignoreTags.isEmpty()) // currentCP not being null also implies there is a currentRecord and tagColumnDepths is not empty
@@ -378,6 +462,15 @@ public class XMLRecordsImporter extends DocumentParser implements Importer
 		return exportedAt;
 	}
 	
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.eximport.Importer#setProgressListener(uk.ac.ucl.excites.sapelli.storage.eximport.Importer.ProgressListener)
+	 */
+	@Override
+	public void setProgressListener(ProgressListener listener)
+	{
+		this.progressListener = listener;
+	}
+	
 	/**
 	 * Helper class which turns String representations into column values.
 	 * 
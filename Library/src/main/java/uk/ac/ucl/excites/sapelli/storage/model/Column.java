@@ -31,6 +31,7 @@ import java.util.List;
 import uk.ac.ucl.excites.sapelli.shared.io.BitArray;
 import uk.ac.ucl.excites.sapelli.shared.io.BitArrayInputStream;
 import uk.ac.ucl.excites.sapelli.shared.io.BitArrayOutputStream;
+import uk.ac.ucl.excites.sapelli.shared.io.BitCountingOutputStream;
 import uk.ac.ucl.excites.sapelli.shared.io.BitInputStream;
 import uk.ac.ucl.excites.sapelli.shared.io.BitOutputStream;
 import uk.ac.ucl.excites.sapelli.shared.io.BitWrapInputStream;
@@ -1314,6 +1315,102 @@ public abstract class Column<T> implements Serializable, Comparator<ValueSet<?>>
 		return toLossy(retrieveValue(valueSet));
 	}
 	
+	/**
+	 * Returns the exact number of bits the value for this column in the given valueSet takes up when written to a binary
+	 * representation (see {@link #retrieveAndWriteValue(ValueSet, BitOutputStream, boolean)}), including the presence-bit
+	 * in case of an optional column. The size is computed without encoding the value, which is not validated.
+	 * 
+	 * @param valueSet should not be {@code null}
+	 * @param lossless whether to assume lossless ({@code true}) or lossy ({@code false}) value encoding
+	 * @return the size in bits
+	 * @throws NullPointerException if the valueSet is {@code null}, or if the value is {@code null} on a non-optional column
+	 * @throws InvalidColumnException when this column is not part of the valueSet's {@link ColumnSet}, nor compatible with a column by the same name that is
+	 */
+	public final int retrieveValueSize(ValueSet<?> valueSet, boolean lossless) throws NullPointerException, InvalidColumnException
+	{
+		return getValueSize(retrieveValue(valueSet), lossless);
+	}
+	
+	/**
+	 * Returns the exact number of bits the given Object value takes up when written to a binary representation (see {@link #writeObject(Object, BitOutputStream, boolean)}).
+	 * The value will be casted to type {@code <T>}.
+	 * 
+	 * @param value the value, given as an {@link Object} (will be casted, not converted), may be {@code null} if column is optional
+	 * @param lossless whether to assume lossless ({@code true}) or lossy ({@code false}) value encoding
+	 * @return the size in bits
+	 * @throws ClassCastException when the value cannot be casted to the column's type {@code <T>}
+	 * @throws NullPointerException if value is {@code null} on an non-optional column
+	 * @see #getValueSize(Object, boolean)
+	 */
+	public final int getObjectSize(Object value, boolean lossless) throws ClassCastException, NullPointerException
+	{
+		return getValueSize(cast(value), lossless);
+	}
+	
+	/**
+	 * Returns the exact number of bits the given value takes up when written to a binary representation (see {@link #writeValue(Object, BitOutputStream, boolean)}),
+	 * including the presence-bit in case of an optional column. The size is computed without encoding the value, which is not validated.
+	 * 
+	 * @param value the value, may be {@code null} if column is optional
+	 * @param lossless whether to assume lossless ({@code true}) or lossy ({@code false}) value encoding
+	 * @return the size in bits
+	 * @throws NullPointerException if value is {@code null} on an non-optional column
+	 */
+	public final int getValueSize(T value, boolean lossless) throws NullPointerException
+	{
+		if(value == null)
+		{
+			if(!optional)
+				throw new NullPointerException("Non-optional value is null!");
+			return 1; // just the presence-bit
+		}
+		return (optional ? 1 : 0) + getNonNullValueSize(value, lossless);
+	}
+	
+	/**
+	 * Returns the exact number of bits the given (non-{@code null}) value takes up when written using {@link #write(Object, BitOutputStream, boolean)}.
+	 * 
+	 * The default implementation returns the fixed size if values of this column always take up the same number of bits,
+	 * otherwise it writes the value to a {@link BitCountingOutputStream}. Subclasses with variable-size values should
+	 * override this to compute the size without encoding the value.
+	 * 
+	 * @param value the value, assumed to be non-{@code null}
+	 * @param lossless whether to assume lossless ({@code true}) or lossy ({@code false}) value encoding
+	 * @return the size in bits
+	 */
+	protected int getNonNullValueSize(T value, boolean lossless)
+	{
+		int minSize = getMinimumValueSize(lossless);
+		if(minSize == getMaximumValueSize(lossless))
+			return minSize; // fixed size
+		BitCountingOutputStream counter = new BitCountingOutputStream();
+		try
+		{
+			write(value, counter, lossless);
+			return counter.getNumberOfBitsWritten();
+		}
+		catch(IOException ioe)
+		{
+			throw new IllegalStateException("Could not determine size of value", ioe); // should never happen
+		}
+		finally
+		{
+			StreamHelpers.SilentClose(counter);
+		}
+	}
+	
+	/**
+	 * Whether or not values of this column are objects which may be modified in place after they have been stored in
+	 * a {@link ValueSet} (e.g. lists or arrays), meaning the {@link ValueSet} cannot tell when their size changes.
+	 * 
+	 * @return {@code false} by default
+	 * @see ValueSet#getSize(boolean, Set, boolean)
+	 */
+	protected boolean hasMutableValues()
+	{
+		return false;
+	}
+	
 	/**
 	 * Returns the maximum effective number of bits values for this column take up
 	 * when written to the least-efficient (likely lossless) binary representation,
@@ -47,6 +47,39 @@ public class ColumnSet implements Serializable
 	static protected final int UNKNOWN_COLUMN_POSITION = -1;
 	
 	static public final Set<Column<?>> SKIP_NONE = Collections.<Column<?>> emptySet();
+	
+	static private final long FINGERPRINT_OFFSET_BASIS = 0xCBF29CE484222325L; // 64-bit FNV-1a offset basis
+	static private final long FINGERPRINT_PRIME = 0x100000001B3L; // 64-bit FNV-1a prime
+	static private final long FINGERPRINT_NOT_COMPUTED = 0L;
+	
+	/**
+	 * Mixes the given value into a 64-bit fingerprint (using FNV-1a, byte by byte).
+	 * 
+	 * @param fingerprint
+	 * @param value
+	 * @return the new fingerprint
+	 */
+	static protected long Fingerprint(long fingerprint, int value)
+	{
+		for(int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE)
+		{
+			fingerprint ^= (value >>> shift) & 0xFF;
+			fingerprint *= FINGERPRINT_PRIME;
+		}
+		return fingerprint;
+	}
+	
+	/**
+	 * Mixes the given value into a 64-bit fingerprint (using FNV-1a, byte by byte).
+	 * 
+	 * @param fingerprint
+	 * @param value
+	 * @return the new fingerprint
+	 */
+	static protected long Fingerprint(long fingerprint, long value)
+	{
+		return Fingerprint(Fingerprint(fingerprint, (int) value), (int) (value >>> 32));
+	}
 
 	// Dynamics-----------------------------------------------------------
 	protected final String name;
@@ -80,6 +113,21 @@ public class ColumnSet implements Serializable
 	 */
 	private transient List<Column<?>> allColumns;
 	
+	/**
+	 * Identity-keyed column to position mapping for all (and only) non-virtual ("real") columns, only available once the ColumnSet is sealed
+	 */
+	private transient ColumnPositionTable columnPositionTable;
+	
+	/**
+	 * Cached fingerprint of the name and the real columns, only used once the ColumnSet is sealed
+	 */
+	private transient long columnsFingerprint = FINGERPRINT_NOT_COMPUTED;
+	
+	/**
+	 * Cached structural fingerprint (see {@link #computeFingerprint()}), only used once the ColumnSet is sealed
+	 */
+	private transient long fingerprint = FINGERPRINT_NOT_COMPUTED;
+	
 	/**
 	 * Add a series of new, non-virtual columns to the ColumnSet. The columns' virtual versions are added only if {@link #useVirtualVersions} is {@code true}.
 	 * 
@@ -199,6 +247,8 @@ public class ColumnSet implements Serializable
 			throw new IllegalStateException("A ColumnSet must contain at least 1 (real) column before it can be sealed.");
 		// Do additional work (if any):
 		sealTasks();
+		// Build column position table:
+		this.columnPositionTable = new ColumnPositionTable(realColumns);
 		// Seal the ColumnSet:
 		this.sealed = true;
 	}
@@ -219,6 +269,66 @@ public class ColumnSet implements Serializable
 		return sealed;
 	}
 	
+	/**
+	 * Returns a 64-bit fingerprint of the structure of the ColumnSet. Equal ColumnSets have equal fingerprints, but
+	 * (although unlikely) the reverse is not guaranteed, hence the fingerprint can be used to quickly tell ColumnSets apart,
+	 * and as a compact identity token for caches, but only in combination with {@link #equals(Object)} to confirm a match.
+	 * Once the ColumnSet is sealed the fingerprint is computed only once.
+	 * 
+	 * @return the fingerprint
+	 */
+	public final long getFingerprint()
+	{
+		long fp = fingerprint;
+		if(fp == FINGERPRINT_NOT_COMPUTED || !sealed)
+		{
+			fp = computeFingerprint();
+			if(fp == FINGERPRINT_NOT_COMPUTED)
+				fp++; // (reserved value)
+			if(sealed)
+				fingerprint = fp;
+		}
+		return fp;
+	}
+	
+	/**
+	 * Computes the fingerprint returned by {@link #getFingerprint()}. Subclasses which take additional
+	 * members into account in {@link #equals(Object)} should override this to mix those in as well.
+	 * 
+	 * @return the fingerprint of the name and the real columns
+	 */
+	protected long computeFingerprint()
+	{
+		return getColumnsFingerprint();
+	}
+	
+	/**
+	 * To be called by subclasses when members which are taken into account in {@link #computeFingerprint()} change after sealing.
+	 */
+	protected final void invalidateFingerprint()
+	{
+		fingerprint = FINGERPRINT_NOT_COMPUTED;
+	}
+	
+	/**
+	 * @return the fingerprint of the name and the real columns
+	 */
+	private long getColumnsFingerprint()
+	{
+		long fp = columnsFingerprint;
+		if(fp == FINGERPRINT_NOT_COMPUTED || !sealed)
+		{
+			fp = Fingerprint(FINGERPRINT_OFFSET_BASIS, Objects.hashCode(name));
+			for(Column<?> column : realColumns)
+				fp = Fingerprint(fp, column.hashCode());
+			if(fp == FINGERPRINT_NOT_COMPUTED)
+				fp++; // (reserved value)
+			if(sealed)
+				columnsFingerprint = fp;
+		}
+		return fp;
+	}
+	
 	/**
 	 * @return the name
 	 */
@@ -282,6 +392,23 @@ public class ColumnSet implements Serializable
 			return UNKNOWN_COLUMN_POSITION;
 		return pos.intValue();
 	}
+	
+	/**
+	 * Returns the position of the given non-virtual column instance, based on object identity (i.e. without hashing its name).
+	 * Columns which are merely equal or compatible to one in the ColumnSet are not found this way, nor are any columns as long as the ColumnSet is not sealed.
+	 * 
+	 * @param realColumn a non-virtual column
+	 * @return the position of the given {@link Column} instance within this ColumnSet, or {@link #UNKNOWN_COLUMN_POSITION} if the ColumnSet does not contain this instance or is not sealed yet
+	 */
+	protected int getColumnPositionByIdentity(Column<?> realColumn)
+	{
+		if(!sealed)
+			return UNKNOWN_COLUMN_POSITION;
+		ColumnPositionTable table = columnPositionTable;
+		if(table == null) // (transient field is null after deserialisation)
+			columnPositionTable = table = new ColumnPositionTable(realColumns);
+		return table.getPosition(realColumn);
+	}
 
 	/**
 	 * Returns a list of all columns (including virtual ones if {@code includeVirtual} is {@code true}) in the order of addition.
@@ -594,6 +721,9 @@ public class ColumnSet implements Serializable
 		if(obj instanceof ColumnSet)
 		{
 			ColumnSet that = (ColumnSet) obj;
+			// Quick check of sealed ColumnSets using their cached fingerprints:
+			if(checkNames && checkColumns && this.sealed && that.sealed && this.getColumnsFingerprint() != that.getColumnsFingerprint())
+				return false;
 			// Schema & model name:
 			if(checkNames && !this.name.equals(that.name))
 				return false;
@@ -610,9 +740,9 @@ public class ColumnSet implements Serializable
 	@Override
 	public int hashCode()
 	{
+		long fp = getFingerprint(); // covers name, columns & any subclass members
 		int hash = 1;
-		hash = 31 * hash + Objects.hashCode(name);
-		hash = 31 * hash + realColumns.hashCode();
+		hash = 31 * hash + ((int) (fp ^ (fp >>> 32)));
 		hash = 31 * hash + (sealed ? 0 : 1);
 		return hash;
 	}
@@ -628,4 +758,58 @@ public class ColumnSet implements Serializable
 			c.accept(visitor);
 	}
 
+	/**
+	 * Small open-addressing hash table which maps column instances (by identity) to their position.
+	 * 
+	 * @author mstevens
+	 */
+	static private final class ColumnPositionTable
+	{
+		
+		private final Column<?>[] columns;
+		private final int[] positions;
+		private final int mask;
+		
+		/**
+		 * @param realColumns
+		 */
+		public ColumnPositionTable(List<Column<?>> realColumns)
+		{
+			int capacity = Integer.highestOneBit(Math.max(realColumns.size() * 2 - 1, 1)) << 1; // power of 2, at least twice the number of columns
+			this.columns = new Column<?>[capacity];
+			this.positions = new int[capacity];
+			this.mask = capacity - 1;
+			int position = 0;
+			for(Column<?> column : realColumns)
+			{
+				int slot = slot(column);
+				while(columns[slot] != null)
+					slot = (slot + 1) & mask; // linear probing
+				columns[slot] = column;
+				positions[slot] = position++;
+			}
+		}
+		
+		private int slot(Column<?> column)
+		{
+			int hash = System.identityHashCode(column);
+			return (hash ^ (hash >>> 16)) & mask;
+		}
+		
+		/**
+		 * @param column
+		 * @return the position of the column, or {@link ColumnSet#UNKNOWN_COLUMN_POSITION}
+		 */
+		public int getPosition(Column<?> column)
+		{
+			if(column == null)
+				return UNKNOWN_COLUMN_POSITION;
+			for(int slot = slot(column); columns[slot] != null; slot = (slot + 1) & mask)
+				if(columns[slot] == column)
+					return positions[slot];
+			return UNKNOWN_COLUMN_POSITION;
+		}
+		
+	}
+	
 }
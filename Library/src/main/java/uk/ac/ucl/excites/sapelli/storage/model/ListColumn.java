@@ -711,6 +711,28 @@ public abstract class ListColumn<L extends List<T>, T> extends Column<L> impleme
 	{
 		return sizeField.size() + (length * singleColumn.getMinimumSize(lossless));
 	}
+	
+	@Override
+	protected int getNonNullValueSize(L values, boolean lossless)
+	{
+		if(!singleColumn.isVariableSize(lossless))
+			return getMaximumValueSizeForLength(values.size(), lossless); // all elements take up the same number of bits
+		int size = sizeField.size();
+		for(T value : values)
+			size += singleColumn.getValueSize(value, lossless);
+		return size;
+	}
+	
+	/**
+	 * Lists can be modified in place.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.model.Column#hasMutableValues()
+	 */
+	@Override
+	protected boolean hasMutableValues()
+	{
+		return true;
+	}
 
 	/* (non-Javadoc)
 	 * @see uk.ac.ucl.excites.sapelli.storage.model.Column#canBeLossy()
@@ -166,6 +166,7 @@ public class Record extends RecordValueSet<Schema>
 				throw new IllegalArgumentException("The provived schema is not compatible with this record!");
 		}
 		this.columnSet = newSchema; // we accept the new one
+		discardCachedSize();
 	}
 	
 	/**
@@ -349,6 +349,8 @@ public class Schema extends ColumnSet implements Serializable
 			indexes = new ArrayList<Index>();
 		// Add to the indexes:
 		indexes.add(index);
+		// Indexes are part of the fingerprint (and may be added after sealing):
+		invalidateFingerprint();
 	}
 	
 	@Override
@@ -624,6 +626,9 @@ public class Schema extends ColumnSet implements Serializable
 		if(obj instanceof Schema)
 		{
 			Schema that = (Schema) obj;
+			// Quick check of sealed Schemata using their cached fingerprints:
+			if(checkNames && checkColumns && checkIndexes && this.isSealed() && that.isSealed() && this.getFingerprint() != that.getFingerprint())
+				return false;
 			// Compare as ColumnSets:
 			if(!super.equals(that, checkNames, checkColumns))
 				return false;
@@ -651,15 +656,15 @@ public class Schema extends ColumnSet implements Serializable
 	}
 	
 	@Override
-	public int hashCode()
-	{
-		int hash = super.hashCode();
-		hash = 31 * hash + tableName.hashCode();
-		hash = 31 * hash + ((int) (model.getID() ^ (model.getID() >>> 32))); // do not use model.hashCode() here!
-		hash = 31 * hash + modelSchemaNumber;
-		hash = 31 * hash + getIndexes().hashCode(); // contains primary key
-		hash = 31 * hash + flags;
-		return hash;
+	protected long computeFingerprint()
+	{
+		long fp = super.computeFingerprint(); // name & columns
+		fp = Fingerprint(fp, tableName.hashCode());
+		fp = Fingerprint(fp, model.getID()); // do not use model.hashCode() here!
+		fp = Fingerprint(fp, modelSchemaNumber);
+		fp = Fingerprint(fp, getIndexes().hashCode()); // contains primary key
+		fp = Fingerprint(fp, flags);
+		return fp;
 	}
 	
 	/**
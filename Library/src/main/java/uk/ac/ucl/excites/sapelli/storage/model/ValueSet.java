@@ -59,11 +59,22 @@ public class ValueSet<CS extends ColumnSet> implements Serializable
 	static final public char SERIALISATION_SEPARATOR = ',';
 	static final public char DEFAULT_SERIALISATION_DELIMITER = '`';
 	
+	static private final long NO_SIZE = 0L; // also the value after deserialisation
+	
 	// Dynamics------------------------------------------------------
 	protected /*final*/ CS columnSet; // not final (for now) for Record#setSchema() methods
 	
 	protected final Object[] values;
 	
+	/**
+	 * Cached total size (in bits) of the values of columns without mutable values (see {@link Column#hasMutableValues()}),
+	 * tagged with the {@code includeVirtual}/{@code lossless} variant it was computed for. {@link #NO_SIZE} when not cached.
+	 * Reset whenever a value is set.
+	 * 
+	 * @see #getSize(boolean, Set, boolean)
+	 */
+	private transient volatile long cachedFixedSize = NO_SIZE;
+	
 	/**
 	 * Creates a new, ValueSet with the given ColumnSet, with each Column's value set to its defaultValue (usually {@code null}).
 	 * 
@@ -172,6 +183,15 @@ public class ValueSet<CS extends ColumnSet> implements Serializable
 	protected void setValue(Column<?> column, Object value) throws InvalidColumnException
 	{
 		values[getPosition(column)] = value; // set value in array
+		discardCachedSize();
+	}
+	
+	/**
+	 * Forgets the cached size (see {@link #getSize(boolean, Set, boolean)}), to be called whenever values or columnSet change.
+	 */
+	protected final void discardCachedSize()
+	{
+		cachedFixedSize = NO_SIZE;
 	}
 	
 	/**
@@ -219,8 +239,12 @@ public class ValueSet<CS extends ColumnSet> implements Serializable
 	 */
 	protected final int getPosition(Column<?> column) throws InvalidColumnException
 	{
+		// Look-up position of the column instance itself (this avoids hashing the name & the compatibility check):
+		int position = columnSet.getColumnPositionByIdentity(column);
+		if(position != Schema.UNKNOWN_COLUMN_POSITION)
+			return position;
 		// Get column position by its name:
-		int position = columnSet.getColumnPosition(column.name);
+		position = columnSet.getColumnPosition(column.name);
 		// Check position:
 		if(position == Schema.UNKNOWN_COLUMN_POSITION)
 		{
@@ -886,30 +910,46 @@ public class ValueSet<CS extends ColumnSet> implements Serializable
 	}
 	
 	/**
-	 * Gets the size of this ValueSet in number of bits, when written to binary representation.
+	 * Gets the size of this ValueSet in number of bits, when written to binary representation (see {@link #writeToBitStream(BitOutputStream, boolean, Set, boolean)}).
+	 * 
+	 * The size is computed exactly, but without encoding any values (which are therefore not validated).
+	 * Unless columns are skipped the combined size of values which cannot be modified in place is cached
+	 * until a value is set, such that only list/array/ValueSet values need to be sized again on later calls.
 	 * 
+	 * @param includeVirtual whether or not to include the values corresponding to virtual columns
+	 * @param skipColumns columns *not* to include the values of
 	 * @param lossless whether to use lossless ({@code true}) or lossy ({@code false}) encoding
-	 * @return
+	 * @return the size in bits, or -1 in case of an error (e.g. a missing non-optional value)
 	 */
 	public int getSize(boolean includeVirtual, Set<? extends Column<?>> skipColumns, boolean lossless)
 	{
-		BitOutputStream out = null;
 		try
 		{
-			out = new BitWrapOutputStream(new ByteArrayOutputStream());
-			this.writeToBitStream(out, includeVirtual, skipColumns, lossless);
-			return out.getNumberOfBitsWritten();
+			boolean useCache = (skipColumns == null || skipColumns.isEmpty()) && columnSet.isSealed();
+			long variant = 1L + (includeVirtual ? 2L : 0L) + (lossless ? 1L : 0L); // never 0, so a cached size is never NO_SIZE
+			long cached = useCache ? cachedFixedSize : NO_SIZE;
+			boolean cacheHit = cached != NO_SIZE && (cached >>> Integer.SIZE) == variant;
+			int fixedSize = cacheHit ? (int) cached : 0;
+			int mutableSize = 0;
+			for(Column<?> col : columnSet.getColumns(includeVirtual))
+			{
+				if(skipColumns != null && skipColumns.contains(col))
+					continue;
+				if(col.hasMutableValues())
+					mutableSize += col.retrieveValueSize(this, lossless);
+				else if(!cacheHit)
+					fixedSize += col.retrieveValueSize(this, lossless);
+			}
+			if(useCache && !cacheHit)
+				cachedFixedSize = (variant << Integer.SIZE) | (fixedSize & 0xFFFFFFFFL);
+			return fixedSize + mutableSize;
 		}
-		catch(IOException e)
+		catch(Exception e)
 		{
 			System.err.println("Error upon calculating record size: " + e.getLocalizedMessage());
 			e.printStackTrace(System.err);
 			return -1;
 		}
-		finally
-		{
-			StreamHelpers.SilentClose(out);
-		}
 	}
 	
 	/**
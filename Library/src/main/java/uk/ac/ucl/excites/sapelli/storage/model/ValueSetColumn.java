@@ -310,6 +310,27 @@ public abstract class ValueSetColumn<VS extends ValueSet<CS>, CS extends ColumnS
 				getBinaryColumn(subCol).writeObject(subCol.retrieveValue(record), bitStream, lossless); // will also write optional bit of the subcolumn if it is optional
 	}
 	
+	@Override
+	protected int getNonNullValueSize(VS record, boolean lossless)
+	{
+		int size = 0;
+		for(Column<?> subCol : columnSet.getColumns(false))
+			if(lossless || !isColumnSkipped(subCol)) // never skip a column if lossless
+				size += getBinaryColumn(subCol).getObjectSize(subCol.retrieveValue(record), lossless); // includes optional bit of the subcolumn if it is optional
+		return size;
+	}
+	
+	/**
+	 * The values of the subcolumns can be changed in place.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.model.Column#hasMutableValues()
+	 */
+	@Override
+	protected boolean hasMutableValues()
+	{
+		return true;
+	}
+	
 	@Override
 	protected VS read(BitInputStream bitStream, boolean lossless) throws IOException
 	{
@@ -146,6 +146,19 @@ public class VirtualColumn<TT, ST> extends Column<TT>
 		targetColumn.write(value, bitStream, lossless);
 	}
 
+	@Override
+	protected int getNonNullValueSize(TT value, boolean lossless)
+	{
+		return targetColumn.getNonNullValueSize(value, lossless);
+	}
+
+	@Override
+	protected boolean hasMutableValues()
+	{
+		// the value is derived from the source column's value, so it can change whenever that one does:
+		return sourceColumn.hasMutableValues() || targetColumn.hasMutableValues();
+	}
+
 	@Override
 	protected TT read(BitInputStream bitStream, boolean lossless) throws IOException
 	{
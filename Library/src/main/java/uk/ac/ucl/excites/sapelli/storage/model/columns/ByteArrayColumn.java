@@ -125,7 +125,7 @@ public class ByteArrayColumn extends Column<byte[]>
 	protected byte[] read(BitInputStream bitStream, boolean lossless) throws IOException
 	{
 		//Read length:
-		int numberOfBytes = sizeField.read(bitStream).intValue();
+		int numberOfBytes = sizeField.readInt(bitStream);
 		//Read actual bytes:
 		return bitStream.readBytes(numberOfBytes);
 	}
@@ -159,6 +159,23 @@ public class ByteArrayColumn extends Column<byte[]>
 	{
 		return sizeField.size() + sizeField.highBound().intValue() * Byte.SIZE;
 	}
+	
+	@Override
+	protected int getNonNullValueSize(byte[] value, boolean lossless)
+	{
+		return sizeField.size() + value.length * Byte.SIZE;
+	}
+	
+	/**
+	 * Arrays can be modified in place.
+	 * 
+	 * @see uk.ac.ucl.excites.sapelli.storage.model.Column#hasMutableValues()
+	 */
+	@Override
+	protected boolean hasMutableValues()
+	{
+		return true;
+	}
 
 	/* (non-Javadoc)
 	 * @see uk.ac.ucl.excites.sapelli.storage.model.Column#canBeLossy()
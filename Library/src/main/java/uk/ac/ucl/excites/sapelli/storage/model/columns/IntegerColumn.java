@@ -19,6 +19,7 @@
 package uk.ac.ucl.excites.sapelli.storage.model.columns;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.math.BigInteger;
 
 import uk.ac.ucl.excites.sapelli.shared.io.BitInputStream;
@@ -52,6 +53,11 @@ public class IntegerColumn extends NumberColumn<Long>
 	private final int size; // size in number of bits
 	private final boolean signed;
 	private final IntegerRangeMapping rangeMapping;
+	/**
+	 * Allowed (inclusive) value bounds, computed upon construction & deserialisation (see {@link #initialiseBounds()}), so that validation does not involve BigIntegers
+	 */
+	private transient long minValue;
+	private transient long maxValue;
 	
 	/**
 	 * Creates an IntegerColumn with the default number of bits ({@value #DEFAULT_SIZE_BITS}) and the default signedness ({@value #DEFAULT_SIGNEDNESS})
@@ -189,6 +195,7 @@ public class IntegerColumn extends NumberColumn<Long>
 		this.size = sizeBits;
 		this.signed = signed;
 		this.rangeMapping = null;
+		initialiseBounds();
 	}
 
 	/**
@@ -280,6 +287,21 @@ public class IntegerColumn extends NumberColumn<Long>
 			throw new IllegalArgumentException("The given rangeMapping accepts BigInteger values of magnitudes beyond the bounds of Long integers");
 		this.size = rangeMapping.size();
 		this.signed = rangeMapping.lowBound().compareTo(BigInteger.ZERO) < 0;
+		initialiseBounds();
+	}
+	
+	private void initialiseBounds()
+	{
+		minValue = (rangeMapping != null ?	rangeMapping.lowBound() :
+											BigIntegerUtils.GetMinValue(size, signed)).longValue();
+		maxValue = (rangeMapping != null ?	rangeMapping.highBound() :
+											BigIntegerUtils.GetMaxValue(size, signed)).longValue();
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		initialiseBounds(); // (bounds are transient)
 	}
 	
 	@Override
@@ -374,10 +396,10 @@ public class IntegerColumn extends NumberColumn<Long>
 	@Override
 	protected void validate(Long value) throws InvalidValueException
 	{
-		if(rangeMapping != null && !rangeMapping.inStrictRange(value))
-			throw new InvalidValueException("The value (" + value + ") is not in the allowed range: " + rangeMapping.getStrictRangeString() + ".", this);
-		if(value < getMinValue() || value > getMaxValue())
+		if(value < minValue || value > maxValue)
 		{
+			if(rangeMapping != null)
+				throw new InvalidValueException("The value (" + value + ") is not in the allowed range: " + rangeMapping.getStrictRangeString() + ".", this);
 			if(!signed && value < 0l)
 				throw new InvalidValueException("Cannot store negative value (" + value + ") as an unsigned integer.", this);
 			//else:
@@ -387,14 +409,12 @@ public class IntegerColumn extends NumberColumn<Long>
 	
 	public long getMinValue()
 	{
-		return (rangeMapping != null ?	rangeMapping.lowBound() :
-										BigIntegerUtils.GetMinValue(size, signed)).longValue();
+		return minValue;
 	}
 
 	public long getMaxValue()
 	{
-		return (rangeMapping != null ?	rangeMapping.highBound() :
-										BigIntegerUtils.GetMaxValue(size, signed)).longValue();
+		return maxValue;
 	}
 	
 	@Override
@@ -410,7 +430,7 @@ public class IntegerColumn extends NumberColumn<Long>
 	protected Long read(BitInputStream bitStream, boolean lossless) throws IOException
 	{
 		if(rangeMapping != null)
-			return rangeMapping.read(bitStream).longValue();
+			return rangeMapping.readLong(bitStream);
 		else
 			return bitStream.readInteger(size, signed);
 	}
@@ -442,7 +442,7 @@ public class StringColumn extends ComparableColumn<String> implements ListLikeCo
 	protected String read(BitInputStream bitStream, boolean lossless) throws IOException
 	{
 		//Read length:
-		int numberOfBytes = sizeField.read(bitStream).intValue();
+		int numberOfBytes = sizeField.readInt(bitStream);
 		//Read actual string:
 		return bitStream.readString(numberOfBytes, getCharset());
 	}
@@ -459,6 +459,12 @@ public class StringColumn extends ComparableColumn<String> implements ListLikeCo
 		return sizeField.size() + (getMaximumBytes() * Byte.SIZE);
 	}
 	
+	@Override
+	protected int getNonNullValueSize(String value, boolean lossless)
+	{
+		return sizeField.size() + (StringUtils.sizeBytes(value, getCharset()) * Byte.SIZE);
+	}
+	
 	public int getMaximumBytes()
 	{
 		return sizeField.highBound().intValue();
@@ -0,0 +1,309 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.storage.queries;
+
+import java.util.List;
+
+import uk.ac.ucl.excites.sapelli.storage.model.Column;
+import uk.ac.ucl.excites.sapelli.storage.model.ComparableColumn;
+import uk.ac.ucl.excites.sapelli.storage.model.Record;
+import uk.ac.ucl.excites.sapelli.storage.model.columns.IntegerColumn;
+import uk.ac.ucl.excites.sapelli.storage.model.columns.NumberColumn;
+import uk.ac.ucl.excites.sapelli.storage.queries.constraints.Constraint;
+import uk.ac.ucl.excites.sapelli.storage.queries.sources.Source;
+import uk.ac.ucl.excites.sapelli.storage.util.ColumnPointer;
+
+/**
+ * Class which expresses a {@link Query} which computes an aggregate (count, min, max, sum or average) of the values
+ * in a {@link ComparableColumn} across the {@link Record}s resulting from a {@link RecordsQuery}.
+ *
+ * The type of the result depends on the {@link Function}:
+ * <ul>
+ * <li>{@link Function#COUNT}: a {@link Long}, the number of non-{@code null} values;</li>
+ * <li>{@link Function#MIN}/{@link Function#MAX}: a value of the column's type;</li>
+ * <li>{@link Function#SUM}: a {@link Long} (for {@link IntegerColumn}s) or a {@link Double} (for other {@link NumberColumn}s);</li>
+ * <li>{@link Function#AVG}: a {@link Double}.</li>
+ * </ul>
+ * Like in SQL all functions except {@link Function#COUNT} result in {@code null} if there are no non-{@code null} values.
+ *
+ * @author mstevens
+ */
+public class AggregateQuery extends Query<Object>
+{
+
+	// STATICS-------------------------------------------------------
+	/**
+	 * @author mstevens
+	 */
+	static public enum Function
+	{
+		COUNT,
+		MIN,
+		MAX,
+		SUM,
+		AVG
+	}
+
+	static public AggregateQuery Count(ComparableColumn<?> column, RecordsQuery recordsQuery)
+	{
+		return new AggregateQuery(Function.COUNT, new ColumnPointer<ComparableColumn<?>>(column), recordsQuery);
+	}
+
+	static public AggregateQuery Min(ComparableColumn<?> column, RecordsQuery recordsQuery)
+	{
+		return new AggregateQuery(Function.MIN, new ColumnPointer<ComparableColumn<?>>(column), recordsQuery);
+	}
+
+	static public AggregateQuery Max(ComparableColumn<?> column, RecordsQuery recordsQuery)
+	{
+		return new AggregateQuery(Function.MAX, new ColumnPointer<ComparableColumn<?>>(column), recordsQuery);
+	}
+
+	static public AggregateQuery Sum(NumberColumn<?> column, RecordsQuery recordsQuery)
+	{
+		return new AggregateQuery(Function.SUM, new ColumnPointer<ComparableColumn<?>>(column), recordsQuery);
+	}
+
+	static public AggregateQuery Avg(NumberColumn<?> column, RecordsQuery recordsQuery)
+	{
+		return new AggregateQuery(Function.AVG, new ColumnPointer<ComparableColumn<?>>(column), recordsQuery);
+	}
+
+	/**
+	 * Checks whether the given function can be computed over the given column.
+	 *
+	 * @param function
+	 * @param column
+	 * @throws IllegalArgumentException when the function cannot be computed over the column
+	 */
+	static void CheckFunction(Function function, Column<?> column) throws IllegalArgumentException
+	{
+		if(function == null)
+			throw new NullPointerException("function cannot be null!");
+		if(!(column instanceof ComparableColumn))
+			throw new IllegalArgumentException("Aggregates can only be computed over a " + ComparableColumn.class.getSimpleName() + "!");
+		if((function == Function.SUM || function == Function.AVG) && !(column instanceof NumberColumn))
+			throw new IllegalArgumentException(function.name() + " can only be computed over a " + NumberColumn.class.getSimpleName() + "!");
+	}
+
+	// DYNAMICS------------------------------------------------------
+	private final Function function;
+	private final ColumnPointer<ComparableColumn<?>> columnPointer;
+	private final RecordsQuery recordsQuery;
+
+	/**
+	 * @param function
+	 * @param columnPointer
+	 * @param recordsQuery may be {@code null}, in which case the aggregate is computed over all records (of any schema)
+	 */
+	public AggregateQuery(Function function, ColumnPointer<ComparableColumn<?>> columnPointer, RecordsQuery recordsQuery)
+	{
+		CheckFunction(function, columnPointer.getColumn());
+		this.function = function;
+		this.columnPointer = columnPointer;
+		this.recordsQuery = recordsQuery != null ? recordsQuery : RecordsQuery.ALL;
+	}
+
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.queries.Query#execute(java.util.List)
+	 */
+	@Override
+	public Object execute(List<Record> sourceRecords)
+	{
+		return execute(sourceRecords, true);
+	}
+
+	/**
+	 * Executes the query in Java runtime memory, using a list of records as source.
+	 *
+	 * @param sourceRecords
+	 * @param executeRecordsQuery whether or not the {@code recordsQuery} must be applied to the source records first (if {@code false} it is assumed this has already happened)
+	 * @return the aggregate value (may be {@code null})
+	 */
+	public Object execute(List<Record> sourceRecords, boolean executeRecordsQuery)
+	{
+		List<Record> records = executeRecordsQuery ? recordsQuery.execute(sourceRecords) : sourceRecords;
+		Accumulator accumulator = new Accumulator(function, getColumn());
+		if(records != null)
+			for(Record record : records)
+				accumulator.add(columnPointer.retrieveValue(record));
+		return accumulator.getResult();
+	}
+
+	/**
+	 * @return the function
+	 */
+	public Function getFunction()
+	{
+		return function;
+	}
+
+	/**
+	 * @return the columnPointer
+	 */
+	public ColumnPointer<ComparableColumn<?>> getColumnPointer()
+	{
+		return columnPointer;
+	}
+
+	/**
+	 * @return the column
+	 */
+	public ComparableColumn<?> getColumn()
+	{
+		return columnPointer.getColumn();
+	}
+
+	/**
+	 * @return the recordsQuery
+	 */
+	public RecordsQuery getRecordsQuery()
+	{
+		return recordsQuery;
+	}
+
+	@Override
+	public Source getSource()
+	{
+		return recordsQuery.source;
+	}
+
+	@Override
+	public Constraint getConstraints()
+	{
+		return recordsQuery.constraints;
+	}
+
+	@Override
+	public Order getOrder()
+	{
+		return recordsQuery.order;
+	}
+
+	@Override
+	public int getLimit()
+	{
+		return recordsQuery.limit;
+	}
+
+	/**
+	 * Computes an aggregate incrementally, either from individual values or by merging partial aggregates (e.g. computed per database table).
+	 *
+	 * @author mstevens
+	 */
+	static public class Accumulator
+	{
+
+		private final Function function;
+		private final Column<Object> column;
+		private final boolean integral;
+
+		private long count = 0;
+		private Object extreme = null;
+		private long longSum = 0;
+		private double doubleSum = 0.0d;
+
+		/**
+		 * @param function
+		 * @param column may be {@code null} only if the function is {@link Function#COUNT}, in which case records, rather than values, are counted (using {@code merge(1, null)})
+		 */
+		@SuppressWarnings("unchecked")
+		public Accumulator(Function function, Column<?> column)
+		{
+			if(column != null || function != Function.COUNT)
+				CheckFunction(function, column);
+			this.function = function;
+			this.column = (Column<Object>) column;
+			this.integral = column instanceof IntegerColumn;
+		}
+
+		/**
+		 * Adds a single value.
+		 *
+		 * @param value may be {@code null}, in which case it is ignored
+		 */
+		public void add(Object value)
+		{
+			merge(value != null ? 1 : 0, value);
+		}
+
+		/**
+		 * Merges a partial aggregate.
+		 *
+		 * @param partialCount the number of non-{@code null} values covered by the partial aggregate
+		 * @param partialValue the extreme value (for {@link Function#MIN}/{@link Function#MAX}), the sum (for {@link Function#SUM}/{@link Function#AVG}), or {@code null}
+		 */
+		public void merge(long partialCount, Object partialValue)
+		{
+			count += partialCount;
+			if(partialValue == null)
+				return;
+			switch(function)
+			{
+				case MIN :
+				case MAX :
+					if(extreme == null)
+						extreme = partialValue;
+					else
+					{
+						int comparison = column.compareValues(column.convert(partialValue), column.convert(extreme));
+						if(function == Function.MIN ? comparison < 0 : comparison > 0)
+							extreme = partialValue;
+					}
+					break;
+				case SUM :
+				case AVG :
+					if(integral)
+						longSum += ((Number) partialValue).longValue();
+					else
+						doubleSum += ((Number) partialValue).doubleValue();
+					break;
+				default :
+					break;
+			}
+		}
+
+		/**
+		 * @return the aggregate value, see {@link AggregateQuery}
+		 */
+		public Object getResult()
+		{
+			switch(function)
+			{
+				case COUNT :
+					return Long.valueOf(count);
+				case MIN :
+				case MAX :
+					return extreme;
+				case SUM :
+					if(count == 0)
+						return null;
+					return integral ? (Object) Long.valueOf(longSum) : (Object) Double.valueOf(doubleSum);
+				case AVG :
+					if(count == 0)
+						return null;
+					return Double.valueOf((integral ? (double) longSum : doubleSum) / count);
+				default :
+					return null;
+			}
+		}
+
+	}
+
+}
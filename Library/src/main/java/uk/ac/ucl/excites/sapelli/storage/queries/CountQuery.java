@@ -0,0 +1,116 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.storage.queries;
+
+import java.util.List;
+
+import uk.ac.ucl.excites.sapelli.storage.model.Record;
+import uk.ac.ucl.excites.sapelli.storage.model.Schema;
+import uk.ac.ucl.excites.sapelli.storage.queries.constraints.Constraint;
+import uk.ac.ucl.excites.sapelli.storage.queries.sources.Source;
+
+/**
+ * Class which expresses a {@link Query} that counts the {@link Record}s resulting from a {@link RecordsQuery} (taking into account its limit, if any).
+ *
+ * @author mstevens
+ */
+public class CountQuery extends Query<Long>
+{
+
+	private final RecordsQuery recordsQuery;
+
+	/**
+	 * Counts all records (of any schema).
+	 */
+	public CountQuery()
+	{
+		this((RecordsQuery) null);
+	}
+
+	/**
+	 * @param sourceSchema
+	 */
+	public CountQuery(Schema sourceSchema)
+	{
+		this(new RecordsQuery(Source.From(sourceSchema)));
+	}
+
+	/**
+	 * @param recordsQuery
+	 */
+	public CountQuery(RecordsQuery recordsQuery)
+	{
+		this.recordsQuery = recordsQuery != null ? recordsQuery : RecordsQuery.ALL;
+	}
+
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.queries.Query#execute(java.util.List)
+	 */
+	@Override
+	public Long execute(List<Record> sourceRecords)
+	{
+		return execute(sourceRecords, true);
+	}
+
+	/**
+	 * Executes the query in Java runtime memory, using a list of records as source.
+	 *
+	 * @param sourceRecords
+	 * @param executeRecordsQuery whether or not the {@code recordsQuery} must be applied to the source records first (if {@code false} it is assumed this has already happened)
+	 * @return the number of records
+	 */
+	public Long execute(List<Record> sourceRecords, boolean executeRecordsQuery)
+	{
+		List<Record> records = executeRecordsQuery ? recordsQuery.execute(sourceRecords) : sourceRecords;
+		return Long.valueOf(records != null ? records.size() : 0);
+	}
+
+	/**
+	 * @return the recordsQuery
+	 */
+	public RecordsQuery getRecordsQuery()
+	{
+		return recordsQuery;
+	}
+
+	@Override
+	public Source getSource()
+	{
+		return recordsQuery.source;
+	}
+
+	@Override
+	public Constraint getConstraints()
+	{
+		return recordsQuery.constraints;
+	}
+
+	@Override
+	public Order getOrder()
+	{
+		return recordsQuery.order;
+	}
+
+	@Override
+	public int getLimit()
+	{
+		return recordsQuery.limit;
+	}
+
+}
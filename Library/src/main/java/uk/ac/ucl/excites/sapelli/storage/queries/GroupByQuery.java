@@ -0,0 +1,194 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.storage.queries;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.ucl.excites.sapelli.storage.model.Column;
+import uk.ac.ucl.excites.sapelli.storage.model.ComparableColumn;
+import uk.ac.ucl.excites.sapelli.storage.model.Record;
+import uk.ac.ucl.excites.sapelli.storage.queries.AggregateQuery.Accumulator;
+import uk.ac.ucl.excites.sapelli.storage.queries.AggregateQuery.Function;
+import uk.ac.ucl.excites.sapelli.storage.queries.constraints.Constraint;
+import uk.ac.ucl.excites.sapelli.storage.queries.sources.Source;
+import uk.ac.ucl.excites.sapelli.storage.util.ColumnPointer;
+
+/**
+ * Class which expresses a {@link Query} which groups the {@link Record}s resulting from a {@link RecordsQuery} by the value in a column,
+ * and computes an aggregate for each group (by default the number of records in the group).
+ *
+ * The result is a {@link Map} from group values (which may include {@code null}) to aggregate values (see {@link AggregateQuery}), in no particular order.
+ *
+ * @author mstevens
+ */
+public class GroupByQuery extends Query<Map<Object, Object>>
+{
+
+	// STATICS-------------------------------------------------------
+	/**
+	 * @param groupByColumn
+	 * @param recordsQuery
+	 * @return a query which counts the number of records per value of the groupByColumn
+	 */
+	static public GroupByQuery CountBy(Column<?> groupByColumn, RecordsQuery recordsQuery)
+	{
+		return new GroupByQuery(new ColumnPointer<Column<?>>(groupByColumn), Function.COUNT, null, recordsQuery);
+	}
+
+	/**
+	 * @param groups
+	 * @return map of group values to the results of their accumulators
+	 */
+	static public Map<Object, Object> GetResults(Map<Object, Accumulator> groups)
+	{
+		Map<Object, Object> results = new LinkedHashMap<Object, Object>(groups.size());
+		for(Map.Entry<Object, Accumulator> group : groups.entrySet())
+			results.put(group.getKey(), group.getValue().getResult());
+		return results;
+	}
+
+	// DYNAMICS------------------------------------------------------
+	private final ColumnPointer<?> groupByColumnPointer;
+	private final Function function;
+	private final ColumnPointer<ComparableColumn<?>> aggregateColumnPointer;
+	private final RecordsQuery recordsQuery;
+
+	/**
+	 * @param groupByColumnPointer
+	 * @param function
+	 * @param aggregateColumnPointer may be {@code null} only if the function is {@link Function#COUNT}, in which case the records in each group are counted
+	 * @param recordsQuery may be {@code null}, in which case all records (of any schema) are grouped
+	 */
+	public GroupByQuery(ColumnPointer<?> groupByColumnPointer, Function function, ColumnPointer<ComparableColumn<?>> aggregateColumnPointer, RecordsQuery recordsQuery)
+	{
+		if(groupByColumnPointer == null)
+			throw new NullPointerException("groupByColumnPointer cannot be null!");
+		if(aggregateColumnPointer != null || function != Function.COUNT)
+			AggregateQuery.CheckFunction(function, aggregateColumnPointer != null ? aggregateColumnPointer.getColumn() : null);
+		this.groupByColumnPointer = groupByColumnPointer;
+		this.function = function;
+		this.aggregateColumnPointer = aggregateColumnPointer;
+		this.recordsQuery = recordsQuery != null ? recordsQuery : RecordsQuery.ALL;
+	}
+
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.queries.Query#execute(java.util.List)
+	 */
+	@Override
+	public Map<Object, Object> execute(List<Record> sourceRecords)
+	{
+		return execute(sourceRecords, true);
+	}
+
+	/**
+	 * Executes the query in Java runtime memory, using a list of records as source.
+	 *
+	 * @param sourceRecords
+	 * @param executeRecordsQuery whether or not the {@code recordsQuery} must be applied to the source records first (if {@code false} it is assumed this has already happened)
+	 * @return map of group values to aggregate values
+	 */
+	public Map<Object, Object> execute(List<Record> sourceRecords, boolean executeRecordsQuery)
+	{
+		List<Record> records = executeRecordsQuery ? recordsQuery.execute(sourceRecords) : sourceRecords;
+		Map<Object, Accumulator> groups = new LinkedHashMap<Object, Accumulator>();
+		if(records != null)
+			for(Record record : records)
+			{
+				Object groupValue = groupByColumnPointer.retrieveValue(record);
+				Accumulator accumulator = groups.get(groupValue);
+				if(accumulator == null)
+				{
+					accumulator = createAccumulator();
+					groups.put(groupValue, accumulator);
+				}
+				if(aggregateColumnPointer != null)
+					accumulator.add(aggregateColumnPointer.retrieveValue(record));
+				else
+					accumulator.merge(1, null);
+			}
+		return GetResults(groups);
+	}
+
+	/**
+	 * @return a new {@link Accumulator} to compute the aggregate value of a single group
+	 */
+	public Accumulator createAccumulator()
+	{
+		return new Accumulator(function, aggregateColumnPointer != null ? aggregateColumnPointer.getColumn() : null);
+	}
+
+	/**
+	 * @return the groupByColumnPointer
+	 */
+	public ColumnPointer<?> getGroupByColumnPointer()
+	{
+		return groupByColumnPointer;
+	}
+
+	/**
+	 * @return the function
+	 */
+	public Function getFunction()
+	{
+		return function;
+	}
+
+	/**
+	 * @return the aggregateColumnPointer, may be {@code null}
+	 */
+	public ColumnPointer<ComparableColumn<?>> getAggregateColumnPointer()
+	{
+		return aggregateColumnPointer;
+	}
+
+	/**
+	 * @return the recordsQuery
+	 */
+	public RecordsQuery getRecordsQuery()
+	{
+		return recordsQuery;
+	}
+
+	@Override
+	public Source getSource()
+	{
+		return recordsQuery.source;
+	}
+
+	@Override
+	public Constraint getConstraints()
+	{
+		return recordsQuery.constraints;
+	}
+
+	@Override
+	public Order getOrder()
+	{
+		return recordsQuery.order;
+	}
+
+	@Override
+	public int getLimit()
+	{
+		return recordsQuery.limit;
+	}
+
+}
@@ -38,6 +38,8 @@ public interface ConstraintVisitor
 	
 	public void visit(BitFlagConstraint bitFlagConstr);
 	
+	public void visit(SpatialConstraint spatialConstr);
+	
 	public void visit(DummyConstraint dummyConstr);
 
 }
@@ -0,0 +1,343 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.storage.queries.constraints;
+
+import java.util.List;
+
+import uk.ac.ucl.excites.sapelli.storage.model.Column;
+import uk.ac.ucl.excites.sapelli.storage.model.Record;
+import uk.ac.ucl.excites.sapelli.storage.types.LineColumn;
+import uk.ac.ucl.excites.sapelli.storage.types.Location;
+import uk.ac.ucl.excites.sapelli.storage.types.LocationColumn;
+import uk.ac.ucl.excites.sapelli.storage.types.PolygonColumn;
+import uk.ac.ucl.excites.sapelli.storage.util.ColumnPointer;
+
+/**
+ * Constraint which restricts the values of a {@link LocationColumn}, {@link LineColumn} or {@link PolygonColumn} to an area,
+ * which is either a bounding box (see {@link #WithinBoundingBox(ColumnPointer, double, double, double, double)}) or a circle
+ * (see {@link #WithinRadius(ColumnPointer, Location, double)}).
+ *
+ * <p>{@link Location}s match if they lie within the area. Distances are computed using the equirectangular approximation,
+ * which is accurate for radii up to tens of kilometres (except close to the poles).<br/>
+ * {@link LineColumn} and {@link PolygonColumn} values match if their bounding box intersects the bounding box of the area.</p>
+ *
+ * <p>Bounding boxes crossing the 180th meridian are not supported.</p>
+ *
+ * @author mstevens
+ */
+public class SpatialConstraint extends Constraint
+{
+
+	// STATICS-------------------------------------------------------
+	/**
+	 * Mean radius of the Earth in metres
+	 */
+	static public final double EARTH_RADIUS = 6371008.8;
+
+	/**
+	 * @param column a {@link LocationColumn}, {@link LineColumn} or {@link PolygonColumn}
+	 * @param minLatitude
+	 * @param minLongitude
+	 * @param maxLatitude
+	 * @param maxLongitude
+	 * @return
+	 */
+	static public SpatialConstraint WithinBoundingBox(Column<?> column, double minLatitude, double minLongitude, double maxLatitude, double maxLongitude)
+	{
+		return WithinBoundingBox(new ColumnPointer<Column<?>>(column), minLatitude, minLongitude, maxLatitude, maxLongitude);
+	}
+
+	/**
+	 * @param columnPointer pointer to a {@link LocationColumn}, {@link LineColumn} or {@link PolygonColumn}
+	 * @param minLatitude
+	 * @param minLongitude
+	 * @param maxLatitude
+	 * @param maxLongitude
+	 * @return
+	 */
+	static public SpatialConstraint WithinBoundingBox(ColumnPointer<?> columnPointer, double minLatitude, double minLongitude, double maxLatitude, double maxLongitude)
+	{
+		return new SpatialConstraint(columnPointer, minLatitude, minLongitude, maxLatitude, maxLongitude, null, 0);
+	}
+
+	/**
+	 * @param column a {@link LocationColumn}, {@link LineColumn} or {@link PolygonColumn}
+	 * @param centre
+	 * @param radius in metres
+	 * @return
+	 */
+	static public SpatialConstraint WithinRadius(Column<?> column, Location centre, double radius)
+	{
+		return WithinRadius(new ColumnPointer<Column<?>>(column), centre, radius);
+	}
+
+	/**
+	 * @param columnPointer pointer to a {@link LocationColumn}, {@link LineColumn} or {@link PolygonColumn}
+	 * @param centre
+	 * @param radius in metres
+	 * @return
+	 */
+	static public SpatialConstraint WithinRadius(ColumnPointer<?> columnPointer, Location centre, double radius)
+	{
+		if(centre == null)
+			throw new NullPointerException("Please provide a non-null centre");
+		if(radius < 0)
+			throw new IllegalArgumentException("Radius cannot be negative");
+		double latDelta = Math.toDegrees(radius / EARTH_RADIUS);
+		double lonScale = Math.cos(Math.toRadians(centre.getLatitude()));
+		double lonDelta = lonScale > latDelta / 180.0d ? latDelta / lonScale : 180.0d; // (near the poles the circle spans all longitudes)
+		return new SpatialConstraint(	columnPointer,
+										centre.getLatitude() - latDelta,
+										centre.getLongitude() - lonDelta,
+										centre.getLatitude() + latDelta,
+										centre.getLongitude() + lonDelta,
+										centre,
+										radius);
+	}
+
+	/**
+	 * @param column
+	 * @return whether or not the given column can be used in a SpatialConstraint
+	 */
+	static public boolean IsSpatialColumn(Column<?> column)
+	{
+		return column instanceof LocationColumn || column instanceof LineColumn || column instanceof PolygonColumn;
+	}
+
+	/**
+	 * @param points
+	 * @return the bounding box of the given points as an array ({minLatitude, minLongitude, maxLatitude, maxLongitude}), or {@code null} if there are no points
+	 */
+	static public double[] GetBoundingBox(List<Location> points)
+	{
+		if(points == null || points.isEmpty())
+			return null;
+		double[] bbox = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for(Location point : points)
+		{
+			bbox[0] = Math.min(bbox[0], point.getLatitude());
+			bbox[1] = Math.min(bbox[1], point.getLongitude());
+			bbox[2] = Math.max(bbox[2], point.getLatitude());
+			bbox[3] = Math.max(bbox[3], point.getLongitude());
+		}
+		return bbox;
+	}
+
+	// DYNAMICS------------------------------------------------------
+	private final ColumnPointer<?> columnPointer;
+	private final double minLatitude;
+	private final double minLongitude;
+	private final double maxLatitude;
+	private final double maxLongitude;
+	private final Location centre;
+	private final double radius;
+
+	private SpatialConstraint(ColumnPointer<?> columnPointer, double minLatitude, double minLongitude, double maxLatitude, double maxLongitude, Location centre, double radius)
+	{
+		// Column checks:
+		if(columnPointer == null || columnPointer.getColumn() == null)
+			throw new NullPointerException("Please provide a non-null column(pointer)");
+		if(!IsSpatialColumn(columnPointer.getColumn()))
+			throw new IllegalArgumentException("Column " + columnPointer.getColumn().getName() + " is not a LocationColumn, LineColumn or PolygonColumn");
+		// Bounds checks:
+		if(minLatitude > maxLatitude || minLongitude > maxLongitude)
+			throw new IllegalArgumentException("Invalid bounding box");
+		this.columnPointer = columnPointer;
+		this.minLatitude = Math.max(-90.0d, minLatitude);
+		this.minLongitude = Math.max(-180.0d, minLongitude);
+		this.maxLatitude = Math.min(90.0d, maxLatitude);
+		this.maxLongitude = Math.min(180.0d, maxLongitude);
+		this.centre = centre;
+		this.radius = radius;
+	}
+
+	/**
+	 * @return the columnPointer
+	 */
+	public ColumnPointer<?> getColumnPointer()
+	{
+		return columnPointer;
+	}
+
+	/**
+	 * @return the minimum latitude of the bounding box
+	 */
+	public double getMinLatitude()
+	{
+		return minLatitude;
+	}
+
+	/**
+	 * @return the minimum longitude of the bounding box
+	 */
+	public double getMinLongitude()
+	{
+		return minLongitude;
+	}
+
+	/**
+	 * @return the maximum latitude of the bounding box
+	 */
+	public double getMaxLatitude()
+	{
+		return maxLatitude;
+	}
+
+	/**
+	 * @return the maximum longitude of the bounding box
+	 */
+	public double getMaxLongitude()
+	{
+		return maxLongitude;
+	}
+
+	/**
+	 * @return whether the area is a circle (rather than just a bounding box)
+	 */
+	public boolean isRadius()
+	{
+		return centre != null;
+	}
+
+	/**
+	 * @return the centre of the circle, or {@code null} if the area is a bounding box
+	 */
+	public Location getCentre()
+	{
+		return centre;
+	}
+
+	/**
+	 * @return the radius of the circle in metres
+	 */
+	public double getRadius()
+	{
+		return radius;
+	}
+
+	/**
+	 * @return the square of the radius, expressed in degrees of latitude
+	 */
+	public double getRadiusInDegreesSquared()
+	{
+		double radiusDeg = Math.toDegrees(radius / EARTH_RADIUS);
+		return radiusDeg * radiusDeg;
+	}
+
+	/**
+	 * @return the factor by which squared longitude differences must be multiplied to make them comparable to squared latitude differences (at the latitude of the centre)
+	 */
+	public double getLongitudeScaleSquared()
+	{
+		double lonScale = Math.cos(Math.toRadians(centre.getLatitude()));
+		return lonScale * lonScale;
+	}
+
+	/**
+	 * @param latitude
+	 * @param longitude
+	 * @return whether the given point lies within the area
+	 */
+	public boolean contains(double latitude, double longitude)
+	{
+		if(latitude < minLatitude || latitude > maxLatitude || longitude < minLongitude || longitude > maxLongitude)
+			return false;
+		if(!isRadius())
+			return true;
+		double dLat = latitude - centre.getLatitude();
+		double dLon = longitude - centre.getLongitude();
+		return dLat * dLat + dLon * dLon * getLongitudeScaleSquared() <= getRadiusInDegreesSquared();
+	}
+
+	/**
+	 * @param minLatitude
+	 * @param minLongitude
+	 * @param maxLatitude
+	 * @param maxLongitude
+	 * @return whether the given bounding box intersects the bounding box of the area
+	 */
+	public boolean intersects(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude)
+	{
+		return	minLatitude <= this.maxLatitude && maxLatitude >= this.minLatitude &&
+				minLongitude <= this.maxLongitude && maxLongitude >= this.minLongitude;
+	}
+
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.queries.constraints.Constraint#_isValid(uk.ac.ucl.excites.sapelli.storage.model.Record)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected boolean _isValid(Record record)
+	{
+		Object value = columnPointer.retrieveValue(record);
+		if(value instanceof Location)
+			return contains(((Location) value).getLatitude(), ((Location) value).getLongitude());
+		double[] bbox = GetBoundingBox((List<Location>) value); // Line or Polygon (or null)
+		return bbox != null && intersects(bbox[0], bbox[1], bbox[2], bbox[3]);
+	}
+
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.queries.constraints.Constraint#accept(uk.ac.ucl.excites.sapelli.storage.queries.constraints.ConstraintVisitor)
+	 */
+	@Override
+	public void accept(ConstraintVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.queries.constraints.Constraint#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj)
+	{
+		if(this == obj)
+			return true; // references to same object
+		if(obj instanceof SpatialConstraint)
+		{
+			SpatialConstraint that = (SpatialConstraint) obj;
+			return	this.columnPointer.equals(that.columnPointer) &&
+					this.minLatitude == that.minLatitude &&
+					this.minLongitude == that.minLongitude &&
+					this.maxLatitude == that.maxLatitude &&
+					this.maxLongitude == that.maxLongitude &&
+					(this.centre != null ? this.centre.equals(that.centre) : that.centre == null) &&
+					this.radius == that.radius;
+		}
+		return false;
+	}
+
+	/* (non-Javadoc)
+	 * @see uk.ac.ucl.excites.sapelli.storage.queries.constraints.Constraint#hashCode()
+	 */
+	@Override
+	public int hashCode()
+	{
+		int hash = 1;
+		hash = 31 * hash + columnPointer.hashCode();
+		hash = 31 * hash + Double.valueOf(minLatitude).hashCode();
+		hash = 31 * hash + Double.valueOf(minLongitude).hashCode();
+		hash = 31 * hash + Double.valueOf(maxLatitude).hashCode();
+		hash = 31 * hash + Double.valueOf(maxLongitude).hashCode();
+		hash = 31 * hash + (centre != null ? centre.hashCode() : 0);
+		hash = 31 * hash + Double.valueOf(radius).hashCode();
+		return hash;
+	}
+
+}
@@ -18,6 +18,7 @@
 
 package uk.ac.ucl.excites.sapelli.transmission;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -170,13 +171,15 @@ public abstract class TransmissionClient extends StorageClient
 	}
 	
 	/**
-	 * @param recordRef
+	 * @param records
 	 * @param receiver
 	 */
 	public void scheduleSending(List<Record> records, Correspondent receiver)
 	{
+		List<RecordReference> recordRefs = new ArrayList<RecordReference>(records.size());
 		for(Record record : records)
-			transmissionStorageObserver.scheduleSending(record.getReference(), receiver);
+			recordRefs.add(record.getReference());
+		transmissionStorageObserver.scheduleSending(recordRefs, receiver);
 	}
 	
 	/**
@@ -222,6 +225,12 @@ public abstract class TransmissionClient extends StorageClient
 				tStore.storeTransmittableRecord(receiver, recordRef, null); // will wipe any previously associated transmission (i.e. record will be scheduled for resending)
 		}
 		
+		public void scheduleSending(List<RecordReference> recordRefs, Correspondent receiver)
+		{
+			if(init()) // make sure we have tStore
+				tStore.storeTransmittableRecords(receiver, recordRefs, null); // will wipe any previously associated transmissions (i.e. records will be scheduled for resending)
+		}
+		
 		@Override
 		public void storageEvent(RecordOperation operation, RecordReference recordRef, RecordStore recordStore)
 		{
@@ -243,6 +252,27 @@ public abstract class TransmissionClient extends StorageClient
 				}
 		}
 		
+		@Override
+		public void storageEvent(RecordOperation operation, Schema schema, List<RecordReference> recordRefs, RecordStore recordStore)
+		{
+			if(schema.hasFlags(SCHEMA_FLAG_TRANSMITTABLE) && init() /*make sure we have tStore*/)
+			{
+				switch(operation)
+				{
+					case Inserted :
+					case Updated :
+						for(Correspondent receiver : getReceiversFor(schema))
+							tStore.storeTransmittableRecords(receiver, recordRefs, null); // will wipe any previously associated transmissions (i.e. records will be scheduled for resending)
+						break;
+					case Deleted :
+						tStore.deleteTransmittableRecords(recordRefs); // records will be forgotten about for each receiver
+						break;
+					default :
+						throw new IllegalArgumentException("Unknown " + RecordOperation.class.getSimpleName());
+				}
+			}
+		}
+		
 		@Override
 		public void finalize()
 		{
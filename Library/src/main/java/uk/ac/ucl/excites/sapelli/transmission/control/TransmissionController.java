@@ -20,6 +20,7 @@ package uk.ac.ucl.excites.sapelli.transmission.control;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +39,7 @@ import uk.ac.ucl.excites.sapelli.shared.util.TransactionalStringBuilder;
 import uk.ac.ucl.excites.sapelli.storage.db.RecordStore;
 import uk.ac.ucl.excites.sapelli.storage.model.Model;
 import uk.ac.ucl.excites.sapelli.storage.model.Record;
+import uk.ac.ucl.excites.sapelli.storage.model.RecordReference;
 import uk.ac.ucl.excites.sapelli.storage.model.Schema;
 import uk.ac.ucl.excites.sapelli.storage.types.TimeStamp;
 import uk.ac.ucl.excites.sapelli.storage.util.UnknownModelException;
@@ -236,10 +238,14 @@ public abstract class TransmissionController implements StoreHandle.StoreUser
 			// Store & send the transmission:
 			boolean sent = storeAndSend(payload.getTransmission());
 			
-			// Associate the transmittables with the transmission:
+			// Associate the transmittables with the transmission (all at once):
 			if(sent)
+			{
+				List<RecordReference> recRefsBeingSent = new ArrayList<RecordReference>(payload.getRecords().size());
 				for(Record recBeingSent : payload.getRecords())
-					transmissionStore.storeTransmittableRecord(receiver, recBeingSent.getReference(), payload.getTransmission());
+					recRefsBeingSent.add(recBeingSent.getReference());
+				transmissionStore.storeTransmittableRecords(receiver, recRefsBeingSent, payload.getTransmission());
+			}
 			
 			// Make payload null so a new was is created in the next iteration:
 			payload = null;
@@ -19,8 +19,10 @@
 package uk.ac.ucl.excites.sapelli.transmission.db;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -47,6 +49,7 @@ import uk.ac.ucl.excites.sapelli.storage.model.columns.StringColumn;
 import uk.ac.ucl.excites.sapelli.storage.model.indexes.AutoIncrementingPrimaryKey;
 import uk.ac.ucl.excites.sapelli.storage.model.indexes.Index;
 import uk.ac.ucl.excites.sapelli.storage.model.indexes.PrimaryKey;
+import uk.ac.ucl.excites.sapelli.storage.queries.CountQuery;
 import uk.ac.ucl.excites.sapelli.storage.queries.FirstRecordQuery;
 import uk.ac.ucl.excites.sapelli.storage.queries.Order;
 import uk.ac.ucl.excites.sapelli.storage.queries.RecordsQuery;
@@ -54,6 +57,7 @@ import uk.ac.ucl.excites.sapelli.storage.queries.SingleRecordQuery;
 import uk.ac.ucl.excites.sapelli.storage.queries.constraints.AndConstraint;
 import uk.ac.ucl.excites.sapelli.storage.queries.constraints.Constraint;
 import uk.ac.ucl.excites.sapelli.storage.queries.constraints.EqualityConstraint;
+import uk.ac.ucl.excites.sapelli.storage.queries.constraints.OrConstraint;
 import uk.ac.ucl.excites.sapelli.storage.queries.constraints.RuleConstraint;
 import uk.ac.ucl.excites.sapelli.storage.queries.constraints.RuleConstraint.Comparison;
 import uk.ac.ucl.excites.sapelli.storage.queries.sources.Source;
@@ -223,6 +227,12 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 	
 	static private final int MAX_CACHE_SIZE = 8;
 	
+	/**
+	 * Maximum number of records fetched or deleted with a single query when dealing with {@link RecordReference}s in bulk
+	 * (keeps the number of bound parameters well below SQLite's limit of 999).
+	 */
+	static private final int BULK_BATCH_SIZE = 100;
+	
 	static public TimeStamp retrieveTimeStamp(TimeStampColumn column, Record record)
 	{
 		return TimeStamp.setLocalTimeZone(column.retrieveValue(record));
@@ -232,6 +242,12 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 	private final Map<Integer, Transmission<?>> outCache;
 	private final Map<Integer, Transmission<?>> inCache;
 	
+	/**
+	 * Transmission records as they were last stored (or retrieved), used to avoid rewriting unchanged ones
+	 */
+	private final Map<Integer, Record> outStoredRecords;
+	private final Map<Integer, Record> inStoredRecords;
+	
 	private final TransmissionRecordGenerator generator = new TransmissionRecordGenerator();
 	
 	/**
@@ -243,6 +259,8 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 		super(client);
 		this.outCache = Collections.synchronizedMap(new LRUMap<Integer, Transmission<?>>(MAX_CACHE_SIZE));
 		this.inCache = Collections.synchronizedMap(new LRUMap<Integer, Transmission<?>>(MAX_CACHE_SIZE));
+		this.outStoredRecords = Collections.synchronizedMap(new LRUMap<Integer, Record>(MAX_CACHE_SIZE));
+		this.inStoredRecords = Collections.synchronizedMap(new LRUMap<Integer, Record>(MAX_CACHE_SIZE));
 	}
 	
 	protected Map<Integer, Transmission<?>> getCache(boolean incoming)
@@ -250,6 +268,15 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 		return incoming ? inCache : outCache;
 	}
 	
+	/**
+	 * @param incoming
+	 * @return map of local IDs to transmission records as they were last stored in (or retrieved from) the database
+	 */
+	private Map<Integer, Record> getStoredRecords(boolean incoming)
+	{
+		return incoming ? inStoredRecords : outStoredRecords;
+	}
+	
 	public void store(Correspondent correspondent) throws DBException
 	{
 		// Start transaction
@@ -457,24 +484,36 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 		return (ForeignKeyColumn) getTransmissionSchema(incoming).getColumn(TRANSMISSION_COLUMN_NAME_RESPONSE, false);
 	}
 	
+	/**
+	 * Stores the given transmission and its parts. Only parts which are new, or which have been modified since they were last
+	 * stored, are written (see {@link Message#isStorageRequired()}), and the transmission record itself is only written if
+	 * its values differ from those it had when it was last stored (or retrieved).
+	 * 
+	 * @param transmission
+	 * @throws DBException
+	 */
 	public synchronized void store(Transmission<?> transmission) throws DBException
 	{
+		Record tRec;
+		List<Message<?, ?>> storedMsgs;
+		
 		// Start transaction
 		recordStore.startTransaction();
 		
 		try
 		{
-			// Use TransmissionRecordGenerator to create a transmission record and part record(s):
+			// Use TransmissionRecordGenerator to create a transmission record and part record(s) for new/modified parts:
 			List<Record> records = generator.generate(transmission);
-			if(records.size() < 2)
-				throw new IllegalStateException("No transmission (part) record(s) generated!");
-			Record tRec = records.get(0);
+			storedMsgs = generator.getGeneratedMessages();
+			tRec = records.get(0);
 			
 			// Set foreign key for Correspondent record (possibly first storing/updating it):
 			TRANSMISSION_COLUMN_CORRESPONDENT.storeValue(tRec, getCorrespondentRecordReference(transmission.getCorrespondent(), true, false));
 			
-			// Store the transmission record:
-			recordStore.store(tRec);
+			// Store the transmission record, unless it is unchanged since it was last stored:
+			Record storedTRec = transmission.isLocalIDSet() ? getStoredRecords(transmission.incoming).get(transmission.getLocalID()) : null;
+			if(storedTRec == null || !tRec.hasEqualValues(storedTRec))
+				recordStore.store(tRec);
 			//	local ID should now be set in the record...
 			
 			// Check/set it on the object:
@@ -487,13 +526,15 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 				// Set local transmissionID in object as on the record: 
 				transmission.setLocalID(TRANSMISSION_COLUMN_ID.retrieveValue(tRec).intValue());
 			
-			// Store part records:
-			ForeignKeyColumn tFKCol = transmission.incoming ? TRANSMISSION_PART_COLUMN_INCOMING_TRANSMISSION : TRANSMISSION_PART_COLUMN_OUTGOING_TRANSMISSION;
-			RecordReference tRecRef = tRec.getReference();
-			for(Record tPartRec : records.subList(1, records.size()))
+			// Store (new/modified) part records, in a single batch (new parts are INSERTed using the same prepared statement):
+			List<Record> tPartRecs = records.subList(1, records.size());
+			if(!tPartRecs.isEmpty())
 			{
-				tFKCol.storeValue(tPartRec, tRecRef); // set foreign key!
-				recordStore.store(tPartRec);
+				ForeignKeyColumn tFKCol = transmission.incoming ? TRANSMISSION_PART_COLUMN_INCOMING_TRANSMISSION : TRANSMISSION_PART_COLUMN_OUTGOING_TRANSMISSION;
+				RecordReference tRecRef = tRec.getReference();
+				for(Record tPartRec : tPartRecs)
+					tFKCol.storeValue(tPartRec, tRecRef); // set foreign key!
+				recordStore.store(tPartRecs);
 			}
 			
 			// Put/update in cache:
@@ -509,6 +550,16 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 		
 		// Commit transaction
 		recordStore.commitTransaction();
+		
+		// Remember what has been stored (unless an enclosing transaction may still be rolled back):
+		if(!recordStore.isInTransaction())
+		{
+			getStoredRecords(transmission.incoming).put(transmission.getLocalID(), tRec);
+			for(Message<?, ?> msg : storedMsgs)
+				msg.markStored();
+		}
+		else
+			getStoredRecords(transmission.incoming).remove(transmission.getLocalID());
 	}
 	
 	/**
@@ -610,6 +661,9 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 		// Query for part records:		
 		List<Record> tPartRecs = recordStore.retrieveRecords(new RecordsQuery(Source.From(getTransmissionPartSchema(incoming)), Order.AscendingBy(TRANSMISSION_PART_COLUMN_NUMBER), tRec.getRecordQueryConstraint()));
 		
+		// Remember transmission record as it is stored (parts retrieved from the database are marked as stored by the Message constructor):
+		getStoredRecords(incoming).put(localID, tRec);
+		
 		// Instantiate Transmissions & Messages:
 		switch(type)
 		{
@@ -791,6 +845,27 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 			return Collections.<Transmission<?>> emptyList();
 		}
 	}
+	
+	/**
+	 * Counts the incoming or outgoing transmissions from or to the given correspondent, without retrieving them.
+	 * 
+	 * @param incoming
+	 * @param correspondent
+	 * @return the number of (non-deleted) transmissions
+	 * @throws DBException
+	 */
+	public long countTransmissions(boolean incoming, Correspondent correspondent) throws DBException
+	{
+		try
+		{
+			RecordsQuery query = getTransmissionsQuery(incoming, null, null, null, correspondent, null, null);
+			return recordStore.retrieveCount(new CountQuery(new RecordsQuery(query.getSource(), query.getConstraints(), new EqualityConstraint(TRANSMISSION_COLUMN_DELETED, Boolean.FALSE))));
+		}
+		catch(UnknownCorrespondentException uce)
+		{
+			return 0;
+		}
+	}
 
 	/**
 	 * @param transmission
@@ -825,8 +900,9 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 			
 			recordStore.commitTransaction();
 			
-			// Delete from cache:
+			// Delete from caches:
 			getCache(transmission.incoming).remove(transmission.getLocalID());
+			getStoredRecords(transmission.incoming).remove(transmission.getLocalID());
 		}
 		catch(Exception e)
 		{
@@ -848,26 +924,55 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 	 * @param transmission may be null, but if it isn't it must have been stored before
 	 */
 	public void storeTransmittableRecord(Correspondent correspondent, RecordReference recordReference, Transmission<?> transmission)
+	{
+		storeTransmittableRecords(correspondent, Collections.singletonList(recordReference), transmission);
+	}
+	
+	/**
+	 * Registers that the Records, indicated by the given RecordReferences, are transmittable to the given Correspondent,
+	 * and optionally that a transmission (attempt) will take or has taken place using the given Transmission object.
+	 * The Correspondent and Transmission references are resolved only once and all entries are stored in a single transaction.
+	 * 
+	 * @param correspondent
+	 * @param recordReferences RecordReferences pointing to the Records which we are told are transmittable
+	 * @param transmission may be null, but if it isn't it must have been stored before
+	 */
+	public void storeTransmittableRecords(Correspondent correspondent, Collection<RecordReference> recordReferences, Transmission<?> transmission)
 	{
 		if(transmission != null && !transmission.isLocalIDSet())
 			throw new IllegalArgumentException("Transmission must have been stored before being associated with records to need sending or have been sent.");
+		if(recordReferences.isEmpty())
+			return;
 		try
 		{
-			recordStore.store(TRANSMITTABLE_RECORDS_SCHEMA.createRecord(
-				// Receiver column (first store/update the Correspondent if necessary):
-				getCorrespondentRecordReference(correspondent, true, false),
-				// Schema column (= Model ID + Schema#):
-				recordReference.getReferencedSchema().getMetaRecordReference(),
-				// PKValues column:
-				recordReference.toBytes(true),
-				// Transmission column:
-				transmission != null ? getTransmissionSchema(false).createRecordReference(transmission.getLocalID()) : null,
-				// Received column:
-				Boolean.valueOf(transmission != null && transmission.isReceived())));
+			// Receiver column value (first store/update the Correspondent if necessary):
+			RecordReference cRecRef = getCorrespondentRecordReference(correspondent, true, false);
+			// Transmission column value:
+			RecordReference tRecRef = transmission != null ? getTransmissionSchema(false).createRecordReference(transmission.getLocalID()) : null;
+			// Received column value:
+			Boolean received = Boolean.valueOf(transmission != null && transmission.isReceived());
+			
+			// Create transmittable records:
+			List<Record> toSendRecs = new ArrayList<Record>(recordReferences.size());
+			for(RecordReference recordReference : recordReferences)
+				toSendRecs.add(TRANSMITTABLE_RECORDS_SCHEMA.createRecord(
+					// Receiver column:
+					cRecRef,
+					// Schema column (= Model ID + Schema#):
+					recordReference.getReferencedSchema().getMetaRecordReference(),
+					// PKValues column:
+					recordReference.toBytes(true),
+					// Transmission column:
+					tRecRef,
+					// Received column:
+					received));
+			
+			// Store them all at once (uses a single transaction):
+			recordStore.store(toSendRecs);
 		}
 		catch(Exception e)
 		{
-			client.logError("Error upon storing transmittable", e);
+			client.logError("Error upon storing transmittable(s)", e);
 		}
 	}
 	
@@ -878,13 +983,42 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 	 */
 	public void deleteTransmittableRecord(RecordReference recordReference)
 	{
+		deleteTransmittableRecords(Collections.singletonList(recordReference));
+	}
+	
+	/**
+	 * Removes all entries relating to the referenced Records from the TransmittableRecords table (possibly for multiple receivers).
+	 * The entries are deleted using a single query per batch of {@value #BULK_BATCH_SIZE} references, all in a single transaction.
+	 * 
+	 * @param recordReferences
+	 */
+	public void deleteTransmittableRecords(List<RecordReference> recordReferences)
+	{
+		if(recordReferences.isEmpty())
+			return;
 		try
 		{
-			recordStore.delete(new RecordsQuery(	TRANSMITTABLE_RECORDS_SCHEMA, 
-													// Schema column (= Model ID + Schema#):
-													recordReference.getReferencedSchema().getMetaRecordReference().getRecordQueryConstraint(),
-													// PKValueBytes column:
-													new EqualityConstraint(TRANSMITTABLE_RECORDS_COLUMN_PK_VALUES, recordReference.toBytes(true))));
+			recordStore.startTransaction();
+			try
+			{
+				for(int from = 0; from < recordReferences.size(); from += BULK_BATCH_SIZE)
+				{
+					OrConstraint refsConstraint = new OrConstraint();
+					for(RecordReference recordReference : recordReferences.subList(from, Math.min(from + BULK_BATCH_SIZE, recordReferences.size())))
+						refsConstraint.addConstraint(new AndConstraint(
+							// Schema column (= Model ID + Schema#):
+							recordReference.getReferencedSchema().getMetaRecordReference().getRecordQueryConstraint(),
+							// PKValueBytes column:
+							new EqualityConstraint(TRANSMITTABLE_RECORDS_COLUMN_PK_VALUES, recordReference.toBytes(true))));
+					recordStore.delete(new RecordsQuery(TRANSMITTABLE_RECORDS_SCHEMA, refsConstraint.reduce()));
+				}
+			}
+			catch(Exception e)
+			{
+				recordStore.rollbackTransactions();
+				throw e;
+			}
+			recordStore.commitTransaction();
 		}
 		catch(Exception e)
 		{
@@ -996,44 +1130,37 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 	{
 		// Get all unreceived transmittables with an assigned transmission:
 		Map<RecordReference, List<Record>> tRecRef2toSendRecs =  retrieveUnreceivedTransmittablesWithTransmission(correspondent, model);
-				
-		// Collection to return:
-		List<Record> userRecs = new ArrayList<Record>();
+		
+		// Get transmission objects (all at once):
+		Map<RecordReference, Transmission<?>> tRecRef2Transmission = retrieveOutgoingTransmissions(tRecRef2toSendRecs.keySet());
+		
+		// Transmittables of which the user records are to be resent:
+		List<Record> toResendRecs = new ArrayList<Record>();
 		
 		// Treat per transmission:
 		for(Map.Entry<RecordReference, List<Record>> entry : tRecRef2toSendRecs.entrySet())
 		{
 			// Get transmission object:
-			Transmission<?> transmission = retrieveTransmission(entry.getKey(), false /*don't include deleted*/);
+			Transmission<?> transmission = tRecRef2Transmission.get(entry.getKey());
 
 			if(	// unknown/deleted transmission:
 				transmission == null ||
 				// transmission is not received "says" it is appropriate to have its contents resent now:
 				(!transmission.isReceived() && transmission.isResendAppropriate()))
 			{
-				// Get user records for resending:
-				for(Record toSendRec : entry.getValue())
-					CollectionUtils.addIgnoreNull(userRecs, getUserRecordFromTransmittable(toSendRec, model));
+				// Remember transmittables for resending:
+				toResendRecs.addAll(entry.getValue());
 				// Delete transmission if there was one:
 				if(transmission != null)
 					deleteTransmission(transmission, true /*deleting by hiding*/);
 			}
 			else if(transmission.isReceived())
-			{	// transmission is received (i.e. ACKed):
-				for(Record toSendRec : entry.getValue())
-					try
-					{	// Mark transmittable as received:
-						TRANSMITTABLE_RECORDS_COLUMN_RECEIVED.storeValue(toSendRec, Boolean.TRUE);
-						recordStore.store(toSendRec);
-					}
-					catch(Exception e)
-					{
-						client.logError("Error upon storing transmittable", e);
-					}
-			}
+				// transmission is received (i.e. ACKed):
+				markTransmittablesReceived(correspondent, model, entry.getKey());
 		}
 		
-		return userRecs;
+		// Get user records for resending (all at once):
+		return getUserRecordsFromTransmittables(toResendRecs, model);
 	}
 	
 	public synchronized void updateTransmittableReceivedState(Correspondent correspondent, Model model)
@@ -1041,24 +1168,83 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 		// Get all unreceived transmittables with an assigned transmission:
 		Map<RecordReference, List<Record>> tRecRef2toSendRecs =  retrieveUnreceivedTransmittablesWithTransmission(correspondent, model);
 		
+		// Get transmission objects (all at once):
+		Map<RecordReference, Transmission<?>> tRecRef2Transmission = retrieveOutgoingTransmissions(tRecRef2toSendRecs.keySet());
+		
 		// Treat per transmission:
-		for(Map.Entry<RecordReference, List<Record>> entry : tRecRef2toSendRecs.entrySet())
+		for(RecordReference tRecRef : tRecRef2toSendRecs.keySet())
 		{
-			Transmission<?> transmission = retrieveTransmission(entry.getKey(), false /*don't include deleted*/);
+			Transmission<?> transmission = tRecRef2Transmission.get(tRecRef);
 			if(transmission != null && transmission.isReceived())
-			{	// transmission is received (i.e. ACKed):
-				for(Record toSendRec : entry.getValue())
-					try
-					{	// Mark transmittable as received:
-						TRANSMITTABLE_RECORDS_COLUMN_RECEIVED.storeValue(toSendRec, Boolean.TRUE);
-						recordStore.store(toSendRec);
-					}
-					catch(Exception e)
-					{
-						client.logError("Error upon storing transmittable", e);
-					}
+				// transmission is received (i.e. ACKed):
+				markTransmittablesReceived(correspondent, model, tRecRef);
+		}
+	}
+	
+	/**
+	 * Sets Received=true on all unreceived {@link #TRANSMITTABLE_RECORDS_SCHEMA} records for the given correspondent & model which are associated with the given transmission, using a single update.
+	 * 
+	 * @param correspondent
+	 * @param model
+	 * @param tRecRef reference to an outgoing transmission record
+	 */
+	private void markTransmittablesReceived(Correspondent correspondent, Model model, RecordReference tRecRef)
+	{
+		try
+		{
+			recordStore.update(
+				new RecordsQuery(	TRANSMITTABLE_RECORDS_SCHEMA,
+									getCorrespondentRecordReference(correspondent, false, false).getRecordQueryConstraint(),
+									model.getModelRecordReference().getRecordQueryConstraint(),
+									tRecRef.getRecordQueryConstraint(),
+									new EqualityConstraint(TRANSMITTABLE_RECORDS_COLUMN_RECEIVED, Boolean.FALSE)),
+				TRANSMITTABLE_RECORDS_COLUMN_RECEIVED,
+				Boolean.TRUE);
+		}
+		catch(Exception e)
+		{
+			client.logError("Error upon storing transmittable", e);
+		}
+	}
+	
+	/**
+	 * Retrieves the outgoing transmissions pointed to by the given references, using (a batch of) queries rather than one query per transmission.
+	 * Transmissions which are deleted (by hiding) or which could not be found are left out of the returned map.
+	 * 
+	 * @param tRecRefs references to outgoing transmission records
+	 * @return Map<RecordReference, Transmission<?>>: key = transmission record reference; value = Transmission object
+	 */
+	private Map<RecordReference, Transmission<?>> retrieveOutgoingTransmissions(Collection<RecordReference> tRecRefs)
+	{
+		Map<RecordReference, Transmission<?>> tRecRef2Transmission = new HashMap<RecordReference, Transmission<?>>();
+		
+		// Check cache:
+		List<RecordReference> uncachedTRecRefs = new ArrayList<RecordReference>();
+		for(RecordReference tRecRef : tRecRefs)
+		{
+			Transmission<?> transmission = getCache(false).get(TRANSMISSION_COLUMN_ID.retrieveValue(tRecRef).intValue());
+			if(transmission != null)
+				tRecRef2Transmission.put(tRecRef, transmission);
+			else
+				uncachedTRecRefs.add(tRecRef);
+		}
+		
+		// Query for the others:
+		try
+		{
+			for(Record tRec : retrieveRecordsByReference(OUTGOING_TRANSMISSION_SCHEMA, uncachedTRecRefs))
+			{
+				Transmission<?> transmission = transmissionFromRecord(tRec, false); // (skipping "hidden" deleted transmissions)
+				if(transmission != null)
+					tRecRef2Transmission.put(tRec.getReference(), transmission);
 			}
 		}
+		catch(Exception e)
+		{
+			client.logError("Error retrieving sent transmissions.", e);
+		}
+		
+		return tRecRef2Transmission;
 	}
 	
 	/**
@@ -1084,6 +1270,24 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 		return userRecRefs;
 	}
 	
+	/**
+	 * Counts the Records of the given Model received by the given Correspondent, without retrieving them.
+	 * 
+	 * @param correspondent
+	 * @param model
+	 * @return the number of Records of the given Model received by the given Correspondent
+	 * @throws DBException
+	 */
+	public synchronized long countReceivedRecords(Correspondent correspondent, Model model) throws DBException
+	{
+		// Updated received flags:
+		updateTransmittableReceivedState(correspondent, model);
+		
+		// Count transmittables with received=true:
+		RecordsQuery query = getTransmittableRecordsQuery(correspondent, model, Order.UNDEFINED, new EqualityConstraint(TRANSMITTABLE_RECORDS_COLUMN_RECEIVED, Boolean.TRUE));
+		return query != null ? recordStore.retrieveCount(new CountQuery(query)) : 0;
+	}
+	
 	/**
 	 * @param correspondent
 	 * @param model
@@ -1091,6 +1295,23 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 	 * @return a possibly empty list of {@link #TRANSMITTABLE_RECORDS_SCHEMA} records
 	 */
 	private List<Record> retrieveTransmittableRecords(Correspondent correspondent, Model model, Order order, Constraint constraint)
+	{
+		RecordsQuery query = getTransmittableRecordsQuery(correspondent, model, order, constraint);
+		if(query == null)
+			return Collections.<Record> emptyList();
+		
+		// Query for ToSend records:
+		return recordStore.retrieveRecords(query);
+	}
+	
+	/**
+	 * @param correspondent
+	 * @param model
+	 * @param order
+	 * @param contraint - may be null
+	 * @return a query for {@link #TRANSMITTABLE_RECORDS_SCHEMA} records, or {@code null} if there can be none because the correspondent has never been stored
+	 */
+	private RecordsQuery getTransmittableRecordsQuery(Correspondent correspondent, Model model, Order order, Constraint constraint)
 	{
 		RecordReference cRecRef = null;
 		try
@@ -1099,18 +1320,13 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 		}
 		catch(Exception ignore) {}
 		if(cRecRef == null) // this means it has never been stored so there can also be no ToSend records for it
-			return Collections.<Record> emptyList();
+			return null;
 		
-		// Query for ToSend records:
-		List<Record> toSendRecs = recordStore.retrieveRecords(
-			new RecordsQuery(	TRANSMITTABLE_RECORDS_SCHEMA,
+		return new RecordsQuery(TRANSMITTABLE_RECORDS_SCHEMA,
 								order,
 								cRecRef.getRecordQueryConstraint(),
 								model.getModelRecordReference().getRecordQueryConstraint(),
-								constraint));
-		
-		// Return result:
-		return toSendRecs;
+								constraint);
 	}
 	
 	/**
@@ -1124,15 +1340,65 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 		// Query for ToSend records:
 		List<Record> toSendRecs = retrieveTransmittableRecords(correspondent, model, Order.By(TRANSMITTABLE_RECORDS_CP_SCHEMA_NUMBER), contraint);
 		
-		// Query for the actual records being referred to:
-		List<Record> userRecs = new ArrayList<Record>(toSendRecs.size());
+		// Query for & return the actual records being referred to:
+		return getUserRecordsFromTransmittables(toSendRecs, model);
+	}
+	
+	/**
+	 * Retrieves the user records referred to by the given {@link #TRANSMITTABLE_RECORDS_SCHEMA} records, using (a batch of) queries per schema rather than one query per record.
+	 * 
+	 * @param toSendRecs
+	 * @param recycleModel
+	 * @return the user records which were found, in the order of the given transmittables
+	 */
+	private List<Record> getUserRecordsFromTransmittables(List<Record> toSendRecs, Model recycleModel)
+	{
+		// Get user record references & group them by schema:
+		List<RecordReference> userRecRefs = new ArrayList<RecordReference>(toSendRecs.size());
+		Map<Schema, List<RecordReference>> schema2UserRecRefs = new LinkedHashMap<Schema, List<RecordReference>>();
 		for(Record toSendRec : toSendRecs)
-			CollectionUtils.addIgnoreNull(userRecs, getUserRecordFromTransmittable(toSendRec, model));
+		{
+			RecordReference userRecRef = getUserRecordReferenceFromTransmittable(toSendRec, recycleModel);
+			if(userRecRef == null)
+				continue;
+			userRecRefs.add(userRecRef);
+			List<RecordReference> schemaUserRecRefs = schema2UserRecRefs.get(userRecRef.getReferencedSchema());
+			if(schemaUserRecRefs == null)
+				schema2UserRecRefs.put(userRecRef.getReferencedSchema(), schemaUserRecRefs = new ArrayList<RecordReference>());
+			schemaUserRecRefs.add(userRecRef);
+		}
+		
+		// Query per schema:
+		Map<RecordReference, Record> userRecRef2UserRec = new HashMap<RecordReference, Record>(userRecRefs.size());
+		for(Map.Entry<Schema, List<RecordReference>> entry : schema2UserRecRefs.entrySet())
+			for(Record userRec : retrieveRecordsByReference(entry.getKey(), entry.getValue()))
+				userRecRef2UserRec.put(userRec.getReference(), userRec);
 		
-		// Return result:
+		// Return user records in original order:
+		List<Record> userRecs = new ArrayList<Record>(userRecRefs.size());
+		for(RecordReference userRecRef : userRecRefs)
+			CollectionUtils.addIgnoreNull(userRecs, userRecRef2UserRec.get(userRecRef));
 		return userRecs;
 	}
 	
+	/**
+	 * @param schema
+	 * @param recordRefs references to records of the given schema
+	 * @return the records which were found, in no particular order
+	 */
+	private List<Record> retrieveRecordsByReference(Schema schema, List<RecordReference> recordRefs)
+	{
+		List<Record> records = new ArrayList<Record>(recordRefs.size());
+		for(int from = 0; from < recordRefs.size(); from += BULK_BATCH_SIZE)
+		{
+			OrConstraint refsConstraint = new OrConstraint();
+			for(RecordReference recordRef : recordRefs.subList(from, Math.min(from + BULK_BATCH_SIZE, recordRefs.size())))
+				refsConstraint.addConstraint(recordRef.getRecordQueryConstraint());
+			records.addAll(recordStore.retrieveRecords(new RecordsQuery(schema, refsConstraint.reduce())));
+		}
+		return records;
+	}
+	
 	private RecordReference getUserRecordReferenceFromTransmittable(Record toSendRecord, Model recycleModel)
 	{
 		try
@@ -1155,12 +1421,6 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 		}
 	}
 	
-	private Record getUserRecordFromTransmittable(Record toSendRecord, Model recycleModel)
-	{
-		// Query for & return user record:
-		return recordStore.retrieveRecord(getUserRecordReferenceFromTransmittable(toSendRecord, recycleModel));
-	}
-	
 	/**
 	 * Helper class to generate Records representing Correspondents
 	 * 
@@ -1210,18 +1470,20 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 
 		private Record tRecord;
 		private final List<Record> tPartRecords = new ArrayList<Record>();
+		private final List<Message<?, ?>> tPartMessages = new ArrayList<Message<?, ?>>();
 		
 		/**
 		 * @param transmission
-		 * @return a {@link List} of {@link Record}s, the first one of which is the tranmission record, the following ones are the transmission part records
+		 * @return a {@link List} of {@link Record}s, the first one of which is the tranmission record, the following ones are the transmission part records (for SMS transmissions only of those parts which must be (re)stored, see {@link Message#isStorageRequired()})
 		 */
 		public List<Record> generate(Transmission<?> transmission)
 		{	
 			// Create new transmission record:
 			tRecord = getTransmissionSchema(transmission.incoming).createRecord();
 			
-			// wipe part recs:
+			// wipe part recs & msgs:
 			tPartRecords.clear();
+			tPartMessages.clear();
 			
 			// Set values of all columns will be set except for Correspondent & NumberOfParts:
 			if(transmission.isLocalIDSet())
@@ -1252,6 +1514,14 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 			return result;
 		}
 		
+		/**
+		 * @return the Messages for which part records were generated by the last call of {@link #generate(Transmission)}
+		 */
+		public List<Message<?, ?>> getGeneratedMessages()
+		{
+			return new ArrayList<Message<?, ?>>(tPartMessages);
+		}
+		
 		private Record newPartRecord(Transmission<?> transmission, int partNumber)
 		{
 			Record tPartRec = getTransmissionPartSchema(transmission.incoming).createRecord();
@@ -1269,9 +1539,12 @@ public class TransmissionStore extends RecordStoreWrapper<TransmissionClient>
 				TRANSMISSION_COLUMN_NUMBER_OF_RESEND_REQS_SENT.storeValue(tRecord, smsT.getNumberOfSentResendRequests());
 				TRANSMISSION_COLUMN_LAST_RESEND_REQS_SENT_AT.storeValue(tRecord, smsT.getLastResendRequestSentAt());
 			}
-			// Make records for the parts...
+			// Make records for the parts which are new or modified...
 			for(Message<?, ?> msg : smsT.getParts())
 			{
+				if(!msg.isStorageRequired())
+					continue; // part is stored & unchanged
+				tPartMessages.add(msg);
 				Record tPartRec = newPartRecord(smsT, msg.getPartNumber()); // adds to the tPartRecords list as well
 				
 				// Set columns (except for foreign key):
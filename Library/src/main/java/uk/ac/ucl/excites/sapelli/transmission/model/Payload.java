@@ -20,8 +20,10 @@ package uk.ac.ucl.excites.sapelli.transmission.model;
 
 import java.io.IOException;
 
+import uk.ac.ucl.excites.sapelli.shared.compression.BestCompressor;
 import uk.ac.ucl.excites.sapelli.shared.compression.CompressorFactory;
 import uk.ac.ucl.excites.sapelli.shared.compression.CompressorFactory.Compression;
+import uk.ac.ucl.excites.sapelli.shared.compression.CompressorResult;
 import uk.ac.ucl.excites.sapelli.shared.io.BitArray;
 import uk.ac.ucl.excites.sapelli.shared.io.BitArrayInputStream;
 import uk.ac.ucl.excites.sapelli.shared.io.BitArrayOutputStream;
@@ -173,6 +175,21 @@ public abstract class Payload
 		return result;
 	}
 
+	/**
+	 * Compresses the data with each of the given modes (in parallel) and returns the smallest result.
+	 * When several modes produce results of the same size the one which comes first in the given array is returned.
+	 * 
+	 * @param data
+	 * @param modes
+	 * @return the best result
+	 * @throws IOException when none of the modes succeeded
+	 * @see BestCompressor
+	 */
+	static protected CompressorResult CompressBest(BitArray data, Compression[] modes) throws IOException
+	{
+		return new BestCompressor().apply(data.toByteArray(), modes, false).getBestOrThrow();
+	}
+
 	static protected byte[] Decompress(byte[] compressedData, Compression mode) throws IOException
 	{
 		return CompressorFactory.getCompressor(mode).decompress(compressedData);
@@ -693,6 +693,19 @@ public abstract class Transmission<C extends Correspondent>
 		return payloadBitsLengthField.highBound(true).intValue();
 	}
 	
+	/**
+	 * The length of payload data (in number of bits) which is guaranteed to fit into this transmission, taking into account
+	 * the worst-case size increase that may be caused by wrapping (see {@link #canWrapIncreaseSize()}).
+	 * Allows payloads to skip a full capacity check (see {@link #checkCapacity()}) as long as they are known to be no larger than this.
+	 * Subclasses for which {@link #canWrapIncreaseSize()} returns {@code true} should override this method.
+	 * 
+	 * @return
+	 */
+	public int getGuaranteedPayloadBits()
+	{
+		return canWrapIncreaseSize() ? 0 : getMaxPayloadBits();
+	}
+	
 	/**
 	 * Wraps/encodes/splits the payload bits in a way they can be send by this transmission
 	 * 
@@ -20,6 +20,7 @@ package uk.ac.ucl.excites.sapelli.transmission.model.content;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -30,6 +31,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import uk.ac.ucl.excites.sapelli.shared.compression.CompressorFactory.Compression;
+import uk.ac.ucl.excites.sapelli.shared.compression.CompressorResult;
 import uk.ac.ucl.excites.sapelli.shared.io.BitArray;
 import uk.ac.ucl.excites.sapelli.shared.io.BitArrayInputStream;
 import uk.ac.ucl.excites.sapelli.shared.io.BitArrayOutputStream;
@@ -44,6 +46,7 @@ import uk.ac.ucl.excites.sapelli.storage.model.Schema;
 import uk.ac.ucl.excites.sapelli.storage.util.UnknownModelException;
 import uk.ac.ucl.excites.sapelli.transmission.TransmissionClient;
 import uk.ac.ucl.excites.sapelli.transmission.model.Payload;
+import uk.ac.ucl.excites.sapelli.transmission.model.Transmission;
 import uk.ac.ucl.excites.sapelli.transmission.util.TransmissionCapacityExceededException;
 import uk.ac.ucl.excites.sapelli.transmission.util.TransmissionSendingException;
 
@@ -100,6 +103,12 @@ public class RecordsPayload extends Payload
 	protected Model model;
 	protected final Map<Schema, List<Record>> recordsBySchema;
 	
+	/**
+	 * Incrementally maintained size information, used to avoid full serialisation upon every {@link #addRecord(Record)} call.
+	 * Only used on the sending side.
+	 */
+	private final Map<Schema, SchemaPacking> packingBySchema;
+	
 	/**
 	 * Whether or not to force lossless encoding across all columns.
 	 */
@@ -119,6 +128,7 @@ public class RecordsPayload extends Payload
 	{
 		this.lossless = lossless;
 		this.recordsBySchema = new HashMap<Schema, List<Record>>();
+		this.packingBySchema = new HashMap<Schema, SchemaPacking>();
 	}
 	
 	@Override
@@ -130,7 +140,10 @@ public class RecordsPayload extends Payload
 	/**
 	 * To be called from the sending side
 	 * 
-	 * TODO OPTIMISE THIS
+	 * The exact size the records would take up without compression is tracked incrementally (see {@link SchemaPacking}).
+	 * Because the uncompressed encoding is one of the options considered upon serialisation this size is an upper bound
+	 * for the actual payload size, meaning a full (simulated) serialisation, compression & wrapping of the transmission
+	 * only needs to happen once the estimate exceeds {@link Transmission#getGuaranteedPayloadBits()}.
 	 * 
 	 * @param record the record to add
 	 * @throws IllegalStateException when no transmission is set
@@ -170,20 +183,75 @@ public class RecordsPayload extends Payload
 		}
 		recordsOfSchema.add(record);
 		
-		// Try serialising and check capacity:
+		// Check capacity:
 		try
 		{
-			transmission.checkCapacity();
+			if(transmission.isBodySizeUnlimited())
+				return; // no need to check capacity (or to keep track of size)
+			
+			// Get packing state for this schema:
+			SchemaPacking packing = packingBySchema.get(schema);
+			if(packing == null)
+				packing = new SchemaPacking(schema);
+			
+			// Encode the record's values:
+			BitArray[] values = packing.encode(record);
+			
+			if(getRecordsBitsUpperBound(schema, packing.getSizeWith(values)) <= transmission.getGuaranteedPayloadBits() - getHeaderBits())
+				// The record is guaranteed to fit, but the contents of the payload have changed so any earlier preparation must be cleared:
+				transmission.clearPreparation();
+			else
+				// Try serialising and check capacity:
+				transmission.checkCapacity();
+			
+			// The record was successfully added, update packing state:
+			packing.add(values);
+			packingBySchema.put(schema, packing);
 		}
 		catch(TransmissionSendingException e)
 		{	// Adding this record caused transmission capacity to be exceeded, or an IO problem occurred:
 			// 	Undo adding of record:
-			recordsOfSchema.remove(record);
-			if(recordsOfSchema.isEmpty())
-				recordsBySchema.remove(schema);
+			removeRecord(schema, recordsOfSchema, record);
 			//	Re-throw exception:
 			throw e;
 		}
+		catch(Exception e)
+		{	// An encoding problem occurred:
+			// 	Undo adding of record:
+			removeRecord(schema, recordsOfSchema, record);
+			//	Throw exception:
+			throw new TransmissionSendingException("Error upon encoding record", e);
+		}
+	}
+	
+	private void removeRecord(Schema schema, List<Record> recordsOfSchema, Record record)
+	{
+		recordsOfSchema.remove(record);
+		if(recordsOfSchema.isEmpty())
+			recordsBySchema.remove(schema);
+	}
+	
+	/**
+	 * Computes the exact number of bits {@link #encodeRecords(Schema[])} would produce when the records of the given schema
+	 * would take up the given number of bits (while those of other schemata are left as they are).
+	 * The result is an upper bound of the size of the records part of the payload because compression will only be used
+	 * if it reduces the size.
+	 * 
+	 * @param schema
+	 * @param schemaRecordsBits
+	 * @return number of bits, or {@link Integer#MAX_VALUE} if the number of records of a schema does not fit in the corresponding field
+	 */
+	private int getRecordsBitsUpperBound(Schema schema, int schemaRecordsBits)
+	{
+		IntegerRangeMapping numberOfRecordsPerSchemaField = getNumberOfRecordsPerSchemaField(recordsBySchema.size());
+		int total = 0;
+		for(Entry<Schema, List<Record>> entry : recordsBySchema.entrySet())
+		{
+			if(!numberOfRecordsPerSchemaField.inEffectiveRange(entry.getValue().size()))
+				return Integer.MAX_VALUE; // leave it to the full check to throw the appropriate exception
+			total += numberOfRecordsPerSchemaField.size() + (entry.getKey().equals(schema) ? schemaRecordsBits : packingBySchema.get(entry.getKey()).getSize());
+		}
+		return total;
 	}
 	
 	/**
@@ -297,13 +365,9 @@ public class RecordsPayload extends Payload
 
 			// Encode records ---------------------------------------
 			BitArray recordsBits = encodeRecords(schemataInT);
-			// Compress record bits with various compression modes:
-			byte[][] comprResults = Compress(recordsBits, COMPRESSION_MODES);
-			// Determine most space-efficient compression mode:
-			int bestComprIdx = 0;
-			for(int c = 1; c < COMPRESSION_MODES.length; c++)
-				if(comprResults[c].length < comprResults[bestComprIdx].length)
-					bestComprIdx = c;
+			// Compress record bits with various compression modes & determine most space-efficient one:
+			CompressorResult bestCompr = CompressBest(recordsBits, COMPRESSION_MODES);
+			int bestComprIdx = Arrays.asList(COMPRESSION_MODES).indexOf(bestCompr.getMode());
 			
 			// Write HEADER PART 2 ----------------------------------
 			//	Compression flag (2 bits):
@@ -311,7 +375,7 @@ public class RecordsPayload extends Payload
 
 			// Write BODY: the encoded & compressed records ---------
 			if(COMPRESSION_MODES[bestComprIdx] != Compression.NONE) // if compressed : write byte array 
-				out.write(comprResults[bestComprIdx]); // write byte array
+				out.write(bestCompr.getCompressedData()); // write byte array
 			else
 				recordsBits.writeTo(out); // write bit array (avoid padding to byte boundary)
 		}
@@ -561,12 +625,19 @@ public class RecordsPayload extends Payload
 	 */
 	private int getMaxUncompressedRecordsBits()
 	{
-		return	transmission.getMaxPayloadBits()
-				- FORMAT_VERSION_SIZE				// Format version
-				- 1									// Lossless flag
-				- Model.MODEL_ID_SIZE				// Model ID
-				- model.getNumberOfSchemata()		// Schema occurrence bits
-				- COMPRESSION_FLAG_FIELD.size();	// Compression flag
+		return transmission.getMaxPayloadBits() - getHeaderBits();
+	}
+	
+	/**
+	 * @return the number of bits taken up by the payload header (i.e. everything but the encoded records)
+	 */
+	private int getHeaderBits()
+	{
+		return	FORMAT_VERSION_SIZE					// Format version
+				+ 1									// Lossless flag
+				+ Model.MODEL_ID_SIZE				// Model ID
+				+ model.getNumberOfSchemata()		// Schema occurrence bits
+				+ COMPRESSION_FLAG_FIELD.size();	// Compression flag
 	}
 	
 	/**
@@ -588,6 +659,122 @@ public class RecordsPayload extends Payload
 		return new IntegerRangeMapping(1, (int) Math.ceil(getMaxUncompressedRecordsBits() / (double) numberOfSchemata));
 	}
 
+	/**
+	 * Incrementally keeps track of the exact number of bits the records of a single schema take up when encoded by
+	 * {@link RecordsPayload#encodeRecords(Schema[])} (excluding the number of records field), taking into account the
+	 * factoring-out of column values which are the same across all records.
+	 * 
+	 * @author mstevens
+	 */
+	private class SchemaPacking
+	{
+		
+		/**
+		 * Transmittable columns, in schema order
+		 */
+		private final List<Column<?>> columns;
+		
+		/**
+		 * Values of the first record, set to {@code null} for columns which can no longer be factored out.
+		 */
+		private final BitArray[] factoredOutValues;
+		
+		private int numberOfRecords = 0;
+		
+		/**
+		 * Total size of all (transmittable) values of all records
+		 */
+		private int valuesBits = 0;
+		
+		public SchemaPacking(Schema schema)
+		{
+			Set<Column<?>> nonTransmittableColumns = transmission.client.getNonTransmittableColumns(schema); // includes auto-incr-PK columns
+			columns = new ArrayList<Column<?>>();
+			for(Column<?> c : schema.getColumns(false))
+				if(!nonTransmittableColumns.contains(c))
+					columns.add(c);
+			factoredOutValues = new BitArray[columns.size()];
+		}
+		
+		/**
+		 * @param record
+		 * @return the encoded values of the transmittable columns
+		 * @throws Exception
+		 */
+		public BitArray[] encode(Record record) throws Exception
+		{
+			BitArray[] values = new BitArray[columns.size()];
+			for(int c = 0; c < values.length; c++)
+				values[c] = columns.get(c).retrieveValueAsBits(record, lossless);
+			return values;
+		}
+		
+		/**
+		 * @return the current size in bits
+		 */
+		public int getSize()
+		{
+			int factoredOutBits = 0;
+			boolean factoring = false;
+			for(BitArray value : factoredOutValues)
+				if(value != null)
+				{
+					factoredOutBits += value.length();
+					factoring = true;
+				}
+			return getSize(numberOfRecords, valuesBits, factoring, factoredOutBits);
+		}
+		
+		/**
+		 * @param values the encoded values of a record to add
+		 * @return the size in bits if a record with the given values were to be added
+		 */
+		public int getSizeWith(BitArray[] values)
+		{
+			int factoredOutBits = 0;
+			boolean factoring = false;
+			int addedBits = 0;
+			for(int c = 0; c < values.length; c++)
+			{
+				addedBits += values[c].length();
+				if(numberOfRecords == 0 || (factoredOutValues[c] != null && factoredOutValues[c].equals(values[c])))
+				{
+					factoredOutBits += values[c].length();
+					factoring = true;
+				}
+			}
+			return getSize(numberOfRecords + 1, valuesBits + addedBits, factoring, factoredOutBits);
+		}
+		
+		private int getSize(int numberOfRecords, int valuesBits, boolean factoring, int factoredOutBits)
+		{
+			if(numberOfRecords <= 1)
+				return valuesBits; // no factoring-out header
+			return	1																	// factoring-out flag
+					+ (factoring ?
+						columns.size() + factoredOutBits - numberOfRecords * factoredOutBits :	// factored-out flags & values, minus the values no longer written per record
+						0)
+					+ valuesBits;														// record values
+		}
+		
+		/**
+		 * @param values the encoded values of the record to add
+		 */
+		public void add(BitArray[] values)
+		{
+			for(int c = 0; c < values.length; c++)
+			{
+				if(numberOfRecords == 0)
+					factoredOutValues[c] = values[c];
+				else if(factoredOutValues[c] != null && !factoredOutValues[c].equals(values[c]))
+					factoredOutValues[c] = null; // value mismatch -> this column can not be factored out
+				valuesBits += values[c].length();
+			}
+			numberOfRecords++;
+		}
+		
+	}
+
 	@Override
 	public boolean acknowledgeReception()
 	{
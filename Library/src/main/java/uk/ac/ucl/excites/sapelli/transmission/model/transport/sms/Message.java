@@ -85,6 +85,16 @@ public abstract class Message<M extends Message<M, C>, C> implements Comparable<
 	
 	protected int totalParts;
 	
+	/**
+	 * Whether or not this message has been stored in the database (or was retrieved from it).
+	 */
+	private boolean stored = false;
+	
+	/**
+	 * Whether or not this message has been modified since it was last stored in (or retrieved from) the database.
+	 */
+	private boolean modified = true;
+	
 	/**
 	 * To be called on sending side.
 	 * 
@@ -136,6 +146,8 @@ public abstract class Message<M extends Message<M, C>, C> implements Comparable<
 		this.deliveredAt = deliveredAt;
 		this.receivedAt = receivedAt;
 		this.payloadHash = transmission.getPayloadHash();
+		this.stored = true;
+		this.modified = false;
 		if(transmission.incoming) //Alternative: if(!isSent() && isReceived())
 		{	// if on receiving side:
 			this.sender = transmission.getCorrespondent();
@@ -203,6 +215,7 @@ public abstract class Message<M extends Message<M, C>, C> implements Comparable<
 	protected void setSentAt(TimeStamp sentAt)
 	{
 		this.sentAt = sentAt;
+		this.modified = true;
 	}
 	
 	public boolean isReceived()
@@ -228,6 +241,32 @@ public abstract class Message<M extends Message<M, C>, C> implements Comparable<
 	protected void setDeliveredAt(TimeStamp deliveredAt)
 	{
 		this.deliveredAt = deliveredAt;
+		this.modified = true;
+	}
+	
+	/**
+	 * @return whether or not this message has been stored in the database (or was retrieved from it)
+	 */
+	public boolean isStored()
+	{
+		return stored;
+	}
+	
+	/**
+	 * @return whether or not this message must be (re)stored in the database, because it never was or because it has been modified since
+	 */
+	public boolean isStorageRequired()
+	{
+		return !stored || modified;
+	}
+	
+	/**
+	 * To be called (by the TransmissionStore) after the message has been stored in the database.
+	 */
+	public void markStored()
+	{
+		this.stored = true;
+		this.modified = false;
 	}
 	
 	/**
@@ -0,0 +1,189 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.transmission.model.transport.sms.text;
+
+/**
+ * Encodes binary data to, and decodes it from, the body of {@link TextSMSTransmission}s, using 7-bit characters from
+ * the GSM 03.38 alphabet and the {@code ESC}/{@code SP} escaping mechanism described in {@link TextSMSTransmission}.
+ * <br/><br/>
+ * Works directly on {@code byte[]} and {@code char[]} arrays (bits are stored most significant bit first, as in
+ * {@link uk.ac.ucl.excites.sapelli.shared.io.BitArray#toByteArray()}), using array look-ups in both directions.
+ * The exact number of characters needed to encode given data can be computed without producing them (see {@link #getEncodedLength(byte[], int)}).
+ *
+ * @author mstevens
+ *
+ * @see TextSMSTransmission
+ * @see Encoding
+ * @see Decoding
+ */
+public final class BodyCodec
+{
+
+	private BodyCodec(){ /*do not instantiate*/ }
+
+	static private final int BITS_PER_CHAR = TextSMSTransmission.BITS_PER_CHAR;
+
+	/**
+	 * Mask of the escape bit, which occupies the most significant position of a character that follows an escaped one (leaving {@code BITS_PER_CHAR - 1} data bits).
+	 */
+	static private final int ESCAPE_BIT = 1 << (BITS_PER_CHAR - 1);
+
+	/**
+	 * Escape state value which indicates that the previous character was not escaped.
+	 */
+	static private final int NOT_ESCAPED = -1;
+
+	/**
+	 * Computes the exact number of characters {@link #encode(byte[], int, char[], int)} produces for the given data.
+	 *
+	 * @param bytes the data, most significant bit first
+	 * @param bitLength the number of bits to encode
+	 * @return the number of characters
+	 */
+	static public int getEncodedLength(byte[] bytes, int bitLength)
+	{
+		return encode(bytes, bitLength, null, 0);
+	}
+
+	/**
+	 * Encodes the given data as GSM 03.38 characters.
+	 *
+	 * @param bytes the data, most significant bit first
+	 * @param bitLength the number of bits to encode
+	 * @param chars the array to write the characters to, must have room for at least {@link #getEncodedLength(byte[], int)} characters starting from {@code offset}; may be {@code null}, in which case characters are only counted
+	 * @param offset position in {@code chars} at which to write the first character
+	 * @return the number of characters
+	 */
+	static public int encode(byte[] bytes, int bitLength, char[] chars, int offset)
+	{
+		if(bitLength < 0 || bitLength > bytes.length * Byte.SIZE)
+			throw new IllegalArgumentException("Invalid bitLength (" + bitLength + ")");
+		int count = 0;
+		int bitIndex = 0;
+		int escapeBit = NOT_ESCAPED;
+		while(bitIndex < bitLength || escapeBit != NOT_ESCAPED)
+		{
+			// Read 7, 6 or less bits and shift them to the left to fill 7 or 6 bits (inserting trailing 0s if less were read):
+			int dataBits = escapeBit == NOT_ESCAPED ? BITS_PER_CHAR : BITS_PER_CHAR - 1;
+			int readBits = Math.min(bitLength - bitIndex, dataBits);
+			int c = readBits(bytes, bitIndex, readBits) << (dataBits - readBits);
+			bitIndex += readBits;
+			// Insert escape bit for previous character in most significant position (if needed):
+			if(escapeBit != NOT_ESCAPED)
+				c |= escapeBit << (BITS_PER_CHAR - 1);
+			// Escaping for current character (ESC is replaced by SP, and both are followed by an escape bit), see TextSMSTransmission:
+			switch(c)
+			{
+				case Encoding.ESCAPE_ESC :
+					escapeBit = 1;
+					c = Encoding.ESCAPE_SP;
+					break;
+				case Encoding.ESCAPE_SP :
+					escapeBit = 0;
+					break;
+				default :
+					escapeBit = NOT_ESCAPED;
+			}
+			// Write character:
+			if(chars != null)
+				chars[offset + count] = Encoding.GSM_0338_CHAR_TABLE[c];
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @param length number of characters
+	 * @return the maximum number of bits the given number of characters can decode to (i.e. when no escaping was needed)
+	 */
+	static public int getMaxDecodedBitLength(int length)
+	{
+		return length * BITS_PER_CHAR;
+	}
+
+	/**
+	 * Decodes GSM 03.38 characters produced by {@link #encode(byte[], int, char[], int)}.
+	 *
+	 * @param chars the characters to decode
+	 * @param offset position of the first character to decode
+	 * @param length number of characters to decode
+	 * @param bytes the array to write the decoded bits to (most significant bit first), must be zero-filled and have room for at least {@link #getMaxDecodedBitLength(int)} bits
+	 * @return the number of decoded bits, possibly including some padding at the end (trailing 0s)
+	 * @throws IllegalArgumentException when a character does not belong to the GSM 03.38 alphabet (or is {@code ESC})
+	 */
+	static public int decode(char[] chars, int offset, int length, byte[] bytes) throws IllegalArgumentException
+	{
+		int bitIndex = 0;
+		boolean prevPrevSP = false;
+		boolean prevSP = false;
+		for(int i = offset, end = offset + length; i < end; i++)
+		{
+			int c = Decoding.GetBodyValue(chars[i]);
+			boolean currSP = (c == Encoding.ESCAPE_SP);
+			if(prevSP)
+			{	// The most significant bit of the current character indicates whether the previous one represents ESC or SP:
+				int prevBits = prevPrevSP ? BITS_PER_CHAR - 1 : BITS_PER_CHAR;
+				bitIndex = writeBits(bytes, bitIndex, (c & ESCAPE_BIT) != 0 ? Encoding.ESCAPE_ESC : Encoding.ESCAPE_SP, prevBits); // write 7 or 6 bits for previous
+				if(!currSP)
+					bitIndex = writeBits(bytes, bitIndex, c, BITS_PER_CHAR - 1); // write 6 remaining bits for current
+			}
+			else if(!currSP)
+				bitIndex = writeBits(bytes, bitIndex, c, BITS_PER_CHAR); // write all 7 bits for current
+			prevPrevSP = prevSP;
+			prevSP = currSP;
+		}
+		return bitIndex;
+	}
+
+	/**
+	 * @param bytes
+	 * @param bitIndex index of the first bit to read
+	 * @param numberOfBits between 0 and {@code BITS_PER_CHAR} (inclusive)
+	 * @return the bits as the least significant bits of an int
+	 */
+	static private int readBits(byte[] bytes, int bitIndex, int numberOfBits)
+	{
+		if(numberOfBits == 0)
+			return 0;
+		int b = bitIndex >>> 3;
+		int twoBytes = ((bytes[b] & 0xFF) << Byte.SIZE) | (b + 1 < bytes.length ? bytes[b + 1] & 0xFF : 0);
+		return (twoBytes >>> (2 * Byte.SIZE - (bitIndex & 7) - numberOfBits)) & ((1 << numberOfBits) - 1);
+	}
+
+	/**
+	 * ORs the given bits into the (zero-filled) array.
+	 *
+	 * @param bytes
+	 * @param bitIndex index at which to write the first bit
+	 * @param bits value whose least significant {@code numberOfBits} bits are written
+	 * @param numberOfBits between 1 and {@code BITS_PER_CHAR} (inclusive)
+	 * @return the index of the bit following the written ones
+	 */
+	static private int writeBits(byte[] bytes, int bitIndex, int bits, int numberOfBits)
+	{
+		int b = bitIndex >>> 3;
+		int shift = 2 * Byte.SIZE - (bitIndex & 7) - numberOfBits;
+		int twoBytes = (bits & ((1 << numberOfBits) - 1)) << shift;
+		bytes[b] |= (byte) (twoBytes >>> Byte.SIZE);
+		if(shift < Byte.SIZE)
+			bytes[b + 1] |= (byte) twoBytes;
+		return bitIndex + numberOfBits;
+	}
+
+}
@@ -18,6 +18,7 @@
 
 package uk.ac.ucl.excites.sapelli.transmission.model.transport.sms.text;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -51,6 +52,42 @@ public final class Decoding
 		GSM_0338_REVERSE_CHAR_TABLE = Collections.unmodifiableMap(map);
 	}
 	
+	/**
+	 * Array-based version of {@link #GSM_0338_REVERSE_CHAR_TABLE}, indexed by character, holding {@code -1} for characters which are not part of the body alphabet.
+	 * 
+	 * @see #GetBodyValue(char)
+	 */
+	static private final byte[] GSM_0338_REVERSE_CHAR_ARRAY;
+	static
+	{
+		char maxChar = 0;
+		for(char c : Encoding.GSM_0338_CHAR_TABLE)
+			if(c > maxChar)
+				maxChar = c;
+		final byte[] array = new byte[maxChar + 1];
+		Arrays.fill(array, (byte) -1);
+		for(int c = 0; c < Encoding.GSM_0338_CHAR_TABLE.length; c++)
+			if(c != Encoding.ESCAPE_ESC)
+				array[Encoding.GSM_0338_CHAR_TABLE[c]] = (byte) c;
+		GSM_0338_REVERSE_CHAR_ARRAY = array;
+	}
+	
+	/**
+	 * Maps a character from the {@link Encoding#GSM_0338_CHAR_TABLE} alphabet back to the 7 bits unsigned integer value
+	 * it represents when occurring in the body portion of the SMS content String (same as {@link #GSM_0338_REVERSE_CHAR_TABLE}, but without boxing).
+	 * 
+	 * @param c
+	 * @return the value (0-127)
+	 * @throws IllegalArgumentException when the character is not part of the alphabet (or represents {@code ESC})
+	 */
+	static public int GetBodyValue(char c) throws IllegalArgumentException
+	{
+		int value = c < GSM_0338_REVERSE_CHAR_ARRAY.length ? GSM_0338_REVERSE_CHAR_ARRAY[c] : -1;
+		if(value < 0)
+			throw new IllegalArgumentException("Invalid character in message body: '" + c + "' (0x" + Integer.toHexString(c) + ")");
+		return value;
+	}
+	
 	/**
 	 * Reverse look-up table which maps 64 characters from the {@link Encoding#GSM_0338_CHAR_TABLE} alphabet back to
 	 * the 6 bits unsigned integer values they represent when occurring in the header portion of the SMS content String.
@@ -0,0 +1,260 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.transmission.model.transport.sms.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.ucl.excites.sapelli.shared.io.BitArray;
+import uk.ac.ucl.excites.sapelli.shared.io.BitArrayInputStream;
+
+/**
+ * Round-trip & fuzz tests for {@link BodyCodec}, using a straightforward bit-by-bit implementation of the body encoding
+ * described in {@link TextSMSTransmission} as reference.
+ *
+ * @author mstevens
+ */
+public class BodyCodecTest
+{
+
+	static private final int BITS_PER_CHAR = TextSMSTransmission.BITS_PER_CHAR;
+
+	static private final int FUZZ_RUNS = 20000;
+
+	static private final int MAX_FUZZ_BITS = 1200;
+
+	static private final char ESC_CHAR = Encoding.GSM_0338_CHAR_TABLE[Encoding.ESCAPE_ESC];
+
+	/**
+	 * Reads all bits one at a time from a {@link BitArrayInputStream}, the way the body used to be encoded.
+	 *
+	 * @param bits
+	 * @return the encoded body
+	 * @throws IOException
+	 */
+	static private String referenceEncode(BitArray bits) throws IOException
+	{
+		StringBuilder bldr = new StringBuilder();
+		BitArrayInputStream in = new BitArrayInputStream(bits);
+		Boolean escapeBit = null;
+		while(in.bitsAvailable() > 0 || escapeBit != null)
+		{
+			int dataBits = escapeBit == null ? BITS_PER_CHAR : BITS_PER_CHAR - 1;
+			int readBits = Math.min(in.bitsAvailable(), dataBits);
+			int c = (readBits > 0 ? (int) in.readInteger(readBits, false) : 0) << (dataBits - readBits);
+			if(escapeBit != null && escapeBit)
+				c |= 1 << (BITS_PER_CHAR - 1);
+			switch(c)
+			{
+				case Encoding.ESCAPE_ESC :
+					escapeBit = true;
+					c = Encoding.ESCAPE_SP;
+					break;
+				case Encoding.ESCAPE_SP :
+					escapeBit = false;
+					break;
+				default :
+					escapeBit = null;
+			}
+			bldr.append(Encoding.GSM_0338_CHAR_TABLE[c]);
+		}
+		in.close();
+		return bldr.toString();
+	}
+
+	static private BitArray randomBits(Random random, int length)
+	{
+		BitArray bits = new BitArray(length);
+		for(int b = 0; b < length; b++)
+			bits.set(b, random.nextBoolean());
+		return bits;
+	}
+
+	/**
+	 * @param random
+	 * @param length
+	 * @return bits consisting mostly of ESC (0011011) & SP (0100000) patterns, at random offsets, so that escaped characters often follow each other
+	 */
+	static private BitArray escapeHeavyBits(Random random, int length)
+	{
+		BitArray bits = new BitArray(length);
+		int b = random.nextInt(BITS_PER_CHAR);
+		while(b < length)
+		{
+			int pattern;
+			switch(random.nextInt(5))
+			{
+				case 0 :
+					pattern = random.nextInt(1 << BITS_PER_CHAR); // random 7 bits
+					break;
+				case 1 :
+				case 2 :
+					pattern = Encoding.ESCAPE_SP;
+					break;
+				default :
+					pattern = Encoding.ESCAPE_ESC;
+			}
+			for(int p = BITS_PER_CHAR - 1; p >= 0 && b < length; p--)
+				bits.set(b++, ((pattern >>> p) & 1) == 1);
+			b += random.nextInt(3) == 0 ? 1 : 0; // occasionally shift alignment by 1 bit (e.g. to hit 6-bit data characters)
+		}
+		return bits;
+	}
+
+	/**
+	 * Encodes & decodes the given bits, checking the result against the reference encoding and the original bits.
+	 *
+	 * @param bits
+	 * @throws IOException
+	 */
+	static private void assertRoundTrip(BitArray bits) throws IOException
+	{
+		byte[] bytes = bits.toByteArray();
+		int length = BodyCodec.getEncodedLength(bytes, bits.length());
+		char[] chars = new char[length];
+		assertEquals("Encoded length", length, BodyCodec.encode(bytes, bits.length(), chars, 0));
+		String encoded = new String(chars);
+		assertEquals("Encoding of " + bits, referenceEncode(bits), encoded);
+		assertEquals("Encoded ESC character", -1, encoded.indexOf(ESC_CHAR));
+
+		byte[] decodedBytes = new byte[(BodyCodec.getMaxDecodedBitLength(length) + Byte.SIZE - 1) / Byte.SIZE];
+		int decodedLength = BodyCodec.decode(chars, 0, length, decodedBytes);
+		assertTrue("Decoded too few bits", decodedLength >= bits.length());
+		// Up to 6 bits of padding in the last data character, plus 6 in the character carrying its escape bit (if needed):
+		assertTrue("Decoded too much padding", decodedLength - bits.length() <= 2 * (BITS_PER_CHAR - 1));
+		BitArray decoded = BitArray.FromBytes(decodedBytes, decodedLength);
+		for(int b = 0; b < decodedLength; b++)
+			assertEquals("Bit " + b + " of " + bits, b < bits.length() && bits.get(b), decoded.get(b));
+	}
+
+	@Test
+	public void testEmpty() throws IOException
+	{
+		assertEquals(0, BodyCodec.getEncodedLength(new byte[0], 0));
+		assertEquals(0, BodyCodec.decode(new char[0], 0, 0, new byte[0]));
+		assertRoundTrip(new BitArray(0));
+	}
+
+	@Test
+	public void testAllCharacterValues() throws IOException
+	{
+		for(int v = 0; v < 1 << BITS_PER_CHAR; v++)
+		{
+			BitArray bits = new BitArray(BITS_PER_CHAR);
+			for(int b = 0; b < BITS_PER_CHAR; b++)
+				bits.set(b, ((v >>> (BITS_PER_CHAR - 1 - b)) & 1) == 1);
+			assertRoundTrip(bits);
+		}
+	}
+
+	@Test
+	public void testEscapeSequences() throws IOException
+	{
+		// Every combination of up to 5 consecutive ESC/SP patterns, followed by 0 to 6 additional bits:
+		for(int n = 1; n <= 5; n++)
+			for(int combination = 0; combination < 1 << n; combination++)
+				for(int extra = 0; extra < BITS_PER_CHAR; extra++)
+				{
+					BitArray bits = new BitArray(n * BITS_PER_CHAR + extra);
+					for(int p = 0; p < n; p++)
+					{
+						int pattern = ((combination >>> p) & 1) == 1 ? Encoding.ESCAPE_ESC : Encoding.ESCAPE_SP;
+						for(int b = 0; b < BITS_PER_CHAR; b++)
+							bits.set(p * BITS_PER_CHAR + b, ((pattern >>> (BITS_PER_CHAR - 1 - b)) & 1) == 1);
+					}
+					for(int b = n * BITS_PER_CHAR; b < bits.length(); b++)
+						bits.set(b, true);
+					assertRoundTrip(bits);
+				}
+	}
+
+	@Test
+	public void testFuzzRandom() throws IOException
+	{
+		Random random = new Random(0);
+		for(int r = 0; r < FUZZ_RUNS; r++)
+			assertRoundTrip(randomBits(random, random.nextInt(MAX_FUZZ_BITS)));
+	}
+
+	@Test
+	public void testFuzzEscapeHeavy() throws IOException
+	{
+		Random random = new Random(1);
+		for(int r = 0; r < FUZZ_RUNS; r++)
+			assertRoundTrip(escapeHeavyBits(random, random.nextInt(MAX_FUZZ_BITS)));
+	}
+
+	@Test
+	public void testOffsets() throws IOException
+	{
+		Random random = new Random(2);
+		BitArray bits = escapeHeavyBits(random, 500);
+		byte[] bytes = bits.toByteArray();
+		int length = BodyCodec.getEncodedLength(bytes, bits.length());
+		int offset = 13;
+		char[] chars = new char[offset + length + offset];
+		BodyCodec.encode(bytes, bits.length(), chars, offset);
+		assertEquals(referenceEncode(bits), new String(chars, offset, length));
+		byte[] decodedBytes = new byte[(BodyCodec.getMaxDecodedBitLength(length) + Byte.SIZE - 1) / Byte.SIZE];
+		int decodedLength = BodyCodec.decode(chars, offset, length, decodedBytes);
+		BitArray decoded = BitArray.FromBytes(decodedBytes, decodedLength);
+		for(int b = 0; b < bits.length(); b++)
+			assertEquals(bits.get(b), decoded.get(b));
+	}
+
+	@Test
+	public void testBitLengthShorterThanBytes() throws IOException
+	{
+		// Bits beyond bitLength must be ignored:
+		byte[] bytes = new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF };
+		BitArray bits = BitArray.FromBytes(bytes, 10);
+		char[] chars = new char[BodyCodec.getEncodedLength(bytes, 10)];
+		BodyCodec.encode(bytes, 10, chars, 0);
+		assertEquals(referenceEncode(bits), new String(chars));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBitLength()
+	{
+		BodyCodec.getEncodedLength(new byte[2], 17);
+	}
+
+	@Test
+	public void testInvalidCharacters()
+	{
+		for(char c : new char[] { ESC_CHAR, '\u20AC' /* euro sign, only in the extension table */, '\u4E00' })
+			try
+			{
+				BodyCodec.decode(new char[] { 'A', c }, 0, 2, new byte[2]);
+				fail("Decoded invalid character 0x" + Integer.toHexString(c));
+			}
+			catch(IllegalArgumentException expected)
+			{
+				assertFalse(expected.getMessage().isEmpty());
+			}
+	}
+
+}
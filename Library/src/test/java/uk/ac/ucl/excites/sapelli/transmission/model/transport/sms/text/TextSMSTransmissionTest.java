@@ -0,0 +1,124 @@
+/**
+ * Sapelli data collection platform: http://sapelli.org
+ *
+ * Copyright 2012-2016 University College London - ExCiteS group
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.ac.ucl.excites.sapelli.transmission.model.transport.sms.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.ucl.excites.sapelli.shared.io.BitArray;
+import uk.ac.ucl.excites.sapelli.transmission.util.TransmissionCapacityExceededException;
+
+/**
+ * Tests splitting {@link TextSMSTransmission} bodies into {@link TextMessage}s ({@link TextSMSTransmission#wrap(BitArray)})
+ * and reassembling them ({@link TextSMSTransmission#unwrap()}).
+ *
+ * @author mstevens
+ */
+public class TextSMSTransmissionTest
+{
+
+	static private TextSMSTransmission newTransmission()
+	{
+		return new TextSMSTransmission(null, null, false, 1, null, null, 0, null, null, null, 0, null);
+	}
+
+	/**
+	 * @param random
+	 * @param length
+	 * @param escapeHeavy whether to repeat the 7 bit ESC pattern instead of using random bits
+	 * @return
+	 */
+	static private BitArray bits(Random random, int length, boolean escapeHeavy)
+	{
+		BitArray bits = new BitArray(length);
+		for(int b = 0; b < length; b++)
+			bits.set(b, escapeHeavy ? ((Encoding.ESCAPE_ESC >>> (TextSMSTransmission.BITS_PER_CHAR - 1 - b % TextSMSTransmission.BITS_PER_CHAR)) & 1) == 1 : random.nextBoolean());
+		return bits;
+	}
+
+	static private void assertWrapUnwrap(BitArray bits) throws Exception
+	{
+		TextSMSTransmission transmission = newTransmission();
+		transmission.wrap(bits);
+
+		// Check parts:
+		byte[] bytes = bits.toByteArray();
+		int bodyChars = BodyCodec.getEncodedLength(bytes, bits.length());
+		int expectedParts = (bodyChars + TextMessage.MAX_BODY_CHARS - 1) / TextMessage.MAX_BODY_CHARS;
+		assertEquals("Number of parts", expectedParts, transmission.getCurrentNumberOfParts());
+		char[] expectedBody = new char[bodyChars];
+		BodyCodec.encode(bytes, bits.length(), expectedBody, 0);
+		StringBuilder body = new StringBuilder();
+		int p = 1;
+		for(TextMessage part : transmission.getParts())
+		{
+			assertEquals(p, part.getPartNumber());
+			assertEquals(expectedParts, part.getTotalParts());
+			assertEquals("Length of part " + p, p < expectedParts ? TextMessage.MAX_BODY_CHARS : bodyChars - (expectedParts - 1) * TextMessage.MAX_BODY_CHARS, part.getBody().length());
+			body.append(part.getBody());
+			p++;
+		}
+		assertEquals(new String(expectedBody), body.toString());
+
+		// Check unwrapped bits (which may be followed by padding):
+		BitArray unwrapped = transmission.unwrap();
+		assertFalse("Too few bits", unwrapped.length() < bits.length());
+		for(int b = 0; b < unwrapped.length(); b++)
+			assertEquals("Bit " + b, b < bits.length() && bits.get(b), unwrapped.get(b));
+	}
+
+	@Test
+	public void testWrapUnwrap() throws Exception
+	{
+		Random random = new Random(0);
+		int maxBits = TextSMSTransmission.MAX_BODY_CHARS * TextSMSTransmission.BITS_PER_CHAR;
+		for(int length : new int[] { 1, 7, 8, TextMessage.MAX_BODY_CHARS * TextSMSTransmission.BITS_PER_CHAR, TextMessage.MAX_BODY_CHARS * TextSMSTransmission.BITS_PER_CHAR + 1, maxBits / 2, maxBits - 200 })
+			assertWrapUnwrap(bits(random, length, false));
+		for(int r = 0; r < 200; r++)
+			assertWrapUnwrap(bits(random, 1 + random.nextInt(maxBits - 200), false));
+	}
+
+	@Test
+	public void testWrapUnwrapEscapeHeavy() throws Exception
+	{
+		// Every ESC pattern takes an additional bit, so the maximum number of bits is lower:
+		int maxBits = TextSMSTransmission.MAX_BODY_CHARS * (TextSMSTransmission.BITS_PER_CHAR - 1);
+		for(int length : new int[] { 7, 14, 100, 1000, maxBits - 20 })
+			assertWrapUnwrap(bits(null, length, true));
+	}
+
+	@Test(expected = TransmissionCapacityExceededException.class)
+	public void testCapacityExceeded() throws TransmissionCapacityExceededException, IOException
+	{
+		newTransmission().wrap(bits(new Random(0), TextSMSTransmission.MAX_BODY_CHARS * TextSMSTransmission.BITS_PER_CHAR + 1, false));
+	}
+
+	@Test(expected = TransmissionCapacityExceededException.class)
+	public void testCapacityExceededByEscaping() throws TransmissionCapacityExceededException, IOException
+	{
+		// Fits in MAX_BODY_CHARS characters without escaping, but not with it:
+		newTransmission().wrap(bits(null, TextSMSTransmission.MAX_BODY_CHARS * TextSMSTransmission.BITS_PER_CHAR, true));
+	}
+
+}